@@ -1,6 +1,7 @@
 package com.sethhaskellcondie.thegamepensieveapi.api;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBackupImport;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionCustomFieldValue;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionImportInProgress;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
@@ -112,6 +113,14 @@ public class ApiControllerAdvice {
         return body.formatError();
     }
 
+    @ExceptionHandler(value = {ExceptionBulkRequest.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Map<String, List<String>> handleExceptionBulkRequest(ExceptionBulkRequest e) {
+        FormattedResponseBody<List<String>> body = new FormattedResponseBody<>(e.getMessages());
+        return body.formatError();
+    }
+
     @ExceptionHandler(value = {ExceptionFailedDbValidation.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
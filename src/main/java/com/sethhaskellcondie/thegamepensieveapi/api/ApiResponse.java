@@ -1,9 +1,17 @@
 package com.sethhaskellcondie.thegamepensieveapi.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class ApiResponse<T> {
     private T data;
     private Object errors;
     private Long roundTripMs;
+    //only cursor searches return a token, every other response leaves it out entirely
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    //only searches sent with includeTotalCount=true carry a total
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalCount;
 
     public ApiResponse(T data, Object errors) {
         this.data = data;
@@ -25,4 +33,20 @@ public class ApiResponse<T> {
     public void setRoundTripMs(Long roundTripMs) {
         this.roundTripMs = roundTripMs;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
 }
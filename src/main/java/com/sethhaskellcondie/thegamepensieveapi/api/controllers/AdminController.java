@@ -11,6 +11,9 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.auth.SetRoleOverrideReque
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.SetShowcaseRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.User;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.UserRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.counts.CollectionCountDrift;
+import com.sethhaskellcondie.thegamepensieveapi.domain.counts.CollectionCountsGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionForbidden;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
@@ -74,11 +77,16 @@ public class AdminController extends BaseController {
     private final OwnerResolver ownerResolver;
     private final UserRepository userRepository;
     private final AccessService accessService;
+    private final CustomFieldSchemaCache customFieldSchemaCache;
+    private final CollectionCountsGateway collectionCountsGateway;
 
-    public AdminController(OwnerResolver ownerResolver, UserRepository userRepository, AccessService accessService) {
+    public AdminController(OwnerResolver ownerResolver, UserRepository userRepository, AccessService accessService,
+                           CustomFieldSchemaCache customFieldSchemaCache, CollectionCountsGateway collectionCountsGateway) {
         this.ownerResolver = ownerResolver;
         this.userRepository = userRepository;
         this.accessService = accessService;
+        this.customFieldSchemaCache = customFieldSchemaCache;
+        this.collectionCountsGateway = collectionCountsGateway;
     }
 
     @ResponseBody
@@ -134,6 +142,26 @@ public class AdminController extends BaseController {
         return buildResponse(updated, request);
     }
 
+    /** Hit/miss counts and size of the node's custom field schema cache, counted since the node started. */
+    @ResponseBody
+    @GetMapping("/customFieldCache")
+    public ApiResponse<CustomFieldSchemaCache.Stats> getCustomFieldCacheStats(HttpServletRequest request) {
+        requireAdmin();
+        return buildResponse(customFieldSchemaCache.getStats(), request);
+    }
+
+    /**
+     * Recount every owner's collection from the entity tables and correct the maintained counts behind
+     * {@code GET /v1/function/counts}. Returns the counts that had drifted (empty when the triggers kept them exact).
+     * Runs with the application's privileges since this route skips the tenant filter, so it covers all owners.
+     */
+    @ResponseBody
+    @PostMapping("/collectionCounts/reconcile")
+    public ApiResponse<List<CollectionCountDrift>> reconcileCollectionCounts(HttpServletRequest request) {
+        requireAdmin();
+        return buildResponse(collectionCountsGateway.reconcile(), request);
+    }
+
     /** Reject any caller that does not resolve to ADMIN (TenantContext is unavailable on these bypassed routes). */
     private void requireAdmin() {
         final OwnerContext caller = ownerResolver.resolveOwner();
@@ -1,22 +1,31 @@
 package com.sethhaskellcondie.thegamepensieveapi.api.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sethhaskellcondie.thegamepensieveapi.api.ApiResponse;
 import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.BackupDataDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.BackupDataWriter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.BackupImportGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.ImportJobDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.ImportResultsDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.backupimport.LocalBackupFileStore;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionImportInProgress;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -40,26 +49,37 @@ public class BackupImportController extends BaseController {
         this.localBackupFileStore = localBackupFileStore;
     }
 
+    /**
+     * The backup is streamed, it is written to the response (and to the local file when there is one) as it is read
+     * from the database instead of being built in memory, see BackupImportService.writeBackupData(). The response has
+     * the usual ApiResponse envelope, with the round trip measured once the data is written. With since the backup is
+     * incremental (see BackupImportGateway.writeBackupData(JsonGenerator, String)), it is only written to the response:
+     * the local file is always the full backup.
+     */
     @PostMapping("v1/function/backup")
-    public ApiResponse<BackupDataDto> backupJson(HttpServletRequest request) {
-        final BackupDataDto backupDataDto = gateway.getBackupData();
-        localBackupFileStore.ifPresent(store -> store.write(backupDataDto));
-        return buildResponse(backupDataDto, request);
+    public void backupJson(@RequestParam(required = false) String since, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (null != since) {
+            writeStreamedResponse(generator -> gateway.writeBackupData(generator, since), request, response);
+            return;
+        }
+        localBackupFileStore.ifPresent(store -> store.write(gateway::writeBackupData));
+        writeStreamedResponse(gateway::writeBackupData, request, response);
     }
 
+    /**
+     * The import runs as a background job: the body is taken in and the queued job returned (see
+     * BackupImportGateway.startImportJob()), GET v1/function/import/{id} reports how far it got and, once it is done,
+     * its results and errors. The body is never bound whole, its size is limited by the request body cap.
+     */
     @PostMapping("v1/function/import")
-    public ApiResponse<FormattedImportResultsData> importJsonFromRequestBody(@RequestBody Map<String, BackupDataDto> requestBody, HttpServletRequest request) {
-        if (!gateway.tryStartImport()) {
-            throw new ExceptionImportInProgress();
-        }
-        try {
-            final BackupDataDto backupData = requestBody.get("data");
-            final ImportResultsDto importResults = gateway.importBackupData(backupData);
-            final FormattedImportResultsData data = FormattedImportResultsData.from(importResults);
-            return buildResponse(data, importResults.exceptionBackupImport().getMessages(), request);
-        } finally {
-            gateway.finishImport();
-        }
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ApiResponse<ImportJobDto> importJsonFromRequestBody(HttpServletRequest request) throws IOException {
+        return buildResponse(gateway.startImportJob(request.getInputStream()), request);
+    }
+
+    @GetMapping("v1/function/import/{id}")
+    public ApiResponse<ImportJobDto> getImportJob(@PathVariable int id, HttpServletRequest request) {
+        return buildResponse(gateway.getImportJob(id), request);
     }
 
     @PostMapping("v1/function/seedSampleData")
@@ -79,23 +99,42 @@ public class BackupImportController extends BaseController {
      * is off in the default build, so a local single-user instance keeps seeding freely.
      */
     private ApiResponse<FormattedImportResultsData> seedFromBundledFile(String fileName, HttpServletRequest request) {
+        //the owner's import lock is held until the request's transaction ends
         if (!gateway.tryStartImport()) {
             throw new ExceptionImportInProgress();
         }
+        final BackupDataDto seedData;
         try {
-            final BackupDataDto seedData;
-            try {
-                final byte[] fileData = Files.readAllBytes(Paths.get(fileName));
-                seedData = objectMapper.readValue(fileData, BackupDataDto.class);
-            } catch (IOException e) {
-                throw new ExceptionInternalError("Failed to read seed data from file: " + fileName, e);
-            }
-            final ImportResultsDto importResults = gateway.importSeedData(seedData);
-            final FormattedImportResultsData data = FormattedImportResultsData.from(importResults);
-            return buildResponse(data, importResults.exceptionBackupImport().getMessages(), request);
-        } finally {
-            gateway.finishImport();
+            final byte[] fileData = Files.readAllBytes(Paths.get(fileName));
+            seedData = objectMapper.readValue(fileData, BackupDataDto.class);
+        } catch (IOException e) {
+            throw new ExceptionInternalError("Failed to read seed data from file: " + fileName, e);
+        }
+        final ImportResultsDto importResults = gateway.importSeedData(seedData);
+        final FormattedImportResultsData data = FormattedImportResultsData.from(importResults);
+        return buildResponse(data, importResults.exceptionBackupImport().getMessages(), request);
+    }
+
+    /**
+     * Nothing reaches the client before the first chunk is flushed, so an error thrown before then (a missing
+     * capability) still gets the normal error response. After that the response is committed, an error cuts it short.
+     */
+    private void writeStreamedResponse(BackupDataWriter dataWriter, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final JsonGenerator generator = getObjectMapper().createGenerator(response.getOutputStream());
+        generator.writeStartObject();
+        generator.writeFieldName("data");
+        dataWriter.write(generator);
+        generator.writeNullField("errors");
+        final Object startTimeAttr = request.getAttribute("requestStartTime");
+        if (startTimeAttr instanceof Long startTime) {
+            generator.writeNumberField("roundTripMs", System.currentTimeMillis() - startTime);
+        } else {
+            generator.writeNullField("roundTripMs");
         }
+        generator.writeEndObject();
+        generator.close();
     }
 }
 
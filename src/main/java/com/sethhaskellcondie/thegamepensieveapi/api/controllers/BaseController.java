@@ -1,14 +1,58 @@
 package com.sethhaskellcondie.thegamepensieveapi.api.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.sethhaskellcondie.thegamepensieveapi.api.ApiResponse;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public abstract class BaseController {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    //Spring's configured mapper so a streamed row serializes exactly like the same row inside an ApiResponse
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
     protected <T> ApiResponse<T> buildResponse(T data, HttpServletRequest request) {
         return buildResponse(data, null, request);
     }
 
+    /**
+     * A search response, the continuation token for cursor searches and the total count (both absent unless they
+     * apply) ride alongside the data so the data stays a plain list for every client.
+     */
+    protected <T> ApiResponse<List<T>> buildPageResponse(FilterPage<T> page, HttpServletRequest request) {
+        final ApiResponse<List<T>> response = buildResponse(page.results(), request);
+        response.setNextCursor(page.nextCursor());
+        response.setTotalCount(page.totalCount());
+        return response;
+    }
+
+    //a search whose results were already written as a JSON array by the database, they go into the data field untouched
+    protected ApiResponse<RawValue> buildRawJsonResponse(String json, HttpServletRequest request) {
+        return buildResponse(new RawValue(json), request);
+    }
+
     protected <T> ApiResponse<T> buildResponse(T data, Object errors, HttpServletRequest request) {
         ApiResponse<T> response = new ApiResponse<>(data, errors);
         Object startTimeAttr = request.getAttribute("requestStartTime");
@@ -17,4 +61,33 @@ public abstract class BaseController {
         }
         return response;
     }
+
+    /**
+     * Write a streamed search as newline delimited JSON, one response dto per line with no ApiResponse envelope.
+     * search is a gateway's streamWithFilters(), each chunk is written and flushed before the next one is
+     * read so the response is never held in memory. An error thrown before the first chunk (a bad filter, a missing
+     * capability) still gets the normal JSON error response, as long as the client also accepts application/json.
+     * After the first chunk the response is committed, an error cuts the stream short.
+     */
+    protected <T> void writeNdjson(HttpServletResponse response, List<FilterRequestDto> filters,
+                                   BiConsumer<List<FilterRequestDto>, Consumer<List<T>>> search) throws IOException {
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final OutputStream outputStream = response.getOutputStream();
+        try {
+            search.accept(filters, chunk -> {
+                try {
+                    for (T row : chunk) {
+                        outputStream.write(objectMapper.writeValueAsBytes(row));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
@@ -2,25 +2,33 @@ package com.sethhaskellcondie.thegamepensieveapi.api.controllers;
 
 import com.sethhaskellcondie.thegamepensieveapi.api.ApiResponse;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxGateway;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -42,9 +50,24 @@ public class BoardGameBoxController extends BaseController {
 
     @ResponseBody
     @PostMapping("/function/search")
-    public ApiResponse<List<BoardGameBoxResponseDto>> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
-        final List<BoardGameBoxResponseDto> data = gateway.getWithFilters(requestBody.get("filters"));
-        return buildResponse(data, request);
+    public ApiResponse<List<BoardGameBoxResponseDto>> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody,
+                                                       @RequestParam(defaultValue = "false") boolean includeTotalCount, HttpServletRequest request) {
+        final FilterPage<BoardGameBoxResponseDto> page = gateway.getPageWithFilters(requestBody.get("filters"), includeTotalCount);
+        return buildPageResponse(page, request);
+    }
+
+    //the same search streamed as newline delimited JSON, chosen with Accept: application/x-ndjson
+    @PostMapping(value = "/function/search", produces = APPLICATION_NDJSON)
+    public void streamWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletResponse response) throws IOException {
+        writeNdjson(response, requestBody.get("filters"), gateway::streamWithFilters);
+    }
+
+    //the value counts for a filter sidebar, takes the same filters as a search
+    @ResponseBody
+    @PostMapping("/function/facets")
+    public ApiResponse<List<FilterFacet>> getFacetsWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
+        final List<FilterFacet> facets = gateway.getFacetsWithFilters(requestBody.get("filters"));
+        return buildResponse(facets, request);
     }
 
     @ResponseBody
@@ -55,6 +78,15 @@ public class BoardGameBoxController extends BaseController {
         return buildResponse(responseDto, request);
     }
 
+    //every item is validated before any are written, a failure rolls back the whole list and is reported with the index of the item
+    @ResponseBody
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ApiResponse<List<BoardGameBoxResponseDto>> createNewBulk(@RequestBody Map<String, List<BoardGameBoxRequestDto>> requestBody, HttpServletRequest request) {
+        final List<BoardGameBoxResponseDto> responseDtos = gateway.createNewBulk(requestBody.get(Keychain.BOARD_GAME_BOX_KEY));
+        return buildResponse(responseDtos, request);
+    }
+
     @ResponseBody
     @PutMapping("/{id}")
     public ApiResponse<BoardGameBoxResponseDto> updateExisting(@PathVariable int id, @RequestBody Map<String, BoardGameBoxRequestDto> requestBody, HttpServletRequest request) {
@@ -69,4 +101,19 @@ public class BoardGameBoxController extends BaseController {
         gateway.deleteById(id);
         return buildResponse("", request);
     }
+
+    //one set-based update of every row matched by the ids or the filters, the response holds the ids of the rows that were changed
+    @ResponseBody
+    @PatchMapping("/function/bulkUpdate")
+    public ApiResponse<BulkResponseDto> bulkUpdate(@RequestBody BulkRequestDto requestBody, HttpServletRequest request) {
+        final BulkResponseDto responseDto = gateway.bulkUpdate(requestBody);
+        return buildResponse(responseDto, request);
+    }
+
+    @ResponseBody
+    @PatchMapping("/function/bulkDelete")
+    public ApiResponse<BulkResponseDto> bulkDelete(@RequestBody BulkRequestDto requestBody, HttpServletRequest request) {
+        final BulkResponseDto responseDto = gateway.bulkDelete(requestBody);
+        return buildResponse(responseDto, request);
+    }
 }
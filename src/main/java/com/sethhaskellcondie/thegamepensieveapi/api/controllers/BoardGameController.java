@@ -6,17 +6,22 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGam
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -38,9 +43,24 @@ public class BoardGameController extends BaseController {
 
     @ResponseBody
     @PostMapping("/function/search")
-    public ApiResponse<List<BoardGameResponseDto>> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
-        final List<BoardGameResponseDto> data = gateway.getWithFilters(requestBody.get("filters"));
-        return buildResponse(data, request);
+    public ApiResponse<List<BoardGameResponseDto>> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody,
+                                                       @RequestParam(defaultValue = "false") boolean includeTotalCount, HttpServletRequest request) {
+        final FilterPage<BoardGameResponseDto> page = gateway.getPageWithFilters(requestBody.get("filters"), includeTotalCount);
+        return buildPageResponse(page, request);
+    }
+
+    //the same search streamed as newline delimited JSON, chosen with Accept: application/x-ndjson
+    @PostMapping(value = "/function/search", produces = APPLICATION_NDJSON)
+    public void streamWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletResponse response) throws IOException {
+        writeNdjson(response, requestBody.get("filters"), gateway::streamWithFilters);
+    }
+
+    //the value counts for a filter sidebar, takes the same filters as a search
+    @ResponseBody
+    @PostMapping("/function/facets")
+    public ApiResponse<List<FilterFacet>> getFacetsWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
+        final List<FilterFacet> facets = gateway.getFacetsWithFilters(requestBody.get("filters"));
+        return buildResponse(facets, request);
     }
 
     @ResponseBody
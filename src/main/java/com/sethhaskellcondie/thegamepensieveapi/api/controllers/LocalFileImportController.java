@@ -35,16 +35,13 @@ public class LocalFileImportController extends BaseController {
 
     @PostMapping("v1/function/importFromFile")
     public ApiResponse<FormattedImportResultsData> importJsonFromFile(HttpServletRequest request) {
+        //the owner's import lock is held until the request's transaction ends
         if (!gateway.tryStartImport()) {
             throw new ExceptionImportInProgress();
         }
-        try {
-            final BackupDataDto backupData = localBackupFileStore.read();
-            final ImportResultsDto importResults = gateway.importBackupData(backupData);
-            final FormattedImportResultsData data = FormattedImportResultsData.from(importResults);
-            return buildResponse(data, importResults.exceptionBackupImport().getMessages(), request);
-        } finally {
-            gateway.finishImport();
-        }
+        final BackupDataDto backupData = localBackupFileStore.read();
+        final ImportResultsDto importResults = gateway.importBackupData(backupData);
+        final FormattedImportResultsData data = FormattedImportResultsData.from(importResults);
+        return buildResponse(data, importResults.exceptionBackupImport().getMessages(), request);
     }
 }
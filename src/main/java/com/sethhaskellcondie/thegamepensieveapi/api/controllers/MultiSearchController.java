@@ -0,0 +1,34 @@
+package com.sethhaskellcondie.thegamepensieveapi.api.controllers;
+
+import com.sethhaskellcondie.thegamepensieveapi.api.ApiResponse;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.multisearch.MultiSearchGateway;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches several entities in one round trip, the home screen loads every collection with it instead of a request
+ * per entity. The searches run concurrently, see {@link MultiSearchGateway}.
+ */
+@RestController
+public class MultiSearchController extends BaseController {
+
+    private final MultiSearchGateway gateway;
+
+    public MultiSearchController(MultiSearchGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    @ResponseBody
+    @PostMapping("v1/function/multiSearch")
+    public ApiResponse<Map<String, List<?>>> multiSearch(@RequestBody Map<String, Map<String, List<FilterRequestDto>>> requestBody, HttpServletRequest request) {
+        final Map<String, List<?>> results = gateway.search(requestBody.get("searches"));
+        return buildResponse(results, request);
+    }
+}
@@ -0,0 +1,40 @@
+package com.sethhaskellcondie.thegamepensieveapi.api.controllers;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Where the response JSON of a video game or video game box search is built, set with pensieve.search.json-assembly.
+ * 'java' (the default) loads the entities, hydrates them, and lets Jackson write the response dtos. 'database' has
+ * Postgres build the whole array in the search statement and writes it into the response as is, see
+ * EntityRepositoryAbstract.getJsonWithFilters(). Both produce the same JSON so the two can be measured against each
+ * other on the same data by flipping the setting.
+ *
+ * <p>Cursor searches and searches with includeTotalCount=true always take the Java path, only it produces the next
+ * cursor and the total count. So do the searches of an entity whose gateway doesn't supportsJsonWithFilters().
+ */
+@Component
+public class SearchJsonAssembly {
+    public static final String JAVA = "java";
+    public static final String DATABASE = "database";
+
+    private final boolean database;
+
+    public SearchJsonAssembly(@Value("${pensieve.search.json-assembly:" + JAVA + "}") String assembly) {
+        if (!JAVA.equals(assembly) && !DATABASE.equals(assembly)) {
+            throw new IllegalStateException("pensieve.search.json-assembly must be '" + JAVA + "' or '" + DATABASE + "', found: '" + assembly + "'.");
+        }
+        this.database = DATABASE.equals(assembly);
+    }
+
+    public boolean useDatabase(List<FilterRequestDto> filters, boolean includeTotalCount) {
+        if (!database || includeTotalCount) {
+            return false;
+        }
+        return null == filters || filters.stream().noneMatch(filter -> Filter.OPERATOR_CURSOR.equals(filter.operator()));
+    }
+}
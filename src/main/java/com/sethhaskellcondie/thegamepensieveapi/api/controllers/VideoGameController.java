@@ -6,17 +6,22 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGam
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -24,9 +29,11 @@ import java.util.Map;
 @RequestMapping("v1/videoGames")
 public class VideoGameController extends BaseController {
     private final VideoGameGateway gateway;
+    private final SearchJsonAssembly searchJsonAssembly;
 
-    public VideoGameController(VideoGameGateway gateway) {
+    public VideoGameController(VideoGameGateway gateway, SearchJsonAssembly searchJsonAssembly) {
         this.gateway = gateway;
+        this.searchJsonAssembly = searchJsonAssembly;
     }
 
     @ResponseBody
@@ -38,9 +45,28 @@ public class VideoGameController extends BaseController {
 
     @ResponseBody
     @PostMapping("/function/search")
-    public ApiResponse<List<VideoGameResponseDto>> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
-        final List<VideoGameResponseDto> data = gateway.getWithFilters(requestBody.get("filters"));
-        return buildResponse(data, request);
+    public ApiResponse<?> getWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody,
+                                         @RequestParam(defaultValue = "false") boolean includeTotalCount, HttpServletRequest request) {
+        final List<FilterRequestDto> filters = requestBody.get("filters");
+        if (gateway.supportsJsonWithFilters() && searchJsonAssembly.useDatabase(filters, includeTotalCount)) {
+            return buildRawJsonResponse(gateway.getJsonWithFilters(filters), request);
+        }
+        final FilterPage<VideoGameResponseDto> page = gateway.getPageWithFilters(filters, includeTotalCount);
+        return buildPageResponse(page, request);
+    }
+
+    //the same search streamed as newline delimited JSON, chosen with Accept: application/x-ndjson
+    @PostMapping(value = "/function/search", produces = APPLICATION_NDJSON)
+    public void streamWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletResponse response) throws IOException {
+        writeNdjson(response, requestBody.get("filters"), gateway::streamWithFilters);
+    }
+
+    //the value counts for a filter sidebar, takes the same filters as a search
+    @ResponseBody
+    @PostMapping("/function/facets")
+    public ApiResponse<List<FilterFacet>> getFacetsWithFilters(@RequestBody Map<String, List<FilterRequestDto>> requestBody, HttpServletRequest request) {
+        final List<FilterFacet> facets = gateway.getFacetsWithFilters(requestBody.get("filters"));
+        return buildResponse(facets, request);
     }
 
     @ResponseBody
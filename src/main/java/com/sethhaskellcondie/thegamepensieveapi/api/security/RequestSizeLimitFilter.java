@@ -20,9 +20,11 @@ import java.io.IOException;
  * Refuses a request whose declared body size is over the cap, with <strong>413 Payload Too Large</strong>,
  * before a single byte is deserialized.
  *
- * <p><strong>Why this exists.</strong> {@code POST /v1/function/import} takes an
- * {@code @RequestBody Map<String, Object>}, which Jackson materializes into the heap in full before the
- * controller method is entered. Spring Boot has no body-size setting that covers it:
+ * <p><strong>Why this exists.</strong> {@code POST /v1/function/import} used to take an
+ * {@code @RequestBody Map<String, Object>}, which Jackson materialized into the heap in full before the
+ * controller method was entered. The import now reads its body as a stream, a chunk of entities at a time,
+ * but every other JSON {@code @RequestBody} is still bound whole, and the import still holds one
+ * transaction open for as long as its body takes to arrive. Spring Boot has no body-size setting that covers it:
  * {@code server.tomcat.max-http-form-post-size} applies only to {@code application/x-www-form-urlencoded}
  * bodies and {@code spring.servlet.multipart.*} only to multipart, so a large JSON document has, until now,
  * had no ceiling at all. On a 4 GB host running a 1 GB-capped JVM alongside two databases and Keycloak,
@@ -39,6 +41,11 @@ import java.io.IOException;
  * complete: Caddy stops what it can see arriving, this stops what a client claims to be sending. This
  * filter is the inner of the two and the one that still applies when the app is run without Caddy.
  *
+ * <p><strong>The import has its own cap.</strong> A collection backup is the one body that legitimately grows
+ * with the collection, and since the import reads it as a stream its size no longer decides how much of it is
+ * in the heap. {@code POST /v1/function/import} is held to {@code pensieve.max-import-body-bytes} (100 MB)
+ * instead, every other request keeps the general cap, and the Caddyfile splits its edge cap on the same path.
+ *
  * <p>Registered with a high precedence so it runs before the security chain: there is no reason to
  * authenticate a request that is going to be refused on size, and no reason to let one reach the point
  * where its body is read.
@@ -49,38 +56,51 @@ public class RequestSizeLimitFilter extends OncePerRequestFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RequestSizeLimitFilter.class);
 
+    private static final String IMPORT_PATH = "/v1/function/import";
+
     private final long maxBodyBytes;
+    private final long maxImportBodyBytes;
 
-    // Default 10 MB (the largest real collection backup in this repo is ~3.3 MB, so ~3x headroom). The
-    // property is declared in application.properties; the literal here is the fallback if it is ever removed.
-    public RequestSizeLimitFilter(@Value("${pensieve.max-request-body-bytes:10485760}") long maxBodyBytes) {
+    // Defaults 10 MB and 100 MB (the largest real collection backup in this repo is ~3.3 MB). The properties
+    // are declared in application.properties; the literals here are the fallbacks if they are ever removed.
+    public RequestSizeLimitFilter(@Value("${pensieve.max-request-body-bytes:10485760}") long maxBodyBytes,
+                                  @Value("${pensieve.max-import-body-bytes:104857600}") long maxImportBodyBytes) {
         this.maxBodyBytes = maxBodyBytes;
+        this.maxImportBodyBytes = maxImportBodyBytes;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
         final long declared = request.getContentLengthLong();
-        if (declared > maxBodyBytes) {
+        final long cap = isImport(request) ? maxImportBodyBytes : maxBodyBytes;
+        if (declared > cap) {
             // Logged at WARN, not ERROR: a refused oversized upload is the filter working, not a fault. The
             // path is included because an operator's first question is always "which endpoint".
             LOGGER.warn("Refused a request body of {} bytes on {} {} (cap is {} bytes)",
-                    declared, request.getMethod(), request.getRequestURI(), maxBodyBytes);
-            writeTooLarge(response);
+                    declared, request.getMethod(), request.getRequestURI(), cap);
+            writeTooLarge(response, cap);
             return;
         }
         chain.doFilter(request, response);
     }
 
+    // Exact path only: GET /v1/function/import/{id} has no body, and a prefix match would hand the larger cap
+    // to whatever is mapped under the import path next.
+    private boolean isImport(HttpServletRequest request) {
+        return "POST".equals(request.getMethod())
+                && (request.getContextPath() + IMPORT_PATH).equals(request.getRequestURI());
+    }
+
     // Hand-written rather than routed through ApiControllerAdvice: a filter runs OUTSIDE the DispatcherServlet,
     // so @ControllerAdvice never sees an exception thrown here. The shape matches FormattedResponseBody's
     // error form ({"data": null, "errors": [...]}) so clients parse it exactly like every other error.
-    private void writeTooLarge(HttpServletResponse response) throws IOException {
+    private void writeTooLarge(HttpServletResponse response, long cap) throws IOException {
         response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setCharacterEncoding("UTF-8");
         response.getWriter().write(
                 "{\"data\":null,\"errors\":[\"Request body is too large. The maximum is "
-                        + maxBodyBytes + " bytes.\"]}");
+                        + cap + " bytes.\"]}");
     }
 }
@@ -65,6 +65,15 @@ public class SecurityConfig {
         "/v1/videoGameBoxes/function/search",
         "/v1/boardGames/function/search",
         "/v1/boardGameBoxes/function/search",
+        // facets only count the rows the searches above return, so they expose nothing a search doesn't
+        "/v1/systems/function/facets",
+        "/v1/toys/function/facets",
+        "/v1/videoGames/function/facets",
+        "/v1/videoGameBoxes/function/facets",
+        "/v1/boardGames/function/facets",
+        "/v1/boardGameBoxes/function/facets",
+        // a multi search is the searches above run together, each through its own entity's gateway
+        "/v1/function/multiSearch",
     };
 
     // Per-entity counts (GET only) join the guest read surface: they summarize exactly the rows the public
@@ -0,0 +1,125 @@
+package com.sethhaskellcondie.thegamepensieveapi.api.tenant;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.auth.Role;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent reads of the current request concurrently, each on its own virtual thread. The tenant session
+ * is bound to the request thread's transaction (see {@link TenantTransactionFilter}), so a task can't share it: each
+ * task opens its own read-only transaction on its own pooled connection and calls
+ * {@link TenantSessionRepository#assumeTenant(int)} for the request's owner, with the request's {@link TenantContext}
+ * copied onto its thread. Row-Level Security scopes the task exactly like the request.
+ *
+ * <p>Every task holds a connection on top of the one the request already holds, and requests that wait on the pool
+ * while holding a connection can starve it. So only max-concurrent-transactions tasks run on their own transaction
+ * across the whole node at once (keep it well under the pool size), a task that can't get a permit runs on the
+ * calling thread inside the request's transaction instead. Under load that degrades to running the tasks one after
+ * another rather than to queueing for more connections. Outside a tenant request (no owner in the
+ * {@link TenantContext}) every task runs on the calling thread.
+ */
+@Component
+public class TenantParallelExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final TenantSessionRepository tenantSessionRepository;
+    private final Semaphore transactionPermits;
+
+    public TenantParallelExecutor(PlatformTransactionManager transactionManager, TenantSessionRepository tenantSessionRepository,
+                                  @Value("${pensieve.parallel-reads.max-concurrent-transactions:4}") int maxConcurrentTransactions) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.tenantSessionRepository = tenantSessionRepository;
+        this.transactionPermits = new Semaphore(maxConcurrentTransactions);
+    }
+
+    /**
+     * Run every task and return their results in the same order. The first task to fail (in task order) has its
+     * exception rethrown once every task is done, so error handling is the same as if they ran one after another.
+     */
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        final Integer ownerId = TenantContext.get();
+        final Role role = TenantContext.getRole();
+        final boolean showcaseView = TenantContext.isShowcaseView();
+
+        final List<Future<T>> results = new ArrayList<>(tasks.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Integer> inlineTasks = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                final Supplier<T> task = tasks.get(i);
+                if (null != ownerId && transactionPermits.tryAcquire()) {
+                    results.add(executor.submit(() -> {
+                        try {
+                            return runAsTenant(task, ownerId, role, showcaseView);
+                        } finally {
+                            transactionPermits.release();
+                        }
+                    }));
+                } else {
+                    results.add(null);
+                    inlineTasks.add(i);
+                }
+            }
+            //the calling thread works through its share while the virtual threads run theirs
+            for (Integer index : inlineTasks) {
+                results.set(index, runInline(tasks.get(index)));
+            }
+        }
+        final List<T> values = new ArrayList<>(results.size());
+        for (Future<T> result : results) {
+            values.add(getResult(result));
+        }
+        return values;
+    }
+
+    private <T> T runAsTenant(Supplier<T> task, int ownerId, Role role, boolean showcaseView) {
+        TenantContext.set(ownerId);
+        TenantContext.setRole(role);
+        TenantContext.setShowcaseView(showcaseView);
+        try {
+            return transactionTemplate.execute(status -> {
+                tenantSessionRepository.assumeTenant(ownerId);
+                return task.get();
+            });
+        } finally {
+            TenantContext.clearShowcaseView();
+            TenantContext.clearRole();
+            TenantContext.clear();
+        }
+    }
+
+    private static <T> Future<T> runInline(Supplier<T> task) {
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private static <T> T getResult(Future<T> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ExceptionInternalError("A parallel read failed.", exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ExceptionInternalError("Interrupted while waiting on a parallel read.", exception);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class JdbcBatch {
+
+    private JdbcBatch() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Run one INSERT/UPDATE ... RETURNING statement as a single JDBC batch, one set of parameters per item, and map
+     * every returned row. The driver hands back the rows of every statement in the batch through getGeneratedKeys()
+     * in batch order, so the returned list lines up with the items.
+     */
+    public static <I, R> List<R> executeReturning(JdbcTemplate jdbcTemplate, String sql, List<I> items,
+                                                  ParameterizedPreparedStatementSetter<I> parameterSetter, RowMapper<R> rowMapper) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final PreparedStatementCreator statementCreator = connection -> connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        final PreparedStatementCallback<List<R>> batch = ps -> {
+            for (I item : items) {
+                parameterSetter.setValues(ps, item);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            final List<R> rows = new ArrayList<>(items.size());
+            try (ResultSet resultSet = ps.getGeneratedKeys()) {
+                while (resultSet.next()) {
+                    rows.add(rowMapper.mapRow(resultSet, rows.size()));
+                }
+            }
+            return rows;
+        };
+        return jdbcTemplate.execute(statementCreator, batch);
+    }
+}
@@ -0,0 +1,95 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads an import document ({"data": {...the fields of BackupDataDto...}}, the body of /v1/function/import) one field
+ * of the data object at a time, so the document is never bound as a whole. A section is either read as one list
+ * (custom fields, metadata) or handed over CHUNK_SIZE entries at a time (the entities), each chunk is bound only when
+ * the one before it is done with. Fields outside of data are skipped.
+ */
+final class BackupDataReader {
+    static final int CHUNK_SIZE = 500;
+
+    private final JsonParser parser;
+
+    BackupDataReader(JsonParser parser) throws IOException {
+        this.parser = parser;
+        expect(parser.nextToken(), JsonToken.START_OBJECT, "The import must be a JSON object.");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.currentName();
+            parser.nextToken();
+            if ("data".equals(fieldName)) {
+                expect(parser.currentToken(), JsonToken.START_OBJECT, "The data of the import must be a JSON object.");
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new ExceptionInputValidation("The import is missing its data object.");
+    }
+
+    /** The name of the next section of the data, positioned on its value. Null once the data object has ended. */
+    String nextSection() throws IOException {
+        if (parser.nextToken() != JsonToken.FIELD_NAME) {
+            return null;
+        }
+        final String section = parser.currentName();
+        parser.nextToken();
+        return section;
+    }
+
+    void skipSection() throws IOException {
+        parser.skipChildren();
+    }
+
+    /** The whole section as one list, null if the section is null like a missing list in BackupDataDto. */
+    <T> List<T> readList(Class<T> type) throws IOException {
+        final List<T> values = new ArrayList<>();
+        if (!startArray()) {
+            return null;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.readValueAs(type));
+        }
+        return values;
+    }
+
+    /** The section CHUNK_SIZE entries at a time, chunkConsumer has to be done with a chunk before it returns. */
+    <T> void readChunks(Class<T> type, Consumer<List<T>> chunkConsumer) throws IOException {
+        if (!startArray()) {
+            return;
+        }
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            chunk.add(parser.readValueAs(type));
+            if (chunk.size() == CHUNK_SIZE) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    private boolean startArray() {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        expect(parser.currentToken(), JsonToken.START_ARRAY, "The " + parser.currentName() + " of the import must be a JSON array.");
+        return true;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, String message) {
+        if (actual != expected) {
+            throw new ExceptionInputValidation(message);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes a whole backup to a generator, the generator decides where it goes (a response, a file) and how it is
+ * formatted. BackupImportGateway::writeBackupData is the one in use.
+ */
+@FunctionalInterface
+public interface BackupDataWriter {
+    void write(JsonGenerator generator) throws IOException;
+}
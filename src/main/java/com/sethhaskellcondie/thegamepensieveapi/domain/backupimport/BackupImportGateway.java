@@ -1,45 +1,139 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.AccessService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.Capability;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionForbidden;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionImportInProgress;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 
 @Component
 public class BackupImportGateway {
     private final BackupImportService service;
     private final AccessService access;
-    private final AtomicBoolean importInProgress = new AtomicBoolean(false);
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobRunner importJobRunner;
 
-    public BackupImportGateway(BackupImportService service, AccessService access) {
+    public BackupImportGateway(BackupImportService service, AccessService access, ImportJobRepository importJobRepository, ImportJobRunner importJobRunner) {
         this.service = service;
         this.access = access;
+        this.importJobRepository = importJobRepository;
+        this.importJobRunner = importJobRunner;
     }
 
     public BackupDataDto getBackupData() {
+        requireBackupAccess();
+        return service.getBackupData();
+    }
+
+    /**
+     * The backup written straight to generator, see BackupImportService.writeBackupData(). The access check comes
+     * before anything is written, so a caller without BACKUP gets the normal error response.
+     */
+    public void writeBackupData(JsonGenerator generator) throws IOException {
+        requireBackupAccess();
+        service.writeBackupData(generator);
+    }
+
+    /**
+     * An incremental backup of what changed at or after since, see BackupImportService.writeBackupData(JsonGenerator,
+     * Timestamp). since is an ISO-8601 timestamp with its offset ('2026-10-17T00:00:00Z'), the way the exportedAt of
+     * the last backup is written. A time without an offset is rejected rather than read in the server's zone, which a
+     * client in another zone (or the server moved to one) would shift the window by. It is checked before anything is
+     * written.
+     */
+    public void writeBackupData(JsonGenerator generator, String since) throws IOException {
+        requireBackupAccess();
+        final Timestamp sinceTimestamp;
+        try {
+            sinceTimestamp = Timestamp.from(OffsetDateTime.parse(since.trim()).toInstant());
+        } catch (DateTimeParseException exception) {
+            throw new ExceptionInputValidation("The since of an incremental backup must be an ISO-8601 timestamp with an offset like '2026-10-17T00:00:00Z', it was: '"
+                    + since + "'.");
+        }
+        service.writeBackupData(generator, sinceTimestamp);
+    }
+
+    private void requireImportAccess() {
+        if (!access.can(Capability.IMPORT)) {
+            throw new ExceptionForbidden("Permission denied, import access required.");
+        }
+    }
+
+    private void requireBackupAccess() {
         if (!access.can(Capability.BACKUP)) {
             throw new ExceptionForbidden("Permission denied, backup access required.");
         }
-        return service.getBackupData();
     }
 
+    /**
+     * Take the current owner's import lock for the rest of the request's transaction, false if an import of the same
+     * owner is running on any node or the owner has an import job that hasn't finished (a queued job doesn't hold the
+     * lock yet). Imports of different owners never wait on each other. The lock is released when the transaction ends,
+     * so there is nothing to finish.
+     */
     public boolean tryStartImport() {
-        return importInProgress.compareAndSet(false, true);
+        final Integer ownerId = TenantContext.get();
+        return importJobRepository.tryLockImports(ownerId) && !importJobRepository.hasUnfinishedJob(ownerId);
+    }
+
+    /**
+     * Start importing the document in body as a background job and return the queued job, see ImportJobRunner. The
+     * body is copied to a temporary file, the request is over once the upload is, and the job starts when the request's
+     * transaction commits. An owner with an import running or queued gets ExceptionImportInProgress instead.
+     */
+    public ImportJobDto startImportJob(InputStream body) throws IOException {
+        requireImportAccess();
+        if (!tryStartImport()) {
+            throw new ExceptionImportInProgress();
+        }
+        final Path documentFile = Files.createTempFile("pensieve-import-", ".json");
+        try {
+            Files.copy(body, documentFile, StandardCopyOption.REPLACE_EXISTING);
+            final ImportJobDto job = importJobRepository.insertQueued();
+            importJobRunner.runAfterCommit(job.id(), documentFile);
+            return job;
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(documentFile);
+            throw exception;
+        }
     }
 
-    public void finishImport() {
-        importInProgress.set(false);
+    /** The import job with this id, Row-Level Security keeps the jobs of other owners out of reach. */
+    public ImportJobDto getImportJob(int id) {
+        requireImportAccess();
+        return importJobRepository.getById(id);
     }
 
     public ImportResultsDto importBackupData(BackupDataDto backupDataDto) {
-        if (!access.can(Capability.IMPORT)) {
-            throw new ExceptionForbidden("Permission denied, import access required.");
-        }
+        requireImportAccess();
         return service.importBackupData(backupDataDto);
     }
 
+    /**
+     * The same import read from parser as it goes, see BackupImportService.importBackupData(JsonParser). A document
+     * that turns out to be malformed part way through has already been partly imported, the error response alone
+     * would let the request's transaction commit that part, so it is rolled back here.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public ImportResultsDto importBackupData(JsonParser parser) throws IOException {
+        requireImportAccess();
+        return service.importBackupData(parser);
+    }
+
     /**
      * Import one of the fixture files bundled in the image. Mechanically identical to
      * {@link #importBackupData(BackupDataDto)}, but gated on SEED rather than IMPORT: the data is the
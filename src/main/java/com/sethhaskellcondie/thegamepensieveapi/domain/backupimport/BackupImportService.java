@@ -1,14 +1,21 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantSessionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOption;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.SlimBoardGame;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBox;
@@ -32,18 +39,35 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.Video
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBackupImport;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
 import com.sethhaskellcondie.thegamepensieveapi.domain.metadata.Metadata;
 import com.sethhaskellcondie.thegamepensieveapi.domain.metadata.MetadataGateway;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 @Service
 public class BackupImportService {
@@ -56,13 +80,24 @@ public class BackupImportService {
     private final BoardGameBoxService boardGameBoxService;
     private final BoardGameService boardGameService;
     private final MetadataGateway metadataGateway;
+    private final CustomFieldValueRepository customFieldValueRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final HeldBackBoardGameBoxRepository heldBackBoardGameBoxRepository;
+    private final TenantSessionRepository tenantSessionRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate savepointTransaction;
+    private final long incrementalSafetyMarginSeconds;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     protected BackupImportService(CustomFieldRepository customFieldRepository, CustomFieldOptionRepository customFieldOptionRepository,
                                   SystemService systemService, ToyService toyService,
                                   VideoGameService videoGameService, VideoGameBoxService videoGameBoxService,
                                   BoardGameBoxService boardGameBoxService, BoardGameService boardGameService,
-                                  MetadataGateway metadataGateway) {
+                                  MetadataGateway metadataGateway, CustomFieldValueRepository customFieldValueRepository,
+                                  TombstoneRepository tombstoneRepository, HeldBackBoardGameBoxRepository heldBackBoardGameBoxRepository,
+                                  TenantSessionRepository tenantSessionRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${pensieve.backups.incremental-safety-margin-seconds:300}") long incrementalSafetyMarginSeconds) {
         this.customFieldRepository = customFieldRepository;
         this.customFieldOptionRepository = customFieldOptionRepository;
         this.systemService = systemService;
@@ -72,6 +107,17 @@ public class BackupImportService {
         this.boardGameBoxService = boardGameBoxService;
         this.boardGameService = boardGameService;
         this.metadataGateway = metadataGateway;
+        this.customFieldValueRepository = customFieldValueRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.heldBackBoardGameBoxRepository = heldBackBoardGameBoxRepository;
+        this.tenantSessionRepository = tenantSessionRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.savepointTransaction = new TransactionTemplate(transactionManager);
+        this.savepointTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.incrementalSafetyMarginSeconds = incrementalSafetyMarginSeconds;
     }
 
     protected BackupDataDto getBackupData() {
@@ -85,43 +131,526 @@ public class BackupImportService {
         return new BackupDataDto(customFields, toys, systems, videoGameBoxes, boardGameBoxes, metadata);
     }
 
+    /**
+     * The same document as getBackupData() written to generator as it is read instead of built in memory first. The toys,
+     * systems, and boxes are streamed (see EntityServiceAbstract.streamWithFilters()), each chunk is hydrated, written
+     * and flushed before the next one is read, so the memory used doesn't grow with the collection. The custom fields
+     * and metadata describe the collection rather than hold it, they are still read as lists. The fields are written
+     * with the names and in the order of BackupDataDto so the output reads back as one.
+     */
+    protected void writeBackupData(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeCustomFields(generator);
+        writeStreamedSection(generator, "toys", chunks -> toyService.streamWithFilters(new ArrayList<>(), chunks), Toy::convertToResponseDto);
+        writeStreamedSection(generator, "systems", chunks -> systemService.streamWithFilters(new ArrayList<>(), chunks), System::convertToResponseDto);
+        writeStreamedSection(generator, "videoGameBoxes", chunks -> videoGameBoxService.streamWithFilters(new ArrayList<>(), chunks), VideoGameBox::convertToResponseDto);
+        writeStreamedSection(generator, "boardGameBoxes", chunks -> boardGameBoxService.streamWithFilters(new ArrayList<>(), chunks), BoardGameBox::convertToResponseDto);
+        writeList(generator, "metadata", metadataGateway.getAllMetadata());
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * An incremental backup: only what changed at or after since, in the same format as writeBackupData() so the import
+     * reads both, to be imported on top of the full backup (and the incremental backups) before it. The toys, boxes and
+     * metadata are the ones inserted or updated in the window (see EntityRepositoryAbstract.streamChangedSince()), what
+     * was deleted in it is listed in "deleted" as tombstones (see Tombstone). Two sections are always written whole: the
+     * custom fields have no timestamps and the import needs every one of them to map the values (their renames and
+     * deletions are tombstones too), and the systems are what the video game boxes are imported with. Both are small
+     * next to the collection. "exportedAt" is the since of
+     * the next incremental backup, a window that overlaps the one before only exports some entities again.
+     * <p>
+     * Every section is read from one snapshot: the backup runs in a read-only REPEATABLE READ transaction of its own
+     * (the request's transaction has already read, its isolation can't change), as the request's owner. exportedAt is
+     * the start of that transaction by the database clock, less incremental-safety-margin-seconds: a write committed
+     * after the snapshot was taken but stamped before exportedAt would otherwise be in neither this backup nor the next,
+     * and updated_at is stamped by the node that wrote it, whose clock can be behind the database's.
+     */
+    protected void writeBackupData(JsonGenerator generator, Timestamp since) throws IOException {
+        final Integer ownerId = TenantContext.get();
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                if (null != ownerId) {
+                    tenantSessionRepository.assumeTenant(ownerId);
+                }
+                try {
+                    writeIncrementalBackupData(generator, since, tombstoneRepository.getSnapshotTime(incrementalSafetyMarginSeconds));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeIncrementalBackupData(JsonGenerator generator, Timestamp since, Timestamp exportedAt) throws IOException {
+        generator.writeStartObject();
+        //written in UTC with the offset (Instant.toString() is ISO-8601), the exportedAt is passed back as the next since
+        generator.writeStringField("since", since.toInstant().toString());
+        generator.writeStringField("exportedAt", exportedAt.toInstant().toString());
+        //the tombstones come before the entities so an entity deleted and then added again in the window ends up added,
+        //and before the custom fields so a renamed custom field is renamed before the custom fields are found by name
+        writeList(generator, "deleted", tombstoneRepository.getDeletedSince(since));
+        writeCustomFields(generator);
+        writeStreamedSection(generator, "toys", chunks -> toyService.streamChangedSince(since, chunks), Toy::convertToResponseDto);
+        writeStreamedSection(generator, "systems", chunks -> systemService.streamWithFilters(new ArrayList<>(), chunks), System::convertToResponseDto);
+        writeStreamedSection(generator, "videoGameBoxes", chunks -> videoGameBoxService.streamChangedSince(since, chunks), VideoGameBox::convertToResponseDto);
+        writeStreamedSection(generator, "boardGameBoxes", chunks -> boardGameBoxService.streamChangedSince(since, chunks), BoardGameBox::convertToResponseDto);
+        writeList(generator, "metadata", metadataGateway.getMetadataChangedSince(since));
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private void writeCustomFields(JsonGenerator generator) throws IOException {
+        writeList(generator, "customFields", customFieldRepository.getAllCustomFields());
+    }
+
+    private void writeList(JsonGenerator generator, String fieldName, List<?> values) throws IOException {
+        generator.writeArrayFieldStart(fieldName);
+        for (Object value : values) {
+            generator.writeObject(value);
+        }
+        generator.writeEndArray();
+    }
+
+    private <T> void writeStreamedSection(JsonGenerator generator, String fieldName, Consumer<Consumer<List<T>>> stream,
+                                          Function<T, ?> toResponseDto) throws IOException {
+        generator.writeArrayFieldStart(fieldName);
+        try {
+            stream.accept(chunk -> {
+                try {
+                    for (T entity : chunk) {
+                        generator.writeObject(toResponseDto.apply(entity));
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+    }
+
     protected ImportResultsDto importBackupData(BackupDataDto backupDataDto) {
-        final Map<Integer, Integer> customFieldIds;
-        final Map<Integer, Integer> optionIds;
-        ExceptionBackupImport exceptionBackupImport = new ExceptionBackupImport();
+        final ImportProgress progress = startImport();
+        if (!importCustomFields(backupDataDto.customFields(), progress)) {
+            return progress.toResults();
+        }
+        importToys(backupDataDto.toys(), progress);
+        importSystems(backupDataDto.systems(), progress);
+        importVideoGameBoxes(backupDataDto.videoGameBoxes(), progress);
+        importBoardGameBoxes(backupDataDto.boardGameBoxes(), progress);
+        importMetadata(backupDataDto.metadata(), progress);
+        return finishImport(progress);
+    }
+
+    /**
+     * The same import as importBackupData(BackupDataDto) read from parser as it goes, for documents too big to bind
+     * whole (see BackupDataReader). The custom fields are imported first, then every entity section is read, validated
+     * and inserted BackupDataReader.CHUNK_SIZE entities at a time, only the id tables in ImportProgress are kept from one
+     * chunk to the next. Because nothing is read ahead, the sections must come in the order a backup writes them: the
+     * custom fields before the entities, the systems before the video game boxes. An import that breaks that order
+     * throws, and BackupImportGateway rolls back what was already imported. An incremental backup (it starts with its
+     * since, see writeBackupData(JsonGenerator, Timestamp)) is merged: its tombstones are applied before the entities
+     * (the ones of systems after them, see importSystemTombstones(), the ones of custom fields with the custom fields, see
+     * importCustomFieldTombstones()), and the entities and metadata already in the
+     * database take its values (see mergeImportedFields() and mergeCustomFieldValues()).
+     */
+    protected ImportResultsDto importBackupData(JsonParser parser) throws IOException {
+        return importBackupData(parser, progress -> { });
+    }
+
+    /** The same import, listener is given the progress after every chunk and every section (see ImportJobRunner). */
+    protected ImportResultsDto importBackupData(JsonParser parser, Consumer<ImportProgress> listener) throws IOException {
+        final BackupDataReader reader = new BackupDataReader(parser);
+        final ImportProgress progress = startImport();
+        progress.listener = listener;
+        String section = reader.nextSection();
+        while (null != section) {
+            progress.currentSection = section;
+            switch (section) {
+                case "since" -> {
+                    requireNotImportedYet(progress, section, "customFields", "deleted", "toys", "systems", "videoGameBoxes", "boardGameBoxes", "metadata");
+                    progress.incremental = true;
+                    reader.skipSection();
+                }
+                case "deleted" -> {
+                    requireNotImportedYet(progress, section, "customFields", "toys", "systems", "videoGameBoxes", "boardGameBoxes", "metadata");
+                    importTombstones(reader.readList(Tombstone.class), progress);
+                }
+                case "customFields" -> {
+                    requireNotImportedYet(progress, section, section, "toys", "systems", "videoGameBoxes", "boardGameBoxes");
+                    if (!importCustomFields(reader.readList(CustomField.class), progress)) {
+                        return progress.toResults();
+                    }
+                }
+                case "toys" -> {
+                    importCustomFieldsIfMissing(progress);
+                    reader.readChunks(ToyResponseDto.class, chunk -> {
+                        importToys(chunk, progress);
+                        progress.report();
+                    });
+                }
+                case "systems" -> {
+                    importCustomFieldsIfMissing(progress);
+                    requireNotImportedYet(progress, section, "videoGameBoxes");
+                    reader.readChunks(SystemResponseDto.class, chunk -> {
+                        importSystems(chunk, progress);
+                        progress.report();
+                    });
+                }
+                case "videoGameBoxes" -> {
+                    importCustomFieldsIfMissing(progress);
+                    reader.readChunks(VideoGameBoxResponseDto.class, chunk -> {
+                        importVideoGameBoxes(chunk, progress);
+                        progress.report();
+                    });
+                }
+                case "boardGameBoxes" -> {
+                    importCustomFieldsIfMissing(progress);
+                    reader.readChunks(BoardGameBoxResponseDto.class, chunk -> {
+                        importBoardGameBoxChunk(chunk, progress);
+                        progress.report();
+                    });
+                    importRemainingBoardGameBoxes(progress);
+                }
+                case "metadata" -> importMetadata(reader.readList(Metadata.class), progress);
+                default -> reader.skipSection();
+            }
+            progress.importedSections.add(section);
+            progress.report();
+            section = reader.nextSection();
+        }
+        importCustomFieldsIfMissing(progress);
+        importSystemTombstones(progress);
+        return finishImport(progress);
+    }
+
+    private ImportProgress startImport() {
+        //The import rewrites the owner's custom field schema, drop the cached copy up front (and again when the import's transaction ends)
+        customFieldRepository.invalidateSchemaCache();
+        return new ImportProgress();
+    }
+
+    private ImportResultsDto finishImport(ImportProgress progress) {
+        if (!progress.exceptionBackupImport.getExceptions().isEmpty()) {
+            progress.exceptionBackupImport.setHeader("There were errors importing Entity data, all valid data was imported, data with errors was skipped.");
+        }
+        return progress.toResults();
+    }
+
+    //There is no point trying to import the rest of the data if the custom fields are broken, if any error is detected then return false and import no more data.
+    private boolean importCustomFields(List<CustomField> customFields, ImportProgress progress) {
+        importCustomFieldTombstones(null == customFields ? List.of() : customFields, progress);
+        progress.customFields = importCustomFields(null == customFields ? List.of() : customFields, progress.exceptionBackupImport);
+        if (!progress.exceptionBackupImport.getCustomFieldExceptions().isEmpty()) {
+            progress.exceptionBackupImport.setHeader("There were errors importing Custom Fields. No additional data imported.");
+            return false;
+        }
+        return true;
+    }
+
+    //an import without custom fields is imported as one with an empty list of them
+    private void importCustomFieldsIfMissing(ImportProgress progress) {
+        if (null == progress.customFields) {
+            importCustomFields(List.of(), progress);
+        }
+    }
+
+    private void requireNotImportedYet(ImportProgress progress, String section, String... laterSections) {
+        for (String laterSection : laterSections) {
+            if (progress.importedSections.contains(laterSection)) {
+                throw new ExceptionInputValidation("The " + section + " of the import must come before its " + laterSection
+                        + ", the order a backup writes them in.");
+            }
+        }
+    }
+
+    private void importToys(List<ToyResponseDto> toys, ImportProgress progress) {
+        final ImportEntityResults results = importToys(toys, progress.customFieldIds(), progress.optionIds(), progress.exceptionBackupImport);
+        if (progress.incremental) {
+            mergeCustomFieldValues(toys, results, ToyResponseDto::id, ToyResponseDto::customFieldValues, Keychain.TOY_KEY,
+                    progress.exceptionBackupImport::addToyException);
+        }
+        progress.toys = progress.toys.plus(results);
+    }
+
+    private void importSystems(List<SystemResponseDto> systems, ImportProgress progress) {
+        final ImportEntityResults results = importSystems(systems, progress.customFieldIds(), progress.optionIds(), progress.exceptionBackupImport);
+        if (progress.incremental) {
+            mergeImportedFields(systems, results, SystemResponseDto::id, (ids, matchedSystems) -> systemService.updateImportedBulk(ids, matchedSystems.stream()
+                            .map(system -> new SystemRequestDto(system.name(), system.generation(), system.handheld(), system.customFieldValues())).toList()),
+                    progress.exceptionBackupImport::addSystemException);
+            mergeCustomFieldValues(systems, results, SystemResponseDto::id, SystemResponseDto::customFieldValues, Keychain.SYSTEM_KEY,
+                    progress.exceptionBackupImport::addSystemException);
+            if (null != systems) {
+                systems.stream().map(SystemResponseDto::name).filter(Objects::nonNull).forEach(progress.importedSystemNames::add);
+            }
+        }
+        progress.systemIds.putAll(results.entityIds());
+        progress.systems = progress.systems.plus(results);
+    }
+
+    private void importVideoGameBoxes(List<VideoGameBoxResponseDto> videoGameBoxes, ImportProgress progress) {
+        if (null == videoGameBoxes) {
+            return;
+        }
+        final List<VideoGameBoxResponseDto> validatedBoxes = validateVideoGameBoxes(videoGameBoxes, progress.customFieldIds(), progress.optionIds(),
+                progress.systemIds, progress.exceptionBackupImport);
+        final ImportEntityResults results = importVideoGameBoxes(validatedBoxes, progress);
+        if (progress.incremental) {
+            mergeVideoGameBoxes(validatedBoxes, results, progress);
+            mergeCustomFieldValues(validatedBoxes, results, VideoGameBoxResponseDto::id, VideoGameBoxResponseDto::customFieldValues, Keychain.VIDEO_GAME_BOX_KEY,
+                    progress.exceptionBackupImport::addVideoGameBoxException);
+        }
+        progress.videoGameBoxes = progress.videoGameBoxes.plus(results);
+    }
 
-        final CustomFieldImportResults customFieldResults = importCustomFields(backupDataDto.customFields(), exceptionBackupImport);
-        //There is no point trying to import the rest of the data if the custom fields are broken, if any error are detected then return early importing no data.
-        if (!exceptionBackupImport.getExceptions().isEmpty()) {
-            exceptionBackupImport.setHeader("There were errors importing Custom Fields. No additional data imported.");
-            return new ImportResultsDto(customFieldResults.existingCount(), customFieldResults.createdCount(), exceptionBackupImport);
+    private void importMetadata(List<Metadata> metadata, ImportProgress progress) {
+        progress.metadata = progress.metadata.plus(importMetadata(metadata, progress.incremental, progress.exceptionBackupImport));
+    }
+
+    /**
+     * An entity of an incremental backup that is already in the database was changed since the backup before, the
+     * natural key found it and it takes the fields of the backup that aren't part of that key, with one update for the
+     * list (see the services' updateImportedBulk(), an entity the import just wrote already has them and is left alone).
+     * A renamed entity has a tombstone of its old natural key (see Tombstone), it was deleted and is imported as a new one.
+     */
+    private <T> void mergeImportedFields(List<T> entities, ImportEntityResults results, Function<T, Integer> importId,
+                                         BiConsumer<List<Integer>, List<T>> updateBulk, Consumer<Exception> addException) {
+        if (null == entities) {
+            return;
+        }
+        final List<Integer> entityIds = new ArrayList<>();
+        final List<T> matchedEntities = new ArrayList<>();
+        for (T entity : entities) {
+            //an entity that was skipped has no id, it was reported already
+            final Integer entityId = results.entityIds().get(importId.apply(entity));
+            if (null != entityId) {
+                entityIds.add(entityId);
+                matchedEntities.add(entity);
+            }
+        }
+        if (entityIds.isEmpty()) {
+            return;
         }
-        customFieldIds = customFieldResults.customFieldIds();
-        optionIds = customFieldResults.optionIds();
+        try {
+            inSavepoint(() -> updateBulk.accept(entityIds, matchedEntities));
+        } catch (Exception exception) {
+            addException.accept(new Exception("Error merging the fields of the import: " + exception.getMessage()));
+        }
+    }
 
-        ImportEntityResults toyResults = importToys(backupDataDto.toys(), customFieldIds, optionIds, exceptionBackupImport);
+    //The boxes are merged like mergeImportedFields() and take the games of the backup as well: the games a box doesn't
+    //have yet are imported the same way as the games of a new box (see importVideoGames()), the games it no longer has are
+    //taken out of it. A box whose games couldn't all be imported is reported and keeps the games it has.
+    private void mergeVideoGameBoxes(List<VideoGameBoxResponseDto> boxes, ImportEntityResults results, ImportProgress progress) {
+        final List<Integer> matchedIndexes = new ArrayList<>();
+        for (int i = 0; i < boxes.size(); i++) {
+            if (results.entityIds().containsKey(boxes.get(i).id())) {
+                matchedIndexes.add(i);
+            }
+        }
+        if (matchedIndexes.isEmpty()) {
+            return;
+        }
+        final Map<Integer, List<Integer>> videoGameIdsByIndex = importVideoGames(matchedIndexes, boxes, progress);
+        final List<Integer> boxIds = new ArrayList<>(matchedIndexes.size());
+        final List<VideoGameBoxRequestDto> requestDtos = new ArrayList<>(matchedIndexes.size());
+        for (Integer index : matchedIndexes) {
+            final VideoGameBoxResponseDto box = boxes.get(index);
+            List<Integer> videoGameIds = videoGameIdsByIndex.get(index);
+            if (!box.videoGames().stream().allMatch(videoGame -> progress.videoGameIds.containsKey(videoGame.id()))) {
+                progress.exceptionBackupImport.addVideoGameBoxException(new Exception("Error merging video game box data with title: '" + box.title()
+                        + "' not all of its video games could be imported, the box keeps the video games it has."));
+                videoGameIds = List.of();
+            }
+            boxIds.add(results.entityIds().get(box.id()));
+            requestDtos.add(new VideoGameBoxRequestDto(box.title(), box.system().id(), videoGameIds, List.of(), box.isPhysical(), box.customFieldValues()));
+        }
+        try {
+            inSavepoint(() -> videoGameBoxService.updateImportedBulk(boxIds, requestDtos));
+        } catch (Exception exception) {
+            progress.exceptionBackupImport.addVideoGameBoxException(new Exception("Error merging the fields of the import: " + exception.getMessage()));
+        }
+    }
 
-        ImportEntityResults systemResults = importSystems(backupDataDto.systems(), customFieldIds, optionIds, exceptionBackupImport);
+    /**
+     * The custom field values of an entity the natural key found (see mergeImportedFields()) are written over the ones
+     * it has, with one upsert for the list (an entity the import just wrote is written the same values again), and the
+     * values it has for a custom field the backup's entity has no value for are deleted with one statement for the list.
+     */
+    private <T> void mergeCustomFieldValues(List<T> entities, ImportEntityResults results, Function<T, Integer> importId,
+                                            Function<T, List<CustomFieldValue>> customFieldValues, String entityKey, Consumer<Exception> addException) {
+        if (null == entities) {
+            return;
+        }
+        final List<List<CustomFieldValue>> valuesPerEntity = new ArrayList<>();
+        final List<Integer> entityIds = new ArrayList<>();
+        for (T entity : entities) {
+            //an entity that was skipped has no id, its values were reported with it
+            final Integer entityId = results.entityIds().get(importId.apply(entity));
+            if (null != entityId) {
+                valuesPerEntity.add(customFieldValues.apply(entity));
+                entityIds.add(entityId);
+            }
+        }
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        try {
+            inSavepoint(() -> {
+                customFieldValueRepository.upsertValuesForEntities(valuesPerEntity, entityIds, entityKey);
+                customFieldValueRepository.deleteValuesNotIn(valuesPerEntity, entityIds, entityKey);
+            });
+        } catch (ExceptionBulkRequest exception) {
+            addException.accept(new Exception("Error merging the custom field values of the import: " + exception.getMessage()));
+        }
+    }
 
-        ImportEntityResults videoGameBoxResults = importVideoGameBoxes(backupDataDto.videoGameBoxes(), customFieldIds, optionIds, systemResults.entityIds(), exceptionBackupImport);
+    /**
+     * Soft delete what the tombstones of an incremental backup name, found by their natural key (see Tombstone) and
+     * deleted the way the api deletes them, so a box takes the games only it had along. A tombstone of something that
+     * isn't in the database is already applied. The tombstones of a day are few, each is looked up on its own. The
+     * tombstones of systems wait for the end of the import, see importSystemTombstones(), and the ones of custom fields
+     * for the custom fields, see importCustomFieldTombstones().
+     */
+    private void importTombstones(List<Tombstone> tombstones, ImportProgress progress) {
+        if (null == tombstones) {
+            return;
+        }
+        for (Tombstone tombstone : tombstones) {
+            if (Keychain.SYSTEM_KEY.equals(tombstone.key())) {
+                progress.systemTombstones.add(tombstone);
+            } else if (Tombstone.CUSTOM_FIELD_KEY.equals(tombstone.key())) {
+                progress.customFieldTombstones.add(tombstone);
+            } else {
+                importTombstone(tombstone, progress);
+            }
+        }
+    }
+
+    //A system can't be deleted while a box or a game still has it, the boxes of a renamed system move to the new name
+    //(their old keys have tombstones too) and the games only in them go along, so the system is deleted once every
+    //section is in. A system the backup has is kept: the systems are always exported whole, it was added again by now.
+    private void importSystemTombstones(ImportProgress progress) {
+        for (Tombstone tombstone : progress.systemTombstones) {
+            if (null == tombstone.naturalKey() || tombstone.naturalKey().isEmpty() || !progress.importedSystemNames.contains(tombstone.naturalKey().get(0))) {
+                importTombstone(tombstone, progress);
+            }
+        }
+        progress.systemTombstones.clear();
+    }
+
+    //The custom fields are always exported whole, a custom field of the backup with the id of a tombstone is what the
+    //custom field was renamed to, it is renamed in place so the entities that didn't change keep their values on it.
+    //A custom field renamed twice in the window has two tombstones, the second one finds nothing.
+    private void importCustomFieldTombstones(List<CustomField> customFields, ImportProgress progress) {
+        final Map<Integer, CustomField> renamedCustomFields = new HashMap<>(customFields.size());
+        for (CustomField customField : customFields) {
+            renamedCustomFields.put(customField.id(), customField);
+        }
+        for (Tombstone tombstone : progress.customFieldTombstones) {
+            importTombstone(tombstone, progress, renamedCustomFields);
+        }
+        progress.customFieldTombstones.clear();
+    }
+
+    private void importTombstone(Tombstone tombstone, ImportProgress progress) {
+        importTombstone(tombstone, progress, Map.of());
+    }
+
+    private void importTombstone(Tombstone tombstone, ImportProgress progress, Map<Integer, CustomField> renamedCustomFields) {
+        final List<String> naturalKey = null == tombstone.naturalKey() ? List.of() : tombstone.naturalKey();
+        try {
+            final boolean deleted = inSavepoint(() -> switch (null == tombstone.key() ? "" : tombstone.key()) {
+                case Keychain.TOY_KEY -> deleteIfFound(toyService.getIdByNameAndSet(naturalKey.get(0), naturalKey.get(1)), toyService::deleteById);
+                case Keychain.SYSTEM_KEY -> deleteIfFound(systemService.getIdByName(naturalKey.get(0)), systemService::deleteById);
+                case Keychain.VIDEO_GAME_BOX_KEY -> {
+                    final int systemId = systemService.getIdByName(naturalKey.get(1));
+                    yield systemId > 0 && deleteIfFound(videoGameBoxService.getIdByTitleAndSystemId(naturalKey.get(0), systemId), videoGameBoxService::deleteById);
+                }
+                case Keychain.BOARD_GAME_BOX_KEY -> {
+                    final int boardGameId = boardGameService.getIdByTitle(naturalKey.get(1));
+                    yield boardGameId > 0 && deleteIfFound(boardGameBoxService.getIdByTitleAndBoardGameId(naturalKey.get(0), boardGameId), boardGameBoxService::deleteById);
+                }
+                case Tombstone.METADATA_KEY -> deleteMetadataIfFound(naturalKey.get(0));
+                case Tombstone.CUSTOM_FIELD_KEY -> deleteOrRenameCustomFieldIfFound(naturalKey.get(0), naturalKey.get(1), renamedCustomFields.get(tombstone.id()));
+                default -> throw new ExceptionInputValidation("unknown key: '" + tombstone.key() + "'");
+            });
+            if (deleted) {
+                progress.deleted++;
+            }
+        } catch (IndexOutOfBoundsException exception) {
+            addTombstoneException(tombstone, "its natural key is incomplete.", progress.exceptionBackupImport);
+        } catch (Exception exception) {
+            addTombstoneException(tombstone, exception.getMessage(), progress.exceptionBackupImport);
+        }
+    }
+
+    /**
+     * Every write the import reports instead of throwing runs under a savepoint of its own (a nested transaction, the
+     * import runs in one transaction, see BackupImportGateway and ImportJobRunner). A statement that fails aborts the
+     * whole Postgres transaction, and a failure inside a @Transactional service marks it rollback-only, so catching the
+     * exception alone leaves nothing of the import to commit. Rolling back to the savepoint undoes both, only the failed
+     * write is lost and the rest of the import goes on.
+     */
+    private <R> R inSavepoint(Supplier<R> write) {
+        return savepointTransaction.execute(status -> write.get());
+    }
+
+    private void inSavepoint(Runnable write) {
+        savepointTransaction.executeWithoutResult(status -> write.run());
+    }
 
-        ImportEntityResults boardGameBoxResults = importBoardGameBoxes(backupDataDto.boardGameBoxes(), customFieldIds, optionIds, exceptionBackupImport);
+    //the getIdBy...() lookups return -1 when nothing matches
+    private boolean deleteIfFound(int id, Consumer<Integer> deleteById) {
+        if (id < 1) {
+            return false;
+        }
+        deleteById.accept(id);
+        return true;
+    }
 
-        ImportEntityResults metadataResults = importMetadata(backupDataDto.metadata(), exceptionBackupImport);
+    private boolean deleteMetadataIfFound(String key) {
+        try {
+            metadataGateway.getByKey(key);
+        } catch (ExceptionResourceNotFound ignored) {
+            return false;
+        }
+        metadataGateway.deleteByKey(key);
+        return true;
+    }
 
-        if (!exceptionBackupImport.getExceptions().isEmpty()) {
-            exceptionBackupImport.setHeader("There were errors importing Entity data, all valid data was imported, data with errors was skipped.");
+    //a rename isn't counted as a deletion, the custom field is still there
+    private boolean deleteOrRenameCustomFieldIfFound(String entityKey, String name, CustomField renamedTo) {
+        final CustomField customField;
+        try {
+            customField = customFieldRepository.getByKeyAndName(entityKey, name);
+        } catch (ExceptionResourceNotFound ignored) {
+            return false;
         }
+        if (null != renamedTo && Objects.equals(renamedTo.entityKey(), customField.entityKey()) && Objects.equals(renamedTo.type(), customField.type())) {
+            customFieldRepository.update(customField.id(), renamedTo.name(), customField.order());
+            return false;
+        }
+        customFieldRepository.deleteById(customField.id());
+        return true;
+    }
 
-        return new ImportResultsDto(
-                customFieldResults.existingCount(), customFieldResults.createdCount(),
-                toyResults.existingCount(), toyResults.createdCount(),
-                systemResults.existingCount(), systemResults.createdCount(),
-                videoGameBoxResults.existingCount(), videoGameBoxResults.createdCount(),
-                boardGameBoxResults.existingCount(), boardGameBoxResults.createdCount(),
-                metadataResults.existingCount(), metadataResults.createdCount(),
-                exceptionBackupImport
-        );
+    private void addTombstoneException(Tombstone tombstone, String message, ExceptionBackupImport exceptionBackupImport) {
+        final Exception exception = new Exception("Error importing the deletion of " + tombstone.key() + " " + tombstone.naturalKey() + ": " + message);
+        switch (null == tombstone.key() ? "" : tombstone.key()) {
+            case Keychain.SYSTEM_KEY -> exceptionBackupImport.addSystemException(exception);
+            case Keychain.VIDEO_GAME_BOX_KEY -> exceptionBackupImport.addVideoGameBoxException(exception);
+            case Keychain.BOARD_GAME_BOX_KEY -> exceptionBackupImport.addBoardGameBoxException(exception);
+            case Tombstone.METADATA_KEY -> exceptionBackupImport.addMetadataException(exception);
+            case Tombstone.CUSTOM_FIELD_KEY -> exceptionBackupImport.addCustomFieldException(exception);
+            default -> exceptionBackupImport.addToyException(exception);
+        }
     }
 
     private CustomFieldImportResults importCustomFields(final List<CustomField> customFields, ExceptionBackupImport exceptionBackupImport) {
@@ -129,13 +658,15 @@ public class BackupImportService {
         int createdCount = 0;
 
         validateCustomFieldIds(customFields, exceptionBackupImport);
-        if (!exceptionBackupImport.getExceptions().isEmpty()) {
+        if (!exceptionBackupImport.getCustomFieldExceptions().isEmpty()) {
             return new CustomFieldImportResults(new HashMap<>(), new HashMap<>(), existingCount, createdCount);
         }
 
         final Map<Integer, Integer> customFieldIds = new HashMap<>(customFields.size());
         //Maps an option id from the backup file to the option id assigned in the database, so enum entity values can be remapped.
         final Map<Integer, Integer> optionIds = new HashMap<>();
+        //Backup field -> saved field id for the enum fields, their options are mapped together after the loop with one query
+        final Map<CustomField, Integer> savedEnumFieldIds = new LinkedHashMap<>();
         for (CustomField customField : customFields) {
             CustomField savedCustomField;
             try {
@@ -152,17 +683,21 @@ public class BackupImportService {
             }
             if (null == savedCustomField) {
                 try {
-                    savedCustomField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions(customField.name(), customField.type(), customField.entityKey()));
-                    //insertCustomField omits display_order by design, so restore the order from the backup here. Without this
-                    //every imported custom field resets to display_order 0 and the user's column ordering is lost.
-                    savedCustomField = customFieldRepository.update(savedCustomField.id(), savedCustomField.name(), customField.order());
-                    //insertCustomField does not persist options, so recreate them here from the backup. Without this the enum
-                    //field is created with no options and every entity value that references one fails validation on import.
-                    if (CustomField.isEnumType(customField.type()) && null != customField.options()) {
-                        for (CustomFieldOption option : customField.options()) {
-                            customFieldOptionRepository.insertOption(savedCustomField.id(), option.name(), option.isDefault(), option.order());
+                    savedCustomField = inSavepoint(() -> {
+                        final CustomField insertedCustomField = customFieldRepository.insertCustomField(
+                                CustomFieldRequestDto.withoutOptions(customField.name(), customField.type(), customField.entityKey()));
+                        //insertCustomField omits display_order by design, so restore the order from the backup here. Without this
+                        //every imported custom field resets to display_order 0 and the user's column ordering is lost.
+                        final CustomField orderedCustomField = customFieldRepository.update(insertedCustomField.id(), insertedCustomField.name(), customField.order());
+                        //insertCustomField does not persist options, so recreate them here from the backup. Without this the enum
+                        //field is created with no options and every entity value that references one fails validation on import.
+                        if (CustomField.isEnumType(customField.type()) && null != customField.options()) {
+                            for (CustomFieldOption option : customField.options()) {
+                                customFieldOptionRepository.insertOption(orderedCustomField.id(), option.name(), option.isDefault(), option.order());
+                            }
                         }
-                    }
+                        return orderedCustomField;
+                    });
                     createdCount++;
                 } catch (Exception exception) {
                     exceptionBackupImport.addCustomFieldException(new Exception("Error Importing Custom Field Data: Provided custom field with name: '"
@@ -172,26 +707,30 @@ public class BackupImportService {
             if (null != savedCustomField) {
                 //The first ID comes from the import and is used to determine relationships with other objects to be imported, and the second is the new ID after being written to the database.
                 customFieldIds.put(customField.id(), savedCustomField.id());
-                mapOptionIds(customField, savedCustomField.id(), optionIds);
+                if (CustomField.isEnumType(customField.type()) && null != customField.options()) {
+                    savedEnumFieldIds.put(customField, savedCustomField.id());
+                }
             }
         }
+        mapOptionIds(savedEnumFieldIds, optionIds);
         return new CustomFieldImportResults(customFieldIds, optionIds, existingCount, createdCount);
     }
 
     //Builds the backup-option-id -> database-option-id mapping for an enum field by matching options on their name
     //(custom_field_options has a UNIQUE (custom_field_id, name) constraint, so the name is a stable natural key).
-    private void mapOptionIds(CustomField importedField, int savedFieldId, Map<Integer, Integer> optionIds) {
-        if (!CustomField.isEnumType(importedField.type()) || null == importedField.options()) {
-            return;
-        }
-        final Map<String, Integer> savedOptionIdsByName = new HashMap<>();
-        for (CustomFieldOption savedOption : customFieldRepository.getById(savedFieldId).options()) {
-            savedOptionIdsByName.put(savedOption.name(), savedOption.id());
-        }
-        for (CustomFieldOption importedOption : importedField.options()) {
-            final Integer savedOptionId = savedOptionIdsByName.get(importedOption.name());
-            if (null != savedOptionId) {
-                optionIds.put(importedOption.id(), savedOptionId);
+    //The saved options of every enum field are loaded in a single query.
+    private void mapOptionIds(Map<CustomField, Integer> savedEnumFieldIds, Map<Integer, Integer> optionIds) {
+        final Map<Integer, List<CustomFieldOption>> savedOptions = customFieldOptionRepository.getOptionsByCustomFieldIds(savedEnumFieldIds.values());
+        for (Map.Entry<CustomField, Integer> savedEnumField : savedEnumFieldIds.entrySet()) {
+            final Map<String, Integer> savedOptionIdsByName = new HashMap<>();
+            for (CustomFieldOption savedOption : savedOptions.getOrDefault(savedEnumField.getValue(), List.of())) {
+                savedOptionIdsByName.put(savedOption.name(), savedOption.id());
+            }
+            for (CustomFieldOption importedOption : savedEnumField.getKey().options()) {
+                final Integer savedOptionId = savedOptionIdsByName.get(importedOption.name());
+                if (null != savedOptionId) {
+                    optionIds.put(importedOption.id(), savedOptionId);
+                }
             }
         }
     }
@@ -234,12 +773,9 @@ public class BackupImportService {
     }
 
     private ImportEntityResults importToys(List<ToyResponseDto> toysToBeImported, Map<Integer, Integer> customFieldIds, Map<Integer, Integer> optionIds, ExceptionBackupImport exceptionBackupImport) {
-        int existingCount = 0;
-        int createdCount = 0;
         if (null == toysToBeImported) {
-            return new ImportEntityResults(new HashMap<>(), existingCount, createdCount);
+            return new ImportEntityResults(new HashMap<>(), 0, 0);
         }
-        Map<Integer, Integer> toyIds = new HashMap<>(toysToBeImported.size());
 
         List<ToyResponseDto> validatedToys = new ArrayList<>(toysToBeImported.size());
         for (ToyResponseDto validatingToy : toysToBeImported) {
@@ -270,39 +806,19 @@ public class BackupImportService {
             }
         }
 
-        for (ToyResponseDto importToy: validatedToys) {
-            try {
-                int toyId = toyService.duplicationCheck(importToy.name(), importToy.set());
-                if (toyId > 0) {
-                    existingCount++;
-                    toyIds.put(importToy.id(), toyId);
-                } else {
-                    Toy createdToy = toyService.createNew(
-                            new ToyRequestDto(
-                                    importToy.name(),
-                                    importToy.set(),
-                                    importToy.customFieldValues()
-                            )
-                    );
-                    createdCount++;
-                    toyIds.put(importToy.id(), createdToy.getId());
-                }
-            } catch (Exception exception) {
-                exceptionBackupImport.addToyException(new Exception("Error importing toy data with name: '" + importToy.name()
-                        + "' and set '" + importToy.set() + "' " + exception.getMessage()));
-            }
-        }
-        return new ImportEntityResults(toyIds, existingCount, createdCount);
+        //the whole list is matched against the toys in the database with one query and the new ones are written together
+        return importBulk(validatedToys,
+                exceptionBulkRequest -> toyService.importBulk(validatedToys.stream()
+                        .map(toy -> new ToyRequestDto(toy.name(), toy.set(), toy.customFieldValues())).toList(), exceptionBulkRequest),
+                ToyResponseDto::id, toy -> "Error importing toy data with name: '" + toy.name() + "' and set '" + toy.set() + "'",
+                exceptionBackupImport::addToyException);
     }
 
     private ImportEntityResults importSystems(List<SystemResponseDto> systemsToBeImported, Map<Integer, Integer> customFieldIds,
                                               Map<Integer, Integer> optionIds, ExceptionBackupImport exceptionBackupImport) {
-        int existingCount = 0;
-        int createdCount = 0;
         if (null == systemsToBeImported) {
-            return new ImportEntityResults(new HashMap<>(), existingCount, createdCount);
+            return new ImportEntityResults(new HashMap<>(), 0, 0);
         }
-        Map<Integer, Integer> systemIds = new HashMap<>(systemsToBeImported.size());
 
         List<SystemResponseDto> validatedSystems = new ArrayList<>(systemsToBeImported.size());
         for (SystemResponseDto validatingSystem: systemsToBeImported) {
@@ -333,88 +849,58 @@ public class BackupImportService {
             }
         }
 
-        for (SystemResponseDto importSystem: validatedSystems) {
-            try {
-                int systemId = systemService.duplicationCheck(importSystem.name());
-                if (systemId > 0) {
-                    existingCount++;
-                    systemIds.put(importSystem.id(), systemId);
-                } else {
-                    System createdSystem = systemService.createNew(new SystemRequestDto(
-                            importSystem.name(),
-                            importSystem.generation(),
-                            importSystem.handheld(),
-                            importSystem.customFieldValues()
-                    ));
-                    createdCount++;
-                    systemIds.put(importSystem.id(), createdSystem.getId());
-                }
-            } catch (Exception exception) {
-                exceptionBackupImport.addSystemException(new Exception("Error importing system data with name: '" + importSystem.name()
-                        + "' " + exception.getMessage()));
-            }
-        }
-        return new ImportEntityResults(systemIds, existingCount, createdCount);
+        return importBulk(validatedSystems,
+                exceptionBulkRequest -> systemService.importBulk(validatedSystems.stream()
+                        .map(system -> new SystemRequestDto(system.name(), system.generation(), system.handheld(), system.customFieldValues())).toList(), exceptionBulkRequest),
+                SystemResponseDto::id, system -> "Error importing system data with name: '" + system.name() + "'",
+                exceptionBackupImport::addSystemException);
     }
 
-    private ImportEntityResults importVideoGameBoxes(List<VideoGameBoxResponseDto> videoGameBoxToBeImported,
-                                                     Map<Integer, Integer> customFieldIds, Map<Integer, Integer> optionIds, Map<Integer, Integer> systemIds,
-                                                     ExceptionBackupImport exceptionBackupImport) {
-        int existingCount = 0;
-        int createdCount = 0;
-        if (null == videoGameBoxToBeImported) {
-            return new ImportEntityResults(new HashMap<>(), existingCount, createdCount);
-        }
-        Map<Integer, Integer> boxIds = new HashMap<>(videoGameBoxToBeImported.size());
-        List<VideoGameBoxResponseDto> validatedBoxes = validateVideoGameBoxes(videoGameBoxToBeImported, customFieldIds, optionIds, systemIds, exceptionBackupImport);
-        Map<Integer, Integer> gameIds = new HashMap<>(videoGameBoxToBeImported.size());
-
-        for (VideoGameBoxResponseDto importBox: validatedBoxes) {
-            try {
-                int boxId = videoGameBoxService.duplicationCheck(importBox.title(), importBox.system().id());
-                if (boxId > 0) {
-                    existingCount++;
-                    boxIds.put(importBox.id(), boxId);
-                    continue;
-                }
-
-                ValidatedVideoGameResults validatedVideoGameResults = validateVideoGames(importBox.videoGames(), customFieldIds, optionIds, systemIds, gameIds, exceptionBackupImport);
-                if (validatedVideoGameResults.newGames().isEmpty() && validatedVideoGameResults.existingIds().isEmpty()) {
-                    exceptionBackupImport.addVideoGameBoxException(new Exception("Error importing video game box data: Video Game Box with title: '"
-                            + importBox.title() + "' had no valid Video Games included with the import data. Video Game Boxes must include at least one valid video game."));
-                    continue;
-                }
+    //The boxes are matched against the database with one query, the games are only imported for the boxes that are
+    //going to be written (see importVideoGames()), and the new boxes are written together.
+    private ImportEntityResults importVideoGameBoxes(List<VideoGameBoxResponseDto> validatedBoxes, ImportProgress progress) {
+        return importBulk(validatedBoxes,
+                exceptionBulkRequest -> videoGameBoxService.importBulk(validatedBoxes.stream()
+                        .map(box -> new VideoGameBoxRequestDto(box.title(), box.system().id(), List.of(), List.of(), box.isPhysical(), box.customFieldValues())).toList(),
+                        newBoxIndexes -> importVideoGames(newBoxIndexes, validatedBoxes, progress),
+                        exceptionBulkRequest),
+                VideoGameBoxResponseDto::id, box -> "Error importing video game box data with title: '" + box.title() + "'",
+                progress.exceptionBackupImport::addVideoGameBoxException);
+    }
 
-                VideoGameBox createdGameBox = videoGameBoxService.createNew(new VideoGameBoxRequestDto(
-                    importBox.title(),
-                    importBox.system().id(),
-                    validatedVideoGameResults.existingIds(),
-                    validatedVideoGameResults.newGames().values().stream().toList(),
-                    importBox.isPhysical(),
-                    importBox.customFieldValues()
-                ));
-                createdCount++;
-
-                //Assuming that games in the same collection do NOT have the same name AND system
-                for (Map.Entry<Integer, VideoGameRequestDto> entry : validatedVideoGameResults.newGames().entrySet()) {
-                    int originalSlimVideoGameId = entry.getKey();
-                    VideoGameRequestDto gameRequest = entry.getValue();
-                    for (SlimVideoGame createdGame : createdGameBox.getVideoGames()) {
-                        if (createdGame.title().equals(gameRequest.title()) && createdGame.system().id() == gameRequest.systemId()) {
-                            gameIds.put(originalSlimVideoGameId, createdGame.id());
-                            break;
-                        }
-                    }
+    //The games of the boxes about to be written, by the index of the box. A game already imported is reused through its id
+    //in the import, the rest are imported together (each once, however many boxes it is in): a game already in the
+    //database with the same title and system is reused, the others are written. An incremental backup merges the
+    //custom field values of the games it reuses (see mergeCustomFieldValues()).
+    private Map<Integer, List<Integer>> importVideoGames(List<Integer> boxIndexes, List<VideoGameBoxResponseDto> boxes, ImportProgress progress) {
+        final ExceptionBackupImport exceptionBackupImport = progress.exceptionBackupImport;
+        final Map<Integer, Integer> gameIds = progress.videoGameIds;
+        final Map<Integer, SlimVideoGame> gamesToImport = new LinkedHashMap<>();
+        for (Integer boxIndex : boxIndexes) {
+            for (SlimVideoGame videoGame : boxes.get(boxIndex).videoGames()) {
+                if (!gameIds.containsKey(videoGame.id())) {
+                    gamesToImport.putIfAbsent(videoGame.id(), videoGame);
                 }
-
-                boxIds.put(importBox.id(), createdGameBox.getId());
-
-            } catch (Exception exception) {
-                exceptionBackupImport.addVideoGameBoxException(new Exception("Error importing video game box data with title: '" + importBox.title()
-                        + "' " + exception.getMessage()));
             }
         }
-        return new ImportEntityResults(boxIds, existingCount, createdCount);
+        final List<SlimVideoGame> validatedGames = validateVideoGames(gamesToImport.values(), progress.customFieldIds(), progress.optionIds(), progress.systemIds,
+                exceptionBackupImport);
+        final ImportEntityResults gameResults = importBulk(validatedGames,
+                exceptionBulkRequest -> videoGameService.importBulk(validatedGames.stream()
+                        .map(game -> new VideoGameRequestDto(game.title(), game.system().id(), game.customFieldValues())).toList(), exceptionBulkRequest),
+                SlimVideoGame::id, game -> "Error importing video game data with title: '" + game.title() + "'",
+                exceptionBackupImport::addVideoGameException);
+        if (progress.incremental) {
+            mergeCustomFieldValues(validatedGames, gameResults, SlimVideoGame::id, SlimVideoGame::customFieldValues, Keychain.VIDEO_GAME_KEY,
+                    exceptionBackupImport::addVideoGameException);
+        }
+        gameIds.putAll(gameResults.entityIds());
+
+        final Map<Integer, List<Integer>> videoGameIdsByIndex = new HashMap<>(boxIndexes.size());
+        for (Integer boxIndex : boxIndexes) {
+            videoGameIdsByIndex.put(boxIndex, boxes.get(boxIndex).videoGames().stream().map(videoGame -> gameIds.get(videoGame.id())).filter(Objects::nonNull).distinct().toList());
+        }
+        return videoGameIdsByIndex;
     }
 
     private List<VideoGameBoxResponseDto> validateVideoGameBoxes(List<VideoGameBoxResponseDto> videoGameBoxes,
@@ -493,23 +979,10 @@ public class BackupImportService {
         return validatedBoxes;
     }
 
-    private ValidatedVideoGameResults validateVideoGames(List<SlimVideoGame> videoGamesToImport, Map<Integer, Integer> customFieldIds, Map<Integer, Integer> optionIds,
-                                                         Map<Integer, Integer> systemIds, Map<Integer, Integer> videoGameIds,
-                                                         ExceptionBackupImport exceptionBackupImport) {
-        List<Integer> importedVideoGamesIds = new ArrayList<>(videoGamesToImport.size());
-        List<SlimVideoGame> gamesToValidate = new ArrayList<>(videoGamesToImport.size());
-        Map<Integer, VideoGameRequestDto> newGames = new HashMap<>(videoGamesToImport.size());
-
-        for (SlimVideoGame slimVideoGame : videoGamesToImport) {
-            Integer existingGameId = videoGameIds.get(slimVideoGame.id());
-            if (null != existingGameId) {
-                importedVideoGamesIds.add(existingGameId);
-            } else {
-                gamesToValidate.add(slimVideoGame);
-            }
-        }
-
-        for (SlimVideoGame validatingGame : gamesToValidate) {
+    private List<SlimVideoGame> validateVideoGames(Collection<SlimVideoGame> videoGamesToImport, Map<Integer, Integer> customFieldIds, Map<Integer, Integer> optionIds,
+                                                   Map<Integer, Integer> systemIds, ExceptionBackupImport exceptionBackupImport) {
+        final List<SlimVideoGame> validatedGames = new ArrayList<>(videoGamesToImport.size());
+        for (SlimVideoGame validatingGame : videoGamesToImport) {
             try {
                 boolean skipped = false;
                 Integer systemId = systemIds.get(validatingGame.system().id());
@@ -541,19 +1014,6 @@ public class BackupImportService {
                     );
                 }
 
-                if (!skipped) {
-                    //The same physical game (title + system) can be referenced by more than one box, sometimes under
-                    //different file ids. The videoGameIds map only catches reuse already seen this run; this check
-                    //catches a game an earlier box already created (or that pre-existed) so we reuse it instead of
-                    //trying to insert a duplicate, which the unique (title, system) constraint would reject.
-                    int existingDbGameId = videoGameService.duplicationCheck(validatingGame.title(), systemId);
-                    if (existingDbGameId > 0) {
-                        importedVideoGamesIds.add(existingDbGameId);
-                        videoGameIds.put(validatingGame.id(), existingDbGameId);
-                        continue;
-                    }
-                }
-
                 for (CustomFieldValue value : validatingGame.customFieldValues()) {
                     Integer customFieldId = customFieldIds.get(value.getCustomFieldId());
                     if (null == customFieldId) {
@@ -573,123 +1033,251 @@ public class BackupImportService {
                 }
 
                 if (!skipped) {
-                    VideoGameRequestDto gameToBeCreated = new VideoGameRequestDto(
-                            validatingGame.title(),
-                            validatingGame.system().id(),
-                            validatingGame.customFieldValues()
-                    );
-                    newGames.put(validatingGame.id(), gameToBeCreated);
+                    validatedGames.add(validatingGame);
                 }
             } catch (Exception exception) {
                 exceptionBackupImport.addVideoGameException(exception);
             }
         }
-        
-        return new ValidatedVideoGameResults(importedVideoGamesIds, newGames);
+        return validatedGames;
     }
 
-    private ImportEntityResults importBoardGameBoxes(List<BoardGameBoxResponseDto> boardGameBoxesToBeImported, Map<Integer, Integer> customFieldIds,
-                                                     Map<Integer, Integer> optionIds, ExceptionBackupImport exceptionBackupImport) {
-        int existingCount = 0;
-        int createdCount = 0;
+    //The boxes of a backup read whole are all here, they are imported base set first in one go.
+    private void importBoardGameBoxes(List<BoardGameBoxResponseDto> boardGameBoxesToBeImported, ImportProgress progress) {
         if (null == boardGameBoxesToBeImported) {
-            return new ImportEntityResults(new HashMap<>(), existingCount, createdCount);
+            return;
         }
-        Map<Integer, Integer> boardGameBoxIds = new HashMap<>(boardGameBoxesToBeImported.size());
-        Map<Integer, Integer> boardGameIds = new HashMap<>(boardGameBoxesToBeImported.size());
-        List<BoardGameBoxResponseDto> validatedBoxes = validateBoardGameBoxes(boardGameBoxesToBeImported, customFieldIds, optionIds, exceptionBackupImport);
-        List<BoardGameBoxResponseDto> orderedBoxes = orderBoxesBaseSetFirst(validatedBoxes, exceptionBackupImport);
+        final List<BoardGameBoxResponseDto> boxes = validateBoardGameBoxes(boardGameBoxesToBeImported, progress.customFieldIds(), progress.optionIds(),
+                progress.exceptionBackupImport);
+        importBoardGameBoxesBaseSetFirst(toHeldBackBoardGameBoxes(boxes), boxes::get, true, progress);
+    }
 
-        for (BoardGameBoxResponseDto importBox : orderedBoxes) {
-            try {
-                Integer realBoardGameId = boardGameIds.get(importBox.boardGame().id());
-                if (realBoardGameId == null) {
-                    int foundGameId = boardGameService.duplicationCheck(importBox.boardGame().title());
-                    if (foundGameId > 0) {
-                        realBoardGameId = foundGameId;
-                        boardGameIds.put(importBox.boardGame().id(), foundGameId);
-                    }
-                }
-                int boxId = (realBoardGameId != null)
-                        ? boardGameBoxService.duplicationCheck(importBox.title(), realBoardGameId)
-                        : -1;
-                if (boxId > 0) {
-                    existingCount++;
-                    boardGameBoxIds.put(importBox.id(), boxId);
-                } else {
-                    Integer existingBoardGameId = realBoardGameId;
-                    //baseSetId references another board game BOX in the import file, so it must be remapped through the
-                    //box id map, never the board game id map: the two id sequences overlap numerically, so a lookup in
-                    //the wrong map silently returns an unrelated entity's id instead of failing.
-                    Integer baseSetId = null;
-                    if (null != importBox.baseSetId()) {
-                        baseSetId = boardGameBoxIds.get(importBox.baseSetId());
-                        if (null == baseSetId) {
-                            exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
-                                    + importBox.title() + "' references a base set box with ID '" + importBox.baseSetId()
-                                    + "' that could not be resolved from the import data. The base set box must be included and imported successfully in the same file."));
-                            continue;
-                        }
-                    }
-                    BoardGameRequestDto gameToBeCreated = null;
-                    if (null == existingBoardGameId) {
-                        gameToBeCreated = new BoardGameRequestDto(importBox.boardGame().title(), importBox.boardGame().customFieldValues());
-                    }
+    //Boxes are validated as they come and imported base set first (see orderBoxesBaseSetFirst()), a box whose base set box
+    //hasn't been imported yet is held back with the boxes held back before, until its base set is or the section ends.
+    private void importBoardGameBoxChunk(List<BoardGameBoxResponseDto> boardGameBoxesToBeImported, ImportProgress progress) {
+        final List<BoardGameBoxResponseDto> validatedBoxes = validateBoardGameBoxes(boardGameBoxesToBeImported, progress.customFieldIds(),
+                progress.optionIds(), progress.exceptionBackupImport);
+        final List<HeldBackBoardGameBox> boxes = new ArrayList<>(progress.heldBackBoardGameBoxes);
+        final int heldBackCount = boxes.size();
+        progress.heldBackBoardGameBoxes.clear();
+        boxes.addAll(toHeldBackBoardGameBoxes(validatedBoxes));
+        importBoardGameBoxesBaseSetFirst(boxes, index -> index < heldBackCount ? null : validatedBoxes.get(index - heldBackCount), false, progress);
+    }
 
-                    BoardGameBox createdBoardGameBox = boardGameBoxService.createNew(new BoardGameBoxRequestDto(
-                        importBox.title(),
-                        importBox.isExpansion(),
-                        importBox.isStandAlone(),
-                        baseSetId,
-                        existingBoardGameId,
-                        gameToBeCreated,
-                        importBox.customFieldValues()
-                    ));
-                    createdCount++;
-                    boardGameBoxIds.put(importBox.id(), createdBoardGameBox.getId());
-                    boardGameIds.put(importBox.boardGame().id(), createdBoardGameBox.getBoardGame().id());
+    //Once every box has been read, the boxes still held back have a base set that isn't in the import or is part of a cycle
+    private void importRemainingBoardGameBoxes(ImportProgress progress) {
+        final List<HeldBackBoardGameBox> boxes = new ArrayList<>(progress.heldBackBoardGameBoxes);
+        progress.heldBackBoardGameBoxes.clear();
+        importBoardGameBoxesBaseSetFirst(boxes, index -> null, true, progress);
+    }
+
+    private static List<HeldBackBoardGameBox> toHeldBackBoardGameBoxes(List<BoardGameBoxResponseDto> boxes) {
+        return boxes.stream().map(box -> new HeldBackBoardGameBox(box.id(), box.baseSetId())).toList();
+    }
+
+    //The box at an index of boxes is readBox's, or the one held back with its import id when readBox has none. The boxes that
+    //can't be ordered yet are held back (see HeldBackBoardGameBoxRepository), once the section is complete they are part
+    //of a cycle of base set references and reported.
+    private void importBoardGameBoxesBaseSetFirst(List<HeldBackBoardGameBox> boxes, IntFunction<BoardGameBoxResponseDto> readBox, boolean sectionComplete,
+                                                  ImportProgress progress) {
+        final List<Integer> orderedIndexes = orderBoxesBaseSetFirst(boxes, progress, sectionComplete);
+        final Set<Integer> ordered = new HashSet<>(orderedIndexes);
+        final List<Integer> unorderedIndexes = IntStream.range(0, boxes.size()).filter(index -> !ordered.contains(index)).boxed().toList();
+        if (sectionComplete) {
+            for (BoardGameBoxResponseDto box : readBoardGameBoxes(unorderedIndexes, boxes, readBox)) {
+                progress.exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
+                        + box.title() + "' is part of a cycle of base set references in the import data, so it cannot be imported."));
+            }
+        } else {
+            final List<BoardGameBoxResponseDto> newlyHeldBack = new ArrayList<>();
+            for (int index : unorderedIndexes) {
+                progress.heldBackBoardGameBoxes.add(boxes.get(index));
+                final BoardGameBoxResponseDto box = readBox.apply(index);
+                if (null != box) {
+                    newlyHeldBack.add(box);
                 }
-            } catch (Exception exception) {
-                exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data with title: '" + importBox.title()
-                        + "' " + exception.getMessage()));
             }
+            heldBackBoardGameBoxRepository.holdBack(newlyHeldBack);
+        }
+        importOrderedBoardGameBoxes(orderedIndexes, boxes, readBox, progress);
+    }
+
+    //A box is written with the database id of its base set box, so the ordered boxes are imported in waves: a wave ends
+    //before the first box whose base set box is in it, the boxes of a wave are read and imported together.
+    private void importOrderedBoardGameBoxes(List<Integer> orderedIndexes, List<HeldBackBoardGameBox> boxes, IntFunction<BoardGameBoxResponseDto> readBox,
+                                             ImportProgress progress) {
+        List<Integer> wave = new ArrayList<>();
+        final Set<Integer> waveFileIds = new HashSet<>();
+        for (int index : orderedIndexes) {
+            final HeldBackBoardGameBox box = boxes.get(index);
+            if (null != box.baseSetId() && waveFileIds.contains(box.baseSetId())) {
+                importBoardGameBoxWave(readBoardGameBoxes(wave, boxes, readBox), progress);
+                wave = new ArrayList<>();
+                waveFileIds.clear();
+            }
+            wave.add(index);
+            waveFileIds.add(box.id());
         }
-        return new ImportEntityResults(boardGameBoxIds, existingCount, createdCount);
+        importBoardGameBoxWave(readBoardGameBoxes(wave, boxes, readBox), progress);
+    }
+
+    //The boxes at these indexes in their order, the held back ones are taken back out of the database in one query
+    private List<BoardGameBoxResponseDto> readBoardGameBoxes(List<Integer> indexes, List<HeldBackBoardGameBox> boxes, IntFunction<BoardGameBoxResponseDto> readBox) {
+        final Set<Integer> heldBackIds = new HashSet<>();
+        for (int index : indexes) {
+            if (null == readBox.apply(index)) {
+                heldBackIds.add(boxes.get(index).id());
+            }
+        }
+        final Map<Integer, List<BoardGameBoxResponseDto>> released = new HashMap<>(heldBackIds.size());
+        for (BoardGameBoxResponseDto box : heldBackBoardGameBoxRepository.release(heldBackIds)) {
+            released.computeIfAbsent(box.id(), id -> new ArrayList<>()).add(box);
+        }
+        final List<BoardGameBoxResponseDto> read = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            BoardGameBoxResponseDto box = readBox.apply(index);
+            if (null == box) {
+                final List<BoardGameBoxResponseDto> sameId = released.getOrDefault(boxes.get(index).id(), List.of());
+                box = sameId.isEmpty() ? null : sameId.removeFirst();
+            }
+            if (null != box) {
+                read.add(box);
+            }
+        }
+        return read;
+    }
+
+    private void importBoardGameBoxWave(List<BoardGameBoxResponseDto> boxes, ImportProgress progress) {
+        final ExceptionBackupImport exceptionBackupImport = progress.exceptionBackupImport;
+        final List<BoardGameBoxResponseDto> resolvedBoxes = new ArrayList<>(boxes.size());
+        for (BoardGameBoxResponseDto importBox : boxes) {
+            if (null == importBox.boardGame()) {
+                exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
+                        + importBox.title() + "' has no board game in the import data."));
+                continue;
+            }
+            //baseSetId references another board game BOX in the import file, so it must be remapped through the
+            //box id map, never the board game id map: the two id sequences overlap numerically, so a lookup in
+            //the wrong map silently returns an unrelated entity's id instead of failing.
+            if (null != importBox.baseSetId() && !progress.boardGameBoxIds.containsKey(importBox.baseSetId())) {
+                exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
+                        + importBox.title() + "' references a base set box with ID '" + importBox.baseSetId()
+                        + "' that could not be resolved from the import data. The base set box must be included and imported successfully in the same file."));
+                continue;
+            }
+            resolvedBoxes.add(importBox);
+        }
+        importBoardGames(resolvedBoxes, progress);
+
+        final List<BoardGameBoxResponseDto> boxesWithBoardGames = new ArrayList<>(resolvedBoxes.size());
+        for (BoardGameBoxResponseDto importBox : resolvedBoxes) {
+            if (progress.boardGameIds.containsKey(importBox.boardGame().id())) {
+                boxesWithBoardGames.add(importBox);
+            } else {
+                exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
+                        + importBox.title() + "' was skipped, its board game with title: '" + importBox.boardGame().title() + "' could not be imported."));
+            }
+        }
+        final Function<BoardGameBoxResponseDto, BoardGameBoxRequestDto> toRequestDto = box -> new BoardGameBoxRequestDto(box.title(), box.isExpansion(),
+                box.isStandAlone(), null == box.baseSetId() ? null : progress.boardGameBoxIds.get(box.baseSetId()),
+                progress.boardGameIds.get(box.boardGame().id()), null, box.customFieldValues());
+        final ImportEntityResults results = importBulk(boxesWithBoardGames,
+                exceptionBulkRequest -> boardGameBoxService.importBulk(boxesWithBoardGames.stream().map(toRequestDto).toList(), exceptionBulkRequest),
+                BoardGameBoxResponseDto::id, box -> "Error importing board game box data with title: '" + box.title() + "'",
+                exceptionBackupImport::addBoardGameBoxException);
+        if (progress.incremental) {
+            mergeImportedFields(boxesWithBoardGames, results, BoardGameBoxResponseDto::id,
+                    (ids, matchedBoxes) -> boardGameBoxService.updateImportedBulk(ids, matchedBoxes.stream().map(toRequestDto).toList()),
+                    exceptionBackupImport::addBoardGameBoxException);
+            mergeCustomFieldValues(boxesWithBoardGames, results, BoardGameBoxResponseDto::id, BoardGameBoxResponseDto::customFieldValues,
+                    Keychain.BOARD_GAME_BOX_KEY, exceptionBackupImport::addBoardGameBoxException);
+        }
+        progress.boardGameBoxIds.putAll(results.entityIds());
+        progress.boardGameBoxes = progress.boardGameBoxes.plus(results);
+    }
+
+    //The board games of the boxes about to be written that weren't imported yet, each once however many boxes it has: a
+    //board game already in the database with the same title is reused, the others are written together.
+    private void importBoardGames(List<BoardGameBoxResponseDto> boxes, ImportProgress progress) {
+        final Map<Integer, SlimBoardGame> boardGamesToImport = new LinkedHashMap<>();
+        for (BoardGameBoxResponseDto box : boxes) {
+            if (!progress.boardGameIds.containsKey(box.boardGame().id())) {
+                boardGamesToImport.putIfAbsent(box.boardGame().id(), box.boardGame());
+            }
+        }
+        final List<SlimBoardGame> boardGames = new ArrayList<>(boardGamesToImport.values());
+        final ImportEntityResults results = importBulk(boardGames,
+                exceptionBulkRequest -> boardGameService.importBulk(boardGames.stream()
+                        .map(boardGame -> new BoardGameRequestDto(boardGame.title(), boardGame.customFieldValues())).toList(), exceptionBulkRequest),
+                SlimBoardGame::id, boardGame -> "Error importing board game data with title: '" + boardGame.title() + "'",
+                progress.exceptionBackupImport::addBoardGameException);
+        if (progress.incremental) {
+            mergeCustomFieldValues(boardGames, results, SlimBoardGame::id, SlimBoardGame::customFieldValues, Keychain.BOARD_GAME_KEY,
+                    progress.exceptionBackupImport::addBoardGameException);
+        }
+        progress.boardGameIds.putAll(results.entityIds());
+    }
+
+    /**
+     * Run one of the services' set-based imports (importBulk(), see EntityServiceAbstract.findOrInsertBulk()) for a list
+     * of validated items and report its problems the way the import always has, one error per item under the item's
+     * description. Maps the id of each item in the import to its id in the database. If the write itself fails none of
+     * the items were imported, each one is reported with that error.
+     */
+    private <T> ImportEntityResults importBulk(List<T> items, Function<ExceptionBulkRequest, BulkImportResults> bulkImport, Function<T, Integer> importId,
+                                               Function<T, String> describe, Consumer<Exception> addException) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final BulkImportResults results;
+        try {
+            results = inSavepoint(() -> bulkImport.apply(exceptionBulkRequest));
+        } catch (Exception exception) {
+            items.forEach(item -> addException.accept(new Exception(describe.apply(item) + " " + exception.getMessage())));
+            return new ImportEntityResults(new HashMap<>(), 0, 0);
+        }
+        final Map<Integer, Integer> entityIds = new HashMap<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (exceptionBulkRequest.hasItemErrors(i)) {
+                addException.accept(new Exception(describe.apply(items.get(i)) + " " + String.join(" ", exceptionBulkRequest.getItemMessages(i))));
+            }
+            if (null != results.ids().get(i)) {
+                entityIds.put(importId.apply(items.get(i)), results.ids().get(i));
+            }
+        }
+        return new ImportEntityResults(entityIds, results.existingCount(), results.createdCount());
     }
 
     //Boxes must be imported base set first so the box id map already holds a base set's database id when a dependent
     //expansion is created. A non-expansions-first sort is not enough: a base set can itself be a (stand-alone)
     //expansion, and an export can legitimately list a box before its base set (baseSetId can be pointed at a newer
-    //box through an update). A box whose base set is not in the file is still emitted; the remap reports it. Boxes
-    //whose base set references form a cycle can never be ordered, so they are reported as errors and left out.
-    private List<BoardGameBoxResponseDto> orderBoxesBaseSetFirst(List<BoardGameBoxResponseDto> boxes, ExceptionBackupImport exceptionBackupImport) {
-        final Map<Integer, BoardGameBoxResponseDto> boxesByFileId = new HashMap<>(boxes.size());
-        for (BoardGameBoxResponseDto box : boxes) {
-            boxesByFileId.put(box.id(), box);
-        }
-        final List<BoardGameBoxResponseDto> ordered = new ArrayList<>(boxes.size());
-        final Set<Integer> orderedFileIds = new HashSet<>(boxes.size());
-        List<BoardGameBoxResponseDto> remaining = boxes;
-        boolean progress = true;
-        while (progress && !remaining.isEmpty()) {
-            progress = false;
-            final List<BoardGameBoxResponseDto> deferred = new ArrayList<>(remaining.size());
-            for (BoardGameBoxResponseDto box : remaining) {
+    //box through an update). Boxes whose base set hasn't been imported yet are held back until the section is complete,
+    //their base set may still be coming in a later chunk. Once it is, a box whose base set is not in the file (or was
+    //and failed to import) is still emitted; the remap reports it. Boxes whose base set references form a cycle can
+    //never be ordered, they are left out. Returns the indexes of the boxes that can be imported now in their order.
+    private List<Integer> orderBoxesBaseSetFirst(List<HeldBackBoardGameBox> boxes, ImportProgress progress, boolean sectionComplete) {
+        final Set<Integer> fileIds = new HashSet<>(boxes.size());
+        for (HeldBackBoardGameBox box : boxes) {
+            fileIds.add(box.id());
+        }
+        final List<Integer> ordered = new ArrayList<>(boxes.size());
+        final Set<Integer> orderedFileIds = new HashSet<>(progress.boardGameBoxIds.keySet());
+        List<Integer> remaining = IntStream.range(0, boxes.size()).boxed().toList();
+        boolean orderedAny = true;
+        while (orderedAny && !remaining.isEmpty()) {
+            orderedAny = false;
+            final List<Integer> deferred = new ArrayList<>(remaining.size());
+            for (int index : remaining) {
+                final HeldBackBoardGameBox box = boxes.get(index);
                 final Integer baseSetFileId = box.baseSetId();
-                if (null == baseSetFileId || orderedFileIds.contains(baseSetFileId) || !boxesByFileId.containsKey(baseSetFileId)) {
-                    ordered.add(box);
+                if (null == baseSetFileId || orderedFileIds.contains(baseSetFileId) || (sectionComplete && !fileIds.contains(baseSetFileId))) {
+                    ordered.add(index);
                     orderedFileIds.add(box.id());
-                    progress = true;
+                    orderedAny = true;
                 } else {
-                    deferred.add(box);
+                    deferred.add(index);
                 }
             }
             remaining = deferred;
         }
-        for (BoardGameBoxResponseDto box : remaining) {
-            exceptionBackupImport.addBoardGameBoxException(new Exception("Error importing board game box data: Board game box with title: '"
-                    + box.title() + "' is part of a cycle of base set references in the import data, so it cannot be imported."));
-        }
         return ordered;
     }
 
@@ -776,7 +1364,8 @@ public class BackupImportService {
         return null;
     }
 
-    private ImportEntityResults importMetadata(List<Metadata> metadataToImport, ExceptionBackupImport exceptionBackupImport) {
+    //The metadata of an incremental backup changed since the backup before, it is written over the value in the database
+    private ImportEntityResults importMetadata(List<Metadata> metadataToImport, boolean overwrite, ExceptionBackupImport exceptionBackupImport) {
         int existingCount = 0;
         int createdCount = 0;
         if (null == metadataToImport) {
@@ -795,14 +1384,17 @@ public class BackupImportService {
             }
             try {
                 if (null == existing) {
-                    metadataGateway.createNew(metadata);
+                    inSavepoint(() -> metadataGateway.createNew(metadata));
                     createdCount++;
                 } else if (isBlankStub(existing.value())) {
                     //The front end seeds empty placeholder rows for keys it expects to exist. Treat those stubs as
                     //absent and overwrite them with the imported value; a stub that was skipped would silently drop the import.
-                    metadataGateway.updateValue(metadata);
+                    inSavepoint(() -> metadataGateway.updateValue(metadata));
                     createdCount++;
                 } else {
+                    if (overwrite) {
+                        inSavepoint(() -> metadataGateway.updateValue(metadata));
+                    }
                     existingCount++;
                 }
             } catch (Exception exception) {
@@ -839,4 +1431,3 @@ public class BackupImportService {
 
 record ImportEntityResults(Map<Integer, Integer> entityIds, int existingCount, int createdCount) { }
 record CustomFieldImportResults(Map<Integer, Integer> customFieldIds, Map<Integer, Integer> optionIds, int existingCount, int createdCount) { }
-record ValidatedVideoGameResults(List<Integer> existingIds, Map<Integer, VideoGameRequestDto> newGames) { }
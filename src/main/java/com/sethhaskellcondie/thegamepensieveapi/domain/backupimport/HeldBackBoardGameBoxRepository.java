@@ -0,0 +1,66 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The board game boxes of a streamed import held back until their base set box has been imported (see
+ * BackupImportService.orderBoxesBaseSetFirst()). A backup can list every expansion before its base set, so they are kept
+ * in a temporary table of the import's transaction rather than in memory, ImportProgress only keeps their import ids and
+ * the import ids of their base sets. The table is dropped when the transaction ends, it is never seen by another owner
+ * or another import. Only the streamed import holds boxes back, it always runs in a transaction.
+ */
+@Repository
+public class HeldBackBoardGameBoxRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public HeldBackBoardGameBoxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void holdBack(List<BoardGameBoxResponseDto> boxes) {
+        if (boxes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TEMPORARY TABLE IF NOT EXISTS held_back_board_game_boxes (import_id INTEGER NOT NULL, box JSONB NOT NULL) ON COMMIT DROP");
+        final List<Object[]> rows = new ArrayList<>(boxes.size());
+        for (BoardGameBoxResponseDto box : boxes) {
+            rows.add(new Object[]{box.id(), writeJson(box)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO held_back_board_game_boxes (import_id, box) VALUES (?, ?::jsonb)", rows);
+    }
+
+    /** Take the boxes held back with these import ids out of the table, in no particular order. */
+    public List<BoardGameBoxResponseDto> release(Collection<Integer> importIds) {
+        if (importIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("DELETE FROM held_back_board_game_boxes WHERE import_id = ANY(?) RETURNING box::text",
+                (resultSet, rowNumber) -> readJson(resultSet.getString(1)), (Object) importIds.toArray(new Integer[0]));
+    }
+
+    private String writeJson(BoardGameBoxResponseDto box) {
+        try {
+            return objectMapper.writeValueAsString(box);
+        } catch (JsonProcessingException exception) {
+            throw new ExceptionInternalError("Failed to hold back a board game box of the import.", exception);
+        }
+    }
+
+    private BoardGameBoxResponseDto readJson(String json) {
+        try {
+            return objectMapper.readValue(json, BoardGameBoxResponseDto.class);
+        } catch (JsonProcessingException exception) {
+            throw new ExceptionInternalError("Failed to read back a held back board game box of the import.", exception);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An import running in the background (see ImportJobRunner). While it runs currentSection is the section of the
+ * document being imported and results the counts so far, once it is completed results are the final counts and errors
+ * the import's error messages. A failed import was rolled back, results is null and errors says why.
+ */
+public record ImportJobDto(
+        int id,
+        String status,
+        String currentSection,
+        Map<String, Integer> results,
+        List<String> errors,
+        Timestamp createdAt,
+        Timestamp startedAt,
+        Timestamp finishedAt
+) {
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+}
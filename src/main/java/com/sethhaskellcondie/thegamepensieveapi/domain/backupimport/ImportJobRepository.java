@@ -0,0 +1,142 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The import_jobs table (V1_25), one row per background import, scoped to its owner by Row-Level Security like the
+ * entity tables. Also owns the imports' advisory lock: one import per owner at a time across every node. The heartbeat
+ * and stale job methods are ImportJobRunner's upkeep, they run with the application's privileges across every owner.
+ */
+@Repository
+public class ImportJobRepository {
+    //the first half of every import lock's key, it keeps them apart from any other advisory lock taken on the database
+    private static final int IMPORT_LOCK_NAMESPACE = 25;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RowMapper<ImportJobDto> rowMapper = (resultSet, rowNumber) ->
+            new ImportJobDto(
+                    resultSet.getInt("id"),
+                    resultSet.getString("status"),
+                    resultSet.getString("current_section"),
+                    readJson(resultSet.getString("results"), new TypeReference<Map<String, Integer>>() { }),
+                    readJson(resultSet.getString("errors"), new TypeReference<List<String>>() { }),
+                    resultSet.getTimestamp("created_at"),
+                    resultSet.getTimestamp("started_at"),
+                    resultSet.getTimestamp("finished_at")
+            );
+
+    public ImportJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Take the owner's import lock for the rest of the current transaction, false if another transaction (on any node)
+     * holds it. It is released when the transaction ends. Outside a tenant request there is no owner, those imports
+     * share one lock.
+     */
+    public boolean tryLockImports(Integer ownerId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?, ?)", Boolean.class,
+                IMPORT_LOCK_NAMESPACE, null == ownerId ? 0 : ownerId));
+    }
+
+    /** A new queued job of the current owner, the owner is stamped by the column default like the entity tables. */
+    public ImportJobDto insertQueued() {
+        return jdbcTemplate.queryForObject("INSERT INTO import_jobs DEFAULT VALUES RETURNING *", rowMapper);
+    }
+
+    public ImportJobDto getById(int id) {
+        final List<ImportJobDto> jobs = jdbcTemplate.query("SELECT * FROM import_jobs WHERE id = ?", rowMapper, id);
+        if (jobs.isEmpty()) {
+            throw new ExceptionResourceNotFound("Import job", id);
+        }
+        return jobs.getFirst();
+    }
+
+    /**
+     * True if the owner has a job that is queued or running. A queued job doesn't hold the import lock yet, so the lock
+     * alone would let a second import of the same owner in behind it. Outside a tenant request the jobs are stamped to
+     * the showcase owner, like every other row.
+     */
+    public boolean hasUnfinishedJob(Integer ownerId) {
+        final String sql = "SELECT EXISTS (SELECT 1 FROM import_jobs WHERE status IN (?, ?) AND "
+                + (null == ownerId ? "owner_id = showcase_owner_id()" : "owner_id = ?") + ")";
+        final Object[] arguments = null == ownerId
+                ? new Object[]{ImportJobDto.STATUS_QUEUED, ImportJobDto.STATUS_RUNNING}
+                : new Object[]{ImportJobDto.STATUS_QUEUED, ImportJobDto.STATUS_RUNNING, ownerId};
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, arguments));
+    }
+
+    public void markRunning(int id) {
+        jdbcTemplate.update("UPDATE import_jobs SET status = ?, started_at = now(), heartbeat_at = now() WHERE id = ?", ImportJobDto.STATUS_RUNNING, id);
+    }
+
+    public void updateProgress(int id, String currentSection, Map<String, Integer> results) {
+        jdbcTemplate.update("UPDATE import_jobs SET current_section = ?, results = ?::jsonb, heartbeat_at = now() WHERE id = ?",
+                currentSection, writeJson(results), id);
+    }
+
+    /**
+     * Stamp the heartbeat of the unfinished jobs with these ids, the jobs a node holds. Run outside a tenant request, a
+     * node holds the jobs of every owner.
+     */
+    public void heartbeat(Collection<Integer> ids) {
+        jdbcTemplate.update("UPDATE import_jobs SET heartbeat_at = now() WHERE id = ANY(?) AND status IN (?, ?)",
+                ids.toArray(new Integer[0]), ImportJobDto.STATUS_QUEUED, ImportJobDto.STATUS_RUNNING);
+    }
+
+    /** The owners with an unfinished job whose heartbeat is older than staleAfterSeconds. Run outside a tenant request. */
+    public List<Integer> getOwnersWithStaleJobs(long staleAfterSeconds) {
+        final String sql = "SELECT DISTINCT owner_id FROM import_jobs WHERE status IN (?, ?) AND heartbeat_at < now() - make_interval(secs => ?)";
+        return jdbcTemplate.queryForList(sql, Integer.class, ImportJobDto.STATUS_QUEUED, ImportJobDto.STATUS_RUNNING, staleAfterSeconds);
+    }
+
+    /**
+     * Mark the owner's unfinished jobs whose heartbeat is older than staleAfterSeconds failed with message, the number
+     * marked. Only call it holding the owner's import lock (tryLockImports()), then none of them is running anywhere.
+     */
+    public int failStaleJobs(int ownerId, long staleAfterSeconds, String message) {
+        final String sql = "UPDATE import_jobs SET status = ?, current_section = NULL, results = NULL, errors = ?::jsonb, finished_at = now()"
+                + " WHERE owner_id = ? AND status IN (?, ?) AND heartbeat_at < now() - make_interval(secs => ?)";
+        return jdbcTemplate.update(sql, ImportJobDto.STATUS_FAILED, writeJson(List.of(message)), ownerId,
+                ImportJobDto.STATUS_QUEUED, ImportJobDto.STATUS_RUNNING, staleAfterSeconds);
+    }
+
+    public void finish(int id, String status, Map<String, Integer> results, List<String> errors) {
+        jdbcTemplate.update("UPDATE import_jobs SET status = ?, current_section = NULL, results = ?::jsonb, errors = ?::jsonb, finished_at = now() WHERE id = ?",
+                status, writeJson(results), writeJson(errors), id);
+    }
+
+    private String writeJson(Object value) {
+        if (null == value) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException exception) {
+            throw new ExceptionInternalError("Failed to write the state of an import job.", exception);
+        }
+    }
+
+    private <T> T readJson(String json, TypeReference<T> type) {
+        if (null == json) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException exception) {
+            throw new ExceptionInternalError("Failed to read the state of an import job.", exception);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantSessionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.auth.Role;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionImportInProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the import jobs started by BackupImportGateway.startImportJob(), on at most max-concurrent-jobs virtual threads
+ * of the node, the jobs past that wait in line. A job runs like the request that started it would have: as its owner,
+ * with {@link TenantSessionRepository#assumeTenant(int)} on its own transaction, so Row-Level Security scopes it. The
+ * import is one transaction that first takes the owner's import lock (see ImportJobRepository.tryLockImports()), a job
+ * whose owner already has an import running on any node fails without importing anything. A failed import is rolled
+ * back as a whole. The job's row is written in short transactions of its own next to the import's, so a poll sees the
+ * progress while the import is still running: each job holds a second pooled connection for a moment after every chunk.
+ * <p>
+ * Every heartbeat-interval-seconds the node stamps the heartbeat of the jobs it holds (queued or running) and marks
+ * failed the unfinished jobs of every owner whose heartbeat is older than stale-after-seconds and whose import lock is
+ * free: the node that held them crashed or restarted, nothing will finish them. On shutdown the jobs still waiting in
+ * line are marked failed rather than started, the running ones get shutdown-timeout-seconds to finish.
+ */
+@Component
+public class ImportJobRunner {
+    static final String STALE_JOB_MESSAGE = "The import was interrupted, the server running it stopped before it finished. Please start it again.";
+    static final String SHUTDOWN_MESSAGE = "The import was not started, the server shut down first. Please start it again.";
+
+    private final BackupImportService service;
+    private final ImportJobRepository importJobRepository;
+    private final TenantSessionRepository tenantSessionRepository;
+    private final TransactionTemplate importTransaction;
+    private final TransactionTemplate jobTransaction;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService upkeep;
+    //the ids of the jobs this node has taken and not finished, queued or running
+    private final Set<Integer> heldJobs = ConcurrentHashMap.newKeySet();
+    private final ObjectMapper objectMapper;
+    private final long heartbeatIntervalSeconds;
+    private final long staleAfterSeconds;
+    private final long shutdownTimeoutSeconds;
+    private volatile boolean stopping;
+    private final Logger logger = LoggerFactory.getLogger(ImportJobRunner.class);
+
+    public ImportJobRunner(BackupImportService service, ImportJobRepository importJobRepository, TenantSessionRepository tenantSessionRepository,
+                           PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                           @Value("${pensieve.imports.max-concurrent-jobs:4}") int maxConcurrentJobs,
+                           @Value("${pensieve.imports.heartbeat-interval-seconds:60}") long heartbeatIntervalSeconds,
+                           @Value("${pensieve.imports.stale-after-seconds:300}") long staleAfterSeconds,
+                           @Value("${pensieve.imports.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.service = service;
+        this.importJobRepository = importJobRepository;
+        this.tenantSessionRepository = tenantSessionRepository;
+        this.objectMapper = objectMapper;
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.jobTransaction = new TransactionTemplate(transactionManager);
+        this.jobTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs, Thread.ofVirtual().name("import-job-", 0).factory());
+        this.upkeep = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("import-job-upkeep").factory());
+        this.heartbeatIntervalSeconds = heartbeatIntervalSeconds;
+        this.staleAfterSeconds = staleAfterSeconds;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    //the first run right away picks up the jobs left behind by this node's last run (or any node that is gone)
+    @EventListener(ApplicationReadyEvent.class)
+    public void startUpkeep() {
+        upkeep.scheduleWithFixedDelay(this::heartbeatAndFailStaleJobs, 0, heartbeatIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop taking jobs: the ones still waiting in line fail as they come up (see run()), the running ones get
+     * shutdown-timeout-seconds to finish. A job still running after that is left to the stale job check of the next
+     * node to run it, its import transaction (and the owner's lock) ends with this node's connections.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        upkeep.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("Import jobs {} were still running at shutdown, they are marked failed once they are stale", heldJobs);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stamp the heartbeat of the jobs this node holds, then mark failed every owner's unfinished jobs that are stale,
+     * one owner at a time and only while holding that owner's import lock: a stale heartbeat alone could be a running
+     * job whose node is slow to stamp it. Runs with the application's privileges, it covers every owner.
+     */
+    void heartbeatAndFailStaleJobs() {
+        try {
+            final List<Integer> jobIds = List.copyOf(heldJobs);
+            if (!jobIds.isEmpty()) {
+                jobTransaction.executeWithoutResult(status -> importJobRepository.heartbeat(jobIds));
+            }
+            for (Integer ownerId : importJobRepository.getOwnersWithStaleJobs(staleAfterSeconds)) {
+                final Integer failed = jobTransaction.execute(status -> importJobRepository.tryLockImports(ownerId)
+                        ? importJobRepository.failStaleJobs(ownerId, staleAfterSeconds, STALE_JOB_MESSAGE)
+                        : 0);
+                if (null != failed && failed > 0) {
+                    logger.warn("Marked {} stale import job(s) of owner {} failed", failed, ownerId);
+                }
+            }
+        } catch (RuntimeException exception) {
+            //thrown out of a scheduled run it would cancel every later one
+            logger.error("The import job heartbeat failed", exception);
+        }
+    }
+
+    /**
+     * Run the job on the document in documentFile once the current transaction commits, before that the worker couldn't
+     * see the job's row (or the owner's import lock would still be held by the request). If the transaction rolls back
+     * the job never existed and the file is deleted. The file is deleted when the job is done with it either way.
+     */
+    void runAfterCommit(int jobId, Path documentFile) {
+        final Integer ownerId = TenantContext.get();
+        final Role role = TenantContext.getRole();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(jobId, ownerId, role, documentFile);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (STATUS_COMMITTED == status) {
+                    submit(jobId, ownerId, role, documentFile);
+                } else {
+                    deleteDocument(documentFile);
+                }
+            }
+        });
+    }
+
+    private void submit(int jobId, Integer ownerId, Role role, Path documentFile) {
+        heldJobs.add(jobId);
+        try {
+            executor.execute(() -> run(jobId, ownerId, role, documentFile));
+        } catch (RejectedExecutionException exception) {
+            //the node is shutting down
+            heldJobs.remove(jobId);
+            deleteDocument(documentFile);
+            fail(jobId, ownerId, SHUTDOWN_MESSAGE);
+        }
+    }
+
+    private void run(int jobId, Integer ownerId, Role role, Path documentFile) {
+        TenantContext.set(ownerId);
+        TenantContext.setRole(role);
+        try {
+            if (stopping) {
+                deleteDocument(documentFile);
+                fail(jobId, ownerId, SHUTDOWN_MESSAGE);
+                return;
+            }
+            final ImportResultsDto results;
+            //the document is gone before the job's final state is written, a poll that sees the job done can rely on it
+            try {
+                inJobTransaction(ownerId, () -> importJobRepository.markRunning(jobId));
+                results = importTransaction.execute(status -> {
+                    assumeTenant(ownerId);
+                    if (!importJobRepository.tryLockImports(ownerId)) {
+                        throw new ExceptionImportInProgress();
+                    }
+                    try (JsonParser parser = objectMapper.createParser(documentFile.toFile())) {
+                        return service.importBackupData(parser, progress -> inJobTransaction(ownerId,
+                                () -> importJobRepository.updateProgress(jobId, progress.currentSection, progress.toResults().counts())));
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            } finally {
+                deleteDocument(documentFile);
+            }
+            inJobTransaction(ownerId, () -> importJobRepository.finish(jobId, ImportJobDto.STATUS_COMPLETED, results.counts(),
+                    results.exceptionBackupImport().getMessages()));
+        } catch (RuntimeException exception) {
+            fail(jobId, ownerId, failureMessage(exception));
+        } finally {
+            heldJobs.remove(jobId);
+            TenantContext.clearRole();
+            TenantContext.clear();
+        }
+    }
+
+    private static String failureMessage(RuntimeException exception) {
+        if (exception instanceof UncheckedIOException && exception.getCause() instanceof JsonProcessingException jsonException) {
+            return "The import is not a valid backup document: " + jsonException.getOriginalMessage();
+        }
+        if (exception instanceof UncheckedIOException) {
+            return "The import could not be read: " + exception.getCause().getMessage();
+        }
+        return exception.getMessage();
+    }
+
+    private void fail(int jobId, Integer ownerId, String message) {
+        try {
+            inJobTransaction(ownerId, () -> importJobRepository.finish(jobId, ImportJobDto.STATUS_FAILED, null, List.of(message)));
+        } catch (RuntimeException finishException) {
+            logger.error("Import job {} failed and could not be marked failed: {}", jobId, message, finishException);
+        }
+    }
+
+    private void inJobTransaction(Integer ownerId, Runnable write) {
+        jobTransaction.executeWithoutResult(status -> {
+            assumeTenant(ownerId);
+            write.run();
+        });
+    }
+
+    //a job started outside a tenant request (no owner) runs with the application's privileges, like that request did
+    private void assumeTenant(Integer ownerId) {
+        if (null != ownerId) {
+            tenantSessionRepository.assumeTenant(ownerId);
+        }
+    }
+
+    private void deleteDocument(Path documentFile) {
+        try {
+            Files.deleteIfExists(documentFile);
+        } catch (IOException exception) {
+            logger.warn("Could not delete the import document {}", documentFile, exception);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBackupImport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Everything one import keeps between the chunks of its sections: the errors, the counts, and the tables that map
+ * the ids in the import to the ids written to the database (which later sections resolve their relationships with).
+ * The entities themselves are let go of once their chunk is imported, a board game box held back until its base set box
+ * has been imported waits in the database (see HeldBackBoardGameBoxRepository) and only its import ids are kept here.
+ * The tombstones of systems and custom fields wait for their turn, the names of the imported systems are their natural keys.
+ * A streamed import tells its listener how far it got after every chunk.
+ */
+final class ImportProgress {
+    final ExceptionBackupImport exceptionBackupImport = new ExceptionBackupImport();
+    final Set<String> importedSections = new HashSet<>();
+    final Map<Integer, Integer> systemIds = new HashMap<>();
+    final Map<Integer, Integer> videoGameIds = new HashMap<>();
+    final Map<Integer, Integer> boardGameBoxIds = new HashMap<>();
+    final Map<Integer, Integer> boardGameIds = new HashMap<>();
+    final List<HeldBackBoardGameBox> heldBackBoardGameBoxes = new ArrayList<>();
+    //the tombstones of systems are applied once every section is in, a system the backup has is kept
+    final List<Tombstone> systemTombstones = new ArrayList<>();
+    final Set<String> importedSystemNames = new HashSet<>();
+    //the tombstones of custom fields are applied with the custom fields, a renamed one is still in them
+    final List<Tombstone> customFieldTombstones = new ArrayList<>();
+    CustomFieldImportResults customFields;
+    ImportCount toys = ImportCount.NONE;
+    ImportCount systems = ImportCount.NONE;
+    ImportCount videoGameBoxes = ImportCount.NONE;
+    ImportCount boardGameBoxes = ImportCount.NONE;
+    ImportCount metadata = ImportCount.NONE;
+    //an incremental backup (see BackupImportService.writeBackupData(JsonGenerator, Timestamp)) is merged, not only added
+    boolean incremental;
+    int deleted;
+    String currentSection;
+    Consumer<ImportProgress> listener = progress -> { };
+
+    Map<Integer, Integer> customFieldIds() {
+        return customFields.customFieldIds();
+    }
+
+    Map<Integer, Integer> optionIds() {
+        return customFields.optionIds();
+    }
+
+    void report() {
+        listener.accept(this);
+    }
+
+    ImportResultsDto toResults() {
+        //a section read before the custom fields reports progress before they are imported
+        final boolean customFieldsImported = null != customFields;
+        return new ImportResultsDto(
+                customFieldsImported ? customFields.existingCount() : 0, customFieldsImported ? customFields.createdCount() : 0,
+                toys.existing(), toys.created(),
+                systems.existing(), systems.created(),
+                videoGameBoxes.existing(), videoGameBoxes.created(),
+                boardGameBoxes.existing(), boardGameBoxes.created(),
+                metadata.existing(), metadata.created(),
+                deleted,
+                exceptionBackupImport
+        );
+    }
+}
+
+//the import ids of a board game box held back in the database and of its base set box, what ordering it needs
+record HeldBackBoardGameBox(int id, Integer baseSetId) {
+}
+
+record ImportCount(int existing, int created) {
+    static final ImportCount NONE = new ImportCount(0, 0);
+
+    ImportCount plus(ImportEntityResults results) {
+        return new ImportCount(existing + results.existingCount(), created + results.createdCount());
+    }
+}
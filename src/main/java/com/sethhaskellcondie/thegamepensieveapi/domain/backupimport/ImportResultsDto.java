@@ -2,16 +2,39 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBackupImport;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public record ImportResultsDto(int existingCustomFields, int createdCustomFields,
                                int existingToys, int createdToys,
                                int existingSystems, int createdSystems,
                                int existingVideoGamesBoxes, int createdVideoGamesBoxes,
                                int existingBoardGameBoxes, int createdBoardGameBoxes,
                                int existingMetadata, int createdMetadata,
+                               int deleted,
                                ExceptionBackupImport exceptionBackupImport
 ) {
     ImportResultsDto(int existingCustomFields, int createdCustomFields, ExceptionBackupImport exceptionBackupImport) {
-        this(existingCustomFields, createdCustomFields, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, exceptionBackupImport);
+        this(existingCustomFields, createdCustomFields, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, exceptionBackupImport);
+    }
+
+    /** The counts under the names the import response has always used, how an import job stores them. */
+    public Map<String, Integer> counts() {
+        final Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("existingCustomFields", existingCustomFields);
+        counts.put("createdCustomFields", createdCustomFields);
+        counts.put("existingToys", existingToys);
+        counts.put("createdToys", createdToys);
+        counts.put("existingSystems", existingSystems);
+        counts.put("createdSystems", createdSystems);
+        counts.put("existingVideoGameBoxes", existingVideoGamesBoxes);
+        counts.put("createdVideoGameBoxes", createdVideoGamesBoxes);
+        counts.put("existingBoardGameBoxes", existingBoardGameBoxes);
+        counts.put("createdBoardGameBoxes", createdBoardGameBoxes);
+        counts.put("existingMetadata", existingMetadata);
+        counts.put("createdMetadata", createdMetadata);
+        counts.put("deleted", deleted);
+        return counts;
     }
 
     @Override
@@ -30,6 +53,7 @@ public record ImportResultsDto(int existingCustomFields, int createdCustomFields
                     createdBoardGameBoxes: %d,
                     existingMetadata: %d,
                     createdMetadata: %d,
+                    deleted: %d,
                     exceptions: %d
                     exceptionMessages: %s
                 }
@@ -48,6 +72,7 @@ public record ImportResultsDto(int existingCustomFields, int createdCustomFields
                 this.createdBoardGameBoxes,
                 this.existingMetadata,
                 this.createdMetadata,
+                this.deleted,
                 this.exceptionBackupImport.getExceptions().size(),
                 " \n - " + String.join(" \n - ", this.exceptionBackupImport.getMessages())
         );
@@ -1,14 +1,17 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 /**
  * A backup.json file in the application's working directory, used by the default (unsecured, single-user) build
@@ -35,12 +38,24 @@ public class LocalBackupFileStore {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public void write(BackupDataDto backupData) {
-        final File file = new File(BACKUP_DATA_PATH);
+    /**
+     * The backup is streamed into a temporary file next to backup.json and moved over it once it is complete, so a
+     * backup that fails part way through leaves the previous file as it was.
+     */
+    public void write(BackupDataWriter backupDataWriter) {
+        final Path backupPath = Paths.get(BACKUP_DATA_PATH).toAbsolutePath();
+        Path temporaryPath = null;
         try {
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, backupData);
+            temporaryPath = Files.createTempFile(backupPath.getParent(), "backup", ".json.tmp");
+            try (JsonGenerator generator = objectMapper.createGenerator(temporaryPath.toFile(), JsonEncoding.UTF8)) {
+                generator.useDefaultPrettyPrinter();
+                backupDataWriter.write(generator);
+            }
+            Files.move(temporaryPath, backupPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new ExceptionInternalError("Failed to write backup data to file: " + BACKUP_DATA_PATH, e);
+        } finally {
+            deleteIfExists(temporaryPath);
         }
     }
 
@@ -52,4 +67,15 @@ public class LocalBackupFileStore {
             throw new ExceptionInternalError("Failed to read backup data from file: " + BACKUP_DATA_PATH, e);
         }
     }
+
+    private void deleteIfExists(Path path) {
+        if (null == path) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            //the backup itself already succeeded or failed, a stray temporary file doesn't change that
+        }
+    }
 }
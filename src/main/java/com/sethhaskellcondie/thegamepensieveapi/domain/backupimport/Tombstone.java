@@ -0,0 +1,17 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * An entity (or metadata) deleted since the start of an incremental backup. The ids of a backup never become the ids
+ * of the database it is imported into, so the tombstone is matched by naturalKey: the fields the import finds the
+ * entity by, in the order of its lookup. A toy is [name, set], a system [name], a video game box [title, system name],
+ * a board game box [title, board game title], metadata [key], and a custom field [entity key, name]. An entity renamed
+ * in the window has a tombstone of its previous natural key, deletedAt is when it was renamed, the entity itself is
+ * exported under the new one.
+ */
+public record Tombstone(String key, int id, List<String> naturalKey, Timestamp deletedAt) {
+    public static final String METADATA_KEY = "metadata";
+    public static final String CUSTOM_FIELD_KEY = "customField";
+}
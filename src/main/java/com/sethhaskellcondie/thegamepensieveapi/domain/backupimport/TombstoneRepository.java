@@ -0,0 +1,62 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tombstones of an incremental backup, read from the deleted_at of every table a backup exports (soft deletes are
+ * the only deletes) and from the previous natural keys of the renamed entities (see V1_29), which also hold the renamed
+ * and deleted custom fields (see V1_30). Row-Level Security scopes them to the owner like the rows themselves.
+ */
+@Repository
+public class TombstoneRepository {
+    //the natural key is joined in from the related row for the boxes, a deleted box keeps its system and board game rows
+    private static final String DELETED_SINCE_SQL = """
+            SELECT '%s' AS entity_key, id, ARRAY[name, set] AS natural_key, deleted_at FROM toys WHERE deleted_at >= ?
+            UNION ALL
+            SELECT '%s', id, ARRAY[name], deleted_at FROM systems WHERE deleted_at >= ?
+            UNION ALL
+            SELECT '%s', boxes.id, ARRAY[boxes.title, systems.name], boxes.deleted_at
+                FROM video_game_boxes boxes JOIN systems ON systems.id = boxes.system_id WHERE boxes.deleted_at >= ?
+            UNION ALL
+            SELECT '%s', boxes.id, ARRAY[boxes.title, board_games.title], boxes.deleted_at
+                FROM board_game_boxes boxes JOIN board_games ON board_games.id = boxes.board_game_id WHERE boxes.deleted_at >= ?
+            UNION ALL
+            SELECT '%s', id, ARRAY[key], deleted_at FROM metadata WHERE deleted_at >= ?
+            UNION ALL
+            SELECT entity_key, entity_id, natural_key, renamed_at FROM renamed_natural_keys WHERE renamed_at >= ?
+            ORDER BY deleted_at, id
+            """.formatted(Keychain.TOY_KEY, Keychain.SYSTEM_KEY, Keychain.VIDEO_GAME_BOX_KEY, Keychain.BOARD_GAME_BOX_KEY, Tombstone.METADATA_KEY);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<Tombstone> rowMapper = (resultSet, rowNumber) ->
+            new Tombstone(
+                    resultSet.getString("entity_key"),
+                    resultSet.getInt("id"),
+                    Arrays.asList((String[]) resultSet.getArray("natural_key").getArray()),
+                    resultSet.getTimestamp("deleted_at")
+            );
+
+    public TombstoneRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Everything deleted (and not restored since) or renamed at or after since, oldest first. */
+    public List<Tombstone> getDeletedSince(Timestamp since) {
+        return jdbcTemplate.query(DELETED_SINCE_SQL, rowMapper, since, since, since, since, since, since);
+    }
+
+    /**
+     * The start of the current transaction by the database clock less safetyMarginSeconds, the exportedAt of an
+     * incremental backup read in this transaction (see BackupImportService.writeBackupData(JsonGenerator, Timestamp)).
+     */
+    public Timestamp getSnapshotTime(long safetyMarginSeconds) {
+        return jdbcTemplate.queryForObject("SELECT now() - make_interval(secs => ?)", Timestamp.class, safetyMarginSeconds);
+    }
+}
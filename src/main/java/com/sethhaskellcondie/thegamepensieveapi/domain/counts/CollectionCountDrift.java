@@ -0,0 +1,8 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.counts;
+
+/**
+ * One stored count that did not match the rows in the database when the counts were reconciled: the owner and entity
+ * key of the counter, the count it held, and the count re-derived from the entity table (which it was corrected to).
+ */
+public record CollectionCountDrift(int ownerId, String entityKey, long storedCount, long actualCount) {
+}
@@ -0,0 +1,79 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.counts;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The collection_counts table (V1_24), one row per owner and entity key holding the number of that owner's rows that
+ * are not soft deleted. The rows are written by triggers on the entity tables, never by the application, this reads
+ * them and reconciles them against the entity tables.
+ */
+@Repository
+public class CollectionCountsRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public CollectionCountsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The stored count of every entity key of the acting owner, RLS limits the rows to that owner so this is a lookup
+     * on the primary key. An entity key the owner has never had a row of is missing from the map.
+     */
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT entity_key, item_count FROM collection_counts",
+                resultSet -> {
+                    counts.put(resultSet.getString("entity_key"), resultSet.getLong("item_count"));
+                });
+        return counts;
+    }
+
+    /**
+     * Count the live rows of every entity table again, for every owner, and correct each stored count that differs.
+     * Returns the counts that were corrected, none if the triggers kept every count exact. Must run with the
+     * application's normal privileges (not as app_rls) to see every owner.
+     *
+     * <p>The counters are locked against the triggers first, a write that has already moved a counter is committed
+     * before the recount starts, and a write that comes after waits for the corrections. So a concurrent write can't
+     * be reported as drift or be overwritten.
+     */
+    @Transactional
+    public List<CollectionCountDrift> reconcile() {
+        jdbcTemplate.execute("LOCK TABLE collection_counts IN SHARE ROW EXCLUSIVE MODE");
+        final String actualCountsSql = Keychain.getAllKeys().stream()
+                .map(key -> "SELECT owner_id, '" + key + "' AS entity_key, count(*) AS item_count FROM " + Keychain.getTableAliasByKey(key)
+                        + " WHERE deleted_at IS NULL GROUP BY owner_id")
+                .collect(Collectors.joining(" UNION ALL "));
+        final String sql = """
+                WITH actual AS (%s),
+                drift AS (
+                    SELECT coalesce(actual.owner_id, collection_counts.owner_id) AS owner_id,
+                           coalesce(actual.entity_key, collection_counts.entity_key) AS entity_key,
+                           coalesce(collection_counts.item_count, 0) AS stored_count,
+                           coalesce(actual.item_count, 0) AS actual_count
+                    FROM actual
+                    FULL JOIN collection_counts ON collection_counts.owner_id = actual.owner_id AND collection_counts.entity_key = actual.entity_key
+                    WHERE coalesce(collection_counts.item_count, 0) <> coalesce(actual.item_count, 0)
+                ),
+                corrected AS (
+                    INSERT INTO collection_counts (owner_id, entity_key, item_count) SELECT owner_id, entity_key, actual_count FROM drift
+                    ON CONFLICT (owner_id, entity_key) DO UPDATE SET item_count = EXCLUDED.item_count
+                )
+                SELECT owner_id, entity_key, stored_count, actual_count FROM drift ORDER BY owner_id, entity_key;
+                """.formatted(actualCountsSql);
+        return jdbcTemplate.query(sql, (resultSet, rowNumber) -> new CollectionCountDrift(
+                resultSet.getInt("owner_id"),
+                resultSet.getString("entity_key"),
+                resultSet.getLong("stored_count"),
+                resultSet.getLong("actual_count")
+        ));
+    }
+}
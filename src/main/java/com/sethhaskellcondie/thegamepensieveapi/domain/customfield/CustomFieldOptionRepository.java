@@ -15,11 +15,16 @@ import org.springframework.stereotype.Repository;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class CustomFieldOptionRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final CustomFieldSchemaCache schemaCache;
     private final Logger logger = LoggerFactory.getLogger(CustomFieldOptionRepository.class);
     private final RowMapper<CustomFieldOption> rowMapper = (resultSet, rowNumber) ->
             new CustomFieldOption(
@@ -30,8 +35,14 @@ public class CustomFieldOptionRepository {
                     resultSet.getInt("display_order")
             );
 
-    public CustomFieldOptionRepository(JdbcTemplate jdbcTemplate) {
+    public CustomFieldOptionRepository(JdbcTemplate jdbcTemplate, CustomFieldSchemaCache schemaCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCache = schemaCache;
+    }
+
+    //The CustomFieldRepository built on this repository shares its cache, so a write through either one invalidates it
+    public CustomFieldSchemaCache getSchemaCache() {
+        return schemaCache;
     }
 
     public CustomFieldOption insertOption(int customFieldId, String name, boolean isDefault, int order) {
@@ -50,6 +61,7 @@ public class CustomFieldOptionRepository {
                 },
                 keyHolder
         );
+        schemaCache.invalidate();
         final Integer generatedId = (Integer) keyHolder.getKeys().get("id");
 
         try {
@@ -65,6 +77,19 @@ public class CustomFieldOptionRepository {
         return jdbcTemplate.query(sql, rowMapper, customFieldId);
     }
 
+    //One query for the options of every given custom field grouped by custom field id, fields without options are not in the map
+    public Map<Integer, List<CustomFieldOption>> getOptionsByCustomFieldIds(Collection<Integer> customFieldIds) {
+        if (customFieldIds.isEmpty()) {
+            return Map.of();
+        }
+        final String sql = "SELECT * FROM custom_field_options WHERE custom_field_id = ANY(?) AND deleted = false ORDER BY custom_field_id ASC, display_order ASC, id ASC";
+        final Map<Integer, List<CustomFieldOption>> optionsByCustomFieldId = new HashMap<>();
+        for (CustomFieldOption option : jdbcTemplate.query(sql, rowMapper, (Object) customFieldIds.toArray(new Integer[0]))) {
+            optionsByCustomFieldId.computeIfAbsent(option.customFieldId(), customFieldId -> new ArrayList<>()).add(option);
+        }
+        return optionsByCustomFieldId;
+    }
+
     public CustomFieldOption getOptionById(int optionId) {
         final String sql = "SELECT * FROM custom_field_options WHERE id = ? AND deleted = false";
         try {
@@ -82,6 +107,7 @@ public class CustomFieldOptionRepository {
     public void updateOption(int optionId, String name, int order, boolean isDefault) {
         final String sql = "UPDATE custom_field_options SET name = ?, display_order = ?, is_default = ? WHERE id = ? AND deleted = false";
         jdbcTemplate.update(sql, name, order, isDefault, optionId);
+        schemaCache.invalidate();
     }
 
     /**
@@ -102,6 +128,7 @@ public class CustomFieldOptionRepository {
 
         final String deleteSql = "UPDATE custom_field_options SET deleted = true WHERE id = ?";
         int rowsUpdated = jdbcTemplate.update(deleteSql, optionId);
+        schemaCache.invalidate();
         if (rowsUpdated < 1) {
             throw new ExceptionResourceNotFound("Delete failed", "custom_field_options", optionId);
         }
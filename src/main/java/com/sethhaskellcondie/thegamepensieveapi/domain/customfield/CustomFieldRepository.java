@@ -25,6 +25,7 @@ import java.util.Map;
 public class CustomFieldRepository {
     private final JdbcTemplate jdbcTemplate;
     private final CustomFieldOptionRepository optionRepository;
+    private final CustomFieldSchemaCache schemaCache;
     private final Logger logger = LoggerFactory.getLogger(CustomFieldRepository.class);
     private final RowMapper<CustomField> rowMapper = (resultSet, rowNumber) ->
             CustomField.withoutOptions(
@@ -38,6 +39,7 @@ public class CustomFieldRepository {
     public CustomFieldRepository(JdbcTemplate jdbcTemplate, CustomFieldOptionRepository optionRepository) {
         this.jdbcTemplate = jdbcTemplate;
         this.optionRepository = optionRepository;
+        this.schemaCache = optionRepository.getSchemaCache();
     }
 
     public CustomField insertCustomField(CustomFieldRequestDto customField) {
@@ -56,6 +58,7 @@ public class CustomFieldRepository {
                 },
                 keyHolder
         );
+        schemaCache.invalidate();
         final Integer generatedId = (Integer) keyHolder.getKeys().get("id");
 
         try {
@@ -79,7 +82,7 @@ public class CustomFieldRepository {
         } catch (EmptyResultDataAccessException exception) {
             throw new ExceptionResourceNotFound("custom_fields", id, exception);
         }
-        return populateOptions(customField);
+        return populateOptions(List.of(customField)).getFirst();
     }
 
     public CustomField getDeletedById(int id) {
@@ -112,21 +115,20 @@ public class CustomFieldRepository {
             throw new ExceptionResourceNotFound("Custom Field (deleted = false) not found with given entity key and name. entity_key: " + entityKey
                     + " name: " + customFieldName + ".", exception);
         }
-        return populateOptions(customField);
+        return populateOptions(List.of(customField)).getFirst();
     }
 
     public List<CustomField> getAllCustomFields() {
         final String sql = "SELECT * FROM custom_fields WHERE deleted = false ORDER BY display_order ASC, id ASC";
-        return jdbcTemplate.query(sql, rowMapper).stream()
-                .map(this::populateOptions)
-                .toList();
+        return populateOptions(jdbcTemplate.query(sql, rowMapper));
     }
 
+    //Served from the owner's cached schema inside a tenant request, see CustomFieldSchemaCache
     public List<CustomField> getAllByKey(String entityKey) {
-        final String sql = "SELECT * FROM custom_fields WHERE entity_key = ? AND deleted = false ORDER BY display_order ASC, id ASC";
-        return jdbcTemplate.query(sql, rowMapper, entityKey).stream()
-                .map(this::populateOptions)
-                .toList();
+        return schemaCache.getOrLoad(entityKey, this::getSchemaVersion, () -> {
+            final String sql = "SELECT * FROM custom_fields WHERE entity_key = ? AND deleted = false ORDER BY display_order ASC, id ASC";
+            return populateOptions(jdbcTemplate.query(sql, rowMapper, entityKey));
+        });
     }
 
     public Map<String, String> getCustomFieldsAsFilterFields(String entityKey) {
@@ -148,6 +150,7 @@ public class CustomFieldRepository {
                             UPDATE custom_fields SET name = ?, display_order = ? WHERE id = ?;
                 """;
         jdbcTemplate.update(sql, name, order, id);
+        schemaCache.invalidate();
         return getById(id);
     }
 
@@ -156,17 +159,39 @@ public class CustomFieldRepository {
                             UPDATE custom_fields SET deleted = true WHERE id = ?;
                 """;
         int rowsUpdated = jdbcTemplate.update(sql, id);
+        schemaCache.invalidate();
         if (rowsUpdated < 1) {
             throw new ExceptionResourceNotFound("Delete failed", "custom_fields", id);
         }
     }
 
-    private CustomField populateOptions(CustomField field) {
-        if (field == null || !CustomField.isEnumType(field.type())) {
-            return field;
+    //Bumped by a trigger on every custom_fields and custom_field_options write, 0 before the owner's first one
+    public long getSchemaVersion(int ownerId) {
+        final String sql = "SELECT COALESCE(MAX(version), 0) FROM custom_field_schema_versions WHERE owner_id = ?";
+        final Long version = jdbcTemplate.queryForObject(sql, Long.class, ownerId);
+        return null == version ? 0 : version;
+    }
+
+    //For writes that reach the custom field tables without going through this repository or the option repository
+    public void invalidateSchemaCache() {
+        schemaCache.invalidate();
+    }
+
+    //Loads the options of every enum field in one query, so the query count doesn't grow with the number of enum fields
+    private List<CustomField> populateOptions(List<CustomField> fields) {
+        final List<Integer> enumFieldIds = fields.stream()
+                .filter(field -> CustomField.isEnumType(field.type()))
+                .map(CustomField::id)
+                .toList();
+        if (enumFieldIds.isEmpty()) {
+            return fields;
         }
-        List<CustomFieldOption> options = optionRepository.getOptionsByCustomFieldId(field.id());
-        return new CustomField(field.id(), field.name(), field.type(), field.entityKey(), field.order(), options);
+        final Map<Integer, List<CustomFieldOption>> options = optionRepository.getOptionsByCustomFieldIds(enumFieldIds);
+        return fields.stream()
+                .map(field -> CustomField.isEnumType(field.type())
+                        ? new CustomField(field.id(), field.name(), field.type(), field.entityKey(), field.order(), List.copyOf(options.getOrDefault(field.id(), List.of())))
+                        : field)
+                .toList();
     }
 
     private void customFieldDbValidation(CustomFieldRequestDto customField) {
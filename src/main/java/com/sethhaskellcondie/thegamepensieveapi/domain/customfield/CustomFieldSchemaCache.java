@@ -0,0 +1,165 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.customfield;
+
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, least recently used cache of each owner's custom field schema: the custom fields (with their options)
+ * of one entity key, keyed by the owner id and the entity key. Every search reads the schema at least twice (to
+ * validate the filters and to load the custom field values) and the schema only changes when the owner edits their
+ * custom fields, so nearly every read is a hit.
+ * <p>
+ * The cache is only used inside a tenant request, when {@link TenantContext} knows the owner, Row-Level Security
+ * scopes the schema to that owner so the owner id is a complete key. Without an owner every read goes to the database.
+ * <p>
+ * The cache is per node, so an entry is only served while the owner's schema version (custom_field_schema_versions,
+ * bumped by a trigger on every custom field and option write) still holds the value the entry was loaded at. The
+ * version is read once per transaction, a write committed on another node is seen by the next request here.
+ * <p>
+ * Every write to custom_fields or custom_field_options must also call {@link #invalidate()}. The current owner's
+ * entries are dropped right away and again once the transaction completes, and for the rest of that transaction the
+ * schema is cached for the transaction alone: its reads see uncommitted rows that could still be rolled back, so they
+ * never repopulate the shared cache. The generation counter keeps a load that raced an invalidation out of the cache.
+ */
+@Component
+public class CustomFieldSchemaCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final Map<Key, Entry> schemas;
+    private final int maxEntries;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CustomFieldSchemaCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    @Autowired
+    public CustomFieldSchemaCache(@Value("${pensieve.custom-field-cache.max-entries:" + DEFAULT_MAX_ENTRIES + "}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        //access ordered LinkedHashMap so removeEldestEntry() evicts the least recently used schema
+        this.schemas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The owner's schema of the entity key, from the cache when the cached entry is still at the owner's schema
+     * version. versionLoader reads that version for an owner id, loader reads the schema itself.
+     */
+    public List<CustomField> getOrLoad(String entityKey, IntToLongFunction versionLoader, Supplier<List<CustomField>> loader) {
+        final Integer ownerId = TenantContext.get();
+        if (null == ownerId) {
+            return loader.get();
+        }
+        final Key key = new Key(ownerId, entityKey);
+        final TransactionState transaction = currentTransaction();
+        if (null != transaction && transaction.wroteSchema) {
+            return transaction.schemas.computeIfAbsent(key, ignored -> List.copyOf(loader.get()));
+        }
+        final long version = null == transaction
+                ? versionLoader.applyAsLong(ownerId)
+                : transaction.versions.computeIfAbsent(ownerId, versionLoader::applyAsLong);
+        Entry entry;
+        synchronized (schemas) {
+            entry = schemas.get(key);
+        }
+        if (null != entry && entry.version() == version) {
+            hits.incrementAndGet();
+            return entry.schema();
+        }
+        misses.incrementAndGet();
+        final long loadedAt = generation.get();
+        final List<CustomField> schema = List.copyOf(loader.get());
+        synchronized (schemas) {
+            if (generation.get() == loadedAt) {
+                schemas.put(key, new Entry(version, schema));
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Drop the current owner's schema, or every owner's schema outside a tenant request, now and again when the
+     * surrounding transaction (if any) completes. Until then the transaction reads the schema past the shared cache.
+     */
+    public void invalidate() {
+        final Integer ownerId = TenantContext.get();
+        evict(ownerId);
+        final TransactionState transaction = currentTransaction();
+        if (null != transaction) {
+            transaction.wroteSchema = true;
+            transaction.schemas.clear();
+            transaction.evictOnCompletion.add(ownerId);
+        }
+    }
+
+    //The state of the current transaction, bound on first use and unbound when the transaction completes
+    private TransactionState currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        final TransactionState bound = (TransactionState) TransactionSynchronizationManager.getResource(this);
+        if (null != bound) {
+            return bound;
+        }
+        final TransactionState transaction = new TransactionState();
+        TransactionSynchronizationManager.bindResource(this, transaction);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CustomFieldSchemaCache.this);
+                transaction.evictOnCompletion.forEach(CustomFieldSchemaCache.this::evict);
+            }
+        });
+        return transaction;
+    }
+
+    private void evict(Integer ownerId) {
+        synchronized (schemas) {
+            generation.incrementAndGet();
+            if (null == ownerId) {
+                schemas.clear();
+            } else {
+                schemas.keySet().removeIf(key -> key.ownerId() == ownerId);
+            }
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (schemas) {
+            return new Stats(hits.get(), misses.get(), schemas.size(), maxEntries);
+        }
+    }
+
+    private record Key(int ownerId, String entityKey) { }
+
+    private record Entry(long version, List<CustomField> schema) { }
+
+    private static final class TransactionState {
+        private final Map<Integer, Long> versions = new HashMap<>();
+        private final Map<Key, List<CustomField>> schemas = new HashMap<>();
+        private final Set<Integer> evictOnCompletion = new HashSet<>();
+        private boolean wroteSchema;
+    }
+
+    public record Stats(long hits, long misses, int size, int maxSize) { }
+}
@@ -1,6 +1,8 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.customfield;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.ErrorLogs;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionCustomFieldValue;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalCatastrophe;
@@ -8,25 +10,24 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionMalfo
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Repository
 public class CustomFieldValueRepository {
 
     private final JdbcTemplate jdbcTemplate;
     private final CustomFieldRepository customFieldRepository;
-    private final CustomFieldOptionRepository customFieldOptionRepository;
     private final Logger logger = LoggerFactory.getLogger(CustomFieldRepository.class);
     private final RowMapper<CustomFieldValueDao> customFieldValueDaoRowMapper = (resultSet, rowNumber) ->
             new CustomFieldValueDao(
@@ -52,10 +53,9 @@ public class CustomFieldValueRepository {
             );
 
     //This repository should only be accessed through EntityRepositories
-    public CustomFieldValueRepository(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository, CustomFieldOptionRepository customFieldOptionRepository) {
+    public CustomFieldValueRepository(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository) {
         this.jdbcTemplate = jdbcTemplate;
         this.customFieldRepository = customFieldRepository;
-        this.customFieldOptionRepository = customFieldOptionRepository;
     }
 
     public List<CustomFieldValue> getCustomFieldValuesByEntityIdAndEntityKey(int entityId, String entityKey) {
@@ -74,21 +74,16 @@ public class CustomFieldValueRepository {
     }
 
     public Map<Integer, List<CustomFieldValue>> getCustomFieldValuesByEntityIdsAndEntityKey(List<Integer> entityIds, String entityKey) {
-        String placeholders = entityIds.stream().map(id -> "?").collect(Collectors.joining(", "));
         final String sql = "SELECT custom_field_values.custom_field_id, custom_field_values.entity_id, custom_field_values.entity_key,"
                 + " custom_field_values.value_text, custom_field_values.value_number, custom_field_values.value_option_id,"
                 + " custom_fields.deleted, custom_fields.name, custom_fields.type, custom_field_options.name AS option_name"
                 + " FROM custom_field_values"
                 + " JOIN custom_fields ON custom_field_values.custom_field_id = custom_fields.id"
                 + " LEFT JOIN custom_field_options ON custom_field_values.value_option_id = custom_field_options.id"
-                + " WHERE custom_field_values.entity_id IN (" + placeholders + ")"
+                + " WHERE custom_field_values.entity_id = ANY(?)"
                 + " AND custom_field_values.entity_key = ? AND custom_fields.deleted = false;";
-        Object[] params = new Object[entityIds.size() + 1];
-        for (int i = 0; i < entityIds.size(); i++) {
-            params[i] = entityIds.get(i);
-        }
-        params[entityIds.size()] = entityKey;
-        List<CustomFieldValueJoinCustomFieldDao> daos = jdbcTemplate.query(sql, customFieldValueJoinCustomFieldDaoRowMapper, params);
+        //one int[] parameter keeps the statement the same for any number of ids, so it is planned once and never nears the bind parameter limit
+        List<CustomFieldValueJoinCustomFieldDao> daos = jdbcTemplate.query(sql, customFieldValueJoinCustomFieldDaoRowMapper, entityIds.toArray(new Integer[0]), entityKey);
         Map<Integer, List<CustomFieldValue>> result = new HashMap<>();
         for (CustomFieldValueJoinCustomFieldDao dao : daos) {
             result.computeIfAbsent(dao.entityId(), k -> new ArrayList<>()).add(dao.convertToValue());
@@ -96,62 +91,233 @@ public class CustomFieldValueRepository {
         return result;
     }
 
+    /**
+     * Validate every value against one lookup of the entity key's custom fields (usually served from the schema cache)
+     * then write them all in one JDBC batch of INSERT ... ON CONFLICT DO UPDATE statements. Nothing is written unless
+     * every value is valid.
+     */
     public List<CustomFieldValue> upsertValues(List<CustomFieldValue> values, int entityId, String entityKey) {
-        List<CustomFieldValue> savedValues = new ArrayList<>();
-        for (CustomFieldValue value: values) {
-            savedValues.add(updateValue(value, entityId, entityKey));
+        if (values.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Map<Integer, CustomField> customFieldsById = getCustomFieldsById(entityKey);
+        final List<CustomField> relatedCustomFields = new ArrayList<>(values.size());
+        final List<CustomFieldValueDao> valueDaos = convertToDaos(values, entityId, entityKey, customFieldsById, new HashMap<>(), relatedCustomFields);
+
+        final List<CustomFieldValueDao> savedDaos = upsertDaos(valueDaos);
+        if (savedDaos.size() != valueDaos.size()) {
+            throw new ExceptionCustomFieldValue("Custom Field Values upsert returned " + savedDaos.size() + " rows for " + valueDaos.size()
+                    + " values with entity_id: " + entityId + " AND entity_key: " + entityKey + ".");
+        }
+        final List<CustomFieldValue> savedValues = new ArrayList<>(savedDaos.size());
+        for (int i = 0; i < savedDaos.size(); i++) {
+            savedValues.add(convertDaoToValue(savedDaos.get(i), relatedCustomFields.get(i)));
         }
         return savedValues;
     }
 
-    private CustomFieldValue updateValue(CustomFieldValue value, int entityId, String entityKey) {
-        CustomField relatedCustomField = insertOrUpdateNameOfCustomField(value, entityKey);
-        value.setCustomFieldId(relatedCustomField.id());
-        CustomFieldValueDao valueDao = convertToDao(value, entityId, entityKey);
-        if (null == getDaoByCustomFieldIdAndEntityId(value.getCustomFieldId(), entityId, false)) {
-            return convertDaoToValue(insertDao(valueDao), relatedCustomField.name(), relatedCustomField.type());
+    /**
+     * upsertValues() for a list of new entities of one entity key: every value is validated against the same lookup
+     * and all of them are written in one batch. An invalid value is reported with the index of its entity in the list,
+     * nothing is written unless every value is valid. Returns the saved values of each entity, in the same order.
+     */
+    public List<List<CustomFieldValue>> upsertValuesForEntities(List<List<CustomFieldValue>> valuesPerEntity, List<Integer> entityIds, String entityKey) {
+        final List<List<CustomFieldValue>> savedValuesPerEntity = new ArrayList<>(valuesPerEntity.size());
+        if (valuesPerEntity.stream().allMatch(List::isEmpty)) {
+            valuesPerEntity.forEach(values -> savedValuesPerEntity.add(new ArrayList<>()));
+            return savedValuesPerEntity;
+        }
+        final List<CustomField> relatedCustomFields = new ArrayList<>();
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<CustomFieldValueDao> valueDaos = convertToDaosForEntities(valuesPerEntity, entityIds, entityKey, relatedCustomFields, exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+
+        final List<CustomFieldValueDao> savedDaos = upsertDaos(valueDaos);
+        if (savedDaos.size() != valueDaos.size()) {
+            throw new ExceptionCustomFieldValue("Custom Field Values upsert returned " + savedDaos.size() + " rows for " + valueDaos.size()
+                    + " values with entity_key: " + entityKey + ".");
+        }
+        int saved = 0;
+        for (List<CustomFieldValue> values : valuesPerEntity) {
+            final List<CustomFieldValue> savedValues = new ArrayList<>(values.size());
+            for (int i = 0; i < values.size(); i++, saved++) {
+                savedValues.add(convertDaoToValue(savedDaos.get(saved), relatedCustomFields.get(saved)));
+            }
+            savedValuesPerEntity.add(savedValues);
+        }
+        return savedValuesPerEntity;
+    }
+
+    /**
+     * The other half of writing a whole list of values over each entity's: the values the entities have for a custom
+     * field that isn't in their list are deleted, with one statement for the list. Run it after the upsert, which gives
+     * a value named by a new custom field its id. A value of a deleted custom field is left alone, it never is in a list.
+     */
+    public void deleteValuesNotIn(List<List<CustomFieldValue>> valuesPerEntity, List<Integer> entityIds, String entityKey) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        final List<Integer> keptEntityIds = new ArrayList<>();
+        final List<Integer> keptCustomFieldIds = new ArrayList<>();
+        for (int i = 0; i < entityIds.size(); i++) {
+            for (CustomFieldValue value : valuesPerEntity.get(i)) {
+                keptEntityIds.add(entityIds.get(i));
+                keptCustomFieldIds.add(value.getCustomFieldId());
+            }
         }
+        final String sql = """
+                            DELETE FROM custom_field_values AS stored
+                            WHERE stored.entity_key = ? AND stored.entity_id = ANY(?)
+                              AND stored.custom_field_id IN (SELECT id FROM custom_fields WHERE deleted = false)
+                              AND NOT EXISTS (SELECT 1 FROM unnest(?::int[], ?::int[]) AS kept(entity_id, custom_field_id)
+                                              WHERE kept.entity_id = stored.entity_id AND kept.custom_field_id = stored.custom_field_id);
+                """;
+        jdbcTemplate.update(sql, entityKey, entityIds.toArray(new Integer[0]), keptEntityIds.toArray(new Integer[0]), keptCustomFieldIds.toArray(new Integer[0]));
+    }
+
+    /**
+     * Check the values of a list of new entities of one entity key the way upsertValuesForEntities() does, without
+     * writing any of them, so the entities with a bad value can be left out before anything is inserted. An invalid
+     * value is reported with the index of its entity in the list.
+     */
+    public void validateValuesForEntities(List<List<CustomFieldValue>> valuesPerEntity, String entityKey, ExceptionBulkRequest exceptionBulkRequest) {
+        if (valuesPerEntity.stream().allMatch(List::isEmpty)) {
+            return;
+        }
+        //the entities aren't written yet, the entity id of the daos is not used
+        convertToDaosForEntities(valuesPerEntity, Collections.nCopies(valuesPerEntity.size(), 0), entityKey, new ArrayList<>(), exceptionBulkRequest);
+    }
 
+    /**
+     * Set the same values on every entity in the list for a bulk update. Each value is validated once, like
+     * upsertValues(), then written to every entity with a single INSERT ... SELECT FROM unnest(ids) ... ON CONFLICT
+     * DO UPDATE, so the statement count depends on the number of values and not the number of entities.
+     */
+    public void upsertValuesForAllEntities(List<CustomFieldValue> values, List<Integer> entityIds, String entityKey) {
+        if (values.isEmpty() || entityIds.isEmpty()) {
+            return;
+        }
+        final Map<Integer, CustomField> customFieldsById = getCustomFieldsById(entityKey);
+        //the entity id of the daos is not used, the ids are bound as one int[]
+        final List<CustomFieldValueDao> valueDaos = convertToDaos(values, 0, entityKey, customFieldsById, new HashMap<>(), new ArrayList<>());
         final String sql = """
-                            UPDATE custom_field_values SET value_text = ?, value_number = ?, value_option_id = ? WHERE custom_field_id = ? AND entity_id = ?;
+                            INSERT INTO custom_field_values(custom_field_id, entity_id, entity_key, value_text, value_number, value_option_id)
+                            SELECT ?, entity_id, ?, ?, ?, ? FROM unnest(?::int[]) AS entity_id
+                            ON CONFLICT (custom_field_id, entity_id, entity_key)
+                            DO UPDATE SET value_text = EXCLUDED.value_text, value_number = EXCLUDED.value_number, value_option_id = EXCLUDED.value_option_id;
                 """;
-        jdbcTemplate.update(sql, valueDao.valueText(), valueDao.valueNumber(), valueDao.valueOptionId(), valueDao.customFieldId(), valueDao.entityId());
-        return convertDaoToValue(valueDao, relatedCustomField.name(), relatedCustomField.type());
+        final Integer[] ids = entityIds.toArray(new Integer[0]);
+        jdbcTemplate.batchUpdate(sql, valueDaos, valueDaos.size(), (ps, valueDao) -> {
+            ps.setInt(1, valueDao.customFieldId());
+            ps.setString(2, valueDao.entityKey());
+            ps.setString(3, valueDao.valueText());
+            ps.setObject(4, valueDao.valueNumber(), Types.BIGINT);
+            ps.setObject(5, valueDao.valueOptionId(), Types.INTEGER);
+            ps.setObject(6, ids);
+        });
+    }
+
+    private Map<Integer, CustomField> getCustomFieldsById(String entityKey) {
+        final Map<Integer, CustomField> customFieldsById = new HashMap<>();
+        for (CustomField customField : customFieldRepository.getAllByKey(entityKey)) {
+            customFieldsById.put(customField.id(), customField);
+        }
+        return customFieldsById;
     }
 
-    //Enum values store only the option id, so resolve the option name here for the response; other types delegate to the DAO.
-    private CustomFieldValue convertDaoToValue(CustomFieldValueDao valueDao, String customFieldName, String customFieldType) {
-        if (CustomField.isEnumType(customFieldType)) {
-            final String optionName = customFieldOptionRepository.getOptionById(valueDao.valueOptionId()).name();
-            return new CustomFieldValue(valueDao.customFieldId(), customFieldName, customFieldType, optionName, valueDao.valueOptionId());
+    //every value is checked against the same lookup of the entity key's custom fields, a bad one is reported with the index of its entity
+    private List<CustomFieldValueDao> convertToDaosForEntities(List<List<CustomFieldValue>> valuesPerEntity, List<Integer> entityIds, String entityKey,
+                                                               List<CustomField> relatedCustomFields, ExceptionBulkRequest exceptionBulkRequest) {
+        final Map<Integer, CustomField> customFieldsById = getCustomFieldsById(entityKey);
+        //a new custom field named by several entities is created once and shared
+        final Map<String, CustomField> newCustomFieldsByName = new HashMap<>();
+        final List<CustomFieldValueDao> valueDaos = new ArrayList<>();
+        for (int i = 0; i < valuesPerEntity.size(); i++) {
+            try {
+                valueDaos.addAll(convertToDaos(valuesPerEntity.get(i), entityIds.get(i), entityKey, customFieldsById, newCustomFieldsByName, relatedCustomFields));
+            } catch (ExceptionCustomFieldValue | ExceptionMalformedEntity exception) {
+                exceptionBulkRequest.addItemException(i, exception);
+            }
         }
-        return valueDao.convertToValue(customFieldName, customFieldType);
+        return valueDaos;
     }
 
-    private CustomFieldValueDao insertDao(CustomFieldValueDao valueDao) {
+    private List<CustomFieldValueDao> convertToDaos(List<CustomFieldValue> values, int entityId, String entityKey, Map<Integer, CustomField> customFieldsById,
+                                                    Map<String, CustomField> newCustomFieldsByName, List<CustomField> relatedCustomFields) {
+        final List<CustomFieldValueDao> valueDaos = new ArrayList<>(values.size());
+        for (CustomFieldValue value : values) {
+            final CustomField relatedCustomField = insertOrUpdateNameOfCustomField(value, entityKey, customFieldsById, newCustomFieldsByName);
+            value.setCustomFieldId(relatedCustomField.id());
+            relatedCustomFields.add(relatedCustomField);
+            valueDaos.add(convertToDao(value, relatedCustomField, entityId, entityKey));
+        }
+        return valueDaos;
+    }
+
+    private List<CustomFieldValueDao> upsertDaos(List<CustomFieldValueDao> valueDaos) {
         final String sql = """
-                            INSERT INTO custom_field_values(custom_field_id, entity_id, entity_key, value_text, value_number, value_option_id) VALUES (?, ?, ?, ?, ?, ?);
+                            INSERT INTO custom_field_values(custom_field_id, entity_id, entity_key, value_text, value_number, value_option_id) VALUES (?, ?, ?, ?, ?, ?)
+                            ON CONFLICT (custom_field_id, entity_id, entity_key)
+                            DO UPDATE SET value_text = EXCLUDED.value_text, value_number = EXCLUDED.value_number, value_option_id = EXCLUDED.value_option_id
+                            RETURNING custom_field_id, entity_id, entity_key, value_text, value_number, value_option_id;
                 """;
-        jdbcTemplate.update(sql, valueDao.customFieldId(), valueDao.entityId(), valueDao.entityKey(), valueDao.valueText(), valueDao.valueNumber(), valueDao.valueOptionId());
+        return JdbcBatch.executeReturning(jdbcTemplate, sql, valueDaos, (ps, valueDao) -> {
+            ps.setInt(1, valueDao.customFieldId());
+            ps.setInt(2, valueDao.entityId());
+            ps.setString(3, valueDao.entityKey());
+            ps.setString(4, valueDao.valueText());
+            ps.setObject(5, valueDao.valueNumber(), Types.BIGINT);
+            ps.setObject(6, valueDao.valueOptionId(), Types.INTEGER);
+        }, customFieldValueDaoRowMapper);
+    }
+
+    //Enum values store only the option id, so resolve the option name from the custom field's options; other types delegate to the DAO.
+    private CustomFieldValue convertDaoToValue(CustomFieldValueDao valueDao, CustomField customField) {
+        if (CustomField.isEnumType(customField.type())) {
+            final String optionName = findOption(customField, valueDao.valueOptionId())
+                    .map(CustomFieldOption::name)
+                    .orElseThrow(() -> new ExceptionCustomFieldValue("Saved valueOptionId '" + valueDao.valueOptionId()
+                            + "' is not an option of custom field id " + customField.id() + "."));
+            return new CustomFieldValue(valueDao.customFieldId(), customField.name(), customField.type(), optionName, valueDao.valueOptionId());
+        }
+        return valueDao.convertToValue(customField.name(), customField.type());
+    }
 
-        return getDaoByCustomFieldIdAndEntityId(valueDao.customFieldId(), valueDao.entityId(), true);
+    private static Optional<CustomFieldOption> findOption(CustomField customField, Integer optionId) {
+        if (null == optionId) {
+            return Optional.empty();
+        }
+        return customField.options().stream().filter(option -> option.id() == optionId).findFirst();
     }
 
     //it's not an upsert because we are not checking if it exists first, instead we are inserting first then failing if retrieving the existing entry fails
-    private CustomField insertOrUpdateNameOfCustomField(CustomFieldValue value, String entityKey) {
+    private CustomField insertOrUpdateNameOfCustomField(CustomFieldValue value, String entityKey, Map<Integer, CustomField> customFieldsById,
+                                                        Map<String, CustomField> newCustomFieldsByName) {
         if (value.getCustomFieldId() <= 0) {
+            final CustomField newCustomField = newCustomFieldsByName.get(value.getCustomFieldName());
+            if (null != newCustomField && Objects.equals(newCustomField.type(), value.getCustomFieldType())) {
+                return newCustomField;
+            }
             try {
-                return customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions(value.getCustomFieldName(), value.getCustomFieldType(), entityKey));
+                final CustomField insertedCustomField = customFieldRepository.insertCustomField(
+                        CustomFieldRequestDto.withoutOptions(value.getCustomFieldName(), value.getCustomFieldType(), entityKey));
+                newCustomFieldsByName.put(insertedCustomField.name(), insertedCustomField);
+                return insertedCustomField;
             } catch (ExceptionFailedDbValidation exception) {
                 throw new ExceptionCustomFieldValue("Cannot create new custom field needed to insert a new value: " + exception.getMessage(), exception);
             }
         }
 
-        CustomField customField;
-        try {
-            customField = customFieldRepository.getById(value.getCustomFieldId());
-        } catch (ExceptionResourceNotFound e) {
-            throw new ExceptionCustomFieldValue("Invalid CustomFieldId: " + value.getCustomFieldId() + " on provided CustomFieldValue with entityKey: " + entityKey, e);
+        CustomField customField = customFieldsById.get(value.getCustomFieldId());
+        if (null == customField) {
+            //not one of this entity key's custom fields, look it up on its own so the error (or the type check) is the same as before the batch lookup
+            try {
+                customField = customFieldRepository.getById(value.getCustomFieldId());
+            } catch (ExceptionResourceNotFound e) {
+                throw new ExceptionCustomFieldValue("Invalid CustomFieldId: " + value.getCustomFieldId() + " on provided CustomFieldValue with entityKey: " + entityKey, e);
+            }
         }
         if (!Objects.equals(customField.type(), value.getCustomFieldType())) {
             throw new ExceptionCustomFieldValue("Custom field retrieved from the database with provided id: " + value.getCustomFieldId() + " has type: " + customField.type()
@@ -165,30 +331,12 @@ public class CustomFieldValueRepository {
                 logger.error(ErrorLogs.insertThenRetrieveError("Custom Field", customField.id()));
                 throw new ExceptionInternalCatastrophe("Custom Field", customField.id(), exception);
             }
+            customFieldsById.put(customField.id(), customField);
         }
         return customField;
     }
 
-    private CustomFieldValueDao getDaoByCustomFieldIdAndEntityId(int customFieldId, int entityId, boolean justInserted) {
-        final String sql = "SELECT * FROM custom_field_values WHERE custom_field_id = ? AND entity_id = ? ;";
-        CustomFieldValueDao valueDao = null;
-        try {
-            valueDao = jdbcTemplate.queryForObject(
-                    sql,
-                    new Object[]{customFieldId, entityId},
-                    new int[]{Types.BIGINT, Types.BIGINT},
-                    customFieldValueDaoRowMapper
-            );
-        } catch (EmptyResultDataAccessException exception) {
-            if (justInserted) {
-                throw new ExceptionCustomFieldValue("Custom Field Value not found in database RIGHT AFTER INSERT with custom_field_id: " + customFieldId
-                        + "AND entity_id: " + entityId + ".", exception);
-            }
-        }
-        return valueDao;
-    }
-
-    private CustomFieldValueDao convertToDao(CustomFieldValue customFieldValue, int entityId, String entityKey) {
+    private CustomFieldValueDao convertToDao(CustomFieldValue customFieldValue, CustomField customField, int entityId, String entityKey) {
         switch (customFieldValue.getCustomFieldType()) {
             case CustomField.TYPE_TEXT -> {
                 return new CustomFieldValueDao(customFieldValue.getCustomFieldId(), entityId, entityKey, customFieldValue.getValue(), null, null);
@@ -207,7 +355,7 @@ public class CustomFieldValueRepository {
                 throw new ExceptionMalformedEntity(List.of(new Exception("Malformed Custom Field Value: if the Custom Field Type is boolean the value must be exactly 'true' or 'false'.")));
             }
             case CustomField.TYPE_DROPDOWN, CustomField.TYPE_RADIO_BUTTON, CustomField.TYPE_PROGRESS_BAR -> {
-                if (!customFieldOptionRepository.isValidOptionId(customFieldValue.getCustomFieldId(), customFieldValue.getValueOptionId())) {
+                if (findOption(customField, customFieldValue.getValueOptionId()).isEmpty()) {
                     throw new ExceptionMalformedEntity(List.of(new Exception("Malformed Custom Field Value: valueOptionId '" + customFieldValue.getValueOptionId()
                             + "' is not a valid option for custom field id " + customFieldValue.getCustomFieldId() + ".")));
                 }
@@ -0,0 +1,12 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
+
+import java.util.List;
+import java.util.Objects;
+
+//what a findOrInsertBulk() did with each item of its list: the id the item has in the database (found or just written), null for an item that was reported instead
+public record BulkImportResults(List<Integer> ids, int createdCount) {
+
+    public int existingCount() {
+        return (int) ids.stream().filter(Objects::nonNull).count() - createdCount;
+    }
+}
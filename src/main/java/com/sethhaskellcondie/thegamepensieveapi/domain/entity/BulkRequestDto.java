@@ -0,0 +1,20 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The body of a bulkUpdate or bulkDelete request. The entities are picked by exactly one of ids or filters (the same
+ * filters as a search), fields and customFieldValues are the values a bulkUpdate sets on every picked entity, fields
+ * is keyed by field name and only takes the fields the entity allows (see EntityRepository.getBulkUpdateFields()).
+ */
+public record BulkRequestDto(
+        List<Integer> ids,
+        List<FilterRequestDto> filters,
+        Map<String, Object> fields,
+        List<CustomFieldValue> customFieldValues
+) {
+}
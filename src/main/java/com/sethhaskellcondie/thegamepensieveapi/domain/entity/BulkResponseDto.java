@@ -0,0 +1,11 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
+
+import java.util.List;
+
+//the ids of the entities a bulkUpdate or bulkDelete changed
+public record BulkResponseDto(int count, List<Integer> ids) {
+
+    public BulkResponseDto(List<Integer> ids) {
+        this(ids.size(), ids);
+    }
+}
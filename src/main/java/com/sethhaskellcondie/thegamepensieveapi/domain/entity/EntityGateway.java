@@ -1,8 +1,11 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The gateway is the entrypoint into the domain, external consumers will use the controllers while
@@ -20,11 +23,29 @@ public interface EntityGateway<T extends Entity<RequestDto, ResponseDto>, Reques
 
     List<ResponseDto> getWithFilters(List<FilterRequestDto> filters);
 
+    FilterPage<ResponseDto> getPageWithFilters(List<FilterRequestDto> filters);
+
+    FilterPage<ResponseDto> getPageWithFilters(List<FilterRequestDto> filters, boolean includeTotalCount);
+
+    List<FilterFacet> getFacetsWithFilters(List<FilterRequestDto> filters);
+
+    void streamWithFilters(List<FilterRequestDto> filters, Consumer<List<ResponseDto>> chunkConsumer);
+
+    boolean supportsJsonWithFilters();
+
+    String getJsonWithFilters(List<FilterRequestDto> filters);
+
     ResponseDto getById(int id);
 
     ResponseDto createNew(RequestDto requestDto);
 
+    List<ResponseDto> createNewBulk(List<RequestDto> requestDtos);
+
     ResponseDto updateExisting(int id, RequestDto requestDto);
 
     void deleteById(int id);
+
+    BulkResponseDto bulkUpdate(BulkRequestDto bulkRequestDto);
+
+    BulkResponseDto bulkDelete(BulkRequestDto bulkRequestDto);
 }
@@ -3,19 +3,23 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.AccessService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.auth.Capability;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionForbidden;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionPaymentRequired;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Base gateway shared by every catalog entity. This is the single chokepoint for the role-based access model:
  * each method is a distinct semantic verb, so the capability gates live here once and cover all entities.
  * <ul>
  *   <li>{@code getById} — ungated single read (Row-Level Security already scopes the row to the caller).</li>
- *   <li>{@code getWithFilters} — an unfiltered list is always allowed, but a filtered query requires the
+ *   <li>{@code getWithFilters}/{@code streamWithFilters}/{@code getJsonWithFilters}/{@code getFacetsWithFilters} — an unfiltered list is always allowed, but a filtered query requires the
  *       {@code FILTER} capability (402 otherwise). RLS keeps a GUEST on the showcase.</li>
- *   <li>{@code createNew}/{@code updateExisting}/{@code deleteById} — require the {@code WRITE} capability (403
+ *   <li>{@code createNew}/{@code createNewBulk}/{@code updateExisting}/{@code deleteById}/{@code bulkUpdate}/{@code bulkDelete} — require the {@code WRITE} capability (403
  *       otherwise). An anonymous GUEST is already blocked at Spring Security in the secured build, so this
  *       realistically fires for LAPSED.</li>
  * </ul>
@@ -31,12 +35,42 @@ public abstract class EntityGatewayAbstract<T extends Entity<RequestDto, Respons
 
     @Override
     public List<ResponseDto> getWithFilters(List<FilterRequestDto> filters) {
-        if (filters != null && !filters.isEmpty() && !access.can(Capability.FILTER)) {
-            throw new ExceptionPaymentRequired(
-                    "Filtered searches require an active subscription. List your data without filters, or renew to filter.");
-        }
-        List<T> t = service.getWithFilters(filters);
-        return t.stream().map(e -> e.convertToResponseDto()).toList();
+        return getPageWithFilters(filters).results();
+    }
+
+    @Override
+    public FilterPage<ResponseDto> getPageWithFilters(List<FilterRequestDto> filters) {
+        return getPageWithFilters(filters, false);
+    }
+
+    @Override
+    public FilterPage<ResponseDto> getPageWithFilters(List<FilterRequestDto> filters, boolean includeTotalCount) {
+        requireFilterIfFiltered(filters);
+        FilterPage<T> page = service.getPageWithFilters(filters, includeTotalCount);
+        return page.withResults(page.results().stream().map(e -> e.convertToResponseDto()).toList());
+    }
+
+    @Override
+    public List<FilterFacet> getFacetsWithFilters(List<FilterRequestDto> filters) {
+        requireFilterIfFiltered(filters);
+        return service.getFacetsWithFilters(filters);
+    }
+
+    @Override
+    public void streamWithFilters(List<FilterRequestDto> filters, Consumer<List<ResponseDto>> chunkConsumer) {
+        requireFilterIfFiltered(filters);
+        service.streamWithFilters(filters, chunk -> chunkConsumer.accept(chunk.stream().map(e -> e.convertToResponseDto()).toList()));
+    }
+
+    @Override
+    public boolean supportsJsonWithFilters() {
+        return service.supportsJsonWithFilters();
+    }
+
+    @Override
+    public String getJsonWithFilters(List<FilterRequestDto> filters) {
+        requireFilterIfFiltered(filters);
+        return service.getJsonWithFilters(filters);
     }
 
     @Override
@@ -50,6 +84,15 @@ public abstract class EntityGatewayAbstract<T extends Entity<RequestDto, Respons
         return service.createNew(requestDto).convertToResponseDto();
     }
 
+    @Override
+    public List<ResponseDto> createNewBulk(List<RequestDto> requestDtos) {
+        requireWrite();
+        if (null == requestDtos) {
+            throw new ExceptionInputValidation("A bulk create needs a list of items to create.");
+        }
+        return service.createNewBulk(requestDtos).stream().map(e -> e.convertToResponseDto()).toList();
+    }
+
     @Override
     public ResponseDto updateExisting(int id, RequestDto requestDto) {
         requireWrite();
@@ -62,6 +105,26 @@ public abstract class EntityGatewayAbstract<T extends Entity<RequestDto, Respons
         service.deleteById(id);
     }
 
+    @Override
+    public BulkResponseDto bulkUpdate(BulkRequestDto bulkRequestDto) {
+        requireWrite();
+        return new BulkResponseDto(service.bulkUpdate(bulkRequestDto));
+    }
+
+    @Override
+    public BulkResponseDto bulkDelete(BulkRequestDto bulkRequestDto) {
+        requireWrite();
+        return new BulkResponseDto(service.bulkDelete(bulkRequestDto));
+    }
+
+    //thrown before anything is read so a streamed search can still answer with a normal error response
+    protected void requireFilterIfFiltered(List<FilterRequestDto> filters) {
+        if (filters != null && !filters.isEmpty() && !access.can(Capability.FILTER)) {
+            throw new ExceptionPaymentRequired(
+                    "Filtered searches require an active subscription. List your data without filters, or renew to filter.");
+        }
+    }
+
     protected void requireWrite() {
         if (!access.can(Capability.WRITE)) {
             throw new ExceptionForbidden("An active subscription is required to create, update, or delete data.");
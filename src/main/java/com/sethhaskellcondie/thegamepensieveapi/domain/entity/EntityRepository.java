@@ -1,9 +1,16 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * A Repository is responsible for instantiating new objects and encapsulating all database communications,
@@ -19,14 +26,38 @@ import java.util.List;
 public interface EntityRepository<T extends Entity<RequestDto, ResponseDto>, RequestDto, ResponseDto> {
     T insert(T t);
 
+    List<T> insertAll(List<T> entities);
+
+    void validateCustomFieldValues(List<T> entities, ExceptionBulkRequest exceptionBulkRequest);
+
     List<T> getWithFilters(List<Filter> filters);
 
+    FilterPage<T> getPageWithFilters(List<Filter> filters);
+
+    FilterPage<T> getPageWithFilters(List<Filter> filters, boolean includeTotalCount);
+
+    void streamWithFilters(List<Filter> filters, Consumer<List<T>> chunkConsumer);
+
+    void streamChangedSince(Timestamp since, Consumer<List<T>> chunkConsumer);
+
+    List<FilterFacet> getFacetsWithFilters(List<Filter> filters);
+
+    boolean supportsJsonWithFilters();
+
+    String getJsonWithFilters(List<Filter> filters);
+
     T getById(int id);
 
     T update(T t);
 
     void deleteById(int id);
 
+    Map<String, String> getBulkUpdateFields();
+
+    List<Integer> bulkUpdate(List<Integer> ids, List<Filter> filters, Map<String, Object> fieldValues, List<CustomFieldValue> customFieldValues);
+
+    List<Integer> bulkDelete(List<Integer> ids, List<Filter> filters);
+
     T getDeletedById(int id);
 
     T getByIdIncludeDeleted(int id);
@@ -6,21 +6,35 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRe
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterCursor;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPlan;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPlanCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPlanKey;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.ErrorLogs;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalCatastrophe;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInvalidFilter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.StringUtils;
 
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The goal of creating an abstract of the repository is to encapsulate the access of the customFieldValueRepository
@@ -29,6 +43,8 @@ import java.util.Map;
  */
 public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, ResponseDto>, RequestDto, ResponseDto> implements EntityRepository<T, RequestDto, ResponseDto> {
 
+    public static final int STREAM_CHUNK_SIZE = 500;
+
     protected final JdbcTemplate jdbcTemplate;
     private final CustomFieldValueRepository customFieldValueRepository;
     private final CustomFieldRepository customFieldRepository;
@@ -37,11 +53,16 @@ public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, Resp
     private final String baseQueryIncludeDeleted;
     private final String entityKey;
     private final RowMapper<T> rowMapper;
+    private final FilterPlanCache filterPlanCache = new FilterPlanCache();
+    //same DataSource so it joins the request's transaction, only the fetch size differs, see streamWithFilters()
+    private final JdbcTemplate streamingJdbcTemplate;
     private final Logger logger = LoggerFactory.getLogger(EntityRepositoryAbstract.class);
 
 
     protected EntityRepositoryAbstract(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository, CustomFieldValueRepository customFieldValueRepository) {
         this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_CHUNK_SIZE);
         this.customFieldRepository = customFieldRepository;
         this.customFieldValueRepository = customFieldValueRepository;
         this.baseQuery = this.getBaseQueryExcludeDeleted();
@@ -68,8 +89,10 @@ public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, Resp
     //performing any validation not enforced by the database schema
     protected abstract void insertValidation(T entity);
     protected abstract void updateValidation(T entity);
-    protected abstract Integer insertImplementation(T entity);
-    protected abstract void updateImplementation(T entity);
+    //insert or update the row and return it as persisted (RETURNING the columns the rowMapper reads), the custom
+    //field values and afterLoad() are handled here. Return null if no row was written.
+    protected abstract T insertImplementation(T entity);
+    protected abstract T updateImplementation(T entity);
 
     /**
      * Hook that runs on every entity loaded from the database after the custom field values have been set.
@@ -84,62 +107,405 @@ public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, Resp
     public T insert(T entity) {
         insertValidation(entity);
 
-        Integer id = insertImplementation(entity);
-
-        final T savedEntity;
-        try {
-            savedEntity = getById(id);
-        } catch (ExceptionResourceNotFound | NullPointerException e) {
-            //we shouldn't ever reach this block because the database is managing the ID's
-            logger.error(ErrorLogs.insertThenRetrieveError(entityKey, id));
-            throw new ExceptionInternalCatastrophe(entityKey, id, e);
+        final T savedEntity = insertImplementation(entity);
+        if (null == savedEntity) {
+            //we shouldn't ever reach this block, an INSERT ... RETURNING always returns the row it wrote
+            final String message = "Database State Error: Just inserted a(n) " + entityKey + " and the row wasn't returned.";
+            logger.error(message);
+            throw new ExceptionInternalCatastrophe(message);
         }
+        //a new entity only has the values that were just written, the batch upsert returns all of them
         savedEntity.setCustomFieldValues(customFieldValueRepository.upsertValues(entity.getCustomFieldValues(), savedEntity.getId(), savedEntity.getKey()));
+        afterLoad(List.of(savedEntity));
         return savedEntity;
     }
 
+    /**
+     * Insert a list of new entities: the rows are written by insertAllImplementation() and the custom field values of
+     * every entity in one more batch. Returns the saved entities in the same order.
+     */
+    @Override
+    public List<T> insertAll(List<T> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        insertAllValidation(entities);
+
+        final List<T> savedEntities = insertAllImplementation(entities);
+        if (savedEntities.size() != entities.size()) {
+            //we shouldn't ever reach this block, each INSERT ... RETURNING returns the row it wrote
+            final String message = "Database State Error: Just inserted " + entities.size() + " " + entityKey + " rows and " + savedEntities.size() + " were returned.";
+            logger.error(message);
+            throw new ExceptionInternalCatastrophe(message);
+        }
+        final List<List<CustomFieldValue>> savedValues = customFieldValueRepository.upsertValuesForEntities(
+                entities.stream().map(T::getCustomFieldValues).toList(), savedEntities.stream().map(T::getId).toList(), entityKey);
+        for (int i = 0; i < savedEntities.size(); i++) {
+            savedEntities.get(i).setCustomFieldValues(savedValues.get(i));
+        }
+        afterLoad(savedEntities);
+        return savedEntities;
+    }
+
+    /**
+     * Check the custom field values of new entities the way insertAll() would, without writing anything, an entity with
+     * an invalid value is reported with its index in the list.
+     */
+    @Override
+    public void validateCustomFieldValues(List<T> entities, ExceptionBulkRequest exceptionBulkRequest) {
+        customFieldValueRepository.validateValuesForEntities(entities.stream().map(T::getCustomFieldValues).toList(), entityKey, exceptionBulkRequest);
+    }
+
+    //Override this when the validation reads the database, to check every entity with one query
+    protected void insertAllValidation(List<T> entities) {
+        entities.forEach(this::insertValidation);
+    }
+
+    //One statement per entity, override this with a JDBC batch (see JdbcBatch.executeReturning())
+    protected List<T> insertAllImplementation(List<T> entities) {
+        final List<T> savedEntities = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            savedEntities.add(insertImplementation(entity));
+        }
+        return savedEntities;
+    }
+
     @Override
     public List<T> getWithFilters(List<Filter> filters) {
-        List<CustomField> customFields = customFieldRepository.getAllByKey(entityKey);
-        filters = FilterService.validateAndOrderFilters(filters, customFields);
-        final List<String> whereStatements = FilterService.formatWhereStatements(filters);
-        final List<Object> operands = FilterService.formatOperands(filters);
-        long customFilterCount = filters.stream().filter(Filter::isCustom).count();
-        String sql;
-        if (customFilterCount == 0) {
-            sql = baseQuery + String.join(" ", whereStatements);
+        return getPageWithFilters(filters).results();
+    }
+
+    /**
+     * The SQL for a search only depends on the entity, the owner's custom field definitions, and the shape of the
+     * filters (fields and operators), so it is compiled once into a {@link FilterPlan} and reused. On a cache hit the
+     * only per-request work left is checking and binding the operands.
+     * <p>
+     * When the filters include a 'cursor' the search is paged by keyset instead of offset, the sort values of the last
+     * row are selected along with it and returned as the next page's cursor.
+     */
+    @Override
+    public FilterPage<T> getPageWithFilters(List<Filter> filters) {
+        return getPageWithFilters(filters, false);
+    }
+
+    /**
+     * When includeTotalCount is true the page also carries the number of rows the filters match across every page.
+     * It is the plan's count query, unless the page itself already shows the total (an unpaged search, or a first
+     * page that came back short of its limit).
+     */
+    @Override
+    public FilterPage<T> getPageWithFilters(List<Filter> filters, boolean includeTotalCount) {
+        final FilterPlan plan = getFilterPlan(filters);
+        final List<Filter> orderedFilters = plan.orderFilters(filters);
+        FilterService.validateOperands(orderedFilters);
+        final List<Object> operands = FilterService.formatOperands(orderedFilters);
+
+        final List<String> lastRowCursorValues = new ArrayList<>();
+        final RowMapper<T> searchRowMapper;
+        if (plan.isCursorSearch()) {
+            searchRowMapper = (resultSet, rowNumber) -> {
+                lastRowCursorValues.clear();
+                for (int i = 1; i <= plan.cursorValueCount(); i++) {
+                    lastRowCursorValues.add(resultSet.getString("cursor_key_" + i));
+                }
+                return rowMapper.mapRow(resultSet, rowNumber);
+            };
         } else {
-            sql = buildQueryWithCustomFieldJoins((int) customFilterCount) + String.join(" ", whereStatements);
+            searchRowMapper = rowMapper;
         }
-        List<T> entities = jdbcTemplate.query(sql, rowMapper, operands.toArray());
-        if (!entities.isEmpty()) {
-            List<Integer> entityIds = entities.stream().map(Entity::getId).toList();
-            Map<Integer, List<CustomFieldValue>> customFieldValuesByEntityId = customFieldValueRepository.getCustomFieldValuesByEntityIdsAndEntityKey(entityIds, entityKey);
-            for (T entity : entities) {
-                entity.setCustomFieldValues(customFieldValuesByEntityId.getOrDefault(entity.getId(), List.of()));
+        List<T> entities = jdbcTemplate.query(plan.sql(), searchRowMapper, operands.toArray());
+
+        String nextCursor = null;
+        if (plan.isCursorSearch() && !entities.isEmpty() && entities.size() >= getLimit(orderedFilters)) {
+            final int lastId = entities.get(entities.size() - 1).getId();
+            nextCursor = new FilterCursor(FilterCursor.computeSortSignature(orderedFilters), List.copyOf(lastRowCursorValues), lastId).encode();
+        }
+
+        Long totalCount = null;
+        if (includeTotalCount) {
+            totalCount = getTotalCount(plan, orderedFilters, entities.size());
+        }
+
+        loadSearchResults(entities);
+        return new FilterPage<>(entities, nextCursor, totalCount);
+    }
+
+    private long getTotalCount(FilterPlan plan, List<Filter> orderedFilters, int resultCount) {
+        final List<Filter> countFilters = FilterService.getCountFilters(orderedFilters);
+        final boolean isFirstPage = orderedFilters.stream().noneMatch(filter -> Filter.OPERATOR_OFFSET.equals(filter.getOperator())
+                || (Filter.OPERATOR_CURSOR.equals(filter.getOperator()) && !FilterCursor.isFirstPage(filter)));
+        if (isFirstPage && resultCount < getLimit(orderedFilters)) {
+            return resultCount;
+        }
+        final Long totalCount = jdbcTemplate.queryForObject(plan.countSql(), Long.class, FilterService.formatOperands(countFilters).toArray());
+        return null == totalCount ? 0 : totalCount;
+    }
+
+    /**
+     * The same search as {@link #getPageWithFilters(List)} without ever holding the whole result. The rows are read
+     * through a server side cursor (the fetch size only takes effect inside a transaction, which every request has,
+     * see TenantTransactionFilter) and handed to chunkConsumer STREAM_CHUNK_SIZE at a time, each chunk with its
+     * custom field values loaded and afterLoad() run, so memory stays flat however big the collection is. A chunk
+     * must be done with before the consumer returns, the next one is read after it. A cursor filter is bound like
+     * any other filter, but no next cursor is produced, the stream is the whole result.
+     */
+    @Override
+    public void streamWithFilters(List<Filter> filters, Consumer<List<T>> chunkConsumer) {
+        final FilterPlan plan = getFilterPlan(filters);
+        final List<Filter> orderedFilters = plan.orderFilters(filters);
+        FilterService.validateOperands(orderedFilters);
+        final Object[] operands = FilterService.formatOperands(orderedFilters).toArray();
+
+        final List<T> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        final int[] rowNumber = {0};
+        streamingJdbcTemplate.query(plan.sql(), (RowCallbackHandler) resultSet -> {
+            chunk.add(rowMapper.mapRow(resultSet, rowNumber[0]++));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                emitChunk(chunk, chunkConsumer);
             }
-            afterLoad(entities);
+        }, operands);
+        if (!chunk.isEmpty()) {
+            emitChunk(chunk, chunkConsumer);
         }
-        return entities;
     }
 
-    private String buildQueryWithCustomFieldJoins(int count) {
-        String tableName = Keychain.getTableAliasByKey(entityKey);
-        StringBuilder builder = new StringBuilder(getBaseQuery(false));
-        for (int i = 1; i <= count; i++) {
-            builder.append(" JOIN custom_field_values AS values").append(i)
-              .append(" ON ").append(tableName).append(".id = values").append(i).append(".entity_id")
-              .append(" AND values").append(i).append(".entity_key = '").append(entityKey).append("'");
-            builder.append(" JOIN custom_fields AS fields").append(i)
-              .append(" ON values").append(i).append(".custom_field_id = fields").append(i).append(".id")
-              .append(" AND fields").append(i).append(".deleted = false");
-            // LEFT JOIN so non-enum custom field filters (value_option_id IS NULL) keep their rows; enum sorts
-            // use options<i>.display_order to order by the selected option's user-defined position.
-            builder.append(" LEFT JOIN custom_field_options AS options").append(i)
-              .append(" ON values").append(i).append(".value_option_id = options").append(i).append(".id");
+    /**
+     * The live entities changed at or after since, streamed like {@link #streamWithFilters(List, Consumer)} in id order.
+     * An entity has changed when getChangedSinceCondition() matches it, by default when its updated_at (set by every
+     * insert and update) is in the window. This is what an incremental backup exports, see V1_26 for the indexes.
+     */
+    @Override
+    public void streamChangedSince(Timestamp since, Consumer<List<T>> chunkConsumer) {
+        final String changedSinceCondition = getChangedSinceCondition();
+        final String sql = baseQuery + " AND (" + changedSinceCondition + ") ORDER BY id";
+        //every placeholder of the condition is the same point in time
+        final Object[] operands = Collections.nCopies(StringUtils.countOccurrencesOf(changedSinceCondition, "?"), since).toArray();
+
+        final List<T> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        final int[] rowNumber = {0};
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) resultSet -> {
+            chunk.add(rowMapper.mapRow(resultSet, rowNumber[0]++));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                emitChunk(chunk, chunkConsumer);
+            }
+        }, operands);
+        if (!chunk.isEmpty()) {
+            emitChunk(chunk, chunkConsumer);
         }
-        builder.append(" WHERE ").append(tableName).append(".deleted_at IS NULL");
-        return builder.toString();
+    }
+
+    /**
+     * The where condition (on the unqualified columns of the base query) of the entities streamChangedSince() returns,
+     * every ? is bound to since. Override when a change to a related row should export the entity as well.
+     */
+    protected String getChangedSinceCondition() {
+        return "updated_at >= ?";
+    }
+
+    /**
+     * The same search as {@link #getPageWithFilters(List)} with the response dtos built by Postgres instead of Java:
+     * the plan's SELECT is wrapped in one statement that turns every matched row (in search order) into the JSON of
+     * its response dto with getJsonObjectSql() and aggregates them into a JSON array, returned as text to be written
+     * out without being bound to objects. Only the results are built, no next cursor or total count. Callers check
+     * {@link #supportsJsonWithFilters()} first.
+     */
+    @Override
+    public String getJsonWithFilters(List<Filter> filters) {
+        final String jsonObjectSql = getJsonObjectSql();
+        if (null == jsonObjectSql) {
+            throw new ExceptionInternalError("The search results of " + entityKey + " can't be built as JSON by the database.");
+        }
+        final FilterPlan plan = getFilterPlan(filters);
+        final List<Filter> orderedFilters = plan.orderFilters(filters);
+        FilterService.validateOperands(orderedFilters);
+        final String tableName = Keychain.getTableAliasByKey(entityKey);
+        //A subquery's ORDER BY doesn't carry through to the aggregate, and the sort's joins are out of scope outside the
+        //plan, so the plan's SELECT numbers its rows by the same sort (the id breaks ties) and the aggregate orders by that.
+        //The window is computed before the LIMIT and OFFSET, the rows they keep are numbered in their search order.
+        final List<FilterCursor.SortKey> sortKeys = FilterService.getSortKeys(orderedFilters);
+        final List<String> searchOrder = new ArrayList<>(sortKeys.size());
+        for (FilterCursor.SortKey sortKey : sortKeys.subList(0, sortKeys.size() - 1)) {
+            searchOrder.add(sortKey.expression() + (sortKey.descending() ? " DESC" : " ASC"));
+        }
+        searchOrder.add(tableName + ".id ASC");
+        final String planSql = plan.sql();
+        final int selectEnd = planSql.indexOf("SELECT ") + "SELECT ".length();
+        final String numberedSql = planSql.substring(0, selectEnd) + "row_number() OVER (ORDER BY " + String.join(", ", searchOrder) + ") AS search_order, "
+                + planSql.substring(selectEnd);
+        final String sql = "SELECT coalesce(json_agg(search_results.entity ORDER BY search_results.search_order), '[]'::json)::text"
+                + " FROM (SELECT " + jsonObjectSql + " AS entity, " + tableName + ".search_order"
+                + " FROM (" + numberedSql + ") AS " + tableName
+                + ") AS search_results";
+        return jdbcTemplate.queryForObject(sql, String.class, FilterService.formatOperands(orderedFilters).toArray());
+    }
+
+    //true when the entity overrides getJsonObjectSql(), only then can getJsonWithFilters() run
+    @Override
+    public boolean supportsJsonWithFilters() {
+        return null != getJsonObjectSql();
+    }
+
+    /**
+     * Override to let getJsonWithFilters() build this entity's response dtos in the database: a json_build_object()
+     * expression over the row's columns (qualified with the table name) whose keys match the response dto's fields
+     * exactly, related objects included. The default is null, the entity only has the Java search path.
+     */
+    protected String getJsonObjectSql() {
+        return null;
+    }
+
+    //a timestamp formatted the way Jackson writes java.sql.Timestamp (ISO 8601 in UTC, to the millisecond)
+    protected static String getJsonTimestampSql(String column) {
+        return "to_char(" + column + " AT TIME ZONE 'UTC', 'YYYY-MM-DD\"T\"HH24:MI:SS.MS\"+00:00\"')";
+    }
+
+    //the JSON array of an entity's custom field values, the same values (and shape) as getCustomFieldValuesByEntityIdsAndEntityKey()
+    protected static String getCustomFieldValuesJsonSql(String entityIdColumn, String entityKey) {
+        final String enumTypes = "'" + String.join("', '", CustomField.getEnumCustomFieldTypes()) + "'";
+        return "coalesce((SELECT json_agg(json_build_object("
+                + "'customFieldId', custom_fields.id, 'customFieldName', custom_fields.name, 'customFieldType', custom_fields.type, "
+                + "'value', CASE WHEN custom_fields.type IN (" + enumTypes + ") THEN custom_field_options.name"
+                + " WHEN custom_fields.type IN ('" + CustomField.TYPE_TEXT + "', '" + CustomField.TYPE_BOOLEAN + "') THEN custom_field_values.value_text"
+                + " ELSE custom_field_values.value_number::text END, "
+                + "'valueOptionId', CASE WHEN custom_fields.type IN (" + enumTypes + ") THEN custom_field_values.value_option_id END"
+                + ") ORDER BY custom_field_values.custom_field_id)"
+                + " FROM custom_field_values"
+                + " JOIN custom_fields ON custom_field_values.custom_field_id = custom_fields.id"
+                + " LEFT JOIN custom_field_options ON custom_field_values.value_option_id = custom_field_options.id"
+                + " WHERE custom_field_values.entity_id = " + entityIdColumn + " AND custom_field_values.entity_key = '" + entityKey + "'"
+                + " AND custom_fields.deleted = false), '[]'::json)";
+    }
+
+    /**
+     * The value counts of every facet (see {@link FilterService#formatFacetQuery(String, String, List)}) of the rows the
+     * filters match, in one statement from the plan. Pagination filters are ignored, the counts cover every page. Every
+     * facet is returned, a facet no matched row has a value for has an empty list of values.
+     */
+    @Override
+    public List<FilterFacet> getFacetsWithFilters(List<Filter> filters) {
+        final List<CustomField> customFields = customFieldRepository.getAllByKey(entityKey);
+        final FilterPlan plan = getFilterPlan(filters, customFields);
+        if (null == plan.facetSql()) {
+            return new ArrayList<>();
+        }
+        final List<Filter> orderedFilters = plan.orderFilters(filters);
+        FilterService.validateOperands(orderedFilters);
+        final Object[] operands = FilterService.formatOperands(FilterService.getCountFilters(orderedFilters)).toArray();
+
+        final Map<String, String> facetFields = FilterService.getFacetFieldsByKey(entityKey);
+        final Map<String, List<FilterFacet.Value>> valuesByField = new LinkedHashMap<>();
+        facetFields.keySet().forEach(field -> valuesByField.put(field, new ArrayList<>()));
+        final Map<Integer, List<FilterFacet.Value>> valuesByCustomFieldId = new LinkedHashMap<>();
+        customFields.stream().filter(customField -> CustomField.isEnumType(customField.type()))
+                .forEach(customField -> valuesByCustomFieldId.put(customField.id(), new ArrayList<>()));
+
+        jdbcTemplate.query(plan.facetSql(), (RowCallbackHandler) resultSet -> {
+            final String field = resultSet.getString("facet_field");
+            final Integer customFieldId = resultSet.getObject("custom_field_id", Integer.class);
+            if (null != field) {
+                final Object value = toFacetValue(resultSet.getString("facet_value"), facetFields.get(field));
+                valuesByField.get(field).add(new FilterFacet.Value(value, null, resultSet.getLong("facet_count")));
+            } else if (null != customFieldId) {
+                valuesByCustomFieldId.get(customFieldId).add(new FilterFacet.Value(resultSet.getInt("option_id"), resultSet.getString("option_name"), resultSet.getLong("facet_count")));
+            }
+            //otherwise the row counts the entities without a value for any enum field, it isn't a facet value
+        }, operands);
+
+        final List<FilterFacet> facets = new ArrayList<>();
+        valuesByField.forEach((field, values) -> facets.add(new FilterFacet(field, facetFields.get(field), null, values)));
+        for (CustomField customField : customFields) {
+            if (valuesByCustomFieldId.containsKey(customField.id())) {
+                facets.add(new FilterFacet(customField.name(), customField.type(), customField.id(), valuesByCustomFieldId.get(customField.id())));
+            }
+        }
+        return facets;
+    }
+
+    //facet values are selected as text, booleans and system ids are handed back typed so they can be sent as a filter operand
+    private static Object toFacetValue(String value, String fieldType) {
+        if (null == value) {
+            return null;
+        }
+        return Filter.FIELD_TYPE_BOOLEAN.equals(fieldType) ? Boolean.valueOf(value) : Integer.valueOf(value);
+    }
+
+    private void emitChunk(List<T> chunk, Consumer<List<T>> chunkConsumer) {
+        final List<T> entities = new ArrayList<>(chunk);
+        chunk.clear();
+        loadSearchResults(entities);
+        chunkConsumer.accept(entities);
+    }
+
+    private void loadSearchResults(List<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        List<Integer> entityIds = entities.stream().map(Entity::getId).toList();
+        Map<Integer, List<CustomFieldValue>> customFieldValuesByEntityId = customFieldValueRepository.getCustomFieldValuesByEntityIdsAndEntityKey(entityIds, entityKey);
+        for (T entity : entities) {
+            entity.setCustomFieldValues(customFieldValuesByEntityId.getOrDefault(entity.getId(), List.of()));
+        }
+        afterLoad(entities);
+    }
+
+    /**
+     * The compiled plan getPageWithFilters() runs for these filters, bound with FilterService.formatOperands() of
+     * {@link FilterPlan#orderFilters(List)}. Public so the SQL a search actually runs can be EXPLAINed.
+     */
+    public FilterPlan getFilterPlan(List<Filter> filters) {
+        return getFilterPlan(filters, customFieldRepository.getAllByKey(entityKey));
+    }
+
+    private FilterPlan getFilterPlan(List<Filter> filters, List<CustomField> customFields) {
+        final FilterPlanKey planKey = FilterPlanKey.of(entityKey, customFields, filters);
+        return filterPlanCache.getOrCompile(planKey, () -> compileFilterPlan(filters, customFields));
+    }
+
+    private FilterPlan compileFilterPlan(List<Filter> filters, List<CustomField> customFields) {
+        final List<Filter> orderedFilters = FilterService.validateAndOrderFilters(filters, customFields);
+        final List<String> whereStatements = FilterService.formatWhereStatements(orderedFilters, customFields);
+        final String customFieldSortJoins = FilterService.formatCustomFieldSortJoins(orderedFilters, customFields);
+        final String fromQuery = customFieldSortJoins.isEmpty() ? baseQuery : buildQueryWithCustomFieldJoins(customFieldSortJoins);
+        String sql = fromQuery + String.join(" ", whereStatements);
+
+        //the count keeps the sort joins (they decide which rows match) but not the ORDER BY, it would only cost a sort
+        final List<String> countStatements = FilterService.formatWhereStatements(FilterService.getCountFilters(orderedFilters), customFields).stream()
+                .filter(statement -> !statement.startsWith(" ORDER BY "))
+                .toList();
+        final String countSql = "SELECT count(*) FROM (" + fromQuery + String.join(" ", countStatements) + ") AS filtered_results";
+        final String facetSql = FilterService.formatFacetQuery(entityKey, fromQuery + String.join(" ", countStatements), customFields);
+
+        final boolean isCursorSearch = orderedFilters.stream().anyMatch(filter -> Filter.OPERATOR_CURSOR.equals(filter.getOperator()));
+        if (!isCursorSearch) {
+            return FilterPlan.compile(sql, filters, orderedFilters).withCountSql(countSql).withFacetSql(facetSql);
+        }
+        //select every sort value except the trailing id tiebreaker (the entity already has its id) for the next cursor
+        final List<FilterCursor.SortKey> sortKeys = FilterService.getSortKeys(orderedFilters);
+        final StringBuilder cursorColumns = new StringBuilder("SELECT ");
+        for (int i = 0; i < sortKeys.size() - 1; i++) {
+            cursorColumns.append(sortKeys.get(i).expression()).append("::text AS cursor_key_").append(i + 1).append(", ");
+        }
+        sql = cursorColumns + sql.substring(sql.indexOf("SELECT ") + "SELECT ".length());
+        return FilterPlan.compile(sql, filters, orderedFilters, sortKeys.size() - 1).withCountSql(countSql).withFacetSql(facetSql);
+    }
+
+    private int getLimit(List<Filter> orderedFilters) {
+        for (Filter filter : orderedFilters) {
+            if (Filter.OPERATOR_LIMIT.equals(filter.getOperator())) {
+                return Integer.parseInt(filter.getOperand());
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    public FilterPlanCache getFilterPlanCache() {
+        return filterPlanCache;
+    }
+
+    //only custom field sorts are joined, custom field where filters are EXISTS predicates in the where statements
+    private String buildQueryWithCustomFieldJoins(String customFieldSortJoins) {
+        String tableName = Keychain.getTableAliasByKey(entityKey);
+        return getBaseQuery(false) + customFieldSortJoins + " WHERE " + tableName + ".deleted_at IS NULL";
     }
 
     @Override
@@ -173,9 +539,9 @@ public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, Resp
             return new ArrayList<>();
         }
         final List<Integer> distinctIds = ids.stream().distinct().toList();
-        final String placeholders = String.join(", ", Collections.nCopies(distinctIds.size(), "?"));
-        final String sql = baseSql + " AND id IN (" + placeholders + ") ";
-        final List<T> entities = jdbcTemplate.query(sql, rowMapper, distinctIds.toArray());
+        //the ids are bound as one int[] so every batch size shares one statement (and one cached plan)
+        final String sql = baseSql + " AND id = ANY(?) ";
+        final List<T> entities = jdbcTemplate.query(sql, rowMapper, (Object) distinctIds.toArray(new Integer[0]));
         if (!entities.isEmpty()) {
             final List<Integer> entityIds = entities.stream().map(Entity::getId).toList();
             final Map<Integer, List<CustomFieldValue>> customFieldValuesByEntityId = customFieldValueRepository.getCustomFieldValuesByEntityIdsAndEntityKey(entityIds, entityKey);
@@ -191,23 +557,105 @@ public abstract class EntityRepositoryAbstract<T extends Entity<RequestDto, Resp
     public T update(T entity) {
         updateValidation(entity);
 
-        updateImplementation(entity);
-
-        final T savedEntity;
-        try {
-            savedEntity = getById(entity.getId());
-        } catch (ExceptionResourceNotFound | NullPointerException e) {
-            //we shouldn't ever reach this block because the database is managing the ID's
-            logger.error(ErrorLogs.insertThenRetrieveError(entityKey, entity.getId()));
-            throw new ExceptionInternalCatastrophe(entityKey, entity.getId(), e);
+        final T savedEntity = updateImplementation(entity);
+        if (null == savedEntity) {
+            //we shouldn't ever reach this block because the service loads the entity before updating it
+            logger.error(ErrorLogs.updateThenRetrieveError(entityKey, entity.getId()));
+            throw new ExceptionInternalCatastrophe(entityKey, entity.getId());
         }
 
         customFieldValueRepository.upsertValues(entity.getCustomFieldValues(), savedEntity.getId(), savedEntity.getKey());
-        return setCustomFieldsValuesForEntity(savedEntity);
+        //values that were not part of this update are kept, so the full set is read back once
+        setCustomFieldsValuesForEntity(savedEntity);
+        afterLoad(List.of(savedEntity));
+        return savedEntity;
     }
 
     //public void deleteById(int id) will need to be implemented manually
 
+    /**
+     * The entity's own columns a bulkUpdate() can set, keyed by field name (the column name, the same as the filter
+     * fields) with the field type. Override to allow them, by default only custom field values can be bulk updated.
+     */
+    @Override
+    public Map<String, String> getBulkUpdateFields() {
+        return Map.of();
+    }
+
+    /**
+     * One set-based UPDATE of every entity picked by ids (or, when ids is null, by the filters) instead of an update()
+     * per entity. fieldValues are the values of getBulkUpdateFields() to set, already converted to the column type by
+     * the service, and updated_at is always touched. Then each of the customFieldValues is written to every updated row
+     * with one statement. Returns the ids of the updated entities.
+     */
+    @Override
+    public List<Integer> bulkUpdate(List<Integer> ids, List<Filter> filters, Map<String, Object> fieldValues, List<CustomFieldValue> customFieldValues) {
+        final List<String> assignments = new ArrayList<>();
+        final List<Object> arguments = new ArrayList<>();
+        assignments.add("updated_at = now()");
+        //only field names from getBulkUpdateFields() are written into the SQL, never the names from the request
+        for (String field : getBulkUpdateFields().keySet()) {
+            if (fieldValues.containsKey(field)) {
+                assignments.add(field + " = ?");
+                arguments.add(fieldValues.get(field));
+            }
+        }
+        final String sql = "UPDATE " + Keychain.getTableAliasByKey(entityKey) + " SET " + String.join(", ", assignments)
+                + getBulkWhereClause(ids, filters, arguments) + " RETURNING id";
+        final List<Integer> updatedIds = jdbcTemplate.queryForList(sql, Integer.class, arguments.toArray());
+        customFieldValueRepository.upsertValuesForAllEntities(customFieldValues, updatedIds, entityKey);
+        return updatedIds;
+    }
+
+    /**
+     * The bulk version of deleteById(), one UPDATE soft deletes every entity picked by ids (or, when ids is null, by the
+     * filters) then afterBulkDelete() runs with the deleted ids. Returns the ids of the deleted entities.
+     */
+    @Override
+    public List<Integer> bulkDelete(List<Integer> ids, List<Filter> filters) {
+        final List<Object> arguments = new ArrayList<>();
+        final String sql = "UPDATE " + Keychain.getTableAliasByKey(entityKey) + " SET deleted_at = now()"
+                + getBulkWhereClause(ids, filters, arguments) + " RETURNING id";
+        final List<Integer> deletedIds = jdbcTemplate.queryForList(sql, Integer.class, arguments.toArray());
+        if (!deletedIds.isEmpty()) {
+            afterBulkDelete(deletedIds);
+        }
+        return deletedIds;
+    }
+
+    /**
+     * Hook for the set-based version of whatever else deleteById() does for this entity (removing related rows, or
+     * rejecting the delete), it runs in the same transaction right after the rows are soft deleted.
+     */
+    protected void afterBulkDelete(List<Integer> deletedIds) {
+    }
+
+    //the filters are compiled by the same FilterPlan as a search, its SELECT becomes a sub-select on id
+    private String getBulkWhereClause(List<Integer> ids, List<Filter> filters, List<Object> arguments) {
+        if (null != ids) {
+            arguments.add(ids.toArray(new Integer[0]));
+            return " WHERE deleted_at IS NULL AND id = ANY(?)";
+        }
+        //a search just fails on a filter for another entity, a bulk write refuses it up front
+        if (filters.stream().anyMatch(filter -> !entityKey.equals(filter.getKey()))) {
+            throw new ExceptionInvalidFilter("Every filter of a bulk request must have the key '" + entityKey + "'.");
+        }
+        final FilterPlan plan = getFilterPlan(filters);
+        final List<Filter> orderedFilters = plan.orderFilters(filters);
+        FilterService.validateOperands(orderedFilters);
+        arguments.addAll(FilterService.formatOperands(orderedFilters));
+        return " WHERE deleted_at IS NULL AND id IN (SELECT matched.id FROM (" + plan.sql() + ") AS matched)";
+    }
+
+    /**
+     * Run an INSERT/UPDATE ... RETURNING statement and map the returned row with the entity's rowMapper.
+     * Returns null when no row was written.
+     */
+    protected T queryForPersistedRow(String sql, Object... args) {
+        final List<T> rows = jdbcTemplate.query(sql, rowMapper, args);
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+
     @Override
     public T getDeletedById(int id) {
         return queryById(id, baseQueryWhereDeletedAtIsNotNull);
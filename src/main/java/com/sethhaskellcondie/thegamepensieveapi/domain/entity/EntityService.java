@@ -1,8 +1,12 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A Service holds all the business logic for the different entities in the system.
@@ -14,14 +18,34 @@ import java.util.List;
 public interface EntityService<T extends Entity<RequestDto, ResponseDto>, RequestDto, ResponseDto> {
     List<T> getWithFilters(List<FilterRequestDto> filters);
 
+    FilterPage<T> getPageWithFilters(List<FilterRequestDto> filters);
+
+    FilterPage<T> getPageWithFilters(List<FilterRequestDto> filters, boolean includeTotalCount);
+
+    List<FilterFacet> getFacetsWithFilters(List<FilterRequestDto> filters);
+
+    void streamWithFilters(List<FilterRequestDto> filters, Consumer<List<T>> chunkConsumer);
+
+    void streamChangedSince(Timestamp since, Consumer<List<T>> chunkConsumer);
+
+    boolean supportsJsonWithFilters();
+
+    String getJsonWithFilters(List<FilterRequestDto> filters);
+
     T getById(int id);
 
     T createNew(RequestDto requestDto);
 
+    List<T> createNewBulk(List<RequestDto> requestDtos);
+
     T updateExisting(int id, RequestDto requestDto);
 
     void deleteById(int id);
 
+    List<Integer> bulkUpdate(BulkRequestDto bulkRequestDto);
+
+    List<Integer> bulkDelete(BulkRequestDto bulkRequestDto);
+
     // Optional: Some entities will have a duplicationCheck for idempotence on creation,
     // this should always be called duplicationCheck and should return an integer of the found entity,
     // The parameters for this function vary
@@ -1,11 +1,33 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionMalformedEntity;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.MultiException;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterFacet;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPage;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public abstract class EntityServiceAbstract<T extends Entity<RequestDto, ResponseDto>, RequestDto, ResponseDto, R extends EntityRepository<T, RequestDto, ResponseDto>>
         implements EntityService<T, RequestDto, ResponseDto> {
@@ -20,8 +42,64 @@ public abstract class EntityServiceAbstract<T extends Entity<RequestDto, Respons
 
     @Override
     public List<T> getWithFilters(List<FilterRequestDto> dtoFilters) {
+        return getPageWithFilters(dtoFilters).results();
+    }
+
+    @Override
+    public FilterPage<T> getPageWithFilters(List<FilterRequestDto> dtoFilters) {
+        return getPageWithFilters(dtoFilters, false);
+    }
+
+    @Override
+    public FilterPage<T> getPageWithFilters(List<FilterRequestDto> dtoFilters, boolean includeTotalCount) {
         List<Filter> filters = filterService.convertFilterRequestDtosToFilters(dtoFilters);
-        return repository.getWithFilters(filters);
+        final FilterPage<T> page = repository.getPageWithFilters(filters, includeTotalCount);
+        return page.withResults(hydrateSearchResults(page.results()));
+    }
+
+    @Override
+    public List<FilterFacet> getFacetsWithFilters(List<FilterRequestDto> dtoFilters) {
+        List<Filter> filters = filterService.convertFilterRequestDtosToFilters(dtoFilters);
+        return repository.getFacetsWithFilters(filters);
+    }
+
+    /**
+     * A search streamed in chunks instead of returned as one list, see EntityRepositoryAbstract.streamWithFilters().
+     * hydrateSearchResults() runs on each chunk.
+     */
+    @Override
+    public void streamWithFilters(List<FilterRequestDto> dtoFilters, Consumer<List<T>> chunkConsumer) {
+        List<Filter> filters = filterService.convertFilterRequestDtosToFilters(dtoFilters);
+        repository.streamWithFilters(filters, chunk -> chunkConsumer.accept(hydrateSearchResults(chunk)));
+    }
+
+    /** The entities changed since a point in time, streamed like streamWithFilters(), see EntityRepositoryAbstract.streamChangedSince(). */
+    @Override
+    public void streamChangedSince(Timestamp since, Consumer<List<T>> chunkConsumer) {
+        repository.streamChangedSince(since, chunk -> chunkConsumer.accept(hydrateSearchResults(chunk)));
+    }
+
+    @Override
+    public boolean supportsJsonWithFilters() {
+        return repository.supportsJsonWithFilters();
+    }
+
+    /**
+     * A search with the results built as a JSON array by the database, see EntityRepositoryAbstract.getJsonWithFilters().
+     * hydrateSearchResults() doesn't run, the related objects are part of the JSON.
+     */
+    @Override
+    public String getJsonWithFilters(List<FilterRequestDto> dtoFilters) {
+        List<Filter> filters = filterService.convertFilterRequestDtosToFilters(dtoFilters);
+        return repository.getJsonWithFilters(filters);
+    }
+
+    /**
+     * Hook that runs on the results of every search before they are returned, override this to attach related objects
+     * (batch loaded for the whole list to avoid N+1 queries). The default returns the results unchanged.
+     */
+    protected List<T> hydrateSearchResults(List<T> results) {
+        return results;
     }
 
     @Override
@@ -38,6 +116,141 @@ public abstract class EntityServiceAbstract<T extends Entity<RequestDto, Respons
      *  }
      */
 
+    /**
+     *  createNewBulk will also need to be implemented in each service, it builds every entity with buildBulk(), checks
+     *  the duplicates of the whole list with checkBulkDuplicates(), then writes them all with repository.insertAll().
+     *  Every problem is added to an ExceptionBulkRequest with the index of its item and nothing is written unless every
+     *  item is valid, mark it @Transactional so a failure after the first write rolls back the whole list.
+     */
+
+    /**
+     * Build the new entity for every request dto, a dto that fails validation is reported with its index and gets a
+     * null placeholder so the returned list still lines up with the request.
+     */
+    protected List<T> buildBulk(List<RequestDto> requestDtos, Function<RequestDto, T> builder, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<T> entities = new ArrayList<>(requestDtos.size());
+        for (int i = 0; i < requestDtos.size(); i++) {
+            T entity = null;
+            try {
+                if (null == requestDtos.get(i)) {
+                    throw new ExceptionMalformedEntity("The item is empty.");
+                }
+                entity = builder.apply(requestDtos.get(i));
+            } catch (MultiException | ExceptionInputValidation exception) {
+                exceptionBulkRequest.addItemException(i, exception);
+            }
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * The bulk version of a duplicationCheck(): report every new entity whose natural key (like a toy's name and set) is
+     * already in the database, found with one findExisting query for the whole list, or repeats an earlier item of the same
+     * request. Null entities (items that failed to build) are skipped.
+     */
+    protected void checkBulkDuplicates(List<T> newEntities, Function<List<T>, List<T>> findExisting, Function<T, List<Object>> naturalKey,
+                                       Function<T, String> describe, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<T> candidates = newEntities.stream().filter(Objects::nonNull).toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
+        final Set<List<Object>> existingKeys = new HashSet<>();
+        findExisting.apply(candidates).forEach(existing -> existingKeys.add(naturalKey.apply(existing)));
+        final Set<List<Object>> requestKeys = new HashSet<>();
+        for (int i = 0; i < newEntities.size(); i++) {
+            final T entity = newEntities.get(i);
+            if (null == entity) {
+                continue;
+            }
+            final List<Object> key = naturalKey.apply(entity);
+            if (existingKeys.contains(key)) {
+                exceptionBulkRequest.addItemException(i, new ExceptionFailedDbValidation(describe.apply(entity)
+                        + " was already found in the database. To update it, make an update request."));
+            } else if (!requestKeys.add(key)) {
+                exceptionBulkRequest.addItemException(i, new ExceptionFailedDbValidation(describe.apply(entity)
+                        + " appears more than once in this request."));
+            }
+        }
+    }
+
+    protected BulkImportResults findOrInsertBulk(List<T> entities, Function<List<T>, List<T>> findExisting, Function<T, List<Object>> naturalKey,
+                                                 ExceptionBulkRequest exceptionBulkRequest) {
+        return findOrInsertBulk(entities, findExisting, naturalKey, newEntities -> { }, exceptionBulkRequest);
+    }
+
+    /**
+     * The set-based create behind the backup import. Unlike createNewBulk() an entity that is already in the database is
+     * not an error and a bad item doesn't stop the rest of the list: an entity whose natural key is found by the one
+     * findExisting query, or repeats an earlier entity of the list, gets the id it already has. The custom field values
+     * of the others are validated, then beforeInsert gets them by index to finish them (and report the ones it can't),
+     * and the ones nothing was reported on are written with one insertAll(). Entities that are null or were already
+     * reported (items that failed to build) are skipped. A natural key with a null part never matches, like in SQL.
+     * Not @Transactional, the problems are reported instead of thrown so the caller's transaction isn't marked rollback-only.
+     */
+    protected BulkImportResults findOrInsertBulk(List<T> entities, Function<List<T>, List<T>> findExisting, Function<T, List<Object>> naturalKey,
+                                                 Consumer<Map<Integer, T>> beforeInsert, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Integer> ids = new ArrayList<>(Collections.nCopies(entities.size(), null));
+        final List<T> candidates = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            if (null != entities.get(i) && !exceptionBulkRequest.hasItemErrors(i)) {
+                candidates.add(entities.get(i));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new BulkImportResults(ids, 0);
+        }
+        final Map<List<Object>, Integer> existingIds = new HashMap<>();
+        findExisting.apply(candidates).forEach(existing -> existingIds.put(naturalKey.apply(existing), existing.getId()));
+
+        //the first entity with a new key is written, the ones that repeat it get its id
+        final Map<List<Object>, Integer> firstIndexByKey = new HashMap<>();
+        final Map<Integer, Integer> repeatedIndexes = new LinkedHashMap<>();
+        final Map<Integer, T> newEntities = new LinkedHashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            final T entity = entities.get(i);
+            if (null == entity || exceptionBulkRequest.hasItemErrors(i)) {
+                continue;
+            }
+            final List<Object> key = naturalKey.apply(entity);
+            if (existingIds.containsKey(key)) {
+                ids.set(i, existingIds.get(key));
+            } else if (firstIndexByKey.containsKey(key)) {
+                repeatedIndexes.put(i, firstIndexByKey.get(key));
+            } else {
+                if (!key.contains(null)) {
+                    firstIndexByKey.put(key, i);
+                }
+                newEntities.put(i, entity);
+            }
+        }
+
+        final List<Integer> newIndexes = new ArrayList<>(newEntities.keySet());
+        final ExceptionBulkRequest valueExceptions = new ExceptionBulkRequest();
+        repository.validateCustomFieldValues(new ArrayList<>(newEntities.values()), valueExceptions);
+        for (int i = 0; i < newIndexes.size(); i++) {
+            final int index = newIndexes.get(i);
+            valueExceptions.getItemMessages(i).forEach(message -> exceptionBulkRequest.addItemMessage(index, message));
+        }
+        newEntities.keySet().removeIf(exceptionBulkRequest::hasItemErrors);
+        beforeInsert.accept(newEntities);
+        newEntities.keySet().removeIf(exceptionBulkRequest::hasItemErrors);
+
+        final List<T> savedEntities = repository.insertAll(new ArrayList<>(newEntities.values()));
+        final Iterator<Integer> savedIndexes = newEntities.keySet().iterator();
+        for (T savedEntity : savedEntities) {
+            ids.set(savedIndexes.next(), savedEntity.getId());
+        }
+        repeatedIndexes.forEach((index, firstIndex) -> {
+            if (exceptionBulkRequest.hasItemErrors(firstIndex)) {
+                List.copyOf(exceptionBulkRequest.getItemMessages(firstIndex)).forEach(message -> exceptionBulkRequest.addItemMessage(index, message));
+            } else {
+                ids.set(index, ids.get(firstIndex));
+            }
+        });
+        return new BulkImportResults(ids, savedEntities.size());
+    }
+
     @Override
     public T updateExisting(int id, RequestDto requestDto) {
         T t = repository.getById(id);
@@ -52,4 +265,81 @@ public abstract class EntityServiceAbstract<T extends Entity<RequestDto, Respons
     public void deleteById(int id) {
         repository.deleteById(id);
     }
+
+    /**
+     * Apply the same field values and custom field values to every entity matched by the ids or the filters of the
+     * request with one set-based UPDATE, returns the ids of the updated entities. Only the fields listed by
+     * repository.getBulkUpdateFields() can be set, a failure in the custom field values rolls back the whole update.
+     */
+    @Override
+    @Transactional
+    public List<Integer> bulkUpdate(BulkRequestDto bulkRequestDto) {
+        final List<Filter> filters = getBulkFilters(bulkRequestDto);
+        final Map<String, Object> fieldValues = convertBulkFieldValues(bulkRequestDto.fields());
+        final List<CustomFieldValue> customFieldValues = null == bulkRequestDto.customFieldValues() ? List.of() : bulkRequestDto.customFieldValues();
+        if (fieldValues.isEmpty() && customFieldValues.isEmpty()) {
+            throw new ExceptionInputValidation("A bulk update needs at least one field or custom field value to set.");
+        }
+        return repository.bulkUpdate(bulkRequestDto.ids(), filters, fieldValues, customFieldValues);
+    }
+
+    /**
+     * Soft delete every entity matched by the ids or the filters of the request with one set-based UPDATE, returns the
+     * ids of the deleted entities. The same rules as deleteById() apply, if any of them fails nothing is deleted.
+     */
+    @Override
+    @Transactional
+    public List<Integer> bulkDelete(BulkRequestDto bulkRequestDto) {
+        final List<Filter> filters = getBulkFilters(bulkRequestDto);
+        return repository.bulkDelete(bulkRequestDto.ids(), filters);
+    }
+
+    //a bulk request matches its rows by ids or by filters (never both), returns null when the ids are used
+    private List<Filter> getBulkFilters(BulkRequestDto bulkRequestDto) {
+        if (null == bulkRequestDto) {
+            throw new ExceptionInputValidation("A bulk request needs either a list of ids or a list of filters.");
+        }
+        final boolean hasIds = null != bulkRequestDto.ids();
+        final boolean hasFilters = null != bulkRequestDto.filters();
+        if (hasIds == hasFilters) {
+            throw new ExceptionInputValidation("A bulk request needs either a list of ids or a list of filters, but not both.");
+        }
+        if (hasIds) {
+            if (bulkRequestDto.ids().contains(null)) {
+                throw new ExceptionInputValidation("The ids of a bulk request can't be null.");
+            }
+            return null;
+        }
+        //an empty list of filters would match every row, that must be asked for on purpose with a filter
+        if (bulkRequestDto.filters().isEmpty()) {
+            throw new ExceptionInputValidation("The filters of a bulk request can't be empty.");
+        }
+        return filterService.convertFilterRequestDtosToFilters(bulkRequestDto.filters());
+    }
+
+    private Map<String, Object> convertBulkFieldValues(Map<String, Object> fields) {
+        final Map<String, Object> fieldValues = new LinkedHashMap<>();
+        if (null == fields) {
+            return fieldValues;
+        }
+        final Map<String, String> allowedFields = repository.getBulkUpdateFields();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            final String type = allowedFields.get(field.getKey());
+            if (null == type) {
+                throw new ExceptionInputValidation("The field '" + field.getKey() + "' can't be set by a bulk update. The fields that can be set are: "
+                        + (allowedFields.isEmpty() ? "none, use custom field values instead" : String.join(", ", new TreeSet<>(allowedFields.keySet()))) + ".");
+            }
+            final Object value = field.getValue();
+            final boolean valid = switch (type) {
+                case Filter.FIELD_TYPE_BOOLEAN -> value instanceof Boolean;
+                case Filter.FIELD_TYPE_NUMBER -> value instanceof Integer;
+                default -> value instanceof String;
+            };
+            if (!valid) {
+                throw new ExceptionInputValidation("The field '" + field.getKey() + "' of a bulk update must be a " + type + " value.");
+            }
+            fieldValues.put(field.getKey(), value);
+        }
+        return fieldValues;
+    }
 }
@@ -6,19 +6,17 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldVa
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 
 @Repository
 public class BoardGameRepository extends EntityRepositoryAbstract<BoardGame, BoardGameRequestDto, BoardGameResponseDto>
@@ -27,8 +25,12 @@ public class BoardGameRepository extends EntityRepositoryAbstract<BoardGame, Boa
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
+    private String getColumns() {
+        return "board_games.id, board_games.title, board_games.created_at, board_games.updated_at, board_games.deleted_at";
+    }
+
     private String getSelectClause() {
-        return "SELECT board_games.id, board_games.title, board_games.created_at, board_games.updated_at, board_games.deleted_at";
+        return "SELECT " + getColumns();
     }
 
     protected String getBaseQuery(boolean includeWhereClause) {
@@ -77,30 +79,39 @@ public class BoardGameRepository extends EntityRepositoryAbstract<BoardGame, Boa
     }
 
     @Override
-    protected Integer insertImplementation(BoardGame entity) {
-        final String sql = """
-                            INSERT INTO board_games(title, created_at, updated_at) VALUES (?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, entity.getTitle());
-                    ps.setTimestamp(2, Timestamp.from(Instant.now()));
-                    ps.setTimestamp(3, Timestamp.from(Instant.now()));
-                    return ps;
-                },
-                keyHolder
-        );
-        return (Integer) keyHolder.getKeys().get("id");
+    protected BoardGame insertImplementation(BoardGame entity) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return queryForPersistedRow(getInsertSql(), entity.getTitle(), now, now);
     }
 
     @Override
-    protected void updateImplementation(BoardGame entity) {
+    protected List<BoardGame> insertAllImplementation(List<BoardGame> boardGames) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), boardGames, (ps, boardGame) -> {
+            ps.setString(1, boardGame.getTitle());
+            ps.setTimestamp(2, now);
+            ps.setTimestamp(3, now);
+        }, getRowMapper());
+    }
+
+    private String getInsertSql() {
+        return """
+                            INSERT INTO board_games(title, created_at, updated_at) VALUES (?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
+    }
+
+    @Override
+    protected BoardGame updateImplementation(BoardGame entity) {
         final String sql = """
-                UPDATE board_games SET title = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(sql, entity.getTitle(), Timestamp.from(Instant.now()), entity.getId());
+                UPDATE board_games SET title = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        return queryForPersistedRow(sql, entity.getTitle(), Timestamp.from(Instant.now()), entity.getId());
+    }
+
+    //The board games already in the database with one of the given titles, one query for the whole list
+    public List<BoardGame> getByTitles(List<String> titles) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND title = ANY(?)";
+        return jdbcTemplate.query(sql, getRowMapper(), (Object) titles.toArray(new String[0]));
     }
 
     public int getIdByTitle(String title) {
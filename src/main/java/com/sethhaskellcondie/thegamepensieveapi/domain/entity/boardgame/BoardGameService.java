@@ -1,14 +1,21 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.SlimBoardGameBox;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
-import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class BoardGameService extends EntityServiceAbstract<BoardGame, BoardGameRequestDto, BoardGameResponseDto, BoardGameRepository>
@@ -22,14 +29,32 @@ public class BoardGameService extends EntityServiceAbstract<BoardGame, BoardGame
     }
 
     @Override
-    public List<BoardGame> getWithFilters(List<FilterRequestDto> dtoFilters) {
-        final List<BoardGame> boardGames = super.getWithFilters(dtoFilters);
+    protected List<BoardGame> hydrateSearchResults(List<BoardGame> boardGames) {
+        if (boardGames.isEmpty()) {
+            return boardGames;
+        }
+        //Batch load the boxes of every board game at once (instead of per-game) to avoid N+1 queries
+        final Map<Integer, List<SlimBoardGameBox>> slimBoxesByBoardGameId = boardGameBoxRepository.getSlimBoardGameBoxesByBoardGameIds(
+                boardGames.stream().map(BoardGame::getId).toList());
         for (BoardGame boardGame : boardGames) {
-            boardGame.setBoardGameBoxes(boardGameBoxRepository.getSlimBoardGameBoxesByBoardGameId(boardGame.getId()));
+            boardGame.setBoardGameBoxes(slimBoxesByBoardGameId.getOrDefault(boardGame.getId(), new ArrayList<>()));
         }
         return boardGames;
     }
 
+    /**
+     * Batch load many board games at once keyed by id (without their boxes), the BoardGameBoxService uses this to
+     * hydrate the parent board game of a list of boxes. Every board game is loaded once no matter how many of the boxes
+     * share it, and those boxes share the same instance.
+     */
+    public Map<Integer, BoardGame> getBoardGamesByIds(List<Integer> boardGameIds) {
+        final Map<Integer, BoardGame> boardGamesById = new HashMap<>();
+        for (BoardGame boardGame : repository.getByIds(boardGameIds)) {
+            boardGamesById.put(boardGame.getId(), boardGame);
+        }
+        return boardGamesById;
+    }
+
     @Override
     public BoardGame getById(int id) {
         final BoardGame boardGame = super.getById(id);
@@ -46,6 +71,35 @@ public class BoardGameService extends EntityServiceAbstract<BoardGame, BoardGame
         return repository.insert(boardGame);
     }
 
+    @Override
+    @Transactional
+    public List<BoardGame> createNewBulk(List<BoardGameRequestDto> boardGameRequestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<BoardGame> boardGames = prepareNewBulk(boardGameRequestDtos, exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+        return repository.insertAll(boardGames);
+    }
+
+    /**
+     * Build and duplicate check a list of new board games without writing them, the BoardGameBoxService uses this to
+     * validate the new board games of a bulk box request alongside the boxes before anything is inserted.
+     */
+    public List<BoardGame> prepareNewBulk(List<BoardGameRequestDto> boardGameRequestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<BoardGame> boardGames = buildBulk(boardGameRequestDtos, requestDto -> new BoardGame().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        checkBulkDuplicates(boardGames, newBoardGames -> repository.getByTitles(newBoardGames.stream().map(BoardGame::getTitle).toList()),
+                boardGame -> Arrays.asList(boardGame.getTitle()), boardGame -> "BoardGame with title: '" + boardGame.getTitle() + "'", exceptionBulkRequest);
+        return boardGames;
+    }
+
+    //the backup import's create, a board game already in the database gets its id instead of an error, see findOrInsertBulk()
+    public BulkImportResults importBulk(List<BoardGameRequestDto> boardGameRequestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<BoardGame> boardGames = buildBulk(boardGameRequestDtos, requestDto -> new BoardGame().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        return findOrInsertBulk(boardGames, newBoardGames -> repository.getByTitles(newBoardGames.stream().map(BoardGame::getTitle).toList()),
+                boardGame -> Arrays.asList(boardGame.getTitle()), exceptionBulkRequest);
+    }
+
     public int duplicationCheck(String title) {
         return getIdByTitle(title);
     }
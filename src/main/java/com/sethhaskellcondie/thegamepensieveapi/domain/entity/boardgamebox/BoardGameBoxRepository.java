@@ -6,21 +6,21 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldVa
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class BoardGameBoxRepository extends EntityRepositoryAbstract<BoardGameBox, BoardGameBoxRequestDto, BoardGameBoxResponseDto>
@@ -29,11 +29,15 @@ public class BoardGameBoxRepository extends EntityRepositoryAbstract<BoardGameBo
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
-    private String getSelectClause() {
-        return "SELECT board_game_boxes.id, board_game_boxes.title, board_game_boxes.is_expansion, board_game_boxes.is_stand_alone, board_game_boxes.base_set_id, board_game_boxes.board_game_id, "
+    private String getColumns() {
+        return "board_game_boxes.id, board_game_boxes.title, board_game_boxes.is_expansion, board_game_boxes.is_stand_alone, board_game_boxes.base_set_id, board_game_boxes.board_game_id, "
                 + "board_game_boxes.created_at, board_game_boxes.updated_at, board_game_boxes.deleted_at";
     }
 
+    private String getSelectClause() {
+        return "SELECT " + getColumns();
+    }
+
     protected String getBaseQuery(boolean includeWhereClause) {
         if (includeWhereClause) {
             return getSelectClause() + " FROM board_game_boxes WHERE 1 = 1 ";
@@ -41,6 +45,18 @@ public class BoardGameBoxRepository extends EntityRepositoryAbstract<BoardGameBo
         return getSelectClause() + " FROM board_game_boxes";
     }
 
+    //A box is exported with its board game, a box whose board game changed has changed as well. An expansion can only be
+    //imported with its base set box, so the base set boxes of the changed boxes (all the way down) come along. A renamed
+    //base set box is imported as a new box (see V1_29), its expansions come along to be pointed at it.
+    @Override
+    protected String getChangedSinceCondition() {
+        return "id IN (WITH RECURSIVE changed_boxes AS ("
+                + "SELECT id, base_set_id FROM board_game_boxes WHERE updated_at >= ? OR board_game_id IN (SELECT id FROM board_games WHERE updated_at >= ?)"
+                + " OR base_set_id IN (SELECT entity_id FROM renamed_natural_keys WHERE entity_key = '" + Keychain.BOARD_GAME_BOX_KEY + "' AND renamed_at >= ?)"
+                + " UNION SELECT base_sets.id, base_sets.base_set_id FROM board_game_boxes base_sets JOIN changed_boxes ON base_sets.id = changed_boxes.base_set_id"
+                + ") SELECT id FROM changed_boxes)";
+    }
+
     @Override
     public void deleteById(int id) {
         final String sql = """
@@ -52,6 +68,23 @@ public class BoardGameBoxRepository extends EntityRepositoryAbstract<BoardGameBo
         }
     }
 
+    @Override
+    public Map<String, String> getBulkUpdateFields() {
+        return Map.of("is_expansion", Filter.FIELD_TYPE_BOOLEAN, "is_stand_alone", Filter.FIELD_TYPE_BOOLEAN);
+    }
+
+    //the set-based version of BoardGameBoxService.deleteParentBoardGameIfNeeded(), a board game without a box left is deleted too
+    @Override
+    protected void afterBulkDelete(List<Integer> deletedIds) {
+        final String sql = """
+                UPDATE board_games SET deleted_at = now()
+                WHERE deleted_at IS NULL
+                  AND id IN (SELECT board_game_id FROM board_game_boxes WHERE id = ANY(?))
+                  AND NOT EXISTS (SELECT 1 FROM board_game_boxes WHERE board_game_boxes.board_game_id = board_games.id AND board_game_boxes.deleted_at IS NULL);
+                """;
+        jdbcTemplate.update(sql, (Object) deletedIds.toArray(new Integer[0]));
+    }
+
     @Override
     protected String getEntityKey() {
         return Keychain.BOARD_GAME_BOX_KEY;
@@ -84,68 +117,93 @@ public class BoardGameBoxRepository extends EntityRepositoryAbstract<BoardGameBo
     }
 
     @Override
-    protected Integer insertImplementation(BoardGameBox entity) {
-        final String sql = """
-                            INSERT INTO board_game_boxes(title, is_expansion, is_stand_alone, base_set_id, board_game_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                getPreparedStatement(sql, entity),
-                keyHolder
-        );
-        return (Integer) keyHolder.getKeys().get("id");
-    }
-
-    private PreparedStatementCreator getPreparedStatement(String sql, BoardGameBox entity) {
-        if (entity.getBaseSetId() == null) {
-            return connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                ps.setString(1, entity.getTitle());
-                ps.setBoolean(2, entity.isExpansion());
-                ps.setBoolean(3, entity.isStandAlone());
-                ps.setNull(4, Types.INTEGER);
-                ps.setInt(5, entity.getBoardGameId());
-                ps.setTimestamp(6, Timestamp.from(Instant.now()));
-                ps.setTimestamp(7, Timestamp.from(Instant.now()));
-                return ps;
-            };
-        } else {
-            return connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                ps.setString(1, entity.getTitle());
-                ps.setBoolean(2, entity.isExpansion());
-                ps.setBoolean(3, entity.isStandAlone());
-                ps.setInt(4, entity.getBaseSetId());
-                ps.setInt(5, entity.getBoardGameId());
-                ps.setTimestamp(6, Timestamp.from(Instant.now()));
-                ps.setTimestamp(7, Timestamp.from(Instant.now()));
-                return ps;
-            };
-        }
+    protected BoardGameBox insertImplementation(BoardGameBox entity) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return queryForPersistedRow(getInsertSql(), entity.getTitle(), entity.isExpansion(), entity.isStandAlone(), entity.getBaseSetId(), entity.getBoardGameId(), now, now);
     }
 
     @Override
-    protected void updateImplementation(BoardGameBox entity) {
+    protected List<BoardGameBox> insertAllImplementation(List<BoardGameBox> boardGameBoxes) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), boardGameBoxes, (ps, boardGameBox) -> {
+            ps.setString(1, boardGameBox.getTitle());
+            ps.setBoolean(2, boardGameBox.isExpansion());
+            ps.setBoolean(3, boardGameBox.isStandAlone());
+            ps.setObject(4, boardGameBox.getBaseSetId(), Types.INTEGER);
+            ps.setInt(5, boardGameBox.getBoardGameId());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        }, getRowMapper());
+    }
+
+    private String getInsertSql() {
+        return """
+                            INSERT INTO board_game_boxes(title, is_expansion, is_stand_alone, base_set_id, board_game_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
+    }
+
+    @Override
+    protected BoardGameBox updateImplementation(BoardGameBox entity) {
         final String sql = """
-                UPDATE board_game_boxes SET title = ?, is_expansion = ?, is_stand_alone = ?, base_set_id = ?, board_game_id = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(sql, entity.getTitle(), entity.isExpansion(), entity.isStandAlone(), entity.getBaseSetId(), entity.getBoardGameId(), Timestamp.from(Instant.now()), entity.getId());
+                UPDATE board_game_boxes SET title = ?, is_expansion = ?, is_stand_alone = ?, base_set_id = ?, board_game_id = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        return queryForPersistedRow(sql, entity.getTitle(), entity.isExpansion(), entity.isStandAlone(), entity.getBaseSetId(), entity.getBoardGameId(),
+                Timestamp.from(Instant.now()), entity.getId());
     }
 
     public List<SlimBoardGameBox> getSlimBoardGameBoxesByBoardGameId(int boardGameId) {
-        String sql = getBaseQueryExcludeDeleted() + " AND board_game_id = ? ";
-        List<BoardGameBox> boardGameBoxes = jdbcTemplate.query(
-                sql,
-                new Object[]{boardGameId},
-                new int[]{Types.BIGINT},
-                getRowMapper()
-        );
-        List<SlimBoardGameBox> slimBoardGameBoxes = new ArrayList<>();
+        return getSlimBoardGameBoxesByBoardGameIds(List.of(boardGameId)).getOrDefault(boardGameId, new ArrayList<>());
+    }
+
+    /**
+     * The slim boxes of many board games at once, keyed by board_game_id. The box ids are found with one query then the
+     * boxes and all of their custom field values are loaded with getByIds(), the same number of queries for any number
+     * of board games. A board game without a live box is not in the map.
+     */
+    public Map<Integer, List<SlimBoardGameBox>> getSlimBoardGameBoxesByBoardGameIds(List<Integer> boardGameIds) {
+        final Map<Integer, List<SlimBoardGameBox>> slimBoxesByBoardGameId = new HashMap<>();
+        if (boardGameIds.isEmpty()) {
+            return slimBoxesByBoardGameId;
+        }
+        final String sql = "SELECT id FROM board_game_boxes WHERE deleted_at IS NULL AND board_game_id = ANY(?) ORDER BY id";
+        final List<Integer> boxIds = jdbcTemplate.queryForList(sql, Integer.class, (Object) boardGameIds.stream().distinct().toArray(Integer[]::new));
+        final List<BoardGameBox> boardGameBoxes = new ArrayList<>(getByIds(boxIds));
+        boardGameBoxes.sort(Comparator.comparing(BoardGameBox::getId));
         for (BoardGameBox boardGameBox : boardGameBoxes) {
-            setCustomFieldsValuesForEntity(boardGameBox);
-            slimBoardGameBoxes.add(boardGameBox.convertToSlimBoardGameBox());
+            slimBoxesByBoardGameId.computeIfAbsent(boardGameBox.getBoardGameId(), key -> new ArrayList<>()).add(boardGameBox.convertToSlimBoardGameBox());
         }
-        return slimBoardGameBoxes;
+        return slimBoxesByBoardGameId;
+    }
+
+    //The boxes already in the database with the title and board game of one of the given boxes, one query for the whole list
+    public List<BoardGameBox> getByTitlesAndBoardGameIds(List<BoardGameBox> boardGameBoxes) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND (title, board_game_id) IN (SELECT * FROM unnest(?::text[], ?::int[]))";
+        return jdbcTemplate.query(sql, getRowMapper(),
+                boardGameBoxes.stream().map(BoardGameBox::getTitle).toArray(String[]::new), boardGameBoxes.stream().map(BoardGameBox::getBoardGameId).toArray(Integer[]::new));
+    }
+
+    /**
+     * The backup import's update of the boxes it found by title and board game: the box with each of ids takes the
+     * isExpansion, isStandAlone and base set of the box at the same index, with one UPDATE ... FROM unnest() for the
+     * list. Only the boxes whose fields differ are written. Returns the ids of the updated boxes.
+     */
+    public List<Integer> updateImportedFields(List<Integer> ids, List<BoardGameBox> boardGameBoxes) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String sql = """
+                UPDATE board_game_boxes SET is_expansion = imported.is_expansion, is_stand_alone = imported.is_stand_alone,
+                    base_set_id = imported.base_set_id, updated_at = now()
+                FROM unnest(?::int[], ?::boolean[], ?::boolean[], ?::int[]) AS imported(id, is_expansion, is_stand_alone, base_set_id)
+                WHERE board_game_boxes.id = imported.id AND board_game_boxes.deleted_at IS NULL
+                  AND (board_game_boxes.is_expansion, board_game_boxes.is_stand_alone, board_game_boxes.base_set_id)
+                      IS DISTINCT FROM (imported.is_expansion, imported.is_stand_alone, imported.base_set_id)
+                RETURNING board_game_boxes.id;
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, ids.toArray(new Integer[0]),
+                boardGameBoxes.stream().map(BoardGameBox::isExpansion).toArray(Boolean[]::new),
+                boardGameBoxes.stream().map(BoardGameBox::isStandAlone).toArray(Boolean[]::new),
+                boardGameBoxes.stream().map(BoardGameBox::getBaseSetId).toArray(Integer[]::new));
     }
 
     public int getIdByTitleAndBoardGameId(String title, int boardGameId) {
@@ -1,23 +1,29 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGame;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameService;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionMalformedEntity;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.MultiException;
-import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
@@ -35,14 +41,19 @@ public class BoardGameBoxService extends EntityServiceAbstract<BoardGameBox, Boa
     }
 
     @Override
-    public List<BoardGameBox> getWithFilters(List<FilterRequestDto> dtoFilters) {
+    protected List<BoardGameBox> hydrateSearchResults(List<BoardGameBox> boardGameBoxes) {
+        if (boardGameBoxes.isEmpty()) {
+            return boardGameBoxes;
+        }
+        //Batch load every parent board game once (instead of per-box) to avoid N+1 queries, boxes of the same board game share it
+        final Map<Integer, BoardGame> boardGamesById = boardGameService.getBoardGamesByIds(boardGameBoxes.stream().map(BoardGameBox::getBoardGameId).toList());
         final MultiException multiException = new MultiException();
-        final List<BoardGameBox> boardGameBoxes = super.getWithFilters(dtoFilters);
         for (BoardGameBox boardGameBox : boardGameBoxes) {
-            try {
-                boardGameBox.setBoardGame(boardGameRepository.getById(boardGameBox.getBoardGameId()));
-            } catch (Exception e) {
-                multiException.addException(e);
+            final BoardGame boardGame = boardGamesById.get(boardGameBox.getBoardGameId());
+            if (null == boardGame) {
+                multiException.addException(new ExceptionResourceNotFound(Keychain.BOARD_GAME_KEY, boardGameBox.getBoardGameId()));
+            } else {
+                boardGameBox.setBoardGame(boardGame);
             }
         }
         if (!multiException.isEmpty()) {
@@ -102,6 +113,102 @@ public class BoardGameBoxService extends EntityServiceAbstract<BoardGameBox, Boa
         return insertedBoardGameBox;
     }
 
+    @Override
+    @Transactional
+    public List<BoardGameBox> createNewBulk(List<BoardGameBoxRequestDto> requestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<BoardGameBox> boardGameBoxes = buildBulk(requestDtos, requestDto -> new BoardGameBox().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        final Map<Integer, BoardGame> boardGamesById = attachExistingBoardGames(boardGameBoxes, exceptionBulkRequest);
+        //only a box added to an existing board game can already be in the database, the rest get a new board game
+        checkBulkDuplicates(boardGameBoxes.stream().map(box -> null != box && hasExistingBoardGame(box) ? box : null).toList(),
+                repository::getByTitlesAndBoardGameIds, box -> Arrays.asList(box.getTitle(), box.getBoardGameId()),
+                box -> "BoardGameBox with title: '" + box.getTitle() + "' and boardGameId: " + box.getBoardGameId(), exceptionBulkRequest);
+        final Map<Integer, BoardGame> newBoardGamesByIndex = prepareNewBoardGames(requestDtos, boardGameBoxes, exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+
+        final List<Integer> newBoardGameIndexes = new ArrayList<>(newBoardGamesByIndex.keySet());
+        final List<BoardGame> savedBoardGames = boardGameRepository.insertAll(new ArrayList<>(newBoardGamesByIndex.values()));
+        for (int i = 0; i < savedBoardGames.size(); i++) {
+            boardGameBoxes.get(newBoardGameIndexes.get(i)).setBoardGame(savedBoardGames.get(i));
+            boardGamesById.put(savedBoardGames.get(i).getId(), savedBoardGames.get(i));
+        }
+        final List<BoardGameBox> savedBoardGameBoxes = repository.insertAll(boardGameBoxes);
+        savedBoardGameBoxes.forEach(box -> box.setBoardGame(boardGamesById.get(box.getBoardGameId())));
+        return savedBoardGameBoxes;
+    }
+
+    /**
+     * The backup import's create of board game boxes, a box already in the database gets its id instead of an error (see
+     * findOrInsertBulk()). The import resolves the board games first, so every request has a boardGameId.
+     */
+    public BulkImportResults importBulk(List<BoardGameBoxRequestDto> requestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<BoardGameBox> boardGameBoxes = buildBulk(requestDtos, requestDto -> new BoardGameBox().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        attachExistingBoardGames(boardGameBoxes, exceptionBulkRequest);
+        return findOrInsertBulk(boardGameBoxes, repository::getByTitlesAndBoardGameIds, box -> Arrays.asList(box.getTitle(), box.getBoardGameId()), exceptionBulkRequest);
+    }
+
+    //the backup import's update of the boxes it found, each of ids takes the non-key fields of the request at the same index
+    public List<Integer> updateImportedBulk(List<Integer> ids, List<BoardGameBoxRequestDto> requestDtos) {
+        return repository.updateImportedFields(ids, requestDtos.stream().map(requestDto -> new BoardGameBox().updateFromRequestDto(requestDto)).toList());
+    }
+
+    private boolean hasExistingBoardGame(BoardGameBox boardGameBox) {
+        return null != boardGameBox.getBoardGameId() && boardGameBox.getBoardGameId() > 0;
+    }
+
+    //look up every boardGameId of the request with one query, a box with an id that isn't found is reported with its index
+    private Map<Integer, BoardGame> attachExistingBoardGames(List<BoardGameBox> boardGameBoxes, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Integer> boardGameIds = boardGameBoxes.stream().filter(box -> null != box && hasExistingBoardGame(box)).map(BoardGameBox::getBoardGameId).distinct().toList();
+        final Map<Integer, BoardGame> boardGamesById = new HashMap<>();
+        boardGameRepository.getByIds(boardGameIds).forEach(boardGame -> boardGamesById.put(boardGame.getId(), boardGame));
+        for (int i = 0; i < boardGameBoxes.size(); i++) {
+            final BoardGameBox boardGameBox = boardGameBoxes.get(i);
+            if (null == boardGameBox || !hasExistingBoardGame(boardGameBox)) {
+                continue;
+            }
+            final BoardGame boardGame = boardGamesById.get(boardGameBox.getBoardGameId());
+            if (null == boardGame) {
+                exceptionBulkRequest.addItemMessage(i, "Cannot create new BoardGameBox, the provided boardGameId: " + boardGameBox.getBoardGameId()
+                        + " is not a valid boardGameId. Provide 'null' as the boardGameId to create a new Board Game");
+            } else {
+                boardGameBox.setBoardGame(boardGame);
+            }
+        }
+        return boardGamesById;
+    }
+
+    //build (without inserting) the new board game of every box that doesn't have a boardGameId, keyed by the index of the box
+    private Map<Integer, BoardGame> prepareNewBoardGames(List<BoardGameBoxRequestDto> requestDtos, List<BoardGameBox> boardGameBoxes, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Integer> boxIndexes = new ArrayList<>();
+        final List<BoardGameRequestDto> boardGameRequestDtos = new ArrayList<>();
+        for (int i = 0; i < boardGameBoxes.size(); i++) {
+            if (null != boardGameBoxes.get(i) && !hasExistingBoardGame(boardGameBoxes.get(i))) {
+                boxIndexes.add(i);
+                boardGameRequestDtos.add(newBoardGameRequestDto(requestDtos.get(i)));
+            }
+        }
+        final ExceptionBulkRequest boardGameExceptions = new ExceptionBulkRequest();
+        final List<BoardGame> boardGames = boardGameService.prepareNewBulk(boardGameRequestDtos, boardGameExceptions);
+        final Map<Integer, BoardGame> boardGamesByIndex = new LinkedHashMap<>();
+        for (int i = 0; i < boxIndexes.size(); i++) {
+            final int boxIndex = boxIndexes.get(i);
+            boardGameExceptions.getItemMessages(i).forEach(message -> exceptionBulkRequest.addItemMessage(boxIndex, message));
+            boardGamesByIndex.put(boxIndex, boardGames.get(i));
+        }
+        return boardGamesByIndex;
+    }
+
+    //the same defaults as createNew(), the new board game uses the title of the box unless a board game is included
+    private BoardGameRequestDto newBoardGameRequestDto(BoardGameBoxRequestDto requestDto) {
+        if (null == requestDto.boardGame()) {
+            return new BoardGameRequestDto(requestDto.title(), new ArrayList<>());
+        }
+        final List<CustomFieldValue> boardGameCustomFields = null == requestDto.boardGame().customFieldValues() ? new ArrayList<>() : requestDto.boardGame().customFieldValues();
+        return new BoardGameRequestDto(requestDto.boardGame().title(), boardGameCustomFields);
+    }
+
     @Override
     @Transactional
     public BoardGameBox updateExisting(int id, BoardGameBoxRequestDto requestDto) {
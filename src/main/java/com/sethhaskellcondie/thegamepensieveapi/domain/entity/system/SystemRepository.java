@@ -10,20 +10,18 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInvalidFilter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Repository
@@ -33,8 +31,12 @@ public class SystemRepository extends EntityRepositoryAbstract<System, SystemReq
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
+    private String getColumns() {
+        return "systems.id, systems.name, systems.generation, systems.handheld, systems.created_at, systems.updated_at, systems.deleted_at";
+    }
+
     private String getSelectClause() {
-        return "SELECT systems.id, systems.name, systems.generation, systems.handheld, systems.created_at, systems.updated_at, systems.deleted_at ";
+        return "SELECT " + getColumns() + " ";
     }
 
     protected String getBaseQuery(boolean includeWhereClause) {
@@ -62,6 +64,19 @@ public class SystemRepository extends EntityRepositoryAbstract<System, SystemReq
                 );
     }
 
+    /**
+     * The JSON of the SystemResponseDto of the system with the id in systemIdColumn, for the entities that build their
+     * search results in the database. Deleted systems are included, like the Java search path.
+     */
+    public static String getSystemJsonSql(String systemIdColumn) {
+        return "(SELECT json_build_object('key', '" + Keychain.SYSTEM_KEY + "', 'id', systems.id, 'name', systems.name, "
+                + "'generation', systems.generation, 'handheld', systems.handheld, "
+                + "'createdAt', " + getJsonTimestampSql("systems.created_at") + ", 'updatedAt', " + getJsonTimestampSql("systems.updated_at") + ", "
+                + "'deletedAt', " + getJsonTimestampSql("systems.deleted_at") + ", "
+                + "'customFieldValues', " + getCustomFieldValuesJsonSql("systems.id", Keychain.SYSTEM_KEY) + ")"
+                + " FROM systems WHERE systems.id = " + systemIdColumn + ")";
+    }
+
     protected void insertValidation(System system) throws ExceptionFailedDbValidation, ExceptionInvalidFilter {
         //Note: using a filter like this for dbValidation will prevent any names with blacklisted words or symbols from being entered into the database
         Filter nameFilter = new Filter("system", Filter.FIELD_TYPE_TEXT, "name", "equals", system.getName(), false);
@@ -89,36 +104,43 @@ public class SystemRepository extends EntityRepositoryAbstract<System, SystemReq
         }
     }
 
-    protected Integer insertImplementation(System system) {
-        final String sql = """
-                            INSERT INTO systems(name, generation, handheld, created_at, updated_at) VALUES (?, ?, ?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-
-        // This update call will take a preparedStatementCreator and a KeyHolder,
-        // the preparedStatementCreator takes a connection, the connection can
-        // include a Statement to hold the generated key and then put them in the
-        // KeyHolder.
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, system.getName());
-                    ps.setInt(2, system.getGeneration());
-                    ps.setBoolean(3, system.isHandheld());
-                    ps.setTimestamp(4, Timestamp.from(Instant.now()));
-                    ps.setTimestamp(5, Timestamp.from(Instant.now()));
-                    return ps;
-                },
-                keyHolder
-        );
-        return (Integer) keyHolder.getKeys().get("id");
+    protected System insertImplementation(System system) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return queryForPersistedRow(getInsertSql(), system.getName(), system.getGeneration(), system.isHandheld(), now, now);
+    }
+
+    @Override
+    protected List<System> insertAllImplementation(List<System> systems) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), systems, (ps, system) -> {
+            ps.setString(1, system.getName());
+            ps.setInt(2, system.getGeneration());
+            ps.setBoolean(3, system.isHandheld());
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+        }, getRowMapper());
+    }
+
+    //RETURNING hands back the row as it was written (id, timestamps) so it doesn't have to be read again
+    private String getInsertSql() {
+        return """
+                            INSERT INTO systems(name, generation, handheld, created_at, updated_at) VALUES (?, ?, ?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
+    }
+
+    //one query for the names of every system instead of a filtered search per system
+    @Override
+    protected void insertAllValidation(List<System> systems) {
+        if (!getByNames(systems.stream().map(System::getName).toList()).isEmpty()) {
+            throw new ExceptionFailedDbValidation("System insert failed, duplicate name found.");
+        }
     }
 
-    protected void updateImplementation(System system) {
+    protected System updateImplementation(System system) {
         final String sql = """
-                            UPDATE systems SET name = ?, generation = ?, handheld = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(
+                            UPDATE systems SET name = ?, generation = ?, handheld = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        return queryForPersistedRow(
                 sql,
                 system.getName(),
                 system.getGeneration(),
@@ -164,6 +186,53 @@ public class SystemRepository extends EntityRepositoryAbstract<System, SystemReq
         }
     }
 
+    //the name is unique so it can't be set on many systems at once
+    @Override
+    public Map<String, String> getBulkUpdateFields() {
+        return Map.of("generation", Filter.FIELD_TYPE_NUMBER, "handheld", Filter.FIELD_TYPE_BOOLEAN);
+    }
+
+    //the same rule as deleteById(), a system that is still used can't be deleted, the whole bulk delete is rolled back
+    @Override
+    protected void afterBulkDelete(List<Integer> deletedIds) {
+        final String sql = """
+                SELECT (SELECT COUNT(*) FROM video_games WHERE system_id = ANY(?) AND deleted_at IS NULL)
+                     + (SELECT COUNT(*) FROM video_game_boxes WHERE system_id = ANY(?) AND deleted_at IS NULL);
+                """;
+        final Integer[] ids = deletedIds.toArray(new Integer[0]);
+        final Integer usedCount = jdbcTemplate.queryForObject(sql, Integer.class, ids, ids);
+        if (null != usedCount && usedCount > 0) {
+            throw new ExceptionFailedDbValidation("Cannot delete these systems because they are currently being used by " + usedCount
+                    + " video games and video game boxes. Delete or move those first.");
+        }
+    }
+
+    //The systems already in the database with one of the given names, one query for the whole list
+    public List<System> getByNames(List<String> names) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND name = ANY(?)";
+        return jdbcTemplate.query(sql, getRowMapper(), (Object) names.toArray(new String[0]));
+    }
+
+    /**
+     * The backup import's update of the systems it found by name: the system with each of ids takes the generation and
+     * handheld of the system at the same index, with one UPDATE ... FROM unnest() for the list. Only the systems whose
+     * fields differ are written. Returns the ids of the updated systems.
+     */
+    public List<Integer> updateImportedFields(List<Integer> ids, List<System> systems) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String sql = """
+                UPDATE systems SET generation = imported.generation, handheld = imported.handheld, updated_at = now()
+                FROM unnest(?::int[], ?::int[], ?::boolean[]) AS imported(id, generation, handheld)
+                WHERE systems.id = imported.id AND systems.deleted_at IS NULL
+                  AND (systems.generation, systems.handheld) IS DISTINCT FROM (imported.generation, imported.handheld)
+                RETURNING systems.id;
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, ids.toArray(new Integer[0]),
+                systems.stream().map(System::getGeneration).toArray(Integer[]::new), systems.stream().map(System::isHandheld).toArray(Boolean[]::new));
+    }
+
     public int getIdByName(String name) {
         final String sql = getBaseQueryExcludeDeleted() + " AND name = ?";
         final System system;
@@ -1,12 +1,18 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.system;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Service
 public class SystemService extends EntityServiceAbstract<System, SystemRequestDto, SystemResponseDto, SystemRepository>
         implements EntityService<System, SystemRequestDto, SystemResponseDto> {
@@ -23,6 +29,31 @@ public class SystemService extends EntityServiceAbstract<System, SystemRequestDt
         return repository.insert(system);
     }
 
+    @Override
+    @Transactional
+    public List<System> createNewBulk(List<SystemRequestDto> systemRequestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<System> systems = buildBulk(systemRequestDtos, requestDto -> new System().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        checkBulkDuplicates(systems, newSystems -> repository.getByNames(newSystems.stream().map(System::getName).toList()),
+                system -> Arrays.asList(system.getName()), system -> "System with name: '" + system.getName() + "'", exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+        return repository.insertAll(systems);
+    }
+
+    //the backup import's create, a system already in the database gets its id instead of an error, see findOrInsertBulk()
+    public BulkImportResults importBulk(List<SystemRequestDto> systemRequestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<System> systems = buildBulk(systemRequestDtos, requestDto -> new System().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        return findOrInsertBulk(systems, newSystems -> repository.getByNames(newSystems.stream().map(System::getName).toList()),
+                system -> Arrays.asList(system.getName()), exceptionBulkRequest);
+    }
+
+    //the backup import's update of the systems it found, each of ids takes the non-key fields of the request at the same index
+    public List<Integer> updateImportedBulk(List<Integer> ids, List<SystemRequestDto> systemRequestDtos) {
+        return repository.updateImportedFields(ids, systemRequestDtos.stream().map(requestDto -> new System().updateFromRequestDto(requestDto)).toList());
+    }
+
     public int duplicationCheck(String name) {
         return getIdByName(name);
     }
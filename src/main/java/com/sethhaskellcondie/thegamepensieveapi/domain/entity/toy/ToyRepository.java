@@ -6,19 +6,17 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 
 @Repository
 public class ToyRepository extends EntityRepositoryAbstract<Toy, ToyRequestDto, ToyResponseDto> implements EntityRepository<Toy, ToyRequestDto, ToyResponseDto> {
@@ -27,8 +25,12 @@ public class ToyRepository extends EntityRepositoryAbstract<Toy, ToyRequestDto,
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
+    private String getColumns() {
+        return "toys.id, toys.name, toys.set, toys.created_at, toys.updated_at, toys.deleted_at";
+    }
+
     private String getSelectClause() {
-        return "SELECT toys.id, toys.name, toys.set, toys.created_at, toys.updated_at, toys.deleted_at ";
+        return "SELECT " + getColumns() + " ";
     }
 
     protected String getBaseQuery(boolean includeWhereClause) {
@@ -64,30 +66,33 @@ public class ToyRepository extends EntityRepositoryAbstract<Toy, ToyRequestDto,
         //no validation needed for Toy table
     }
 
-    protected Integer insertImplementation(Toy toy) {
-        final String sql = """
-                            INSERT INTO toys(name, set, created_at, updated_at) VALUES (?, ?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, toy.getName());
-                    ps.setString(2, toy.getSet());
-                    ps.setTimestamp(3, Timestamp.from(Instant.now()));
-                    ps.setTimestamp(4, Timestamp.from(Instant.now()));
-                    return ps;
-                },
-                keyHolder
-        );
-        return (Integer) keyHolder.getKeys().get("id");
+    protected Toy insertImplementation(Toy toy) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return queryForPersistedRow(getInsertSql(), toy.getName(), toy.getSet(), now, now);
     }
 
-    protected void updateImplementation(Toy toy) {
-        String sql = """
-                            UPDATE toys SET name = ?, set = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(
+    @Override
+    protected List<Toy> insertAllImplementation(List<Toy> toys) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), toys, (ps, toy) -> {
+            ps.setString(1, toy.getName());
+            ps.setString(2, toy.getSet());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+        }, getRowMapper());
+    }
+
+    private String getInsertSql() {
+        return """
+                            INSERT INTO toys(name, set, created_at, updated_at) VALUES (?, ?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
+    }
+
+    protected Toy updateImplementation(Toy toy) {
+        final String sql = """
+                            UPDATE toys SET name = ?, set = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        return queryForPersistedRow(
                 sql,
                 toy.getName(),
                 toy.getSet(),
@@ -107,6 +112,13 @@ public class ToyRepository extends EntityRepositoryAbstract<Toy, ToyRequestDto,
         }
     }
 
+    //The toys already in the database with the name and set of one of the given toys, one query for the whole list
+    public List<Toy> getByNamesAndSets(List<Toy> toys) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND (name, set) IN (SELECT * FROM unnest(?::text[], ?::text[]))";
+        return jdbcTemplate.query(sql, getRowMapper(),
+                toys.stream().map(Toy::getName).toArray(String[]::new), toys.stream().map(Toy::getSet).toArray(String[]::new));
+    }
+
     public int getIdByNameAndSet(String name, String set) {
         String sql = getBaseQueryExcludeDeleted() + " AND name = ? AND set = ?";
         final Toy toy;
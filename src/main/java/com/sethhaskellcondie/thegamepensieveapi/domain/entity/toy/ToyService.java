@@ -1,12 +1,18 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Service
 public class ToyService extends EntityServiceAbstract<Toy, ToyRequestDto, ToyResponseDto, ToyRepository> implements EntityService<Toy, ToyRequestDto, ToyResponseDto> {
 
@@ -24,6 +30,25 @@ public class ToyService extends EntityServiceAbstract<Toy, ToyRequestDto, ToyRes
         return repository.insert(toy);
     }
 
+    @Override
+    @Transactional
+    public List<Toy> createNewBulk(List<ToyRequestDto> toyRequestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<Toy> toys = buildBulk(toyRequestDtos, requestDto -> new Toy().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        checkBulkDuplicates(toys, repository::getByNamesAndSets, toy -> Arrays.asList(toy.getName(), toy.getSet()),
+                toy -> "Toy with name: '" + toy.getName() + "' and set: '" + toy.getSet() + "'", exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+        return repository.insertAll(toys);
+    }
+
+    //the backup import's create, a toy already in the database gets its id instead of an error, see findOrInsertBulk()
+    public BulkImportResults importBulk(List<ToyRequestDto> toyRequestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Toy> toys = buildBulk(toyRequestDtos, requestDto -> new Toy().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        return findOrInsertBulk(toys, repository::getByNamesAndSets, toy -> Arrays.asList(toy.getName(), toy.getSet()), exceptionBulkRequest);
+    }
+
     public int duplicationCheck(String name, String set) {
         return getIdByNameAndSet(name, set);
     }
@@ -1,12 +1,9 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,8 +11,6 @@ import java.util.Map;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
@@ -23,8 +18,10 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRe
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 
 @Repository
 public class VideoGameRepository extends EntityRepositoryAbstract<VideoGame, VideoGameRequestDto, VideoGameResponseDto>
@@ -33,8 +30,12 @@ public class VideoGameRepository extends EntityRepositoryAbstract<VideoGame, Vid
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
+    private String getColumns() {
+        return "video_games.id, video_games.title, video_games.system_id, video_games.created_at, video_games.updated_at, video_games.deleted_at";
+    }
+
     private String getSelectClause() {
-        return "SELECT video_games.id, video_games.title, video_games.system_id, video_games.created_at, video_games.updated_at, video_games.deleted_at ";
+        return "SELECT " + getColumns() + " ";
     }
 
     protected String getBaseQuery(boolean includeWhereClause) {
@@ -55,12 +56,10 @@ public class VideoGameRepository extends EntityRepositoryAbstract<VideoGame, Vid
             return;
         }
         final List<Integer> gameIds = games.stream().map(VideoGame::getId).toList();
-        final String placeholders = String.join(", ", Collections.nCopies(gameIds.size(), "?"));
-        final String sql = "SELECT video_game_id, video_game_box_id FROM video_game_to_video_game_box WHERE video_game_id IN ("
-                + placeholders + ") ORDER BY video_game_box_id";
+        final String sql = "SELECT video_game_id, video_game_box_id FROM video_game_to_video_game_box WHERE video_game_id = ANY(?) ORDER BY video_game_box_id";
         final List<int[]> pairs = jdbcTemplate.query(sql,
                 (resultSet, rowNumber) -> new int[]{resultSet.getInt("video_game_id"), resultSet.getInt("video_game_box_id")},
-                gameIds.toArray());
+                (Object) gameIds.toArray(new Integer[0]));
         final Map<Integer, List<Integer>> boxIdsByGameId = new HashMap<>();
         for (int[] pair : pairs) {
             boxIdsByGameId.computeIfAbsent(pair[0], key -> new ArrayList<>()).add(pair[1]);
@@ -70,6 +69,24 @@ public class VideoGameRepository extends EntityRepositoryAbstract<VideoGame, Vid
         }
     }
 
+    //the VideoGameResponseDto, the related boxes are the slim boxes that aren't deleted in box id order like setRelatedBoxIds()
+    @Override
+    protected String getJsonObjectSql() {
+        return "json_build_object('key', '" + Keychain.VIDEO_GAME_KEY + "', 'id', video_games.id, 'title', video_games.title, "
+                + "'system', " + SystemRepository.getSystemJsonSql("video_games.system_id") + ", "
+                + "'videoGameBoxes', coalesce((SELECT json_agg(json_build_object('id', video_game_boxes.id, 'title', video_game_boxes.title, "
+                + "'system', " + SystemRepository.getSystemJsonSql("video_game_boxes.system_id") + ", 'physical', video_game_boxes.is_physical, "
+                + "'collection', (SELECT count(*) FROM video_game_to_video_game_box AS box_games WHERE box_games.video_game_box_id = video_game_boxes.id) > 1, "
+                + "'createdAt', " + getJsonTimestampSql("video_game_boxes.created_at") + ", 'updatedAt', " + getJsonTimestampSql("video_game_boxes.updated_at") + ", "
+                + "'deletedAt', " + getJsonTimestampSql("video_game_boxes.deleted_at") + ", "
+                + "'customFieldValues', " + getCustomFieldValuesJsonSql("video_game_boxes.id", Keychain.VIDEO_GAME_BOX_KEY) + ") ORDER BY video_game_boxes.id)"
+                + " FROM video_game_to_video_game_box JOIN video_game_boxes ON video_game_to_video_game_box.video_game_box_id = video_game_boxes.id"
+                + " WHERE video_game_to_video_game_box.video_game_id = video_games.id AND video_game_boxes.deleted_at IS NULL), '[]'::json), "
+                + "'createdAt', " + getJsonTimestampSql("video_games.created_at") + ", 'updatedAt', " + getJsonTimestampSql("video_games.updated_at") + ", "
+                + "'deletedAt', " + getJsonTimestampSql("video_games.deleted_at") + ", "
+                + "'customFieldValues', " + getCustomFieldValuesJsonSql("video_games.id", Keychain.VIDEO_GAME_KEY) + ")";
+    }
+
     @Override
     public void deleteById(int id) {
         final String sql = """
@@ -116,31 +133,41 @@ public class VideoGameRepository extends EntityRepositoryAbstract<VideoGame, Vid
     }
 
     @Override
-    protected Integer insertImplementation(VideoGame entity) {
-        final String sql = """
-                            INSERT INTO video_games(title, system_id, created_at, updated_at) VALUES (?, ?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, entity.getTitle());
-                    ps.setInt(2, entity.getSystemId());
-                    ps.setTimestamp(3, Timestamp.from(Instant.now()));
-                    ps.setTimestamp(4, Timestamp.from(Instant.now()));
-                    return ps;
-                },
-                keyHolder
-        );
-        return (Integer) keyHolder.getKeys().get("id");
+    protected VideoGame insertImplementation(VideoGame entity) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return queryForPersistedRow(getInsertSql(), entity.getTitle(), entity.getSystemId(), now, now);
     }
 
     @Override
-    protected void updateImplementation(VideoGame entity) {
+    protected List<VideoGame> insertAllImplementation(List<VideoGame> videoGames) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        return JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), videoGames, (ps, videoGame) -> {
+            ps.setString(1, videoGame.getTitle());
+            ps.setInt(2, videoGame.getSystemId());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+        }, getRowMapper());
+    }
+
+    private String getInsertSql() {
+        return """
+                            INSERT INTO video_games(title, system_id, created_at, updated_at) VALUES (?, ?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
+    }
+
+    @Override
+    protected VideoGame updateImplementation(VideoGame entity) {
         final String sql = """
-                UPDATE video_games SET title = ?, system_id = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(sql, entity.getTitle(), entity.getSystemId(), Timestamp.from(Instant.now()), entity.getId());
+                UPDATE video_games SET title = ?, system_id = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        return queryForPersistedRow(sql, entity.getTitle(), entity.getSystemId(), Timestamp.from(Instant.now()), entity.getId());
+    }
+
+    //The video games already in the database with the title and system of one of the given games, one query for the whole list
+    public List<VideoGame> getByTitlesAndSystemIds(List<VideoGame> videoGames) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND (title, system_id) IN (SELECT * FROM unnest(?::text[], ?::int[]))";
+        return jdbcTemplate.query(sql, getRowMapper(),
+                videoGames.stream().map(VideoGame::getTitle).toArray(String[]::new), videoGames.stream().map(VideoGame::getSystemId).toArray(Integer[]::new));
     }
 
     public int getIdByTitleAndSystem(String title, int systemId) {
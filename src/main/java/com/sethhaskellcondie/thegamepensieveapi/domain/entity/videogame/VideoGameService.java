@@ -1,22 +1,26 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.SlimVideoGameBox;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBox;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionMalformedEntity;
-import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 
 @Service
@@ -33,8 +37,7 @@ public class VideoGameService extends EntityServiceAbstract<VideoGame, VideoGame
     }
 
     @Override
-    public List<VideoGame> getWithFilters(List<FilterRequestDto> dtoFilters) {
-        final List<VideoGame> videoGames = super.getWithFilters(dtoFilters);
+    protected List<VideoGame> hydrateSearchResults(List<VideoGame> videoGames) {
         if (videoGames.isEmpty()) {
             return videoGames;
         }
@@ -156,6 +159,64 @@ public class VideoGameService extends EntityServiceAbstract<VideoGame, VideoGame
         return savedVideoGame;
     }
 
+    @Override
+    @Transactional
+    public List<VideoGame> createNewBulk(List<VideoGameRequestDto> requestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<VideoGame> videoGames = prepareNewBulk(requestDtos, exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+        return insertNewBulk(videoGames);
+    }
+
+    /**
+     * Build a list of new video games without writing them: the systems of every game are validated with one query
+     * and the duplicates with another. The VideoGameBoxService uses this to validate the new games of a bulk box request.
+     */
+    public List<VideoGame> prepareNewBulk(List<VideoGameRequestDto> requestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<VideoGame> videoGames = buildBulk(requestDtos, requestDto -> new VideoGame().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        attachSystems(videoGames, exceptionBulkRequest);
+        checkBulkDuplicates(videoGames, repository::getByTitlesAndSystemIds, videoGame -> Arrays.asList(videoGame.getTitle(), videoGame.getSystemId()),
+                videoGame -> "VideoGame with title: '" + videoGame.getTitle() + "' and systemId: " + videoGame.getSystemId(), exceptionBulkRequest);
+        return videoGames;
+    }
+
+    //the backup import's create, a game already in the database (the same title and system) gets its id instead of an error, see findOrInsertBulk()
+    public BulkImportResults importBulk(List<VideoGameRequestDto> requestDtos, ExceptionBulkRequest exceptionBulkRequest) {
+        final List<VideoGame> videoGames = buildBulk(requestDtos, requestDto -> new VideoGame().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        attachSystems(videoGames, exceptionBulkRequest);
+        return findOrInsertBulk(videoGames, repository::getByTitlesAndSystemIds, videoGame -> Arrays.asList(videoGame.getTitle(), videoGame.getSystemId()),
+                exceptionBulkRequest);
+    }
+
+    //validate the system of every game with one query
+    private void attachSystems(List<VideoGame> videoGames, ExceptionBulkRequest exceptionBulkRequest) {
+        final Map<Integer, System> systemsById = getSystemsByIds(videoGames.stream().filter(Objects::nonNull).map(VideoGame::getSystemId).distinct().toList());
+        for (int i = 0; i < videoGames.size(); i++) {
+            final VideoGame videoGame = videoGames.get(i);
+            if (null == videoGame) {
+                continue;
+            }
+            final System system = systemsById.get(videoGame.getSystemId());
+            if (null == system) {
+                exceptionBulkRequest.addItemMessage(i, "Video game with title: '" + videoGame.getTitle() + "' had systemId: " + videoGame.getSystemId()
+                        + " but couldn't get a valid system from the database with that id.");
+            } else {
+                videoGame.setSystem(system);
+            }
+        }
+    }
+
+    //insert the video games built by prepareNewBulk() in one batch, the saved games keep their validated systems
+    public List<VideoGame> insertNewBulk(List<VideoGame> videoGames) {
+        final List<VideoGame> savedVideoGames = repository.insertAll(videoGames);
+        for (int i = 0; i < savedVideoGames.size(); i++) {
+            savedVideoGames.get(i).setSystem(videoGames.get(i).getSystem());
+        }
+        return savedVideoGames;
+    }
+
     @Override
     public VideoGame updateExisting(int id, VideoGameRequestDto requestDto) {
         VideoGame videoGame = repository.getById(id).updateFromRequestDto(requestDto);
@@ -5,27 +5,28 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRe
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.SlimVideoGame;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.JdbcBatch;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.lang.Integer.valueOf;
 
@@ -36,9 +37,13 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
         super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
+    private String getColumns() {
+        return "video_game_boxes.id, video_game_boxes.title, video_game_boxes.system_id, video_game_boxes.is_physical, video_game_boxes.is_collection, "
+                + "video_game_boxes.created_at, video_game_boxes.updated_at, video_game_boxes.deleted_at";
+    }
+
     private String getSelectClause() {
-        return "SELECT video_game_boxes.id, video_game_boxes.title, video_game_boxes.system_id, video_game_boxes.is_physical, video_game_boxes.is_collection, "
-                + "video_game_boxes.created_at, video_game_boxes.updated_at, video_game_boxes.deleted_at ";
+        return "SELECT " + getColumns() + " ";
     }
 
     protected String getBaseQuery(boolean includeWhereClause) {
@@ -53,6 +58,15 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
         setRelatedVideoGameIds(boxes);
     }
 
+    //A box is exported with its games, a box one of whose games changed has changed as well. So has a box whose natural
+    //key was renamed with its system (see V1_29), it is exported under the new one.
+    @Override
+    protected String getChangedSinceCondition() {
+        return "updated_at >= ? OR id IN (SELECT junction.video_game_box_id FROM video_game_to_video_game_box junction"
+                + " JOIN video_games ON video_games.id = junction.video_game_id WHERE video_games.updated_at >= ?)"
+                + " OR id IN (SELECT entity_id FROM renamed_natural_keys WHERE entity_key = '" + Keychain.VIDEO_GAME_BOX_KEY + "' AND renamed_at >= ?)";
+    }
+
     //Batch load the related game ids for every box in one query (instead of one query per box) to avoid N+1 queries.
     //The game ids are needed so that each box recomputes is_collection from its actual game count (see setVideoGameIds).
     private void setRelatedVideoGameIds(List<VideoGameBox> boxes) {
@@ -60,12 +74,10 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
             return;
         }
         final List<Integer> boxIds = boxes.stream().map(VideoGameBox::getId).toList();
-        final String placeholders = String.join(", ", Collections.nCopies(boxIds.size(), "?"));
-        final String sql = "SELECT video_game_box_id, video_game_id FROM video_game_to_video_game_box WHERE video_game_box_id IN ("
-                + placeholders + ") ORDER BY video_game_id";
+        final String sql = "SELECT video_game_box_id, video_game_id FROM video_game_to_video_game_box WHERE video_game_box_id = ANY(?) ORDER BY video_game_id";
         final List<int[]> pairs = jdbcTemplate.query(sql,
                 (resultSet, rowNumber) -> new int[]{resultSet.getInt("video_game_box_id"), resultSet.getInt("video_game_id")},
-                boxIds.toArray());
+                (Object) boxIds.toArray(new Integer[0]));
         final Map<Integer, List<Integer>> gameIdsByBoxId = new HashMap<>();
         for (int[] pair : pairs) {
             gameIdsByBoxId.computeIfAbsent(pair[0], key -> new ArrayList<>()).add(pair[1]);
@@ -75,6 +87,25 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
         }
     }
 
+    //the VideoGameBoxResponseDto, the games are the slim games that aren't deleted in game id order like setRelatedVideoGameIds()
+    @Override
+    protected String getJsonObjectSql() {
+        return "json_build_object('key', '" + Keychain.VIDEO_GAME_BOX_KEY + "', 'id', video_game_boxes.id, 'title', video_game_boxes.title, "
+                + "'system', " + SystemRepository.getSystemJsonSql("video_game_boxes.system_id") + ", "
+                + "'videoGames', coalesce((SELECT json_agg(json_build_object('id', video_games.id, 'title', video_games.title, "
+                + "'system', " + SystemRepository.getSystemJsonSql("video_games.system_id") + ", "
+                + "'createdAt', " + getJsonTimestampSql("video_games.created_at") + ", 'updatedAt', " + getJsonTimestampSql("video_games.updated_at") + ", "
+                + "'deletedAt', " + getJsonTimestampSql("video_games.deleted_at") + ", "
+                + "'customFieldValues', " + getCustomFieldValuesJsonSql("video_games.id", Keychain.VIDEO_GAME_KEY) + ") ORDER BY video_games.id)"
+                + " FROM video_game_to_video_game_box JOIN video_games ON video_game_to_video_game_box.video_game_id = video_games.id"
+                + " WHERE video_game_to_video_game_box.video_game_box_id = video_game_boxes.id AND video_games.deleted_at IS NULL), '[]'::json), "
+                + "'isPhysical', video_game_boxes.is_physical, "
+                + "'isCollection', (SELECT count(*) FROM video_game_to_video_game_box AS box_games WHERE box_games.video_game_box_id = video_game_boxes.id) > 1, "
+                + "'createdAt', " + getJsonTimestampSql("video_game_boxes.created_at") + ", 'updatedAt', " + getJsonTimestampSql("video_game_boxes.updated_at") + ", "
+                + "'deletedAt', " + getJsonTimestampSql("video_game_boxes.deleted_at") + ", "
+                + "'customFieldValues', " + getCustomFieldValuesJsonSql("video_game_boxes.id", Keychain.VIDEO_GAME_BOX_KEY) + ")";
+    }
+
     @Override
     @Transactional
     public void deleteById(int id) {
@@ -91,6 +122,130 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
         jdbcTemplate.update(sql2, id);
     }
 
+    @Override
+    public Map<String, String> getBulkUpdateFields() {
+        return Map.of("is_physical", Filter.FIELD_TYPE_BOOLEAN);
+    }
+
+    /**
+     * The bulk version of VideoGameBoxService.deleteById(): the games that were only in the deleted boxes are soft
+     * deleted with them, then the junction rows of the deleted boxes are removed, the same statements for any number of boxes.
+     */
+    @Override
+    protected void afterBulkDelete(List<Integer> deletedIds) {
+        final Integer[] ids = deletedIds.toArray(new Integer[0]);
+        final List<Integer> videoGameIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT video_game_id FROM video_game_to_video_game_box WHERE video_game_box_id = ANY(?);", Integer.class, (Object) ids);
+        deleteVideoGamesOnlyInBoxes(deletedIds, videoGameIds);
+        jdbcTemplate.update("DELETE FROM video_game_to_video_game_box WHERE video_game_box_id = ANY(?);", (Object) ids);
+    }
+
+    /**
+     * Soft delete the given video games that are not in any box other than the given boxes, a game can't exist without
+     * a box. One set-based statement instead of loading every game to count its boxes, returns the ids of the deleted games.
+     */
+    public List<Integer> deleteVideoGamesOnlyInBoxes(List<Integer> boxIds, List<Integer> videoGameIds) {
+        if (boxIds.isEmpty() || videoGameIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String sql = """
+                UPDATE video_games SET deleted_at = now()
+                WHERE deleted_at IS NULL
+                  AND id = ANY(?)
+                  AND NOT EXISTS (SELECT 1 FROM video_game_to_video_game_box AS other_boxes
+                                  WHERE other_boxes.video_game_id = video_games.id AND NOT other_boxes.video_game_box_id = ANY(?))
+                RETURNING id;
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, videoGameIds.toArray(new Integer[0]), boxIds.toArray(new Integer[0]));
+    }
+
+    /**
+     * The backup import's update of the boxes it found by title and system: the box with each of ids takes the
+     * isPhysical of the box at the same index, with one UPDATE ... FROM unnest() for the list. Only the boxes whose
+     * field differs are written. Returns the ids of the updated boxes.
+     */
+    public List<Integer> updateImportedFields(List<Integer> ids, List<VideoGameBox> videoGameBoxes) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String sql = """
+                UPDATE video_game_boxes SET is_physical = imported.is_physical, updated_at = now()
+                FROM unnest(?::int[], ?::boolean[]) AS imported(id, is_physical)
+                WHERE video_game_boxes.id = imported.id AND video_game_boxes.deleted_at IS NULL
+                  AND video_game_boxes.is_physical IS DISTINCT FROM imported.is_physical
+                RETURNING video_game_boxes.id;
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, ids.toArray(new Integer[0]), videoGameBoxes.stream().map(VideoGameBox::isPhysical).toArray(Boolean[]::new));
+    }
+
+    /**
+     * The bulk version of the game list sync in updateImplementation(): each of boxIds ends up with exactly the games at
+     * the same index of videoGameIds. The junction rows that are no longer wanted are removed and the missing ones added
+     * with one statement each for the whole list, the boxes that changed get their is_collection recomputed, and a
+     * removed game that is left in no box at all is soft deleted (a game can't exist without a box). Returns the ids of
+     * the deleted games.
+     */
+    public List<Integer> replaceVideoGames(List<Integer> boxIds, List<List<Integer>> videoGameIds) {
+        if (boxIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final List<Integer> pairBoxIds = new ArrayList<>();
+        final List<Integer> pairGameIds = new ArrayList<>();
+        for (int i = 0; i < boxIds.size(); i++) {
+            for (Integer videoGameId : videoGameIds.get(i)) {
+                pairBoxIds.add(boxIds.get(i));
+                pairGameIds.add(videoGameId);
+            }
+        }
+        final Integer[] boxes = boxIds.toArray(new Integer[0]);
+        final Integer[] pairBoxes = pairBoxIds.toArray(new Integer[0]);
+        final Integer[] pairGames = pairGameIds.toArray(new Integer[0]);
+
+        final String deleteSql = """
+                DELETE FROM video_game_to_video_game_box AS junction
+                WHERE junction.video_game_box_id = ANY(?)
+                  AND NOT EXISTS (SELECT 1 FROM unnest(?::int[], ?::int[]) AS wanted(video_game_box_id, video_game_id)
+                                  WHERE wanted.video_game_box_id = junction.video_game_box_id AND wanted.video_game_id = junction.video_game_id)
+                RETURNING junction.video_game_box_id, junction.video_game_id;
+                """;
+        final Set<Integer> changedBoxIds = new HashSet<>();
+        final Set<Integer> removedGameIds = new HashSet<>();
+        jdbcTemplate.query(deleteSql, (RowCallbackHandler) resultSet -> {
+            changedBoxIds.add(resultSet.getInt("video_game_box_id"));
+            removedGameIds.add(resultSet.getInt("video_game_id"));
+        }, boxes, pairBoxes, pairGames);
+
+        final String insertSql = """
+                INSERT INTO video_game_to_video_game_box(video_game_id, video_game_box_id)
+                SELECT DISTINCT wanted.video_game_id, wanted.video_game_box_id FROM unnest(?::int[], ?::int[]) AS wanted(video_game_box_id, video_game_id)
+                WHERE NOT EXISTS (SELECT 1 FROM video_game_to_video_game_box AS junction
+                                  WHERE junction.video_game_box_id = wanted.video_game_box_id AND junction.video_game_id = wanted.video_game_id)
+                RETURNING video_game_box_id;
+                """;
+        changedBoxIds.addAll(jdbcTemplate.queryForList(insertSql, Integer.class, pairBoxes, pairGames));
+        if (changedBoxIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final String collectionSql = """
+                UPDATE video_game_boxes SET updated_at = now(),
+                    is_collection = (SELECT count(*) FROM video_game_to_video_game_box AS box_games WHERE box_games.video_game_box_id = video_game_boxes.id) > 1
+                WHERE id = ANY(?);
+                """;
+        jdbcTemplate.update(collectionSql, (Object) changedBoxIds.toArray(new Integer[0]));
+        if (removedGameIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final String deleteGamesSql = """
+                UPDATE video_games SET deleted_at = now()
+                WHERE deleted_at IS NULL
+                  AND id = ANY(?)
+                  AND NOT EXISTS (SELECT 1 FROM video_game_to_video_game_box AS junction WHERE junction.video_game_id = video_games.id)
+                RETURNING id;
+                """;
+        return jdbcTemplate.queryForList(deleteGamesSql, Integer.class, (Object) removedGameIds.toArray(new Integer[0]));
+    }
+
     @Override
     protected String getEntityKey() {
         return Keychain.VIDEO_GAME_BOX_KEY;
@@ -128,40 +283,57 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
     }
 
     @Override
-    protected Integer insertImplementation(VideoGameBox videoGameBox) {
-        final String sql = """
-                INSERT INTO video_game_boxes(title, system_id, is_physical, is_collection, created_at, updated_at)
-                    VALUES(?, ?, ?, ?, ?, ?);
-                """;
-        final KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                    ps.setString(1, videoGameBox.getTitle());
-                    ps.setInt(2, videoGameBox.getSystemId());
-                    ps.setBoolean(3, videoGameBox.isPhysical());
-                    ps.setBoolean(4, videoGameBox.isCollection());
-                    ps.setTimestamp(5, Timestamp.from(Instant.now()));
-                    ps.setTimestamp(6, Timestamp.from(Instant.now()));
-                    return ps;
-                },
-                keyHolder
-        );
+    protected VideoGameBox insertImplementation(VideoGameBox videoGameBox) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        final VideoGameBox savedBox = queryForPersistedRow(getInsertSql(), videoGameBox.getTitle(), videoGameBox.getSystemId(), videoGameBox.isPhysical(), videoGameBox.isCollection(), now, now);
 
-        int videoGameBoxId = (Integer) keyHolder.getKeys().get("id");
         for (SlimVideoGame videoGame : videoGameBox.getVideoGames()) {
-            insertRelationshipBetweenGameAndBox(videoGame.id(), videoGameBoxId);
+            insertRelationshipBetweenGameAndBox(videoGame.id(), savedBox.getId());
+        }
+
+        return savedBox;
+    }
+
+    //the boxes in one batch, then every box's game relationships in a second batch
+    @Override
+    protected List<VideoGameBox> insertAllImplementation(List<VideoGameBox> videoGameBoxes) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        final List<VideoGameBox> savedBoxes = JdbcBatch.executeReturning(jdbcTemplate, getInsertSql(), videoGameBoxes, (ps, videoGameBox) -> {
+            ps.setString(1, videoGameBox.getTitle());
+            ps.setInt(2, videoGameBox.getSystemId());
+            ps.setBoolean(3, videoGameBox.isPhysical());
+            ps.setBoolean(4, videoGameBox.isCollection());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        }, getRowMapper());
+
+        final List<Object[]> relationships = new ArrayList<>();
+        for (int i = 0; i < savedBoxes.size(); i++) {
+            for (SlimVideoGame videoGame : videoGameBoxes.get(i).getVideoGames()) {
+                relationships.add(new Object[]{videoGame.id(), savedBoxes.get(i).getId()});
+            }
         }
+        jdbcTemplate.batchUpdate(getInsertRelationshipSql(), relationships);
+        return savedBoxes;
+    }
 
-        return videoGameBoxId;
+    private String getInsertSql() {
+        return """
+                INSERT INTO video_game_boxes(title, system_id, is_physical, is_collection, created_at, updated_at)
+                    VALUES(?, ?, ?, ?, ?, ?) RETURNING %s;
+                """.formatted(getColumns());
     }
 
     @Override
-    protected void updateImplementation(VideoGameBox videoGameBox) {
+    protected VideoGameBox updateImplementation(VideoGameBox videoGameBox) {
         final String sql = """
-                UPDATE video_game_boxes SET title = ?, system_id = ?, is_physical = ?, is_collection = ?, updated_at = ? WHERE id = ?;
-                """;
-        jdbcTemplate.update(sql, videoGameBox.getTitle(), videoGameBox.getSystemId(), videoGameBox.isPhysical(), videoGameBox.isCollection(), Timestamp.from(Instant.now()), videoGameBox.getId());
+                UPDATE video_game_boxes SET title = ?, system_id = ?, is_physical = ?, is_collection = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL RETURNING %s;
+                """.formatted(getColumns());
+        final VideoGameBox savedBox = queryForPersistedRow(sql, videoGameBox.getTitle(), videoGameBox.getSystemId(), videoGameBox.isPhysical(), videoGameBox.isCollection(),
+                Timestamp.from(Instant.now()), videoGameBox.getId());
+        if (null == savedBox) {
+            return null;
+        }
 
         final String joinTableSelect = """
                 SELECT video_game_id FROM video_game_to_video_game_box WHERE video_game_box_id = ?;
@@ -178,18 +350,17 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
             gameListIds.remove(videoGame.id());
         }
         if (!gameListIds.isEmpty()) {
-            final String inClause = String.join(",", Collections.nCopies(gameListIds.size(), "?"));
-            final String deleteSql = String.format("DELETE FROM video_game_to_video_game_box WHERE video_game_box_id = ? AND video_game_id IN (%s)", inClause);
-            final Object[] args = new Object[gameListIds.size() + 1];
-            final int[] argTypes = new int[gameListIds.size() + 1];
-            args[0] = videoGameBox.getId();
-            argTypes[0] = Types.INTEGER;
-            for (int i = 0; i < gameListIds.size(); i++) {
-                args[i + 1] = gameListIds.get(i);
-                argTypes[i + 1] = Types.INTEGER;
-            }
-            jdbcTemplate.update(deleteSql, args, argTypes);
+            final String deleteSql = "DELETE FROM video_game_to_video_game_box WHERE video_game_box_id = ? AND video_game_id = ANY(?)";
+            jdbcTemplate.update(deleteSql, videoGameBox.getId(), gameListIds.toArray(new Integer[0]));
         }
+        return savedBox;
+    }
+
+    //The boxes already in the database with the title and system of one of the given boxes, one query for the whole list
+    public List<VideoGameBox> getByTitlesAndSystemIds(List<VideoGameBox> videoGameBoxes) {
+        final String sql = getBaseQueryExcludeDeleted() + " AND (title, system_id) IN (SELECT * FROM unnest(?::text[], ?::int[]))";
+        return jdbcTemplate.query(sql, getRowMapper(),
+                videoGameBoxes.stream().map(VideoGameBox::getTitle).toArray(String[]::new), videoGameBoxes.stream().map(VideoGameBox::getSystemId).toArray(Integer[]::new));
     }
 
     public int getIdByTitleAndSystem(String title, int systemId) {
@@ -204,10 +375,13 @@ public class VideoGameBoxRepository extends EntityRepositoryAbstract<VideoGameBo
     }
 
     private void insertRelationshipBetweenGameAndBox(int videoGameId, int videoGameBoxId) {
-        final String sql = """
+        jdbcTemplate.update(getInsertRelationshipSql(), videoGameId, videoGameBoxId);
+    }
+
+    private String getInsertRelationshipSql() {
+        return """
                 INSERT INTO video_game_to_video_game_box(video_game_id, video_game_box_id)
                     VALUES(?, ?);
                 """;
-        jdbcTemplate.update(sql, videoGameId, videoGameBoxId);
     }
 }
@@ -1,5 +1,7 @@
 package com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox;
 
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.BulkImportResults;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityService;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityServiceAbstract;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
@@ -8,18 +10,23 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.SlimVide
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGame;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameService;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionBulkRequest;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionFailedDbValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionMalformedEntity;
-import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
 import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 
 @Service
 public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, VideoGameBoxRequestDto, VideoGameBoxResponseDto, VideoGameBoxRepository>
@@ -36,8 +43,7 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
     }
 
     @Override
-    public List<VideoGameBox> getWithFilters(List<FilterRequestDto> dtoFilters) {
-        final List<VideoGameBox> videoGameBoxes = super.getWithFilters(dtoFilters);
+    protected List<VideoGameBox> hydrateSearchResults(List<VideoGameBox> videoGameBoxes) {
         if (videoGameBoxes.isEmpty()) {
             return videoGameBoxes;
         }
@@ -114,21 +120,16 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
         }
         ExceptionMalformedEntity exceptionMalformedEntity = new ExceptionMalformedEntity();
         final VideoGameBox videoGameBox = new VideoGameBox().updateFromRequestDto(requestDto);
+        //the existing games are loaded with one batch, the same as a search
+        final Map<Integer, SlimVideoGame> slimGamesById = videoGameService.getSlimVideoGamesByIds(requestDto.existingVideoGameIds());
         List<SlimVideoGame> relatedVideoGames = new ArrayList<>();
         for (Integer videoGameId : requestDto.existingVideoGameIds()) {
-            try {
-                relatedVideoGames.add(videoGameService.getById(videoGameId).convertToSlimVideoGame());
-            } catch (ExceptionMalformedEntity videoGameMalformedException) {
-                exceptionMalformedEntity.appendExceptions(videoGameMalformedException.getExceptions());
-            }
-        }
-        for (VideoGameRequestDto videoGameRequestDto : requestDto.newVideoGames()) {
-            try {
-                relatedVideoGames.add(videoGameService.createNew(videoGameRequestDto).convertToSlimVideoGame());
-            } catch (ExceptionMalformedEntity videoGameMalformedException) {
-                exceptionMalformedEntity.appendExceptions(videoGameMalformedException.getExceptions());
+            if (!slimGamesById.containsKey(videoGameId)) {
+                throw new ExceptionResourceNotFound(Keychain.VIDEO_GAME_KEY, videoGameId);
             }
+            relatedVideoGames.add(slimGamesById.get(videoGameId));
         }
+        relatedVideoGames.addAll(createNewVideoGames(requestDto.newVideoGames(), exceptionMalformedEntity));
         if (requestDto.existingVideoGameIds().isEmpty() && requestDto.newVideoGames().isEmpty()) {
             exceptionMalformedEntity.addException("Error writing new video game box to the database, a video game box needs at least one game. Existing or new.");
         }
@@ -143,6 +144,190 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
         return savedVideoGameBox;
     }
 
+    @Override
+    @Transactional
+    public List<VideoGameBox> createNewBulk(List<VideoGameBoxRequestDto> requestDtos) {
+        final ExceptionBulkRequest exceptionBulkRequest = new ExceptionBulkRequest();
+        final List<VideoGameBox> videoGameBoxes = buildBulk(requestDtos, requestDto -> new VideoGameBox().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        checkBulkDuplicates(videoGameBoxes, repository::getByTitlesAndSystemIds, box -> Arrays.asList(box.getTitle(), box.getSystemId()),
+                box -> "VideoGameBox with title: '" + box.getTitle() + "' and systemId: " + box.getSystemId(), exceptionBulkRequest);
+        attachSystems(videoGameBoxes, exceptionBulkRequest);
+        final Map<Integer, List<SlimVideoGame>> existingGamesByIndex = getExistingVideoGames(requestDtos, videoGameBoxes, exceptionBulkRequest);
+        final Map<Integer, List<VideoGame>> newGamesByIndex = prepareNewVideoGames(requestDtos, videoGameBoxes, exceptionBulkRequest);
+        if (!exceptionBulkRequest.isEmpty()) {
+            throw exceptionBulkRequest;
+        }
+
+        //every new game of every box is written in one batch, the saved games come back in the same order
+        final Iterator<VideoGame> savedVideoGames = videoGameService.insertNewBulk(newGamesByIndex.values().stream().flatMap(List::stream).toList()).iterator();
+        for (int i = 0; i < videoGameBoxes.size(); i++) {
+            final List<SlimVideoGame> relatedVideoGames = new ArrayList<>(existingGamesByIndex.getOrDefault(i, List.of()));
+            for (int j = 0; j < newGamesByIndex.getOrDefault(i, List.of()).size(); j++) {
+                relatedVideoGames.add(savedVideoGames.next().convertToSlimVideoGame());
+            }
+            videoGameBoxes.get(i).setVideoGames(relatedVideoGames);
+        }
+        final List<VideoGameBox> savedVideoGameBoxes = repository.insertAll(videoGameBoxes);
+        for (int i = 0; i < savedVideoGameBoxes.size(); i++) {
+            savedVideoGameBoxes.get(i).setSystem(videoGameBoxes.get(i).getSystem());
+            savedVideoGameBoxes.get(i).setVideoGames(videoGameBoxes.get(i).getVideoGames());
+        }
+        return savedVideoGameBoxes;
+    }
+
+    /**
+     * The backup import's create of video game boxes, a box already in the database gets its id instead of an error (see
+     * findOrInsertBulk()). The games are only resolved for the boxes that are going to be written: resolveVideoGameIds
+     * gets the indexes of those boxes and returns the ids of the games of each (already in the database or just written),
+     * they are loaded with one batch. A box left without a game is reported and not written.
+     */
+    public BulkImportResults importBulk(List<VideoGameBoxRequestDto> requestDtos, Function<List<Integer>, Map<Integer, List<Integer>>> resolveVideoGameIds,
+                                        ExceptionBulkRequest exceptionBulkRequest) {
+        final List<VideoGameBox> videoGameBoxes = buildBulk(requestDtos, requestDto -> new VideoGameBox().updateFromRequestDto(requestDto), exceptionBulkRequest);
+        attachSystems(videoGameBoxes, exceptionBulkRequest);
+        return findOrInsertBulk(videoGameBoxes, repository::getByTitlesAndSystemIds, box -> Arrays.asList(box.getTitle(), box.getSystemId()),
+                newBoxes -> attachVideoGames(newBoxes, resolveVideoGameIds.apply(new ArrayList<>(newBoxes.keySet())), exceptionBulkRequest), exceptionBulkRequest);
+    }
+
+    /**
+     * The backup import's update of the boxes it found, each of ids takes the isPhysical of the request at the same
+     * index, and the games in its existingVideoGameIds: the games it no longer has are taken out of it (and deleted if
+     * they are left in no box), the ones it didn't have are put in. A request with no existingVideoGameIds keeps its
+     * games, a box always has at least one. Both are one statement for the whole list.
+     */
+    @Transactional
+    public void updateImportedBulk(List<Integer> ids, List<VideoGameBoxRequestDto> requestDtos) {
+        repository.updateImportedFields(ids, requestDtos.stream().map(requestDto -> new VideoGameBox().updateFromRequestDto(requestDto)).toList());
+        final List<Integer> boxIds = new ArrayList<>();
+        final List<List<Integer>> videoGameIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            final List<Integer> existingVideoGameIds = requestDtos.get(i).existingVideoGameIds();
+            if (null != existingVideoGameIds && !existingVideoGameIds.isEmpty()) {
+                boxIds.add(ids.get(i));
+                videoGameIds.add(existingVideoGameIds);
+            }
+        }
+        repository.replaceVideoGames(boxIds, videoGameIds);
+    }
+
+    private void attachVideoGames(Map<Integer, VideoGameBox> videoGameBoxes, Map<Integer, List<Integer>> videoGameIdsByIndex, ExceptionBulkRequest exceptionBulkRequest) {
+        final Map<Integer, SlimVideoGame> slimVideoGamesById = videoGameService.getSlimVideoGamesByIds(
+                videoGameIdsByIndex.values().stream().flatMap(List::stream).distinct().toList());
+        videoGameBoxes.forEach((index, videoGameBox) -> {
+            final List<SlimVideoGame> videoGames = new ArrayList<>();
+            for (Integer videoGameId : videoGameIdsByIndex.getOrDefault(index, List.of())) {
+                if (slimVideoGamesById.containsKey(videoGameId)) {
+                    videoGames.add(slimVideoGamesById.get(videoGameId));
+                } else {
+                    exceptionBulkRequest.addItemMessage(index, "Cannot create new VideoGameBox, no video game was found with the existing video game id: " + videoGameId);
+                }
+            }
+            if (videoGames.isEmpty()) {
+                exceptionBulkRequest.addItemMessage(index, "Error writing new video game box to the database, a video game box needs at least one game. Existing or new.");
+            } else {
+                videoGameBox.setVideoGames(videoGames);
+            }
+        });
+    }
+
+    //validate the system of every box with one query
+    private void attachSystems(List<VideoGameBox> videoGameBoxes, ExceptionBulkRequest exceptionBulkRequest) {
+        final Map<Integer, System> systemsById = new HashMap<>();
+        for (System system : systemRepository.getByIdsIncludeDeleted(videoGameBoxes.stream().filter(Objects::nonNull).map(VideoGameBox::getSystemId).distinct().toList())) {
+            systemsById.put(system.getId(), system);
+        }
+        for (int i = 0; i < videoGameBoxes.size(); i++) {
+            final VideoGameBox videoGameBox = videoGameBoxes.get(i);
+            if (null == videoGameBox) {
+                continue;
+            }
+            final System system = systemsById.get(videoGameBox.getSystemId());
+            if (null == system) {
+                exceptionBulkRequest.addItemMessage(i, "Video game box with title: '" + videoGameBox.getTitle() + "' had systemId: " + videoGameBox.getSystemId()
+                        + " but couldn't get a valid system from the database with that id.");
+            } else {
+                videoGameBox.setSystem(system);
+            }
+        }
+    }
+
+    //load the existing games of every box with one batch, keyed by the index of the box, a box needs at least one game
+    private Map<Integer, List<SlimVideoGame>> getExistingVideoGames(List<VideoGameBoxRequestDto> requestDtos, List<VideoGameBox> videoGameBoxes,
+                                                                    ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Integer> videoGameIds = new ArrayList<>();
+        for (int i = 0; i < videoGameBoxes.size(); i++) {
+            if (null != videoGameBoxes.get(i)) {
+                videoGameIds.addAll(existingVideoGameIds(requestDtos.get(i)));
+            }
+        }
+        final Map<Integer, SlimVideoGame> slimVideoGamesById = videoGameService.getSlimVideoGamesByIds(videoGameIds.stream().distinct().toList());
+        final Map<Integer, List<SlimVideoGame>> existingGamesByIndex = new HashMap<>();
+        for (int i = 0; i < videoGameBoxes.size(); i++) {
+            if (null == videoGameBoxes.get(i)) {
+                continue;
+            }
+            if (existingVideoGameIds(requestDtos.get(i)).isEmpty() && newVideoGames(requestDtos.get(i)).isEmpty()) {
+                exceptionBulkRequest.addItemMessage(i, "Error writing new video game box to the database, a video game box needs at least one game. Existing or new.");
+            }
+            final List<SlimVideoGame> existingGames = new ArrayList<>();
+            for (Integer videoGameId : existingVideoGameIds(requestDtos.get(i))) {
+                if (slimVideoGamesById.containsKey(videoGameId)) {
+                    existingGames.add(slimVideoGamesById.get(videoGameId));
+                } else {
+                    exceptionBulkRequest.addItemMessage(i, "Cannot create new VideoGameBox, no video game was found with the existing video game id: " + videoGameId);
+                }
+            }
+            existingGamesByIndex.put(i, existingGames);
+        }
+        return existingGamesByIndex;
+    }
+
+    //build (without inserting) the new games of every box as one list, the games are returned grouped by the index of their box
+    private Map<Integer, List<VideoGame>> prepareNewVideoGames(List<VideoGameBoxRequestDto> requestDtos, List<VideoGameBox> videoGameBoxes,
+                                                               ExceptionBulkRequest exceptionBulkRequest) {
+        final List<Integer> boxIndexes = new ArrayList<>();
+        final List<VideoGameRequestDto> videoGameRequestDtos = new ArrayList<>();
+        for (int i = 0; i < videoGameBoxes.size(); i++) {
+            if (null == videoGameBoxes.get(i)) {
+                continue;
+            }
+            for (VideoGameRequestDto videoGameRequestDto : newVideoGames(requestDtos.get(i))) {
+                boxIndexes.add(i);
+                videoGameRequestDtos.add(videoGameRequestDto);
+            }
+        }
+        final ExceptionBulkRequest videoGameExceptions = new ExceptionBulkRequest();
+        final List<VideoGame> videoGames = videoGameService.prepareNewBulk(videoGameRequestDtos, videoGameExceptions);
+        final Map<Integer, List<VideoGame>> newGamesByIndex = new LinkedHashMap<>();
+        for (int i = 0; i < boxIndexes.size(); i++) {
+            final int boxIndex = boxIndexes.get(i);
+            videoGameExceptions.getItemMessages(i).forEach(message -> exceptionBulkRequest.addItemMessage(boxIndex, "New video game error: " + message));
+            newGamesByIndex.computeIfAbsent(boxIndex, key -> new ArrayList<>()).add(videoGames.get(i));
+        }
+        return newGamesByIndex;
+    }
+
+    //validate the new games of one box together (one query for the systems and one for the duplicates) and insert them in one batch
+    private List<SlimVideoGame> createNewVideoGames(List<VideoGameRequestDto> videoGameRequestDtos, ExceptionMalformedEntity exceptionMalformedEntity) {
+        final ExceptionBulkRequest videoGameExceptions = new ExceptionBulkRequest();
+        final List<VideoGame> videoGames = videoGameService.prepareNewBulk(videoGameRequestDtos, videoGameExceptions);
+        if (!videoGameExceptions.isEmpty()) {
+            for (int i = 0; i < videoGameRequestDtos.size(); i++) {
+                videoGameExceptions.getItemMessages(i).forEach(exceptionMalformedEntity::addException);
+            }
+            return new ArrayList<>();
+        }
+        return videoGameService.insertNewBulk(videoGames).stream().map(VideoGame::convertToSlimVideoGame).toList();
+    }
+
+    private List<Integer> existingVideoGameIds(VideoGameBoxRequestDto requestDto) {
+        return null == requestDto.existingVideoGameIds() ? List.of() : requestDto.existingVideoGameIds();
+    }
+
+    private List<VideoGameRequestDto> newVideoGames(VideoGameBoxRequestDto requestDto) {
+        return null == requestDto.newVideoGames() ? List.of() : requestDto.newVideoGames();
+    }
+
     @Override
     @Transactional
     public VideoGameBox updateExisting(int videoGameBoxId, VideoGameBoxRequestDto requestDto) {
@@ -150,30 +335,22 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
         if (requestDto.existingVideoGameIds().isEmpty() && requestDto.newVideoGames().isEmpty()) {
             throw new ExceptionMalformedEntity("Error updating existing video game box to the database, a video game box needs at least one game. Existing or new.");
         }
-        ExceptionMalformedEntity exceptionMalformedEntity = new ExceptionMalformedEntity();
-        List<Integer> relatedGameIds = new ArrayList<>();
-        try {
-            relatedGameIds = removeGamesFromExistingBox(videoGameBox, requestDto);
-        } catch (ExceptionMalformedEntity exception) {
-            exceptionMalformedEntity = exception;
-        }
+        final ExceptionMalformedEntity exceptionMalformedEntity = new ExceptionMalformedEntity();
+        final List<Integer> relatedGameIds = removeGamesFromExistingBox(videoGameBox, requestDto);
 
+        //the kept and added games are loaded with one batch, the same as a search
+        final Map<Integer, SlimVideoGame> slimGamesById = videoGameService.getSlimVideoGamesByIds(relatedGameIds);
         List<SlimVideoGame> relatedVideoGames = new ArrayList<>();
         for (Integer id : relatedGameIds) {
-            try {
-                relatedVideoGames.add(videoGameService.getById(id).convertToSlimVideoGame());
-            } catch (Exception e) {
-                exceptionMalformedEntity.addException("Error updating video game box: Problem validating related video game with ID - " + id + ":" + e.getMessage());
+            if (slimGamesById.containsKey(id)) {
+                relatedVideoGames.add(slimGamesById.get(id));
+            } else {
+                exceptionMalformedEntity.addException("Error updating video game box: Problem validating related video game with ID - " + id
+                        + ": no video game was found with that id.");
             }
         }
 
-        for (VideoGameRequestDto videoGameRequestDto : requestDto.newVideoGames()) {
-            try {
-                relatedVideoGames.add(videoGameService.createNew(videoGameRequestDto).convertToSlimVideoGame());
-            } catch (Exception e) {
-                exceptionMalformedEntity.addException(e);
-            }
-        }
+        relatedVideoGames.addAll(createNewVideoGames(requestDto.newVideoGames(), exceptionMalformedEntity));
         if (!exceptionMalformedEntity.isEmpty()) {
             throw exceptionMalformedEntity;
         }
@@ -188,28 +365,11 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
     }
 
     private List<Integer> removeGamesFromExistingBox(VideoGameBox videoGameBox, VideoGameBoxRequestDto requestDto) {
-        ExceptionMalformedEntity exceptionMalformedEntity = new ExceptionMalformedEntity();
-        List<Integer> relatedGameIds = videoGameBox.getVideoGameIds();
-        
-        Iterator<Integer> iterator = relatedGameIds.iterator();
-        while (iterator.hasNext()) {
-            Integer id = iterator.next();
-            try {
-                if (!requestDto.existingVideoGameIds().contains(id)) {
-                    VideoGame videoGame = videoGameService.getById(id);
-                    iterator.remove();
-                    //if this video game is the only game associated to this video game box then delete it
-                    if (videoGame.getVideoGameBoxes().size() == 1) {
-                        videoGameService.deleteById(id);
-                    }
-                }
-            } catch (Exception e) {
-                exceptionMalformedEntity.addException("Error updating video game box: " + e.getMessage());
-            }
-        }
-        if (!exceptionMalformedEntity.isEmpty()) {
-            throw exceptionMalformedEntity;
-        }
+        final List<Integer> relatedGameIds = new ArrayList<>(videoGameBox.getVideoGameIds());
+        final List<Integer> removedGameIds = relatedGameIds.stream().filter(id -> !requestDto.existingVideoGameIds().contains(id)).toList();
+        relatedGameIds.removeAll(removedGameIds);
+        //if this video game box is the only box of a removed video game then delete it
+        repository.deleteVideoGamesOnlyInBoxes(List.of(videoGameBox.getId()), removedGameIds);
 
         for (Integer id : requestDto.existingVideoGameIds()) {
             if (!relatedGameIds.contains(id)) {
@@ -223,17 +383,8 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
     @Transactional
     public void deleteById(int id) {
         VideoGameBox videoGameBox = getById(id);
-        List<VideoGame> markedForDeletion = new ArrayList<>();
-        for (SlimVideoGame slimVideoGame : videoGameBox.getVideoGames()) {
-            VideoGame videoGame = videoGameService.getById(slimVideoGame.id());
-            //if this video game is the only game associated to this video game box then delete it as well as the box.
-            if (videoGame.getVideoGameBoxes().size() == 1) {
-                markedForDeletion.add(videoGame);
-            }
-        }
-        for (VideoGame videoGame : markedForDeletion) {
-            videoGameService.deleteById(videoGame.getId());
-        }
+        //if this video game box is the only box of a video game then delete it as well as the box, one statement for every game
+        repository.deleteVideoGamesOnlyInBoxes(List.of(id), videoGameBox.getVideoGameIds());
         repository.deleteById(id);
     }
 
@@ -260,13 +411,15 @@ public class VideoGameBoxService extends EntityServiceAbstract<VideoGameBox, Vid
                     + "', but there were not video game ids found on that object");
             throw exceptionMalformedEntity;
         }
+        //every game is loaded with one batch (the same as a search) instead of a getById() per game
+        final Map<Integer, SlimVideoGame> slimGamesById = videoGameService.getSlimVideoGamesByIds(videoGameBox.getVideoGameIds());
         List<SlimVideoGame> videoGames = new ArrayList<>();
         for (Integer videoGameId : videoGameBox.getVideoGameIds()) {
-            try {
-                videoGames.add(videoGameService.getById(videoGameId).convertToSlimVideoGame());
-            } catch (Exception e) {
+            if (slimGamesById.containsKey(videoGameId)) {
+                videoGames.add(slimGamesById.get(videoGameId));
+            } else {
                 exceptionMalformedEntity.addException("Attempted to validate the video games for video game box with title: '" + videoGameBox.getTitle()
-                        + "', but there was an error getting video game data: " + e.getMessage());
+                        + "', but there was an error getting video game data for video game with id " + videoGameId + ".");
             }
         }
         if (!exceptionMalformedEntity.isEmpty()) {
@@ -0,0 +1,47 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The errors of a bulk request, each one tied to the index of the item (in the request's list) that caused it so
+ * the client can tell which items to fix. The messages are returned in item order.
+ */
+public class ExceptionBulkRequest extends MultiException {
+    private final Map<Integer, List<String>> messagesByItem = new TreeMap<>();
+
+    public ExceptionBulkRequest() {
+        super();
+        this.messagePrefix = "Bulk Request Error - ";
+    }
+
+    public void addItemException(int index, Exception exception) {
+        if (exception instanceof MultiException multiException) {
+            multiException.getMessages().forEach(message -> addItemMessage(index, message));
+            return;
+        }
+        addItemMessage(index, exception.getMessage());
+    }
+
+    public void addItemMessage(int index, String message) {
+        messagesByItem.computeIfAbsent(index, key -> new ArrayList<>()).add(message);
+        exceptions.add(new Exception("Item " + index + ": " + message));
+    }
+
+    public boolean hasItemErrors(int index) {
+        return messagesByItem.containsKey(index);
+    }
+
+    public List<String> getItemMessages(int index) {
+        return messagesByItem.getOrDefault(index, List.of());
+    }
+
+    @Override
+    public List<String> getMessages() {
+        final List<String> errorMessages = new ArrayList<>();
+        messagesByItem.forEach((index, messages) -> messages.forEach(message -> errorMessages.add("Item " + index + ": " + message)));
+        return errorMessages;
+    }
+}
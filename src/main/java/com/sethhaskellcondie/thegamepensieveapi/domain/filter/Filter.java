@@ -29,6 +29,8 @@ public class Filter {
     public static final String OPERATOR_CONTAINS = "contains";
     public static final String OPERATOR_STARTS_WITH = "starts_with";
     public static final String OPERATOR_ENDS_WITH = "ends_with";
+    public static final String OPERATOR_ICONTAINS = "icontains";
+    public static final String OPERATOR_ISTARTS_WITH = "istarts_with";
     public static final String OPERATOR_GREATER_THAN = "greater_than";
     public static final String OPERATOR_LESS_THAN = "less_than";
     public static final String OPERATOR_GREATER_THAN_EQUAL_TO = "greater_than_equal_to";
@@ -39,6 +41,7 @@ public class Filter {
     public static final String OPERATOR_ORDER_BY_DESC = "order_by_desc";
     public static final String OPERATOR_LIMIT = "limit";
     public static final String OPERATOR_OFFSET = "offset";
+    public static final String OPERATOR_CURSOR = "cursor";
 
     private final String key;
     private final String type;
@@ -0,0 +1,76 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The continuation token for cursor (keyset) pagination. Instead of skipping rows with OFFSET the next page is found
+ * with a seek predicate, "the rows that sort after the last row of the previous page", so a deep page costs the same
+ * as the first one.
+ * <p>
+ * The token holds the last row's value for every active sort key (as text, the SQL casts them back) and its id, which
+ * is always the final tiebreaker. sortSignature is a fingerprint of the sort filters the token was issued for, a token
+ * replayed against a different sort is rejected instead of silently returning the wrong page.
+ * <p>
+ * The token is opaque to clients: URL safe base64 of a small JSON document, with no padding so it never contains the
+ * '=' that the filter blacklist rejects.
+ */
+public record FilterCursor(int sortSignature, List<String> values, int lastId) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public String encode() {
+        try {
+            final byte[] json = MAPPER.writeValueAsBytes(this);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException exception) {
+            throw new ExceptionInternalError("Unable to encode the search cursor.", exception);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    public static FilterCursor decode(String token) {
+        try {
+            final byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII));
+            final FilterCursor cursor = MAPPER.readValue(json, FilterCursor.class);
+            if (null == cursor.values()) {
+                throw new IllegalArgumentException("Cursor is missing its sort values.");
+            }
+            return cursor;
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Malformed cursor.", exception);
+        }
+    }
+
+    public static boolean isFirstPage(Filter cursorFilter) {
+        return null == cursorFilter.getOperand() || cursorFilter.getOperand().isBlank();
+    }
+
+    /**
+     * The sort filters (in their validated order) that a cursor has to line up with.
+     */
+    public static int computeSortSignature(List<Filter> orderedFilters) {
+        final List<String> sorts = new ArrayList<>();
+        for (Filter filter : orderedFilters) {
+            if (Filter.OPERATOR_ORDER_BY.equals(filter.getOperator()) || Filter.OPERATOR_ORDER_BY_DESC.equals(filter.getOperator())) {
+                sorts.add(filter.getField() + ":" + filter.getOperator());
+            }
+        }
+        return sorts.hashCode();
+    }
+
+    /**
+     * A single ORDER BY term of a cursor search. The expression is selected alongside the row (cast to text) so the
+     * next token can be built from the last row, and compared against the bound token value cast back to sqlType.
+     */
+    public record SortKey(String expression, boolean descending, String sqlType) { }
+}
@@ -0,0 +1,16 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import java.util.List;
+
+/**
+ * The value counts for one facet of a search, what a filter sidebar needs without downloading the results.
+ * <p>
+ * field and type are the filter field the facet narrows, so a value can be sent straight back as an 'equals' filter
+ * on that field. customFieldId is only set for custom fields, their values are the selected options: value is the
+ * option id (what an enum filter compares against) and name is the option name. Built-in facets have no name, their
+ * value is the column value (a boolean or a system id).
+ */
+public record FilterFacet(String field, String type, Integer customFieldId, List<Value> values) {
+
+    public record Value(Object value, String name, long count) { }
+}
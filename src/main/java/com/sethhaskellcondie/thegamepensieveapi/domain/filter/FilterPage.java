@@ -0,0 +1,25 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import java.util.List;
+
+/**
+ * One page of search results. nextCursor is only set for cursor searches that filled the page (there may be more rows),
+ * send it back as the operand of the 'cursor' filter to get the next page. It is null on the last page and for every
+ * search that does not use a cursor.
+ * <p>
+ * totalCount is the number of rows the filters match across every page, it is only set when the search asked for it.
+ */
+public record FilterPage<T>(List<T> results, String nextCursor, Long totalCount) {
+
+    public FilterPage(List<T> results, String nextCursor) {
+        this(results, nextCursor, null);
+    }
+
+    public static <T> FilterPage<T> of(List<T> results) {
+        return new FilterPage<>(results, null, null);
+    }
+
+    public <R> FilterPage<R> withResults(List<R> newResults) {
+        return new FilterPage<>(newResults, nextCursor, totalCount);
+    }
+}
@@ -0,0 +1,81 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInternalError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled getWithFilters() query: the finished SQL string and the order the incoming filters must be bound in.
+ * <p>
+ * validateAndOrderFilters() reorders the filters into where -> sort -> cursor -> limit -> offset and formatOperands() must see
+ * them in that same order, so instead of caching the ordered list (which holds the operands of the request that
+ * compiled the plan) the plan remembers the permutation: filterOrder.get(n) is the index in the incoming list of the
+ * filter that is bound n-th. Any later request with the same {@link FilterPlanKey} can be bound through it.
+ * <p>
+ * countSql counts every row the filters match, ignoring the page, and facetSql counts the values of every facet of
+ * those rows (null when the entity has nothing to facet on). Both are bound with the operands of
+ * {@link FilterService#getCountFilters(List)} and only run when asked for.
+ */
+public record FilterPlan(String sql, List<Integer> filterOrder, int cursorValueCount, String countSql, String facetSql) {
+
+    /**
+     * cursorValueCount is the number of sort values a cursor search selects as cursor_key_1..n for the next token,
+     * or NOT_A_CURSOR_SEARCH for a regular search.
+     */
+    public static final int NOT_A_CURSOR_SEARCH = -1;
+
+    public FilterPlan(String sql, List<Integer> filterOrder) {
+        this(sql, filterOrder, NOT_A_CURSOR_SEARCH, null, null);
+    }
+
+    public FilterPlan withCountSql(String newCountSql) {
+        return new FilterPlan(sql, filterOrder, cursorValueCount, newCountSql, facetSql);
+    }
+
+    public FilterPlan withFacetSql(String newFacetSql) {
+        return new FilterPlan(sql, filterOrder, cursorValueCount, countSql, newFacetSql);
+    }
+
+    public boolean isCursorSearch() {
+        return cursorValueCount != NOT_A_CURSOR_SEARCH;
+    }
+
+    public static FilterPlan compile(String sql, List<Filter> incomingFilters, List<Filter> orderedFilters) {
+        return compile(sql, incomingFilters, orderedFilters, NOT_A_CURSOR_SEARCH);
+    }
+
+    public static FilterPlan compile(String sql, List<Filter> incomingFilters, List<Filter> orderedFilters, int cursorValueCount) {
+        final List<Integer> filterOrder = new ArrayList<>(orderedFilters.size());
+        for (Filter orderedFilter : orderedFilters) {
+            //identity not equality, Filter doesn't override equals() and the same filter may legitimately be sent twice
+            int index = -1;
+            for (int i = 0; i < incomingFilters.size(); i++) {
+                if (incomingFilters.get(i) == orderedFilter && !filterOrder.contains(i)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                throw new ExceptionInternalError("Malformed filter plan, the ordered filters were not taken from the incoming filters.");
+            }
+            filterOrder.add(index);
+        }
+        return new FilterPlan(sql, List.copyOf(filterOrder), cursorValueCount, null, null);
+    }
+
+    /**
+     * Arrange the filters of a request into the order this plan binds them in. The filters must have the same
+     * {@link FilterPlanKey} as the filters the plan was compiled from.
+     */
+    public List<Filter> orderFilters(List<Filter> incomingFilters) {
+        if (incomingFilters.size() != filterOrder.size()) {
+            throw new ExceptionInternalError("Filter plan was reused for a list of filters with a different shape.");
+        }
+        final List<Filter> orderedFilters = new ArrayList<>(filterOrder.size());
+        for (Integer index : filterOrder) {
+            orderedFilters.add(incomingFilters.get(index));
+        }
+        return orderedFilters;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, least recently used cache of compiled {@link FilterPlan}s. Each entity repository owns one, the front end
+ * sends the same handful of search shapes over and over so a small cache covers nearly every request.
+ * <p>
+ * Plans are compiled outside the lock, two requests racing on a new shape will both compile it and the second put
+ * wins, which is harmless because both plans are identical. A compile that fails validation throws and caches nothing.
+ */
+public class FilterPlanCache {
+    public static final int DEFAULT_MAX_PLANS = 256;
+
+    private final Map<FilterPlanKey, FilterPlan> plans;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FilterPlanCache() {
+        this(DEFAULT_MAX_PLANS);
+    }
+
+    public FilterPlanCache(int maxPlans) {
+        //access ordered LinkedHashMap so removeEldestEntry() evicts the least recently used plan
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FilterPlanKey, FilterPlan> eldest) {
+                return size() > maxPlans;
+            }
+        };
+    }
+
+    public FilterPlan getOrCompile(FilterPlanKey key, Supplier<FilterPlan> compiler) {
+        FilterPlan plan;
+        synchronized (plans) {
+            plan = plans.get(key);
+        }
+        if (null != plan) {
+            hits.incrementAndGet();
+            return plan;
+        }
+        misses.incrementAndGet();
+        plan = compiler.get();
+        synchronized (plans) {
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identifies a {@link FilterPlan}: everything that decides the SQL of a getWithFilters() call and nothing that is only
+ * bound into it.
+ * <p>
+ * schemaVersion is the owner's custom field definitions for the entity (id, name, type). The definitions are read at
+ * the start of every search anyway, so using them as the version means a create, rename, or delete of a custom field
+ * changes the key on the very next search, on every node, with no invalidation to remember. Options are left out
+ * because an option's id is an operand and its display_order is read at query time.
+ * <p>
+ * shape is the field, type, and operator of each filter in request order. Operands are left out on purpose, that is
+ * what lets "name contains Mario" and "name contains Zelda" share a plan.
+ */
+public record FilterPlanKey(String entityKey, List<SchemaField> schemaVersion, List<FilterShape> shape) {
+
+    public static FilterPlanKey of(String entityKey, List<CustomField> customFields, List<Filter> filters) {
+        final List<SchemaField> schemaVersion = new ArrayList<>(customFields.size());
+        for (CustomField customField : customFields) {
+            schemaVersion.add(new SchemaField(customField.id(), customField.name(), customField.type()));
+        }
+        final List<FilterShape> shape = new ArrayList<>(filters.size());
+        for (Filter filter : filters) {
+            //the first page of a cursor search has no seek predicate, so it compiles to different SQL than the pages after it
+            final boolean seeks = Filter.OPERATOR_CURSOR.equals(filter.getOperator()) && !FilterCursor.isFirstPage(filter);
+            shape.add(new FilterShape(filter.getKey(), filter.getType(), filter.getField(), filter.getOperator(), filter.isCustom(), seeks));
+        }
+        return new FilterPlanKey(entityKey, schemaVersion, shape);
+    }
+
+    record SchemaField(int id, String name, String type) { }
+
+    record FilterShape(String key, String type, String field, String operator, boolean isCustom, boolean seeks) { }
+}
@@ -14,6 +14,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.FIELD_TYPE_BOOLEAN;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.FIELD_TYPE_NUMBER;
@@ -24,10 +25,13 @@ import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.FIEL
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.FIELD_TYPE_TIME;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_BEFORE;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_CONTAINS;
+import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_CURSOR;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_ENDS_WITH;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_EQUALS;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_GREATER_THAN;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_GREATER_THAN_EQUAL_TO;
+import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_ICONTAINS;
+import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_ISTARTS_WITH;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_LESS_THAN;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_LESS_THAN_EQUAL_TO;
 import static com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter.OPERATOR_LIMIT;
@@ -140,6 +144,9 @@ public class FilterService {
                 filters.add(OPERATOR_CONTAINS);
                 filters.add(OPERATOR_STARTS_WITH);
                 filters.add(OPERATOR_ENDS_WITH);
+                //case-insensitive (ILIKE), these are what a typeahead search box should use, see V1_21 for the indexes
+                filters.add(OPERATOR_ICONTAINS);
+                filters.add(OPERATOR_ISTARTS_WITH);
             }
             case FIELD_TYPE_NUMBER -> {
                 filters.add(OPERATOR_EQUALS);
@@ -176,6 +183,7 @@ public class FilterService {
             case FIELD_TYPE_PAGINATION -> {
                 filters.add(OPERATOR_LIMIT);
                 filters.add(OPERATOR_OFFSET);
+                filters.add(OPERATOR_CURSOR);
             }
             default -> {
                 return new ArrayList<>();
@@ -218,23 +226,46 @@ public class FilterService {
                 exceptionInvalidFilter.addException(filter.getField() + " is not allowed with operator " + filter.getOperator() + ".");
             }
 
-            if (null == fieldType) {
-                continue;
-            }
-            switch (fieldType) {
-                case FIELD_TYPE_NUMBER, FIELD_TYPE_PAGINATION -> exceptionInvalidFilter = additionalNumberAndPaginationFilterValidation(filter, exceptionInvalidFilter);
-                case FIELD_TYPE_BOOLEAN -> exceptionInvalidFilter = additionalBooleanFilterValidation(filter, exceptionInvalidFilter);
-                case FIELD_TYPE_SYSTEM -> exceptionInvalidFilter = additionalSystemFilterValidation(filter, exceptionInvalidFilter);
-                case Filter.FIELD_TYPE_DROPDOWN, Filter.FIELD_TYPE_RADIO_BUTTON, Filter.FIELD_TYPE_PROGRESS_BAR ->
-                        exceptionInvalidFilter = additionalOptionFilterValidation(filter, exceptionInvalidFilter);
-                case FIELD_TYPE_TIME -> exceptionInvalidFilter = additionalTimeValidation(filter, exceptionInvalidFilter);
-                default -> { }
-            }
+            exceptionInvalidFilter = additionalOperandValidation(filter, fieldType, exceptionInvalidFilter);
         }
 
         return orderFilters(filters, exceptionInvalidFilter);
     }
 
+    /**
+     * The operand half of {@link #validateAndOrderFilters(List, List)}, used when a compiled {@link FilterPlan} is
+     * reused. A cached plan was only ever compiled from a filter list that passed the full validation, and the plan key
+     * pins the field, type, and operator of every filter, so the only thing left that can be wrong is the operand
+     * values: those are re-checked here on every call.
+     */
+    public static void validateOperands(List<Filter> filters) throws ExceptionInvalidFilter {
+        ExceptionInvalidFilter exceptionInvalidFilter = new ExceptionInvalidFilter();
+        for (Filter filter : filters) {
+            exceptionInvalidFilter = checkForBlacklistedWords(filter, exceptionInvalidFilter);
+            exceptionInvalidFilter = additionalOperandValidation(filter, filter.getType(), exceptionInvalidFilter);
+        }
+        exceptionInvalidFilter = additionalCursorValidation(filters, exceptionInvalidFilter);
+        if (!exceptionInvalidFilter.isEmpty()) {
+            throw exceptionInvalidFilter;
+        }
+    }
+
+    private static ExceptionInvalidFilter additionalOperandValidation(Filter filter, String fieldType, ExceptionInvalidFilter exceptionInvalidFilter) {
+        if (null == fieldType) {
+            return exceptionInvalidFilter;
+        }
+        switch (fieldType) {
+            case FIELD_TYPE_NUMBER, FIELD_TYPE_PAGINATION -> exceptionInvalidFilter = additionalNumberAndPaginationFilterValidation(filter, exceptionInvalidFilter);
+            case FIELD_TYPE_BOOLEAN -> exceptionInvalidFilter = additionalBooleanFilterValidation(filter, exceptionInvalidFilter);
+            case FIELD_TYPE_SYSTEM -> exceptionInvalidFilter = additionalSystemFilterValidation(filter, exceptionInvalidFilter);
+            case Filter.FIELD_TYPE_DROPDOWN, Filter.FIELD_TYPE_RADIO_BUTTON, Filter.FIELD_TYPE_PROGRESS_BAR ->
+                    exceptionInvalidFilter = additionalOptionFilterValidation(filter, exceptionInvalidFilter);
+            case FIELD_TYPE_TIME -> exceptionInvalidFilter = additionalTimeValidation(filter, exceptionInvalidFilter);
+            default -> { }
+        }
+        return exceptionInvalidFilter;
+    }
+
     private static Map<String, String> getFiltersByKeyIncludingCustomFields(String key, List<CustomField> customFields) {
         Map<String, String> fields = FilterEntity.getNonCustomFieldFiltersByKey(key);
         for (CustomField customField : customFields) {
@@ -256,6 +287,10 @@ public class FilterService {
         if (Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY) || Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY_DESC)) {
             return exceptionInvalidFilter;
         }
+        //the cursor operand is a token not a number, it is checked against the sort filters in additionalCursorValidation()
+        if (Objects.equals(filter.getOperator(), OPERATOR_CURSOR)) {
+            return exceptionInvalidFilter;
+        }
         try {
             parseInt(filter.getOperand());
         } catch (NumberFormatException exception) {
@@ -311,11 +346,32 @@ public class FilterService {
         return exceptionInvalidFilter;
     }
 
+    private static ExceptionInvalidFilter additionalCursorValidation(List<Filter> filters, ExceptionInvalidFilter exceptionInvalidFilter) {
+        for (Filter filter : filters) {
+            if (!Objects.equals(filter.getOperator(), OPERATOR_CURSOR) || FilterCursor.isFirstPage(filter)) {
+                continue;
+            }
+            final FilterCursor cursor;
+            try {
+                cursor = FilterCursor.decode(filter.getOperand());
+            } catch (IllegalArgumentException exception) {
+                exceptionInvalidFilter.addException("The 'cursor' operand must be a token returned by a previous search, or empty to request the first page.");
+                continue;
+            }
+            if (cursor.sortSignature() != FilterCursor.computeSortSignature(filters)
+                    || cursor.values().size() != getSortKeys(filters).size() - 1) {
+                exceptionInvalidFilter.addException("The 'cursor' was issued for a different sort, send the same sort filters that produced it.");
+            }
+        }
+        return exceptionInvalidFilter;
+    }
+
     private static List<Filter> orderFilters(List<Filter> filters, ExceptionInvalidFilter exceptionInvalidFilter) throws ExceptionInvalidFilter {
         List<Filter> whereFilters = new ArrayList<>();
         List<Filter> sortFilters = new ArrayList<>();
         Filter limitFilter = null;
         Filter offsetFilter = null;
+        Filter cursorFilter = null;
 
         for (Filter filter : filters) {
             switch (filter.getOperator()) {
@@ -334,6 +390,13 @@ public class FilterService {
                         exceptionInvalidFilter.addException("No more than one 'offset' filter allowed in a single request");
                     }
                 }
+                case OPERATOR_CURSOR -> {
+                    if (null == cursorFilter) {
+                        cursorFilter = filter;
+                    } else {
+                        exceptionInvalidFilter.addException("No more than one 'cursor' filter allowed in a single request");
+                    }
+                }
                 default -> whereFilters.add(filter);
             }
         }
@@ -341,12 +404,29 @@ public class FilterService {
         if (null == limitFilter && null != offsetFilter) {
             exceptionInvalidFilter.addException("'offset' filter is not allowed without also including one 'limit' filter");
         }
+        if (null != cursorFilter) {
+            if (null == limitFilter) {
+                exceptionInvalidFilter.addException("'cursor' filter is not allowed without also including one 'limit' filter");
+            }
+            if (null != offsetFilter) {
+                exceptionInvalidFilter.addException("'cursor' and 'offset' filters cannot be used together, the cursor already marks where the page starts");
+            }
+        }
+
+        whereFilters.addAll(sortFilters);
+        //the cursor is ordered after the sorts because its seek predicate is built from them, see formatWhereStatements()
+        if (cursorFilter != null) {
+            whereFilters.add(cursorFilter);
+        }
+        //the cursor can only be checked against sorts that are themselves valid
+        if (exceptionInvalidFilter.isEmpty()) {
+            exceptionInvalidFilter = additionalCursorValidation(whereFilters, exceptionInvalidFilter);
+        }
 
         if (!exceptionInvalidFilter.isEmpty()) {
             throw exceptionInvalidFilter;
         }
 
-        whereFilters.addAll(sortFilters);
         if (limitFilter != null) {
             whereFilters.add(limitFilter);
         }
@@ -356,32 +436,37 @@ public class FilterService {
         return whereFilters;
     }
 
-    public static List<String> formatWhereStatements(List<Filter> filters) {
+    /**
+     * customFields are the definitions the filters were validated against, each custom field filter is resolved to its
+     * field's id here so the generated SQL never has to look the field up by name.
+     */
+    public static List<String> formatWhereStatements(List<Filter> filters, List<CustomField> customFields) {
+        final Map<String, Integer> customFieldIds = getCustomFieldIdsByName(customFields);
         List<String> whereStatements = new ArrayList<>();
         List<String> sortParts = new ArrayList<>();
         String limitStatement = null;
         String offsetStatement = null;
+        boolean cursorMode = false;
         int customFieldIndex = 1;
         for (Filter filter : filters) {
+            if (Objects.equals(filter.getOperator(), OPERATOR_CURSOR)) {
+                cursorMode = true;
+                if (!FilterCursor.isFirstPage(filter)) {
+                    whereStatements.add(getSeekStatement(getSortKeys(filters)));
+                }
+                continue;
+            }
             if (filter.isCustom()) {
-                // Each custom field filter gets its own indexed JOIN alias (fields1/values1, fields2/values2, …)
-                // so that multiple custom field filters don't contradict each other in the WHERE clause.
-                String fieldsAlias = "fields" + customFieldIndex;
+                // Each custom field filter gets its own indexed alias (values1, values2, …) so that multiple custom
+                // field filters don't contradict each other. Only sorts are joined in (see formatCustomFieldSortJoins()),
+                // a where filter is a correlated EXISTS so it can't multiply rows or grow the join the planner has to order.
                 String valuesAlias = "values" + customFieldIndex;
                 String optionsAlias = "options" + customFieldIndex;
-                // The custom field's NAME is user-controlled (the user picks it at creation), so it is bound as a
-                // parameter, never interpolated. formatOperands() emits the matching operand — see the ordering
-                // contract documented there; the two methods must be changed together.
-                // This clause is NOT redundant with the JOIN: buildQueryWithCustomFieldJoins() joins custom_fields
-                // on values<i>.custom_field_id = fields<i>.id with no constraint on WHICH field, so this is the only
-                // thing selecting the field being filtered on. Dropping it makes every custom field filter match
-                // values belonging to every custom field.
-                whereStatements.add(" AND " + fieldsAlias + ".name = ?");
                 String statement = getCustomFilterWhereStatement(filter, valuesAlias, optionsAlias);
                 if (filter.getOperator().equals(OPERATOR_ORDER_BY) || filter.getOperator().equals(OPERATOR_ORDER_BY_DESC)) {
                     sortParts.add(statement.substring(" ORDER BY ".length()));
                 } else {
-                    whereStatements.add(statement);
+                    whereStatements.add(getCustomFieldExistsStatement(filter, getCustomFieldId(filter, customFieldIds), valuesAlias, statement));
                 }
                 customFieldIndex++;
             } else {
@@ -394,6 +479,11 @@ public class FilterService {
                 }
             }
         }
+        if (cursorMode) {
+            //the id is the final tiebreaker, without it rows that tie on every sort could be skipped or repeated between pages
+            final List<FilterCursor.SortKey> sortKeys = getSortKeys(filters);
+            sortParts.add(sortKeys.get(sortKeys.size() - 1).expression() + " ASC");
+        }
         if (!sortParts.isEmpty()) {
             whereStatements.add(" ORDER BY " + String.join(", ", sortParts));
         }
@@ -406,6 +496,224 @@ public class FilterService {
         return whereStatements;
     }
 
+    /**
+     * The filters that decide which rows match, which is what a total count is computed from: everything except the
+     * pagination (limit, offset, and cursor). The sorts are kept because a custom field sort joins its values, and so
+     * leaves out the entities without one, the count has to agree with the results.
+     */
+    public static List<Filter> getCountFilters(List<Filter> orderedFilters) {
+        final List<Filter> countFilters = new ArrayList<>();
+        for (Filter filter : orderedFilters) {
+            switch (filter.getOperator()) {
+                case OPERATOR_LIMIT, OPERATOR_OFFSET, OPERATOR_CURSOR -> { }
+                default -> countFilters.add(filter);
+            }
+        }
+        return countFilters;
+    }
+
+    /**
+     * The built-in fields a search can be faceted on: the boolean and system columns, the ones with a handful of
+     * values a sidebar can list. The field names are the column names.
+     */
+    public static Map<String, String> getFacetFieldsByKey(String key) {
+        final Map<String, String> facetFields = new LinkedHashMap<>();
+        for (Map.Entry<String, String> field : FilterEntity.getNonCustomFieldFiltersByKey(key).entrySet()) {
+            if (Objects.equals(field.getValue(), FIELD_TYPE_BOOLEAN) || Objects.equals(field.getValue(), FIELD_TYPE_SYSTEM)) {
+                facetFields.put(field.getKey(), field.getValue());
+            }
+        }
+        return facetFields;
+    }
+
+    /**
+     * One statement that counts the values of every facet of a search, using GROUPING SETS so the matched rows are
+     * read once however many facets there are. filteredQuery is the search itself, without ORDER BY or pagination.
+     * Each built-in facet field is its own grouping set, and the enum custom fields share one grouped by
+     * (custom_field_id, option). The option values are LEFT JOINed, so an entity shows up once per enum field it has a
+     * value for, count(DISTINCT id) keeps those extra rows out of the counts. A grouping set also reports a row for the
+     * entities without a value (a null option), those rows have a null custom_field_id.
+     * <p>
+     * Returns null when the entity has no facet fields and no enum custom fields.
+     */
+    public static String formatFacetQuery(String key, String filteredQuery, List<CustomField> customFields) {
+        final Set<String> facetFields = getFacetFieldsByKey(key).keySet();
+        final List<String> optionFieldIds = new ArrayList<>();
+        for (CustomField customField : customFields) {
+            if (CustomField.isEnumType(customField.type())) {
+                optionFieldIds.add(Integer.toString(customField.id()));
+            }
+        }
+        if (facetFields.isEmpty() && optionFieldIds.isEmpty()) {
+            return null;
+        }
+
+        final List<String> groupingSets = new ArrayList<>();
+        final StringBuilder facetField = new StringBuilder("CASE");
+        final StringBuilder facetValue = new StringBuilder("CASE");
+        for (String field : facetFields) {
+            final String column = "filtered_results." + field;
+            groupingSets.add("(" + column + ")");
+            facetField.append(" WHEN GROUPING(").append(column).append(") = 0 THEN '").append(field).append("'");
+            facetValue.append(" WHEN GROUPING(").append(column).append(") = 0 THEN ").append(column).append("::text");
+        }
+        facetField.append(" END");
+        facetValue.append(" END");
+
+        final StringBuilder sql = new StringBuilder("WITH filtered_results AS (").append(filteredQuery).append(")")
+                .append(" SELECT ").append(facetFields.isEmpty() ? "NULL::text" : facetField).append(" AS facet_field, ")
+                .append(facetFields.isEmpty() ? "NULL::text" : facetValue).append(" AS facet_value, ");
+        if (optionFieldIds.isEmpty()) {
+            sql.append("NULL::int AS custom_field_id, NULL::int AS option_id, NULL::text AS option_name, ")
+                    .append("count(filtered_results.id) AS facet_count FROM filtered_results")
+                    .append(" GROUP BY GROUPING SETS (").append(String.join(", ", groupingSets)).append(")")
+                    .append(" ORDER BY facet_value");
+            return sql.toString();
+        }
+        groupingSets.add("(facet_options.custom_field_id, facet_options.id, facet_options.name, facet_options.display_order)");
+        sql.append("facet_options.custom_field_id, facet_options.id AS option_id, facet_options.name AS option_name, ")
+                .append("count(DISTINCT filtered_results.id) AS facet_count FROM filtered_results")
+                .append(" LEFT JOIN custom_field_values AS facet_values ON facet_values.entity_id = filtered_results.id")
+                .append(" AND facet_values.entity_key = '").append(key).append("'")
+                .append(" AND facet_values.custom_field_id IN (").append(String.join(", ", optionFieldIds)).append(")")
+                .append(" LEFT JOIN custom_field_options AS facet_options ON facet_options.id = facet_values.value_option_id AND facet_options.deleted = false")
+                .append(" GROUP BY GROUPING SETS (").append(String.join(", ", groupingSets)).append(")")
+                .append(" ORDER BY facet_options.display_order, facet_value");
+        return sql.toString();
+    }
+
+    /**
+     * The joins a custom field SORT needs, to be placed in the FROM clause ahead of the where statements. Custom field
+     * where filters are not joined, they are EXISTS predicates emitted by {@link #formatWhereStatements(List, List)}.
+     * The aliases are numbered exactly like formatWhereStatements() numbers them. Returns an empty string when no
+     * custom field is sorted on.
+     * <p>
+     * The join is an inner join so, as before, an entity without a value for the sorted field is left out of the
+     * results. The LEFT JOIN to custom_field_options is only there for the enum types that sort on display_order.
+     */
+    public static String formatCustomFieldSortJoins(List<Filter> filters, List<CustomField> customFields) {
+        final Map<String, Integer> customFieldIds = getCustomFieldIdsByName(customFields);
+        final StringBuilder joins = new StringBuilder();
+        int customFieldIndex = 1;
+        for (Filter filter : filters) {
+            if (!filter.isCustom()) {
+                continue;
+            }
+            if (Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY) || Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY_DESC)) {
+                final String tableAlias = Keychain.getTableAliasByKey(filter.getKey());
+                final String valuesAlias = "values" + customFieldIndex;
+                joins.append(" JOIN custom_field_values AS ").append(valuesAlias)
+                        .append(" ON ").append(tableAlias).append(".id = ").append(valuesAlias).append(".entity_id")
+                        .append(" AND ").append(valuesAlias).append(".entity_key = '").append(filter.getKey()).append("'")
+                        .append(" AND ").append(valuesAlias).append(".custom_field_id = ").append(getCustomFieldId(filter, customFieldIds));
+                switch (filter.getType()) {
+                    case CustomField.TYPE_DROPDOWN, CustomField.TYPE_RADIO_BUTTON, CustomField.TYPE_PROGRESS_BAR ->
+                            joins.append(" LEFT JOIN custom_field_options AS options").append(customFieldIndex)
+                                    .append(" ON ").append(valuesAlias).append(".value_option_id = options").append(customFieldIndex).append(".id");
+                    default -> { }
+                }
+            }
+            customFieldIndex++;
+        }
+        return joins.toString();
+    }
+
+    /**
+     * A custom field where filter as a correlated semi-join: the entity matches when it has a value for the field that
+     * passes the comparison. The field is referenced by id, which is an integer read from the database, so inlining it
+     * is safe and the user controlled name never reaches the SQL. The id can be inlined into a cached plan because the
+     * custom field definitions are part of the {@link FilterPlanKey}.
+     */
+    private static String getCustomFieldExistsStatement(Filter filter, int customFieldId, String valuesAlias, String comparison) {
+        final String tableAlias = Keychain.getTableAliasByKey(filter.getKey());
+        return " AND EXISTS (SELECT 1 FROM custom_field_values AS " + valuesAlias
+                + " WHERE " + valuesAlias + ".entity_id = " + tableAlias + ".id"
+                + " AND " + valuesAlias + ".entity_key = '" + filter.getKey() + "'"
+                + " AND " + valuesAlias + ".custom_field_id = " + customFieldId
+                + comparison + ")";
+    }
+
+    private static Map<String, Integer> getCustomFieldIdsByName(List<CustomField> customFields) {
+        final Map<String, Integer> customFieldIds = new HashMap<>();
+        for (CustomField customField : customFields) {
+            customFieldIds.put(customField.name(), customField.id());
+        }
+        return customFieldIds;
+    }
+
+    private static int getCustomFieldId(Filter filter, Map<String, Integer> customFieldIds) {
+        final Integer customFieldId = customFieldIds.get(filter.getField());
+        if (null == customFieldId) {
+            //validateAndOrderFilters() rejects a custom field filter that isn't in the definitions, so this is a bug
+            throw new ExceptionInternalError("Custom field filter on '" + filter.getField() + "' was not resolved against the custom field definitions.");
+        }
+        return customFieldId;
+    }
+
+    /**
+     * The ORDER BY terms of a cursor search in order, always ending with the id tiebreaker. The custom field aliases are
+     * numbered exactly like {@link #formatWhereStatements(List, List)} numbers them.
+     */
+    public static List<FilterCursor.SortKey> getSortKeys(List<Filter> filters) {
+        final List<FilterCursor.SortKey> sortKeys = new ArrayList<>();
+        String tableAlias = null;
+        int customFieldIndex = 1;
+        for (Filter filter : filters) {
+            tableAlias = Keychain.getTableAliasByKey(filter.getKey());
+            final boolean isSort = Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY) || Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY_DESC);
+            final boolean descending = Objects.equals(filter.getOperator(), OPERATOR_ORDER_BY_DESC);
+            if (filter.isCustom()) {
+                if (isSort) {
+                    switch (filter.getType()) {
+                        case CustomField.TYPE_NUMBER -> sortKeys.add(new FilterCursor.SortKey("values" + customFieldIndex + ".value_number", descending, "bigint"));
+                        case CustomField.TYPE_DROPDOWN, CustomField.TYPE_RADIO_BUTTON, CustomField.TYPE_PROGRESS_BAR ->
+                                sortKeys.add(new FilterCursor.SortKey("options" + customFieldIndex + ".display_order", descending, "integer"));
+                        default -> sortKeys.add(new FilterCursor.SortKey("values" + customFieldIndex + ".value_text", descending, "text"));
+                    }
+                }
+                customFieldIndex++;
+            } else if (isSort) {
+                final String sqlType = switch (filter.getType()) {
+                    case FIELD_TYPE_NUMBER -> "bigint";
+                    case FIELD_TYPE_BOOLEAN -> "boolean";
+                    case FIELD_TYPE_TIME -> "timestamptz";
+                    default -> "text";
+                };
+                sortKeys.add(new FilterCursor.SortKey(tableAlias + "." + filter.getField(), descending, sqlType));
+            }
+        }
+        sortKeys.add(new FilterCursor.SortKey(tableAlias + ".id", false, "integer"));
+        return sortKeys;
+    }
+
+    /**
+     * The keyset seek predicate: the row sorts after (a, b, id) when a is after, or a ties and b is after, or both tie
+     * and the id is greater. It is expanded instead of written as a row comparison because the sorts can mix ASC and
+     * DESC. Postgres sorts NULL last ascending and first descending, so "after" and "ties" are written to agree with
+     * that; every token value is bound as text and cast back to the column type. The operands are emitted by
+     * {@link #formatOperands(List)} in the same order.
+     */
+    private static String getSeekStatement(List<FilterCursor.SortKey> sortKeys) {
+        final List<String> disjuncts = new ArrayList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            final List<String> conjuncts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                final FilterCursor.SortKey tied = sortKeys.get(j);
+                conjuncts.add(tied.expression() + " IS NOT DISTINCT FROM ?::" + tied.sqlType());
+            }
+            final FilterCursor.SortKey key = sortKeys.get(i);
+            if (i == sortKeys.size() - 1) {
+                conjuncts.add(key.expression() + " > ?");
+            } else if (key.descending()) {
+                conjuncts.add("(" + key.expression() + " < ?::" + key.sqlType() + " OR (" + key.expression() + " IS NOT NULL AND ?::" + key.sqlType() + " IS NULL))");
+            } else {
+                conjuncts.add("(" + key.expression() + " > ?::" + key.sqlType() + " OR (" + key.expression() + " IS NULL AND ?::" + key.sqlType() + " IS NOT NULL))");
+            }
+            disjuncts.add("(" + String.join(" AND ", conjuncts) + ")");
+        }
+        return " AND (" + String.join(" OR ", disjuncts) + ")";
+    }
+
     private static String getCustomFilterWhereStatement(Filter filter, String valuesAlias, String optionsAlias) {
         final String whereStatement;
         switch (filter.getType()) {
@@ -414,6 +722,7 @@ public class FilterService {
                     case OPERATOR_EQUALS -> whereStatement = " AND " + valuesAlias + ".value_text = ?";
                     case OPERATOR_NOT_EQUALS -> whereStatement = " AND " + valuesAlias + ".value_text <> ?";
                     case OPERATOR_CONTAINS, OPERATOR_STARTS_WITH, OPERATOR_ENDS_WITH -> whereStatement = " AND " + valuesAlias + ".value_text LIKE ?";
+                    case OPERATOR_ICONTAINS, OPERATOR_ISTARTS_WITH -> whereStatement = " AND " + valuesAlias + ".value_text ILIKE ?";
                     case OPERATOR_ORDER_BY -> whereStatement = " ORDER BY " + valuesAlias + ".value_text ASC";
                     case OPERATOR_ORDER_BY_DESC -> whereStatement = " ORDER BY " + valuesAlias + ".value_text DESC";
                     default -> whereStatement = "";
@@ -456,6 +765,8 @@ public class FilterService {
             case OPERATOR_EQUALS -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " = ?";
             case OPERATOR_NOT_EQUALS -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " <> ?";
             case OPERATOR_CONTAINS, OPERATOR_STARTS_WITH, OPERATOR_ENDS_WITH -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " LIKE ?";
+            // ILIKE rather than LOWER(column) LIKE, the trigram indexes serve ILIKE directly
+            case OPERATOR_ICONTAINS, OPERATOR_ISTARTS_WITH -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " ILIKE ?";
             case OPERATOR_GREATER_THAN -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " > ?";
             case OPERATOR_LESS_THAN -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " < ?";
             case OPERATOR_GREATER_THAN_EQUAL_TO -> whereStatement = " AND " + tableAlias + "." + filter.getField() + " >= ?";
@@ -473,34 +784,54 @@ public class FilterService {
     }
 
     /**
-     * The operands for the '?' placeholders emitted by {@link #formatWhereStatements(List)}, in the order those
+     * The operands for the '?' placeholders emitted by {@link #formatWhereStatements(List, List)}, in the order those
      * placeholders appear in the assembled SQL. The two methods share an ordering contract and must be changed
      * together.
      *
-     * <p>A custom field filter contributes TWO placeholders — the field name clause first, then its value — so the
-     * name is added here before the value. A custom field SORT contributes only the name clause: its ORDER BY is
-     * deferred to the end of the statement list and carries no placeholder. The orderings line up because
-     * {@code validateAndOrderFilters} has already sorted the list into where → sort → limit → offset, which is the
-     * same order the statements are emitted in.
+     * <p>A custom field filter contributes only its value, the field itself is resolved to its id when the SQL is
+     * compiled. A custom field SORT contributes nothing: its join is in the FROM clause and its ORDER BY is deferred
+     * to the end of the statement list, neither carries a placeholder. The orderings line up because
+     * {@code validateAndOrderFilters} has already sorted the list into where → sort → cursor → limit → offset, which
+     * is the same order the statements are emitted in. A cursor contributes the operands of its seek predicate, see
+     * {@link #formatCursorOperands(Filter)}.
      */
     public static List<Object> formatOperands(List<Filter> filters) {
         List<Object> operands = new ArrayList<>();
         for (Filter filter : filters) {
             final Object operand = filter.getOperand();
-            if (filter.isCustom()) {
-                operands.add(filter.getField());
-            }
             switch (filter.getOperator()) {
-                case OPERATOR_CONTAINS -> operands.add("%" + operand + "%");
-                case OPERATOR_STARTS_WITH -> operands.add(operand + "%");
+                case OPERATOR_CONTAINS, OPERATOR_ICONTAINS -> operands.add("%" + operand + "%");
+                case OPERATOR_STARTS_WITH, OPERATOR_ISTARTS_WITH -> operands.add(operand + "%");
                 case OPERATOR_ENDS_WITH -> operands.add("%" + operand);
                 case OPERATOR_ORDER_BY, OPERATOR_ORDER_BY_DESC -> { } //the order_by operators are ignored
+                case OPERATOR_CURSOR -> operands.addAll(formatCursorOperands(filter));
                 default -> operands.add(castOperand(filter));
             }
         }
         return operands;
     }
 
+    //The operands for getSeekStatement(): for each disjunct the tied values, then the value it must sort after (twice,
+    //the NULL check needs it again), the final disjunct compares the id.
+    private static List<Object> formatCursorOperands(Filter cursorFilter) {
+        final List<Object> operands = new ArrayList<>();
+        if (FilterCursor.isFirstPage(cursorFilter)) {
+            return operands;
+        }
+        final FilterCursor cursor = FilterCursor.decode(cursorFilter.getOperand());
+        final List<String> values = cursor.values();
+        for (int i = 0; i <= values.size(); i++) {
+            operands.addAll(values.subList(0, i));
+            if (i == values.size()) {
+                operands.add(cursor.lastId());
+            } else {
+                operands.add(values.get(i));
+                operands.add(values.get(i));
+            }
+        }
+        return operands;
+    }
+
     private static Object castOperand(Filter filter) {
         switch (filter.getType()) {
             case FIELD_TYPE_NUMBER, FIELD_TYPE_PAGINATION, FIELD_TYPE_SYSTEM,
@@ -5,6 +5,7 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.auth.Capability;
 import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionForbidden;
 import org.springframework.stereotype.Component;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 @Component
@@ -33,6 +34,19 @@ public class MetadataGateway {
         return allMetadata;
     }
 
+    // Narrowed for a showcase view like getAllMetadata(), except that the guest ui-settings only stand in for the
+    // owner's when those changed: an incremental backup holds nothing that didn't.
+    public List<Metadata> getMetadataChangedSince(Timestamp since) {
+        final List<Metadata> changedMetadata = repository.getMetadataChangedSince(since);
+        if (access.isShowcaseView()) {
+            return changedMetadata.stream()
+                    .filter(metadata -> ShowcaseMetadata.isReadableByShowcase(metadata.key()))
+                    .map(metadata -> ShowcaseMetadata.UI_SETTINGS_KEY.equals(metadata.key()) ? ShowcaseMetadata.guestUiSettings() : metadata)
+                    .toList();
+        }
+        return changedMetadata;
+    }
+
     public Metadata getByKey(String key) {
         if (access.isShowcaseView()) {
             // A showcase view may read ONLY the allowlisted keys. Enforced here rather than only in
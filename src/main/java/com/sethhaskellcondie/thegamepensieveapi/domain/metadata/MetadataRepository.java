@@ -15,6 +15,7 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.List;
 
@@ -41,6 +42,12 @@ public class MetadataRepository {
         return jdbcTemplate.query(sql, rowMapper);
     }
 
+    //updated_at is set by every insert and update, the deleted metadata is exported as a tombstone instead
+    public List<Metadata> getMetadataChangedSince(Timestamp since) {
+        final String sql = "SELECT * FROM metadata WHERE deleted_at IS NULL AND updated_at >= ? ORDER BY id";
+        return jdbcTemplate.query(sql, rowMapper, since);
+    }
+
     public Metadata getByKey(String key) {
         final String sql = "SELECT * FROM metadata WHERE key = ? AND deleted_at IS NULL";
         Metadata metadata;
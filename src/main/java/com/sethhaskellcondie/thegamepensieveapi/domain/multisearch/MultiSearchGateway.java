@@ -0,0 +1,75 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.multisearch;
+
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantParallelExecutor;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInvalidFilter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterRequestDto;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Several entity searches in one request, run concurrently by the {@link TenantParallelExecutor} so the response
+ * takes about as long as the slowest search instead of the sum of them. Each search goes through that entity's own
+ * gateway, so the capability gate (a filtered search needs FILTER) and the response DTOs are exactly those of the
+ * single entity {@code function/search} endpoints, and Row-Level Security scopes every search to the acting owner.
+ */
+@Component
+public class MultiSearchGateway {
+
+    private final Map<String, EntityGateway<?, ?, ?>> gatewaysByKey;
+    private final TenantParallelExecutor executor;
+
+    public MultiSearchGateway(SystemGateway systemGateway, ToyGateway toyGateway, VideoGameGateway videoGameGateway,
+                              VideoGameBoxGateway videoGameBoxGateway, BoardGameGateway boardGameGateway,
+                              BoardGameBoxGateway boardGameBoxGateway, TenantParallelExecutor executor) {
+        //When a new entity is added to the Keychain its gateway needs to be registered here as well.
+        this.gatewaysByKey = Map.of(
+                Keychain.SYSTEM_KEY, systemGateway,
+                Keychain.TOY_KEY, toyGateway,
+                Keychain.VIDEO_GAME_KEY, videoGameGateway,
+                Keychain.VIDEO_GAME_BOX_KEY, videoGameBoxGateway,
+                Keychain.BOARD_GAME_KEY, boardGameGateway,
+                Keychain.BOARD_GAME_BOX_KEY, boardGameBoxGateway
+        );
+        this.executor = executor;
+    }
+
+    /**
+     * searches maps an entity key to the filters for that entity (an empty list lists everything), the results come
+     * back under the same keys in the same order.
+     */
+    public Map<String, List<?>> search(Map<String, List<FilterRequestDto>> searches) {
+        if (null == searches || searches.isEmpty()) {
+            throw new ExceptionInvalidFilter("A multi search needs at least one entity key, available keys are: " + String.join(", ", Keychain.getAllKeys()));
+        }
+        final List<String> keys = new ArrayList<>(searches.keySet());
+        final List<Supplier<List<?>>> tasks = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            final EntityGateway<?, ?, ?> gateway = gatewaysByKey.get(key);
+            if (null == gateway) {
+                throw new ExceptionInvalidFilter("Unknown entity key '" + key + "' in multi search, available keys are: " + String.join(", ", Keychain.getAllKeys()));
+            }
+            final List<FilterRequestDto> filters = searches.get(key);
+            tasks.add(() -> gateway.getWithFilters(null == filters ? List.of() : filters));
+        }
+
+        final List<List<?>> results = executor.invokeAll(tasks);
+        final Map<String, List<?>> resultsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            resultsByKey.put(keys.get(i), results.get(i));
+        }
+        return resultsByKey;
+    }
+}
@@ -0,0 +1,28 @@
+-- Trigram indexes for the text filter operators. contains/starts_with/ends_with compile to LIKE and
+-- icontains/istarts_with to ILIKE, a btree can't serve a leading wildcard so without these every text search is a
+-- sequential scan over the tenant's rows. A GIN index with gin_trgm_ops serves LIKE and ILIKE with any wildcard
+-- placement. The columns are the FIELD_TYPE_TEXT fields in FilterEntity.getNonCustomFieldFiltersByKey(), plus
+-- custom_field_values.value_text for the custom text fields. pg_trgm is a trusted extension so the database owner
+-- can create it.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS systems_name_trgm ON systems USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS toys_name_trgm ON toys USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS toys_set_trgm ON toys USING gin (set gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS video_games_title_trgm ON video_games USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS video_game_boxes_title_trgm ON video_game_boxes USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS board_games_title_trgm ON board_games USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS board_game_boxes_title_trgm ON board_game_boxes USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS custom_field_values_value_text_trgm ON custom_field_values USING gin (value_text gin_trgm_ops);
+
+-- Undo
+-- DROP INDEX systems_name_trgm;
+-- DROP INDEX toys_name_trgm;
+-- DROP INDEX toys_set_trgm;
+-- DROP INDEX video_games_title_trgm;
+-- DROP INDEX video_game_boxes_title_trgm;
+-- DROP INDEX board_games_title_trgm;
+-- DROP INDEX board_game_boxes_title_trgm;
+-- DROP INDEX custom_field_values_value_text_trgm;
+-- DROP EXTENSION pg_trgm;
+-- DELETE FROM flyway_schema_history WHERE version = '1.21';
@@ -0,0 +1,18 @@
+-- An entity has at most one value per custom field. CustomFieldValueRepository.upsertValues writes every value of
+-- an entity in one INSERT ... ON CONFLICT DO UPDATE batch, which needs a unique constraint to name as the conflict
+-- target. The repository always checked for an existing row before inserting, but nothing enforced it, so keep the
+-- newest physical row of any duplicates before adding the constraint (Flyway migrates as the superuser, RLS does
+-- not hide any rows here).
+DELETE FROM custom_field_values AS older
+    USING custom_field_values AS newer
+    WHERE older.custom_field_id = newer.custom_field_id
+      AND older.entity_id = newer.entity_id
+      AND older.entity_key = newer.entity_key
+      AND older.ctid < newer.ctid;
+
+ALTER TABLE custom_field_values
+    ADD CONSTRAINT uq_custom_field_values_field_entity UNIQUE (custom_field_id, entity_id, entity_key);
+
+-- Undo
+-- ALTER TABLE custom_field_values DROP CONSTRAINT uq_custom_field_values_field_entity;
+-- DELETE FROM flyway_schema_history WHERE version = '1.22';
@@ -0,0 +1,35 @@
+-- Every tenant read is filtered by the RLS policy (owner_id = the request's owner) and, for the entity tables, by
+-- deleted_at IS NULL, then sorted by the title (or name) with the id as the cursor tiebreaker. V1_13 only indexed
+-- owner_id on its own, so a page of one owner's titles had to read and sort every row that owner has. These partial
+-- indexes match that whole shape: the predicate drops the deleted rows from the index, owner_id is the equality, and
+-- (title, id) hands the rows back already in search order so a LIMIT stops early.
+CREATE INDEX IF NOT EXISTS systems_owner_name_live ON systems (owner_id, name, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS toys_owner_name_live ON toys (owner_id, name, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS video_games_owner_title_live ON video_games (owner_id, title, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS video_game_boxes_owner_title_live ON video_game_boxes (owner_id, title, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS board_games_owner_title_live ON board_games (owner_id, title, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS board_game_boxes_owner_title_live ON board_game_boxes (owner_id, title, id) WHERE deleted_at IS NULL;
+
+-- The custom field values of a batch of entities are read by (entity_key, entity_id = ANY(...)) for one owner, the
+-- existing indexes lead with custom_field_id so they can't serve it. This one also replaces the owner_id index.
+CREATE INDEX IF NOT EXISTS custom_field_values_owner_key_entity ON custom_field_values (owner_id, entity_key, entity_id);
+DROP INDEX IF EXISTS idx_custom_field_values_owner_id;
+
+-- The junction is read from both sides, owner-leading versions of the V1_11 indexes. These replace the owner_id index.
+CREATE INDEX IF NOT EXISTS vg_to_vgbox_owner_video_game_id ON video_game_to_video_game_box (owner_id, video_game_id);
+CREATE INDEX IF NOT EXISTS vg_to_vgbox_owner_video_game_box_id ON video_game_to_video_game_box (owner_id, video_game_box_id);
+DROP INDEX IF EXISTS idx_vg_to_vgbox_owner_id;
+
+-- Undo
+-- CREATE INDEX idx_vg_to_vgbox_owner_id ON video_game_to_video_game_box (owner_id);
+-- DROP INDEX vg_to_vgbox_owner_video_game_box_id;
+-- DROP INDEX vg_to_vgbox_owner_video_game_id;
+-- CREATE INDEX idx_custom_field_values_owner_id ON custom_field_values (owner_id);
+-- DROP INDEX custom_field_values_owner_key_entity;
+-- DROP INDEX board_game_boxes_owner_title_live;
+-- DROP INDEX board_games_owner_title_live;
+-- DROP INDEX video_game_boxes_owner_title_live;
+-- DROP INDEX video_games_owner_title_live;
+-- DROP INDEX toys_owner_name_live;
+-- DROP INDEX systems_owner_name_live;
+-- DELETE FROM flyway_schema_history WHERE version = '1.23';
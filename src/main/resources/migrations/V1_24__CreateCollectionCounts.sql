@@ -0,0 +1,88 @@
+-- /v1/function/counts used to count(*) every entity table on each call, a cost that grows with the collection. These
+-- are the same numbers kept up to date as rows are written: one row per owner and entity key, the count of that
+-- owner's rows that are not soft deleted. Reading the counts is then a primary key lookup of at most six rows.
+CREATE TABLE IF NOT EXISTS collection_counts (
+    owner_id INTEGER NOT NULL REFERENCES users(id),
+    entity_key VARCHAR(50) NOT NULL,
+    item_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (owner_id, entity_key)
+);
+
+-- Same tenant isolation as V1_14. The triggers below run as the writing role, so app_rls also needs to write here,
+-- the rows a trigger writes always carry the owner of the entity row, which already passed that table's policy.
+GRANT SELECT, INSERT, UPDATE ON collection_counts TO app_rls;
+ALTER TABLE collection_counts ENABLE ROW LEVEL SECURITY;
+ALTER TABLE collection_counts FORCE ROW LEVEL SECURITY;
+CREATE POLICY collection_counts_tenant_isolation ON collection_counts
+    USING (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int)
+    WITH CHECK (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int);
+
+-- A row counts while deleted_at IS NULL. An insert or hard delete of a live row moves the count by one, an update
+-- moves it only when it soft deletes (null -> set) or restores (set -> null) the row. The first argument is the
+-- entity key of the table. The upsert takes a row lock on the counter, concurrent writers of the same owner and
+-- entity queue on it rather than losing an increment.
+CREATE OR REPLACE FUNCTION maintain_collection_counts() RETURNS trigger AS $$
+DECLARE
+    delta INTEGER := 0;
+    counted_owner INTEGER;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        counted_owner := NEW.owner_id;
+        IF NEW.deleted_at IS NULL THEN
+            delta := 1;
+        END IF;
+    ELSIF TG_OP = 'DELETE' THEN
+        counted_owner := OLD.owner_id;
+        IF OLD.deleted_at IS NULL THEN
+            delta := -1;
+        END IF;
+    ELSE
+        counted_owner := NEW.owner_id;
+        IF OLD.deleted_at IS NULL AND NEW.deleted_at IS NOT NULL THEN
+            delta := -1;
+        ELSIF OLD.deleted_at IS NOT NULL AND NEW.deleted_at IS NULL THEN
+            delta := 1;
+        END IF;
+    END IF;
+
+    IF delta <> 0 THEN
+        INSERT INTO collection_counts (owner_id, entity_key, item_count) VALUES (counted_owner, TG_ARGV[0], delta)
+        ON CONFLICT (owner_id, entity_key) DO UPDATE SET item_count = collection_counts.item_count + EXCLUDED.item_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The counts of the rows already in the database, before the triggers start keeping them.
+INSERT INTO collection_counts (owner_id, entity_key, item_count)
+    SELECT owner_id, 'system', count(*) FROM systems WHERE deleted_at IS NULL GROUP BY owner_id
+    UNION ALL SELECT owner_id, 'toy', count(*) FROM toys WHERE deleted_at IS NULL GROUP BY owner_id
+    UNION ALL SELECT owner_id, 'videoGame', count(*) FROM video_games WHERE deleted_at IS NULL GROUP BY owner_id
+    UNION ALL SELECT owner_id, 'videoGameBox', count(*) FROM video_game_boxes WHERE deleted_at IS NULL GROUP BY owner_id
+    UNION ALL SELECT owner_id, 'boardGame', count(*) FROM board_games WHERE deleted_at IS NULL GROUP BY owner_id
+    UNION ALL SELECT owner_id, 'boardGameBox', count(*) FROM board_game_boxes WHERE deleted_at IS NULL GROUP BY owner_id
+ON CONFLICT (owner_id, entity_key) DO UPDATE SET item_count = EXCLUDED.item_count;
+
+CREATE TRIGGER systems_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON systems
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('system');
+CREATE TRIGGER toys_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON toys
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('toy');
+CREATE TRIGGER video_games_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON video_games
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('videoGame');
+CREATE TRIGGER video_game_boxes_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON video_game_boxes
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('videoGameBox');
+CREATE TRIGGER board_games_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON board_games
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('boardGame');
+CREATE TRIGGER board_game_boxes_collection_counts AFTER INSERT OR UPDATE OF deleted_at OR DELETE ON board_game_boxes
+    FOR EACH ROW EXECUTE FUNCTION maintain_collection_counts('boardGameBox');
+
+-- Undo
+-- DROP TRIGGER board_game_boxes_collection_counts ON board_game_boxes;
+-- DROP TRIGGER board_games_collection_counts ON board_games;
+-- DROP TRIGGER video_game_boxes_collection_counts ON video_game_boxes;
+-- DROP TRIGGER video_games_collection_counts ON video_games;
+-- DROP TRIGGER toys_collection_counts ON toys;
+-- DROP TRIGGER systems_collection_counts ON systems;
+-- DROP FUNCTION maintain_collection_counts();
+-- DROP TABLE collection_counts;
+-- DELETE FROM flyway_schema_history WHERE version = '1.24';
@@ -0,0 +1,31 @@
+-- An import runs in the background, POST /v1/function/import answers with the id of a row here and the client polls
+-- GET /v1/function/import/{id}. The row is the job's only state, any node can answer the poll. results holds the
+-- counts so far (the final counts once the job is done), errors the import's error messages.
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id SERIAL PRIMARY KEY,
+    owner_id INTEGER NOT NULL DEFAULT COALESCE(NULLIF(current_setting('app.current_owner', true), '')::int, showcase_owner_id()),
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    current_section VARCHAR(50),
+    results JSONB,
+    errors JSONB,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT fk_import_jobs_owner FOREIGN KEY (owner_id) REFERENCES users (id),
+    CONSTRAINT import_jobs_status CHECK (status IN ('queued', 'running', 'completed', 'failed'))
+);
+CREATE INDEX idx_import_jobs_owner_id ON import_jobs (owner_id, id);
+
+-- Same tenant isolation as V1_14, the jobs are written by the request that starts them and by the worker that runs
+-- them, both as app_rls for the job's owner.
+GRANT SELECT, INSERT, UPDATE ON import_jobs TO app_rls;
+GRANT USAGE, SELECT ON SEQUENCE import_jobs_id_seq TO app_rls;
+ALTER TABLE import_jobs ENABLE ROW LEVEL SECURITY;
+ALTER TABLE import_jobs FORCE ROW LEVEL SECURITY;
+CREATE POLICY import_jobs_tenant_isolation ON import_jobs
+    USING (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int)
+    WITH CHECK (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int);
+
+-- Undo
+-- DROP TABLE import_jobs;
+-- DELETE FROM flyway_schema_history WHERE version = '1.25';
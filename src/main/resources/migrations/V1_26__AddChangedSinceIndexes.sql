@@ -0,0 +1,34 @@
+-- An incremental backup (POST /v1/function/backup?since=...) reads what one owner changed in a window: the rows whose
+-- updated_at is at or after since, and the tombstones, the rows whose deleted_at is. Neither was indexed, so every
+-- incremental backup read the owner's whole collection to find a handful of rows. With owner_id as the equality (the
+-- RLS policy) and the timestamp as the range each of those reads is an index range scan. The games are indexed too, a
+-- box whose games changed is exported with them, and the metadata, which is exported the same way.
+CREATE INDEX IF NOT EXISTS toys_owner_updated_at ON toys (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS systems_owner_updated_at ON systems (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS video_games_owner_updated_at ON video_games (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS video_game_boxes_owner_updated_at ON video_game_boxes (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS board_games_owner_updated_at ON board_games (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS board_game_boxes_owner_updated_at ON board_game_boxes (owner_id, updated_at);
+CREATE INDEX IF NOT EXISTS metadata_owner_updated_at ON metadata (owner_id, updated_at);
+
+-- Only the deleted rows are ever read by deleted_at, the predicate keeps the live ones out of these.
+CREATE INDEX IF NOT EXISTS toys_owner_deleted_at ON toys (owner_id, deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS systems_owner_deleted_at ON systems (owner_id, deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS video_game_boxes_owner_deleted_at ON video_game_boxes (owner_id, deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS board_game_boxes_owner_deleted_at ON board_game_boxes (owner_id, deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS metadata_owner_deleted_at ON metadata (owner_id, deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- Undo
+-- DROP INDEX metadata_owner_deleted_at;
+-- DROP INDEX board_game_boxes_owner_deleted_at;
+-- DROP INDEX video_game_boxes_owner_deleted_at;
+-- DROP INDEX systems_owner_deleted_at;
+-- DROP INDEX toys_owner_deleted_at;
+-- DROP INDEX metadata_owner_updated_at;
+-- DROP INDEX board_game_boxes_owner_updated_at;
+-- DROP INDEX board_games_owner_updated_at;
+-- DROP INDEX video_game_boxes_owner_updated_at;
+-- DROP INDEX video_games_owner_updated_at;
+-- DROP INDEX systems_owner_updated_at;
+-- DROP INDEX toys_owner_updated_at;
+-- DELETE FROM flyway_schema_history WHERE version = '1.26';
@@ -0,0 +1,47 @@
+-- The custom field schema cache is kept in each node's memory, a write on one node only dropped that node's copy and
+-- every other node kept serving the old schema. This is one counter per owner, bumped by every write to the owner's
+-- custom fields or options in the same transaction as the write. A cached schema is served only while the counter
+-- still holds the value it was loaded at, reading the counter is a primary key lookup once per transaction.
+CREATE TABLE IF NOT EXISTS custom_field_schema_versions (
+    owner_id INTEGER PRIMARY KEY REFERENCES users(id),
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- Same tenant isolation as V1_14. The triggers below run as the writing role, so app_rls also needs to write here,
+-- the rows a trigger writes always carry the owner of the custom field row, which already passed that table's policy.
+GRANT SELECT, INSERT, UPDATE ON custom_field_schema_versions TO app_rls;
+ALTER TABLE custom_field_schema_versions ENABLE ROW LEVEL SECURITY;
+ALTER TABLE custom_field_schema_versions FORCE ROW LEVEL SECURITY;
+CREATE POLICY custom_field_schema_versions_tenant_isolation ON custom_field_schema_versions
+    USING (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int)
+    WITH CHECK (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int);
+
+-- The upsert takes a row lock on the counter, concurrent schema writes of the same owner queue on it rather than
+-- losing a bump.
+CREATE OR REPLACE FUNCTION bump_custom_field_schema_version() RETURNS trigger AS $$
+DECLARE
+    schema_owner INTEGER;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        schema_owner := OLD.owner_id;
+    ELSE
+        schema_owner := NEW.owner_id;
+    END IF;
+
+    INSERT INTO custom_field_schema_versions (owner_id, version) VALUES (schema_owner, 1)
+    ON CONFLICT (owner_id) DO UPDATE SET version = custom_field_schema_versions.version + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER custom_fields_schema_version AFTER INSERT OR UPDATE OR DELETE ON custom_fields
+    FOR EACH ROW EXECUTE FUNCTION bump_custom_field_schema_version();
+CREATE TRIGGER custom_field_options_schema_version AFTER INSERT OR UPDATE OR DELETE ON custom_field_options
+    FOR EACH ROW EXECUTE FUNCTION bump_custom_field_schema_version();
+
+-- Undo
+-- DROP TRIGGER custom_field_options_schema_version ON custom_field_options;
+-- DROP TRIGGER custom_fields_schema_version ON custom_fields;
+-- DROP FUNCTION bump_custom_field_schema_version();
+-- DROP TABLE custom_field_schema_versions;
+-- DELETE FROM flyway_schema_history WHERE version = '1.27';
@@ -0,0 +1,13 @@
+-- A node that crashes or restarts with an import queued or running leaves its job's row queued or running for good,
+-- and an owner with an unfinished job can't start another import. The node holding a job now stamps heartbeat_at
+-- while the job waits and runs (see ImportJobRunner), a job whose heartbeat is stale and whose owner's import lock is
+-- free has no node left to finish it and is marked failed.
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+-- Only the unfinished jobs are ever read by heartbeat, or checked for before an import starts.
+CREATE INDEX IF NOT EXISTS idx_import_jobs_unfinished ON import_jobs (owner_id, heartbeat_at) WHERE status IN ('queued', 'running');
+
+-- Undo
+-- DROP INDEX idx_import_jobs_unfinished;
+-- ALTER TABLE import_jobs DROP COLUMN IF EXISTS heartbeat_at;
+-- DELETE FROM flyway_schema_history WHERE version = '1.28';
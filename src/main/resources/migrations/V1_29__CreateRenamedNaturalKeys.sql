@@ -0,0 +1,84 @@
+-- An incremental backup exports a renamed entity under its new natural key (the fields the import finds it by, see
+-- Tombstone), the import found nothing by it and created a second entity next to the one under the old key. This is the
+-- old natural key of every rename, exported as a tombstone of the old key (see TombstoneRepository) so the import
+-- deletes the entity under the old key before it creates the one under the new. Renaming a system or a board game
+-- renames the natural key of its boxes as well, those are recorded for the boxes.
+CREATE TABLE IF NOT EXISTS renamed_natural_keys (
+    id SERIAL PRIMARY KEY,
+    owner_id INTEGER NOT NULL REFERENCES users(id),
+    entity_key VARCHAR(50) NOT NULL,
+    entity_id INTEGER NOT NULL,
+    natural_key VARCHAR[] NOT NULL,
+    renamed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- The renames are only ever read like the tombstones, per owner by time (see V1_26).
+CREATE INDEX IF NOT EXISTS renamed_natural_keys_owner_renamed_at ON renamed_natural_keys (owner_id, renamed_at);
+
+-- Same tenant isolation as V1_14. The triggers below run as the writing role, so app_rls also needs to write here,
+-- the rows a trigger writes always carry the owner of the renamed row, which already passed that table's policy.
+GRANT SELECT, INSERT ON renamed_natural_keys TO app_rls;
+GRANT USAGE, SELECT ON SEQUENCE renamed_natural_keys_id_seq TO app_rls;
+ALTER TABLE renamed_natural_keys ENABLE ROW LEVEL SECURITY;
+ALTER TABLE renamed_natural_keys FORCE ROW LEVEL SECURITY;
+CREATE POLICY renamed_natural_keys_tenant_isolation ON renamed_natural_keys
+    USING (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int)
+    WITH CHECK (owner_id = NULLIF(current_setting('app.current_owner', true), '')::int);
+
+-- The natural keys are built the same way as the tombstones of TombstoneRepository. Only a live row is recorded, a row
+-- that is soft deleted already has its tombstone.
+CREATE OR REPLACE FUNCTION record_renamed_natural_key() RETURNS trigger AS $$
+BEGIN
+    IF OLD.deleted_at IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_TABLE_NAME = 'toys' THEN
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            VALUES (OLD.owner_id, 'toy', OLD.id, ARRAY[OLD.name, OLD.set]);
+    ELSIF TG_TABLE_NAME = 'systems' THEN
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            VALUES (OLD.owner_id, 'system', OLD.id, ARRAY[OLD.name]);
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            SELECT boxes.owner_id, 'videoGameBox', boxes.id, ARRAY[boxes.title, OLD.name]
+                FROM video_game_boxes boxes WHERE boxes.system_id = OLD.id AND boxes.deleted_at IS NULL;
+    ELSIF TG_TABLE_NAME = 'video_game_boxes' THEN
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            SELECT OLD.owner_id, 'videoGameBox', OLD.id, ARRAY[OLD.title, systems.name] FROM systems WHERE systems.id = OLD.system_id;
+    ELSIF TG_TABLE_NAME = 'board_games' THEN
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            SELECT boxes.owner_id, 'boardGameBox', boxes.id, ARRAY[boxes.title, OLD.title]
+                FROM board_game_boxes boxes WHERE boxes.board_game_id = OLD.id AND boxes.deleted_at IS NULL;
+    ELSIF TG_TABLE_NAME = 'board_game_boxes' THEN
+        INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+            SELECT OLD.owner_id, 'boardGameBox', OLD.id, ARRAY[OLD.title, board_games.title] FROM board_games WHERE board_games.id = OLD.board_game_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER toys_renamed_natural_key AFTER UPDATE OF name, set ON toys
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name OR OLD.set IS DISTINCT FROM NEW.set)
+    EXECUTE FUNCTION record_renamed_natural_key();
+CREATE TRIGGER systems_renamed_natural_key AFTER UPDATE OF name ON systems
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION record_renamed_natural_key();
+CREATE TRIGGER video_game_boxes_renamed_natural_key AFTER UPDATE OF title, system_id ON video_game_boxes
+    FOR EACH ROW WHEN (OLD.title IS DISTINCT FROM NEW.title OR OLD.system_id IS DISTINCT FROM NEW.system_id)
+    EXECUTE FUNCTION record_renamed_natural_key();
+CREATE TRIGGER board_games_renamed_natural_key AFTER UPDATE OF title ON board_games
+    FOR EACH ROW WHEN (OLD.title IS DISTINCT FROM NEW.title)
+    EXECUTE FUNCTION record_renamed_natural_key();
+CREATE TRIGGER board_game_boxes_renamed_natural_key AFTER UPDATE OF title, board_game_id ON board_game_boxes
+    FOR EACH ROW WHEN (OLD.title IS DISTINCT FROM NEW.title OR OLD.board_game_id IS DISTINCT FROM NEW.board_game_id)
+    EXECUTE FUNCTION record_renamed_natural_key();
+
+-- Undo
+-- DROP TRIGGER board_game_boxes_renamed_natural_key ON board_game_boxes;
+-- DROP TRIGGER board_games_renamed_natural_key ON board_games;
+-- DROP TRIGGER video_game_boxes_renamed_natural_key ON video_game_boxes;
+-- DROP TRIGGER systems_renamed_natural_key ON systems;
+-- DROP TRIGGER toys_renamed_natural_key ON toys;
+-- DROP FUNCTION record_renamed_natural_key();
+-- DROP TABLE renamed_natural_keys;
+-- DELETE FROM flyway_schema_history WHERE version = '1.29';
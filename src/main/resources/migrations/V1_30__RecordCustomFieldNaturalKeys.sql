@@ -0,0 +1,24 @@
+-- The custom fields of an incremental backup are exported whole, the import matched them by name and created a renamed
+-- one next to the one under its old name, and a deleted one was never taken out. The entities that didn't change in the
+-- window kept their values on the stale field. A custom field is soft deleted with its deleted flag (it has no
+-- deleted_at for TombstoneRepository to read), so both its renames and its deletion are recorded in
+-- renamed_natural_keys (see V1_29) under its natural key [entity_key, name], the import tells them apart by whether the
+-- backup still has a custom field with the tombstone's id.
+CREATE OR REPLACE FUNCTION record_custom_field_natural_key() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO renamed_natural_keys (owner_id, entity_key, entity_id, natural_key)
+        VALUES (OLD.owner_id, 'customField', OLD.id, ARRAY[OLD.entity_key, OLD.name]);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Only a live custom field is recorded, deleted is nullable (see V1_3) and a null is live.
+CREATE TRIGGER custom_fields_renamed_natural_key AFTER UPDATE OF name, deleted ON custom_fields
+    FOR EACH ROW WHEN (OLD.deleted IS NOT TRUE AND (NEW.deleted IS TRUE OR OLD.name IS DISTINCT FROM NEW.name))
+    EXECUTE FUNCTION record_custom_field_natural_key();
+
+-- Undo
+-- DROP TRIGGER custom_fields_renamed_natural_key ON custom_fields;
+-- DROP FUNCTION record_custom_field_natural_key();
+-- DELETE FROM renamed_natural_keys WHERE entity_key = 'customField';
+-- DELETE FROM flyway_schema_history WHERE version = '1.30';
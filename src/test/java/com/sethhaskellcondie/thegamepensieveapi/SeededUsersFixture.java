@@ -5,14 +5,20 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -51,6 +57,11 @@ public class SeededUsersFixture {
     /** Read from the working directory (the repo root under {@code ./mvnw test}), not the classpath. */
     private static final String SAMPLE_DATA_FILE = "sampleData.json";
 
+    private static final String IMPORT_URL = "/v1/function/import";
+    private static final String ACT_AS_OWNER_HEADER = "X-Act-As-Owner";
+    private static final long IMPORT_TIMEOUT_MS = 60_000;
+    private static final long IMPORT_POLL_INTERVAL_MS = 100;
+
     public static final SeededUser TRIAL_1 = new SeededUser("trial1@email.com", "trial1", "TRIAL", "seedTrialData1.json", null, null);
     public static final SeededUser TRIAL_2 = new SeededUser("trial2@email.com", "trial2", "TRIAL", "seedTrialData2.json", null, null);
     public static final SeededUser PAID_1 = new SeededUser("paid1@email.com", "paid1", "PAID", "seedPaidData1.json", null, null);
@@ -65,6 +76,7 @@ public class SeededUsersFixture {
     private final MockMvc mockMvc;
     private final JdbcTemplate jdbcTemplate;
     private final TestFactory factory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public SeededUsersFixture(MockMvc mockMvc, JdbcTemplate jdbcTemplate) {
         this.mockMvc = mockMvc;
@@ -146,13 +158,13 @@ public class SeededUsersFixture {
         final int defaultOwnerId = userId(DEFAULT_SHOWCASE_EMAIL);
         pinRole(adminToken, defaultOwnerId, "PAID");
         final String sampleData = new String(Files.readAllBytes(Paths.get(SAMPLE_DATA_FILE)), StandardCharsets.UTF_8);
-        mockMvc.perform(post("/v1/function/import")
+        final ResultActions accepted = mockMvc.perform(post(IMPORT_URL)
                         .header("Authorization", "Bearer " + adminToken)
-                        .header("X-Act-As-Owner", String.valueOf(defaultOwnerId))
+                        .header(ACT_AS_OWNER_HEADER, String.valueOf(defaultOwnerId))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"data\":" + sampleData + "}"))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.errors").isEmpty());
+                .andExpect(status().isAccepted());
+        awaitImportCompleted(accepted, adminToken, defaultOwnerId);
         pinRole(adminToken, defaultOwnerId, null);
     }
 
@@ -178,11 +190,42 @@ public class SeededUsersFixture {
     private void importSeedFile(String token, String seedFile) throws Exception {
         final String fileContent = new String(
                 new ClassPathResource("seeders/" + seedFile).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-        mockMvc.perform(post("/v1/function/import")
+        final ResultActions accepted = mockMvc.perform(post(IMPORT_URL)
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"data\":" + fileContent + "}"))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.errors").isEmpty());
+                .andExpect(status().isAccepted());
+        awaitImportCompleted(accepted, token, null);
+    }
+
+    /**
+     * POST /v1/function/import only queues the import (202), the data is in once the job is done. Poll the job the
+     * accepted response returned, as the same caller (and the same impersonated owner, when actAsOwnerId is set), until
+     * it finishes and fail unless it completed without errors. Returns the finished job.
+     */
+    public JsonNode awaitImportCompleted(ResultActions accepted, String token, Integer actAsOwnerId) throws Exception {
+        final int jobId = readData(accepted).get("id").asInt();
+        final long deadline = System.currentTimeMillis() + IMPORT_TIMEOUT_MS;
+        while (true) {
+            MockHttpServletRequestBuilder poll = get(IMPORT_URL + "/" + jobId).header("Authorization", "Bearer " + token);
+            if (null != actAsOwnerId) {
+                poll = poll.header(ACT_AS_OWNER_HEADER, String.valueOf(actAsOwnerId));
+            }
+            final JsonNode job = readData(mockMvc.perform(poll).andExpect(status().isOk()));
+            final String jobStatus = job.get("status").asText();
+            if ("completed".equals(jobStatus) || "failed".equals(jobStatus)) {
+                assertEquals("completed", jobStatus, "Import job " + jobId + " did not complete: " + job);
+                assertTrue(job.get("errors").isNull() || job.get("errors").isEmpty(), "Import job " + jobId + " completed with errors: " + job);
+                return job;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Import job " + jobId + " did not finish within " + IMPORT_TIMEOUT_MS + "ms: " + job);
+            }
+            Thread.sleep(IMPORT_POLL_INTERVAL_MS);
+        }
+    }
+
+    private JsonNode readData(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("data");
     }
 }
@@ -16,21 +16,22 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * interesting question — does an oversized body reach the application at all — is answered by whether the
  * chain was invoked.
  *
- * <p>{@code POST /v1/function/import} binds an {@code @RequestBody Map} that Jackson materializes fully into
- * the heap before the controller runs, and Spring Boot has no setting that caps a JSON body
- * ({@code max-http-form-post-size} is form-encoded only, {@code spring.servlet.multipart.*} is multipart
- * only). On a 4 GB host running a 1 GB-capped JVM beside two databases and Keycloak, one oversized upload is
- * an out-of-memory kill that costs the attacker a single request.
+ * <p>Every JSON {@code @RequestBody} other than the import's is bound whole into the heap before the controller
+ * runs, and Spring Boot has no setting that caps a JSON body ({@code max-http-form-post-size} is form-encoded
+ * only, {@code spring.servlet.multipart.*} is multipart only). On a 4 GB host running a 1 GB-capped JVM beside
+ * two databases and Keycloak, one oversized upload is an out-of-memory kill that costs the attacker a single
+ * request. The import streams its body and has a larger cap of its own.
  */
 public class RequestSizeLimitFilterTests {
 
     private static final long MAX = 1024;
+    private static final long IMPORT_MAX = 4096;
 
-    private final RequestSizeLimitFilter filter = new RequestSizeLimitFilter(MAX);
+    private final RequestSizeLimitFilter filter = new RequestSizeLimitFilter(MAX, IMPORT_MAX);
 
     @Test
     void aBodyOverTheCapIsRefusedWithoutReachingTheApplication() throws Exception {
-        final MockHttpServletRequest request = importRequest(MAX + 1);
+        final MockHttpServletRequest request = createRequest(MAX + 1);
         final MockHttpServletResponse response = new MockHttpServletResponse();
         final MockFilterChain chain = new MockFilterChain();
 
@@ -45,7 +46,7 @@ public class RequestSizeLimitFilterTests {
     void theRefusalIsJsonInTheSameShapeAsEveryOtherError() throws Exception {
         final MockHttpServletResponse response = new MockHttpServletResponse();
 
-        filter.doFilter(importRequest(MAX * 100), response, new MockFilterChain());
+        filter.doFilter(createRequest(MAX * 100), response, new MockFilterChain());
 
         assertTrue(response.getContentType().startsWith("application/json"),
                 "Clients parse errors as JSON; a filter-written body is no exception. Was: " + response.getContentType());
@@ -63,7 +64,7 @@ public class RequestSizeLimitFilterTests {
         final MockFilterChain chain = new MockFilterChain();
         final MockHttpServletResponse response = new MockHttpServletResponse();
 
-        filter.doFilter(importRequest(MAX), response, chain);
+        filter.doFilter(createRequest(MAX), response, chain);
 
         assertEquals(200, response.getStatus());
         assertNotNull(chain.getRequest(), "A body exactly at the cap is not over the cap.");
@@ -73,7 +74,7 @@ public class RequestSizeLimitFilterTests {
     void anOrdinaryRequestIsUntouched() throws Exception {
         final MockFilterChain chain = new MockFilterChain();
 
-        filter.doFilter(importRequest(64), new MockHttpServletResponse(), chain);
+        filter.doFilter(createRequest(64), new MockHttpServletResponse(), chain);
 
         assertNotNull(chain.getRequest(), "A small body passes straight through.");
     }
@@ -97,15 +98,55 @@ public class RequestSizeLimitFilterTests {
         final FilterChain chain = new MockFilterChain();
         final MockHttpServletResponse response = new MockHttpServletResponse();
 
-        new RequestSizeLimitFilter(10).doFilter(importRequest(11), response, chain);
+        new RequestSizeLimitFilter(10, 100).doFilter(createRequest(11), response, chain);
 
         assertEquals(413, response.getStatus(),
                 "pensieve.max-request-body-bytes has to actually move the limit — Caddy's edge cap is set "
                         + "from the same number and the two are meant to be raised together.");
     }
 
-    private MockHttpServletRequest importRequest(long contentLength) {
-        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/function/import");
+    @Test
+    void theImportIsHeldToItsOwnCap() throws Exception {
+        final MockFilterChain chain = new MockFilterChain();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(postRequest("/v1/function/import", IMPORT_MAX), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest(),
+                "A backup over the general cap but within the import cap reaches the import, which streams it.");
+    }
+
+    @Test
+    void anImportOverItsCapIsRefused() throws Exception {
+        final MockFilterChain chain = new MockFilterChain();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(postRequest("/v1/function/import", IMPORT_MAX + 1), response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+        assertTrue(response.getContentAsString().contains(String.valueOf(IMPORT_MAX)),
+                "The message names the import's cap, not the general one. Was: " + response.getContentAsString());
+    }
+
+    @Test
+    void theImportCapDoesNotLeakToOtherRoutes() throws Exception {
+        final MockFilterChain chain = new MockFilterChain();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(postRequest("/v1/function/import/extra", MAX + 1), response, chain);
+
+        assertEquals(413, response.getStatus(), "Only the import path itself gets the larger cap.");
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletRequest createRequest(long contentLength) {
+        return postRequest("/v1/toys", contentLength);
+    }
+
+    private MockHttpServletRequest postRequest(String path, long contentLength) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
         request.setContentType("application/json");
         // MockHttpServletRequest answers getContentLengthLong() from the content it holds, NOT from a
         // Content-Length header, so the body has to actually be set. Sizes here are small enough for that.
@@ -81,6 +81,8 @@ public class FilterTests {
                 jsonPath("$.data.filters.name[2]").value("contains"),
                 jsonPath("$.data.filters.name[3]").value("starts_with"),
                 jsonPath("$.data.filters.name[4]").value("ends_with"),
+                jsonPath("$.data.filters.name[5]").value("icontains"),
+                jsonPath("$.data.filters.name[6]").value("istarts_with"),
                 jsonPath("$.data.filters.generation[0]").value("equals"),
                 jsonPath("$.data.filters.generation[1]").value("not_equals"),
                 jsonPath("$.data.filters.generation[2]").value("greater_than"),
@@ -0,0 +1,132 @@
+package com.sethhaskellcondie.thegamepensieveapi.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.TestFactory;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code POST /v1/function/multiSearch} runs one search per entity key concurrently (each on its own tenant scoped
+ * transaction) and must return exactly what the single entity search endpoints return for the same filters.
+ */
+@SpringBootTest
+@ActiveProfiles("test-container")
+@AutoConfigureMockMvc
+public class MultiSearchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    private TestFactory factory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        factory = new TestFactory(mockMvc);
+    }
+
+    @Test
+    void multiSearch_EverySearchMatchesItsSingleEntitySearch() throws Exception {
+        final String systemName = "MultiSearch System " + System.nanoTime();
+        final String toyName = "MultiSearch Toy " + System.nanoTime();
+        factory.postSystemReturnResult(systemName, 3, false, List.of()).andExpect(status().isCreated());
+        factory.postToyReturnResult(toyName, "MultiSearch Set", List.of()).andExpect(status().isCreated());
+        factory.postBoardGameBox();
+
+        final String systemFilters = filtersArray(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_EQUALS, systemName, false));
+        final String toyFilters = filtersArray(new Filter(Keychain.TOY_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_EQUALS, toyName, false));
+        final String payload = """
+                {
+                  "searches": {
+                    "system": %s,
+                    "toy": %s,
+                    "boardGameBox": []
+                  }
+                }
+                """.formatted(systemFilters, toyFilters);
+
+        final JsonNode data = postMultiSearch(payload);
+        assertEquals(List.of(Keychain.SYSTEM_KEY, Keychain.TOY_KEY, Keychain.BOARD_GAME_BOX_KEY), fieldNames(data), "The results keep the keys in request order.");
+        assertEquals(1, data.get(Keychain.SYSTEM_KEY).size());
+        assertEquals(systemName, data.get(Keychain.SYSTEM_KEY).get(0).get("name").asText());
+        assertEquals(1, data.get(Keychain.TOY_KEY).size());
+        assertEquals(toyName, data.get(Keychain.TOY_KEY).get(0).get("name").asText());
+
+        final MvcResult boardGameBoxes = mockMvc.perform(post("/v1/boardGameBoxes/function/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filters\": []}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        //no sort was sent, so compare the rows by id rather than in order
+        assertEquals(ids(objectMapper.readTree(boardGameBoxes.getResponse().getContentAsString()).get("data")), ids(data.get(Keychain.BOARD_GAME_BOX_KEY)),
+                "An unfiltered search in a multi search should return the same board game boxes as the board game box search.");
+    }
+
+    @Test
+    void multiSearch_UnknownEntityKey_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/function/multiSearch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"searches\": {\"system\": [], \"spaceship\": []}}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void multiSearch_InvalidFilterInOneSearch_ReturnsBadRequest() throws Exception {
+        final String payload = """
+                {
+                  "searches": {
+                    "toy": [],
+                    "system": %s
+                  }
+                }
+                """.formatted(filtersArray(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "not_a_field", Filter.OPERATOR_EQUALS, "x", false)));
+        mockMvc.perform(post("/v1/function/multiSearch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode postMultiSearch(String payload) throws Exception {
+        final MvcResult result = mockMvc.perform(post("/v1/function/multiSearch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("data");
+    }
+
+    //the "filters" array of the single entity search payload
+    private String filtersArray(Filter filter) throws Exception {
+        return objectMapper.readTree(factory.formatFiltersPayload(filter)).get("filters").toString();
+    }
+
+    private Set<Integer> ids(JsonNode results) {
+        final Set<Integer> ids = new HashSet<>();
+        results.forEach(result -> ids.add(result.get("id").asInt()));
+        return ids;
+    }
+
+    private List<String> fieldNames(JsonNode node) {
+        final List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -2,6 +2,7 @@ package com.sethhaskellcondie.thegamepensieveapi.controllers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.sethhaskellcondie.thegamepensieveapi.SecuredProfileTest;
+import com.sethhaskellcondie.thegamepensieveapi.SeededUsersFixture;
 import com.sethhaskellcondie.thegamepensieveapi.TestFactory;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemResponseDto;
@@ -67,7 +68,7 @@ public class RoleSecuredProfileTests extends SecuredProfileTest {
     private static final String SYSTEMS_URL = "/v1/systems";
     private static final String BACKUP_URL = "/v1/function/backup";
     private static final String IMPORT_URL = "/v1/function/import";
-    // A well-formed but empty backup; importing it is a valid no-op that returns 200 (creates nothing).
+    // A well-formed but empty backup; importing it is a valid no-op job that is accepted (202) and completes creating nothing.
     private static final String EMPTY_IMPORT_BODY =
             "{\"data\":{\"customFields\":[],\"toys\":[],\"systems\":[],\"videoGameBoxes\":[],\"boardGameBoxes\":[],\"metadata\":[]}}";
 
@@ -129,7 +130,7 @@ public class RoleSecuredProfileTests extends SecuredProfileTest {
     /**
      * Given a TRIAL account, then it cannot import — IMPORT is the one capability the TRIAL row lacks relative to
      * PAID (403). Flipping {@code subscription_status} to {@code 'active'} promotes the <em>same</em> account to
-     * PAID, and because the role is re-derived per request, the next import then succeeds (200).
+     * PAID, and because the role is re-derived per request, the next import is then accepted (202) and completes.
      */
     @Test
     void trialAccount_CannotImport_untilPromotedToPaid() throws Exception {
@@ -144,11 +145,12 @@ public class RoleSecuredProfileTests extends SecuredProfileTest {
 
         makePaid(email);   // active subscription => derives to PAID on the next request
 
-        mockMvc.perform(post(IMPORT_URL)
+        final ResultActions accepted = mockMvc.perform(post(IMPORT_URL)
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(EMPTY_IMPORT_BODY))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted());
+        new SeededUsersFixture(mockMvc, jdbcTemplate).awaitImportCompleted(accepted, token, null);
     }
 
     // ============================ PAID (authenticated, active subscription) ============================
@@ -173,11 +175,12 @@ public class RoleSecuredProfileTests extends SecuredProfileTest {
         mockMvc.perform(post(BACKUP_URL).header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk());
         // import
-        mockMvc.perform(post(IMPORT_URL)
+        final ResultActions accepted = mockMvc.perform(post(IMPORT_URL)
                         .header("Authorization", "Bearer " + token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(EMPTY_IMPORT_BODY))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted());
+        new SeededUsersFixture(mockMvc, jdbcTemplate).awaitImportCompleted(accepted, token, null);
     }
 
     // ============================ GUEST (anonymous showcase) ============================
@@ -0,0 +1,143 @@
+package com.sethhaskellcondie.thegamepensieveapi.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.TestFactory;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * With pensieve.search.json-assembly=database the video game and video game box searches are built as JSON by
+ * Postgres, the results must be exactly the JSON the Java path writes for the same entities (every related object,
+ * custom field value, and timestamp), so the two can be swapped without a client noticing.
+ */
+@SpringBootTest(properties = "pensieve.search.json-assembly=database")
+@ActiveProfiles("test-container")
+@AutoConfigureMockMvc
+public class SearchJsonAssemblyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VideoGameGateway videoGameGateway;
+    @Autowired
+    private VideoGameBoxGateway videoGameBoxGateway;
+    @Autowired
+    private ToyGateway toyGateway;
+    private TestFactory factory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        factory = new TestFactory(mockMvc);
+    }
+
+    @Test
+    void searchVideoGamesAndBoxes_DatabaseAssembly_SameJsonAsGetById() throws Exception {
+        final int conditionId = factory.postCustomFieldReturnId("Json Assembly Condition", CustomField.TYPE_DROPDOWN, Keychain.VIDEO_GAME_BOX_KEY, List.of("Loose", "Complete"));
+        final int completeOptionId = getData(mockMvc.perform(get("/v1/custom_fields/" + conditionId))).get("options").get(1).get("id").asInt();
+        final int playthroughsId = factory.postCustomFieldReturnId("Json Assembly Playthroughs", CustomField.TYPE_NUMBER, Keychain.VIDEO_GAME_KEY);
+        final SystemResponseDto system = factory.postSystem();
+
+        final VideoGameRequestDto sharedGame = new VideoGameRequestDto("Json Assembly Game Shared", system.id(),
+                List.of(new CustomFieldValue(playthroughsId, "Json Assembly Playthroughs", CustomField.TYPE_NUMBER, "3")));
+        final VideoGameBoxResponseDto firstBox = factory.resultToDto(factory.postVideoGameBoxReturnResult("Json Assembly Box First", system.id(), List.of(),
+                List.of(sharedGame), true, List.of(new CustomFieldValue(conditionId, "Json Assembly Condition", CustomField.TYPE_DROPDOWN, "Complete", completeOptionId))),
+                VideoGameBoxResponseDto.class);
+        final VideoGameRequestDto ownGame = new VideoGameRequestDto("Json Assembly Game Own", system.id(), List.of());
+        factory.postVideoGameBoxReturnResult("Json Assembly Box Collection", system.id(),
+                List.of(firstBox.videoGames().getFirst().id()), List.of(ownGame), false, List.of());
+
+        final JsonNode boxes = search("/v1/videoGameBoxes", new Filter(Keychain.VIDEO_GAME_BOX_KEY, Filter.FIELD_TYPE_TEXT, "title", Filter.OPERATOR_STARTS_WITH, "Json Assembly Box", false));
+        assertEquals(2, boxes.size());
+        for (JsonNode box : boxes) {
+            assertEquals(getData(mockMvc.perform(get("/v1/videoGameBoxes/" + box.get("id").asInt()))), box);
+        }
+
+        final JsonNode games = search("/v1/videoGames", new Filter(Keychain.VIDEO_GAME_KEY, Filter.FIELD_TYPE_TEXT, "title", Filter.OPERATOR_STARTS_WITH, "Json Assembly Game", false));
+        assertEquals(2, games.size());
+        for (JsonNode game : games) {
+            assertEquals(getData(mockMvc.perform(get("/v1/videoGames/" + game.get("id").asInt()))), game);
+        }
+    }
+
+    @Test
+    void searchVideoGameBoxes_DatabaseAssemblySortedAndLimited_SearchOrderKept() throws Exception {
+        final SystemResponseDto system = factory.postSystem();
+        for (String title : List.of("Json Order Box B", "Json Order Box D", "Json Order Box A", "Json Order Box C")) {
+            factory.postVideoGameBoxReturnResult(title, system.id(), List.of(), List.of(new VideoGameRequestDto(title + " Game", system.id(), List.of())), true, List.of());
+        }
+
+        final JsonNode boxes = search("/v1/videoGameBoxes", List.of(
+                new Filter(Keychain.VIDEO_GAME_BOX_KEY, Filter.FIELD_TYPE_TEXT, "title", Filter.OPERATOR_STARTS_WITH, "Json Order Box", false),
+                new Filter(Keychain.VIDEO_GAME_BOX_KEY, Filter.FIELD_TYPE_TEXT, "title", Filter.OPERATOR_ORDER_BY_DESC, "", false),
+                new Filter(Keychain.VIDEO_GAME_BOX_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "3", false)));
+        final List<String> titles = new ArrayList<>();
+        boxes.forEach(box -> titles.add(box.get("title").asText()));
+        assertEquals(List.of("Json Order Box D", "Json Order Box C", "Json Order Box B"), titles);
+    }
+
+    @Test
+    void searchVideoGameBoxes_IncludeTotalCount_JavaPathReturnsTotal() throws Exception {
+        factory.postVideoGameBox();
+        mockMvc.perform(post("/v1/videoGameBoxes/function/search?includeTotalCount=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(factory.formatFiltersPayload(List.of()))
+        ).andExpectAll(
+                status().isOk(),
+                jsonPath("$.totalCount").isNumber()
+        );
+    }
+
+    @Test
+    void supportsJsonWithFilters_OnlyEntitiesWithJsonObjectSql() {
+        assertTrue(videoGameGateway.supportsJsonWithFilters());
+        assertTrue(videoGameBoxGateway.supportsJsonWithFilters());
+        assertFalse(toyGateway.supportsJsonWithFilters(), "Toys have no JSON object SQL, their searches must keep to the Java path.");
+    }
+
+    private JsonNode search(String baseUrl, Filter filter) throws Exception {
+        return search(baseUrl, List.of(filter));
+    }
+
+    private JsonNode search(String baseUrl, List<Filter> filters) throws Exception {
+        final ResultActions result = mockMvc.perform(post(baseUrl + "/function/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(factory.formatFiltersPayload(filters))
+        );
+        result.andExpect(status().isOk());
+        return getData(result);
+    }
+
+    private JsonNode getData(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("data");
+    }
+}
@@ -1,6 +1,7 @@
 package com.sethhaskellcondie.thegamepensieveapi.controllers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sethhaskellcondie.thegamepensieveapi.TestFactory;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
@@ -18,10 +19,13 @@ import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -109,6 +113,132 @@ public class ToyTests {
         );
     }
 
+    @Test
+    void postToysBulk_ValidPayload_AllCreatedInOrder() throws Exception {
+        final String set = "Bulk Set " + UUID.randomUUID();
+        //every toy names the same new custom field, it should only be created once
+        final List<CustomFieldValue> customFieldValues = List.of(new CustomFieldValue(0, "Bulk Owned " + UUID.randomUUID(), "boolean", "true"));
+        final String jsonContent = formatToysBulkPayload(List.of("Chip", "Dale", "Gadget"), set, customFieldValues);
+
+        final ResultActions result = mockMvc.perform(
+                post(baseUrl + "/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent)
+        );
+
+        result.andExpect(status().isCreated());
+        final List<ToyResponseDto> toys = factory.extractDataList(result, new TypeReference<>() { });
+        assertAll(
+                "The bulk create returns every toy in request order with its custom field values.",
+                () -> assertEquals(List.of("Chip", "Dale", "Gadget"), toys.stream().map(ToyResponseDto::name).toList()),
+                () -> assertEquals(1, toys.stream().map(toy -> toy.customFieldValues().getFirst().getCustomFieldId()).distinct().count())
+        );
+        for (ToyResponseDto toy : toys) {
+            factory.validateCustomFieldValues(toy.customFieldValues(), customFieldValues);
+        }
+    }
+
+    @Test
+    void postToysBulk_DuplicateItems_ErrorsReportedByIndexAndNothingCreated() throws Exception {
+        final String set = "Bulk Set " + UUID.randomUUID();
+        factory.postToyReturnResult("Monterey Jack", set, null);
+        final String jsonContent = formatToysBulkPayload(List.of("Zipper", "Monterey Jack", "Zipper"), set, null);
+
+        final ResultActions result = mockMvc.perform(
+                post(baseUrl + "/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent)
+        );
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.data").isEmpty(),
+                jsonPath("$.errors.length()").value(2),
+                jsonPath("$.errors[0]").value(startsWith("Item 1: ")),
+                jsonPath("$.errors[1]").value(startsWith("Item 2: "))
+        );
+        //the valid first item was not written either
+        factory.postToyReturnResult("Zipper", set, null);
+    }
+
+    @Test
+    void bulkUpdateToys_ByFilter_CustomFieldValueSetOnEveryMatch() throws Exception {
+        final String set = "Bulk Update Set " + UUID.randomUUID();
+        final ToyResponseDto first = resultToResponseDto(factory.postToyReturnResult("Huey", set, null));
+        final ToyResponseDto second = resultToResponseDto(factory.postToyReturnResult("Dewey", set, null));
+        final ToyResponseDto other = resultToResponseDto(factory.postToyReturnResult("Louie", "Other " + set, null));
+        final List<CustomFieldValue> customFieldValues = List.of(new CustomFieldValue(0, "Bulk Shelf " + UUID.randomUUID(), "text", "Top"));
+        final String jsonContent = String.format("""
+                {
+                  "filters": [{ "key": "toy", "field": "set", "operator": "equals", "operand": "%s" }],
+                  "customFieldValues": %s
+                }
+                """, set, factory.formatCustomFieldValues(customFieldValues));
+
+        final ResultActions result = mockMvc.perform(
+                patch(baseUrl + "/function/bulkUpdate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent)
+        );
+
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.data.count").value(2),
+                jsonPath("$.errors").isEmpty()
+        );
+        for (ToyResponseDto toy : List.of(first, second)) {
+            final ToyResponseDto updated = resultToResponseDto(mockMvc.perform(get(baseUrlSlash + toy.id())));
+            factory.validateCustomFieldValues(updated.customFieldValues(), customFieldValues);
+        }
+        final ToyResponseDto untouched = resultToResponseDto(mockMvc.perform(get(baseUrlSlash + other.id())));
+        assertEquals(0, untouched.customFieldValues().size(), "A toy that didn't match the filters should not be updated.");
+    }
+
+    @Test
+    void bulkUpdateToys_FieldNotAllowed_ReturnBadRequest() throws Exception {
+        final ToyResponseDto toy = resultToResponseDto(factory.postToyReturnResult());
+        final String jsonContent = String.format("""
+                {
+                  "ids": [%d],
+                  "fields": { "name": "Renamed" }
+                }
+                """, toy.id());
+
+        final ResultActions result = mockMvc.perform(
+                patch(baseUrl + "/function/bulkUpdate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent)
+        );
+
+        result.andExpectAll(
+                status().isBadRequest(),
+                jsonPath("$.data").isEmpty(),
+                jsonPath("$.errors").isNotEmpty()
+        );
+    }
+
+    @Test
+    void bulkDeleteToys_ByIds_EveryToyDeleted() throws Exception {
+        final ToyResponseDto first = resultToResponseDto(factory.postToyReturnResult());
+        final ToyResponseDto second = resultToResponseDto(factory.postToyReturnResult());
+        final String jsonContent = String.format("{ \"ids\": [%d, %d, -1] }", first.id(), second.id());
+
+        final ResultActions result = mockMvc.perform(
+                patch(baseUrl + "/function/bulkDelete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent)
+        );
+
+        //an id that doesn't match a toy is skipped, the response only holds the ids that were deleted
+        result.andExpectAll(
+                status().isOk(),
+                jsonPath("$.data.count").value(2),
+                jsonPath("$.errors").isEmpty()
+        );
+        mockMvc.perform(get(baseUrlSlash + first.id())).andExpect(status().isNotFound());
+        mockMvc.perform(get(baseUrlSlash + second.id())).andExpect(status().isNotFound());
+    }
+
     @Test
     void getOneToy_ToyExists_ToySerializedCorrectly() throws Exception {
         final String name = "Mario";
@@ -211,6 +341,38 @@ public class ToyTests {
         validateToyResponseBody(sortResultActions, List.of(toyDto3, toyDto2, toyDto1));
     }
 
+    @Test
+    void getWithFilters_AcceptNdjson_StreamsOneToyPerLine() throws Exception {
+        final String prefix = "Streamed Toy " + UUID.randomUUID().toString().substring(0, 8);
+        final ToyResponseDto toyDto1 = resultToResponseDto(factory.postToyReturnResult(prefix + " 1", "Stream Set", new ArrayList<>()));
+        final ToyResponseDto toyDto2 = resultToResponseDto(factory.postToyReturnResult(prefix + " 2", "Stream Set", new ArrayList<>()));
+
+        final List<Filter> filters = List.of(
+                new Filter("toy", "text", "name", Filter.OPERATOR_STARTS_WITH, prefix, false),
+                new Filter("toy", "text", "name", Filter.OPERATOR_ORDER_BY, "", false)
+        );
+        final ResultActions result = mockMvc.perform(post(baseUrl + "/function/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content(factory.formatFiltersPayload(filters))
+        );
+
+        result.andExpectAll(
+                status().isOk(),
+                content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        );
+        //no ApiResponse envelope, every line is a complete toy
+        final String[] lines = result.andReturn().getResponse().getContentAsString().split("\n");
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final List<Integer> streamedIds = new ArrayList<>();
+        for (String line : lines) {
+            final ToyResponseDto streamedToy = objectMapper.readValue(line, ToyResponseDto.class);
+            assertEquals("Stream Set", streamedToy.set());
+            streamedIds.add(streamedToy.id());
+        }
+        assertEquals(List.of(toyDto1.id(), toyDto2.id()), streamedIds);
+    }
+
     @Test
     void getAllToys_NoResultFilter_EmptyArrayReturned() throws Exception {
         final Filter filter = new Filter("toy", "text", "name", Filter.OPERATOR_STARTS_WITH, "NoResults", false);
@@ -338,4 +500,18 @@ public class ToyTests {
             factory.validateCustomFieldValues(expectedToy.customFieldValues(), returnedToy.customFieldValues());
         }
     }
+
+    private String formatToysBulkPayload(List<String> names, String set, List<CustomFieldValue> customFieldValues) {
+        final List<String> toys = new ArrayList<>();
+        for (String name : names) {
+            toys.add(String.format("""
+                    {
+                        "name": "%s",
+                        "set": "%s",
+                        "customFieldValues": %s
+                    }
+                    """, name, set, factory.formatCustomFieldValues(customFieldValues)));
+        }
+        return "{ \"" + Keychain.TOY_KEY + "\": [" + String.join(",", toys) + "] }";
+    }
 }
@@ -524,6 +524,25 @@ public class VideoGameBoxTests {
         );
     }
 
+    @Test
+    void deleteExistingVideoGameBox_SharedAndOnlyGames_OnlyGamesDeletedWithTheBox() throws Exception {
+        final SystemResponseDto system = factory.postSystem();
+        final VideoGameRequestDto sharedGame = new VideoGameRequestDto("Shared Compilation Game", system.id(), new ArrayList<>());
+        final VideoGameRequestDto onlyGame = new VideoGameRequestDto("Only Compilation Game", system.id(), new ArrayList<>());
+        final VideoGameBoxResponseDto compilation = factory.resultToDto(
+                factory.postVideoGameBoxReturnResult("Compilation Box", system.id(), new ArrayList<>(), List.of(sharedGame, onlyGame), true, new ArrayList<>()),
+                VideoGameBoxResponseDto.class);
+        final int sharedGameId = compilation.videoGames().get(0).id();
+        final int onlyGameId = compilation.videoGames().get(1).id();
+        factory.postVideoGameBoxReturnResult("Single Release Box", system.id(), List.of(sharedGameId), new ArrayList<>(), true, new ArrayList<>());
+
+        mockMvc.perform(delete(baseUrlSlash + compilation.id())).andExpect(status().isNoContent());
+
+        //the game that is still in another box is kept, the game that was only in the deleted box is deleted with it
+        mockMvc.perform(get("/v1/videoGames/" + sharedGameId)).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/videoGames/" + onlyGameId)).andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteExistingVideoGameBox_InvalidId_ReturnNotFound() throws Exception {
         final ResultActions result = mockMvc.perform(
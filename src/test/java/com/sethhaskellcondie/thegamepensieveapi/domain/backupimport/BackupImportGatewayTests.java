@@ -2,27 +2,56 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
-
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.SlimBoardGame;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyResponseDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.SlimVideoGame;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxGateway;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxResponseDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInputValidation;
 import com.sethhaskellcondie.thegamepensieveapi.domain.metadata.Metadata;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldGateway;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOption;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldUpdateRequestDto;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
 
 /**
@@ -47,6 +76,316 @@ public class BackupImportGatewayTests {
     @Autowired
     private CustomFieldGateway customFieldGateway;
 
+    @Autowired
+    private ToyGateway toyGateway;
+
+    @Autowired
+    private SystemGateway systemGateway;
+
+    @Autowired
+    private VideoGameBoxGateway videoGameBoxGateway;
+
+    @Autowired
+    private BoardGameBoxGateway boardGameBoxGateway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The streamed backup (what /v1/function/backup and backup.json are written with) must be the same document as the
+     * BackupDataDto built in memory, field for field, so files written before and after streaming read back the same.
+     */
+    @Test
+    void writeBackupData_SampleDataImported_SameJsonAsGetBackupData() throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        gateway.importBackupData(objectMapper.readValue(Files.readAllBytes(Paths.get("sampleData.json")), BackupDataDto.class));
+
+        final StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(streamed)) {
+            gateway.writeBackupData(generator);
+        }
+
+        assertEquals(objectMapper.valueToTree(gateway.getBackupData()), objectMapper.readTree(streamed.toString()));
+    }
+
+    /**
+     * The request body import reads the board game boxes BackupDataReader.CHUNK_SIZE at a time. An expansion whose base
+     * set box only comes in a later chunk has to be held back until the base set is imported, not fail to resolve it.
+     */
+    @Test
+    void importBackupDataStreamed_ExpansionAChunkBeforeItsBaseSet_Imported() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final int baseSetId = 2;
+        final List<BoardGameBoxResponseDto> boxes = new ArrayList<>();
+        boxes.add(new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, 1, "Streamed Expansion " + run, true, false, baseSetId,
+                new SlimBoardGame(1, "Streamed Expansion Game " + run, null, null, null, new ArrayList<>()), null, null, null, new ArrayList<>()));
+        for (int filler = 3; filler < BackupDataReader.CHUNK_SIZE + 3; filler++) {
+            boxes.add(new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, filler, "Streamed Filler Box " + filler + " " + run, false, false, null,
+                    new SlimBoardGame(filler, "Streamed Filler Game " + filler + " " + run, null, null, null, new ArrayList<>()), null, null, null, new ArrayList<>()));
+        }
+        boxes.add(new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, baseSetId, "Streamed Base Set " + run, false, false, null,
+                new SlimBoardGame(baseSetId, "Streamed Base Set Game " + run, null, null, null, new ArrayList<>()), null, null, null, new ArrayList<>()));
+
+        final ImportResultsDto results = importStreamed(new BackupDataDto(new ArrayList<>(), null, null, null, boxes, null));
+
+        assertEquals(List.of(), results.exceptionBackupImport().getMessages());
+        assertEquals(boxes.size(), results.createdBoardGameBoxes());
+        final BackupDataDto backupData = gateway.getBackupData();
+        assertEquals("Streamed Base Set " + run, resolveBaseSetBoxTitle(backupData, findBoardGameBoxByTitle(backupData, "Streamed Expansion " + run).baseSetId()));
+    }
+
+    /**
+     * The boxes still held back when the section ends are read back out of the database, the ones in a cycle of base set
+     * references are reported under their titles like a backup read whole reports them.
+     */
+    @Test
+    void importBackupDataStreamed_BaseSetReferenceCycle_HeldBackBoxesReportedByTitle() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final List<BoardGameBoxResponseDto> boxes = List.of(
+                new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, 1, "Streamed Cycle A " + run, true, false, 2,
+                        new SlimBoardGame(1, "Streamed Cycle Game A " + run, null, null, null, new ArrayList<>()), null, null, null, new ArrayList<>()),
+                new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, 2, "Streamed Cycle B " + run, true, false, 1,
+                        new SlimBoardGame(2, "Streamed Cycle Game B " + run, null, null, null, new ArrayList<>()), null, null, null, new ArrayList<>())
+        );
+
+        final ImportResultsDto results = importStreamed(new BackupDataDto(new ArrayList<>(), null, null, null, boxes, null));
+
+        final List<String> messages = results.exceptionBackupImport().getMessages();
+        assertEquals(2, messages.size());
+        assertTrue(messages.stream().anyMatch(message -> message.contains("Streamed Cycle A " + run) && message.contains("cycle")));
+        assertTrue(messages.stream().anyMatch(message -> message.contains("Streamed Cycle B " + run) && message.contains("cycle")));
+        assertEquals(0, results.createdBoardGameBoxes());
+    }
+
+    /**
+     * An incremental backup holds only what changed since its since, a toy deleted in the window is a tombstone. Merged
+     * on top of a collection that has the toy again (the full backup before it), the tombstone deletes it.
+     */
+    @Test
+    void writeIncrementalBackupData_ToyDeletedSince_TombstoneDeletesItOnImport() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final ToyResponseDto keptToy = new ToyResponseDto(Keychain.TOY_KEY, 1, "Incremental Kept Toy " + run, "Incremental Set", null, null, null, new ArrayList<>());
+        final ToyResponseDto deletedToy = new ToyResponseDto(Keychain.TOY_KEY, 2, "Incremental Deleted Toy " + run, "Incremental Set", null, null, null, new ArrayList<>());
+        gateway.importBackupData(new BackupDataDto(new ArrayList<>(), List.of(keptToy, deletedToy), null, null, null, null));
+        final Timestamp since = Timestamp.from(Instant.now());
+        toyGateway.deleteById(findToyByName(gateway.getBackupData(), deletedToy.name()).id());
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(streamed)) {
+            gateway.writeBackupData(generator, since.toInstant().toString());
+        }
+        final JsonNode incremental = objectMapper.readTree(streamed.toString());
+        for (JsonNode toy : incremental.get("toys")) {
+            assertNotEquals(keptToy.name(), toy.get("name").asText(), "a toy that didn't change since isn't exported");
+        }
+        final List<Tombstone> tombstones = objectMapper.convertValue(incremental.get("deleted"),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Tombstone.class));
+        assertEquals(List.of(List.of(deletedToy.name(), deletedToy.set())),
+                tombstones.stream().filter(tombstone -> Keychain.TOY_KEY.equals(tombstone.key())).map(Tombstone::naturalKey).toList());
+
+        gateway.importBackupData(new BackupDataDto(new ArrayList<>(), List.of(deletedToy), null, null, null, null));
+        final ImportResultsDto results;
+        try (JsonParser parser = objectMapper.createParser("{\"data\": " + streamed + "}")) {
+            results = gateway.importBackupData(parser);
+        }
+
+        assertEquals(1, results.deleted());
+        final BackupDataDto backupData = gateway.getBackupData();
+        assertTrue(backupData.toys().stream().noneMatch(toy -> toy.name().equals(deletedToy.name())));
+        assertEquals(keptToy.name(), findToyByName(backupData, keptToy.name()).name());
+    }
+
+    /**
+     * The exportedAt of an incremental backup is the next one's since. It is taken from the database at the backup's
+     * snapshot, less the safety margin, so a write in flight during the backup is in the next window.
+     */
+    @Test
+    void writeIncrementalBackupData_ExportedAt_DatabaseTimeLessTheSafetyMargin() throws Exception {
+        final long safetyMarginMillis = 300_000;
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final StringWriter streamed = new StringWriter();
+
+        final Timestamp before = jdbcTemplate.queryForObject("SELECT now()", Timestamp.class);
+        try (JsonGenerator generator = objectMapper.createGenerator(streamed)) {
+            gateway.writeBackupData(generator, before.toInstant().toString());
+        }
+        final Timestamp after = jdbcTemplate.queryForObject("SELECT now()", Timestamp.class);
+
+        final Timestamp exportedAt = Timestamp.from(OffsetDateTime.parse(objectMapper.readTree(streamed.toString()).get("exportedAt").asText()).toInstant());
+        assertTrue(exportedAt.getTime() >= before.getTime() - safetyMarginMillis, "exportedAt " + exportedAt + " is older than the margin before " + before);
+        assertTrue(exportedAt.getTime() <= after.getTime() - safetyMarginMillis, "exportedAt " + exportedAt + " is within the margin of " + after);
+    }
+
+    /**
+     * since is read with its offset, a time without one would be read in the server's zone and shift the window.
+     */
+    @Test
+    void writeIncrementalBackupData_SinceWithoutOffset_Rejected() {
+        for (String since : List.of("2026-10-17 00:00:00", "2026-10-17T00:00:00", "yesterday")) {
+            assertThrows(ExceptionInputValidation.class, () -> gateway.writeBackupData(new ObjectMapper().createGenerator(new StringWriter()), since), since);
+        }
+    }
+
+    /**
+     * The import runs in one transaction, a statement that fails in it is reported and rolled back to a savepoint of its
+     * own. A tombstone the database refuses (a trigger here) leaves its box, the rest of the backup is still imported.
+     */
+    @Test
+    void importIncrementalBackup_OneTombstoneFailsInTheDatabase_RestOfTheImportCommitted() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final ToyResponseDto deletedToy = new ToyResponseDto(Keychain.TOY_KEY, 1, "Savepoint Deleted Toy " + run, "Savepoint Set", null, null, null, new ArrayList<>());
+        final ToyResponseDto addedToy = new ToyResponseDto(Keychain.TOY_KEY, 2, "Savepoint Added Toy " + run, "Savepoint Set", null, null, null, new ArrayList<>());
+        final SystemResponseDto system = new SystemResponseDto(Keychain.SYSTEM_KEY, 1, "Savepoint System " + run, 3, false, null, null, null, new ArrayList<>());
+        final VideoGameBoxResponseDto box = new VideoGameBoxResponseDto(Keychain.VIDEO_GAME_BOX_KEY, 1, "Savepoint Box " + run, system,
+                List.of(new SlimVideoGame(1, "Savepoint Game " + run, system, null, null, null, new ArrayList<>())), true, false, null, null, null, new ArrayList<>());
+        gateway.importBackupData(new BackupDataDto(new ArrayList<>(), List.of(deletedToy), List.of(system), List.of(box), null, null));
+
+        final String rejectDelete = "reject_box_delete_" + run;
+        jdbcTemplate.execute("CREATE FUNCTION " + rejectDelete + "() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN RAISE EXCEPTION 'box is kept'; END; $$");
+        jdbcTemplate.execute("CREATE TRIGGER " + rejectDelete + " BEFORE UPDATE ON video_game_boxes FOR EACH ROW"
+                + " WHEN (OLD.title = '" + box.title() + "' AND NEW.deleted_at IS NOT NULL) EXECUTE FUNCTION " + rejectDelete + "()");
+        final ImportResultsDto results;
+        try {
+            final Map<String, Object> incremental = new LinkedHashMap<>();
+            incremental.put("since", Instant.now().toString());
+            incremental.put("deleted", List.of(
+                    new Tombstone(Keychain.VIDEO_GAME_BOX_KEY, 1, List.of(box.title(), system.name()), null),
+                    new Tombstone(Keychain.TOY_KEY, 1, List.of(deletedToy.name(), deletedToy.set()), null)));
+            incremental.put("customFields", List.of());
+            incremental.put("toys", List.of(addedToy));
+            final ObjectMapper objectMapper = new ObjectMapper();
+            try (JsonParser parser = objectMapper.createParser(objectMapper.writeValueAsBytes(Map.of("data", incremental)))) {
+                results = gateway.importBackupData(parser);
+            }
+        } finally {
+            jdbcTemplate.execute("DROP FUNCTION " + rejectDelete + "() CASCADE");
+        }
+
+        assertEquals(1, results.exceptionBackupImport().getMessages().size());
+        assertTrue(results.exceptionBackupImport().getMessages().getFirst().contains(box.title()));
+        assertEquals(1, results.deleted());
+        assertEquals(1, results.createdToys());
+        final BackupDataDto backupData = gateway.getBackupData();
+        assertTrue(backupData.toys().stream().noneMatch(toy -> toy.name().equals(deletedToy.name())));
+        assertEquals(addedToy.name(), findToyByName(backupData, addedToy.name()).name());
+        assertEquals(List.of("Savepoint Game " + run), backupData.videoGameBoxes().stream().filter(liveBox -> liveBox.title().equals(box.title()))
+                .findFirst().orElseThrow().videoGames().stream().map(SlimVideoGame::title).toList());
+    }
+
+    /**
+     * A full backup restored and the incremental backup after it merged on top must give back the collection as it is
+     * now. The entities the full backup restored are found by their natural key and take what changed in the window:
+     * the other fields of a system and of the boxes, the games of a box, a removed custom field value, and a rename.
+     */
+    @Test
+    void writeIncrementalBackupData_FieldsAndBoxContentsChangedSince_RestoredCollectionMatchesLive() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final CustomField noteField = CustomField.withoutOptions(1, "Incremental Note " + run, CustomField.TYPE_TEXT, Keychain.TOY_KEY);
+        final ToyResponseDto notedToy = new ToyResponseDto(Keychain.TOY_KEY, 1, "Incremental Noted Toy " + run, "Incremental Set", null, null, null,
+                List.of(new CustomFieldValue(1, noteField.name(), CustomField.TYPE_TEXT, "Boxed")));
+        final ToyResponseDto renamedToy = new ToyResponseDto(Keychain.TOY_KEY, 2, "Incremental Old Name " + run, "Incremental Set", null, null, null, new ArrayList<>());
+        final SystemResponseDto system = new SystemResponseDto(Keychain.SYSTEM_KEY, 1, "Incremental System " + run, 3, false, null, null, null, new ArrayList<>());
+        final SlimVideoGame keptGame = new SlimVideoGame(1, "Incremental Kept Game " + run, system, null, null, null, new ArrayList<>());
+        final SlimVideoGame removedGame = new SlimVideoGame(2, "Incremental Removed Game " + run, system, null, null, null, new ArrayList<>());
+        final SlimBoardGame boardGame = new SlimBoardGame(1, "Incremental Board Game " + run, null, null, null, new ArrayList<>());
+        gateway.importBackupData(new BackupDataDto(List.of(noteField), List.of(notedToy, renamedToy), List.of(system),
+                List.of(new VideoGameBoxResponseDto(Keychain.VIDEO_GAME_BOX_KEY, 1, "Incremental Box " + run, system, List.of(keptGame, removedGame),
+                        true, true, null, null, null, new ArrayList<>())),
+                List.of(new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, 1, "Incremental Base Set " + run, false, false, null, boardGame, null, null, null, new ArrayList<>()),
+                        new BoardGameBoxResponseDto(Keychain.BOARD_GAME_BOX_KEY, 2, "Incremental Expansion " + run, false, false, null, boardGame, null, null, null, new ArrayList<>())),
+                null));
+        final BackupDataDto fullBackup = runOnly(gateway.getBackupData(), run);
+        final Timestamp since = Timestamp.from(Instant.now());
+
+        final SystemResponseDto liveSystem = fullBackup.systems().getFirst();
+        systemGateway.updateExisting(liveSystem.id(), new SystemRequestDto(liveSystem.name(), 4, true, new ArrayList<>()));
+        final VideoGameBoxResponseDto liveBox = fullBackup.videoGameBoxes().getFirst();
+        final int keptGameId = liveBox.videoGames().stream().filter(game -> game.title().equals(keptGame.title())).findFirst().orElseThrow().id();
+        videoGameBoxGateway.updateExisting(liveBox.id(), new VideoGameBoxRequestDto(liveBox.title(), liveSystem.id(), List.of(keptGameId),
+                List.of(new VideoGameRequestDto("Incremental Added Game " + run, liveSystem.id(), new ArrayList<>())), false, new ArrayList<>()));
+        final BoardGameBoxResponseDto liveExpansion = findBoardGameBoxByTitle(fullBackup, "Incremental Expansion " + run);
+        boardGameBoxGateway.updateExisting(liveExpansion.id(), new BoardGameBoxRequestDto(liveExpansion.title(), true, false,
+                findBoardGameBoxByTitle(fullBackup, "Incremental Base Set " + run).id(), liveExpansion.boardGame().id(), null, new ArrayList<>()));
+        toyGateway.updateExisting(findToyByName(fullBackup, renamedToy.name()).id(), new ToyRequestDto("Incremental New Name " + run, renamedToy.set(), new ArrayList<>()));
+        //there is no request that clears a single value, it is taken out of the database and the toy marked changed
+        final int notedToyId = findToyByName(fullBackup, notedToy.name()).id();
+        jdbcTemplate.update("DELETE FROM custom_field_values WHERE entity_key = ? AND entity_id = ?", Keychain.TOY_KEY, notedToyId);
+        jdbcTemplate.update("UPDATE toys SET updated_at = now() WHERE id = ?", notedToyId);
+        final List<String> live = describe(runOnly(gateway.getBackupData(), run));
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final StringWriter incremental = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(incremental)) {
+            gateway.writeBackupData(generator, since.toInstant().toString());
+        }
+        //the collection is lost, the full backup is restored and the incremental backup merged on top of it
+        for (String table : List.of("toys", "systems", "video_games", "video_game_boxes", "board_games", "board_game_boxes")) {
+            final String column = table.equals("toys") || table.equals("systems") ? "name" : "title";
+            jdbcTemplate.update("UPDATE " + table + " SET deleted_at = now() WHERE deleted_at IS NULL AND " + column + " LIKE ?", "%" + run);
+        }
+        gateway.importBackupData(fullBackup);
+        final ImportResultsDto results;
+        try (JsonParser parser = objectMapper.createParser("{\"data\": " + incremental + "}")) {
+            results = gateway.importBackupData(parser);
+        }
+
+        assertEquals(List.of(), results.exceptionBackupImport().getMessages());
+        assertEquals(live, describe(runOnly(gateway.getBackupData(), run)));
+    }
+
+    /**
+     * The custom fields of an incremental backup are exported whole, a renamed one has a tombstone of its old name and is
+     * renamed in place, so a restored entity that didn't change in the window keeps its value under the new name. A
+     * deleted custom field has a tombstone and is deleted.
+     */
+    @Test
+    void writeIncrementalBackupData_CustomFieldRenamedAndDeletedSince_UnchangedEntitiesKeepTheirValues() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final CustomField renamedField = CustomField.withoutOptions(1, "Incremental Grade " + run, CustomField.TYPE_TEXT, Keychain.TOY_KEY);
+        final CustomField deletedField = CustomField.withoutOptions(2, "Incremental Shelf " + run, CustomField.TYPE_TEXT, Keychain.TOY_KEY);
+        final ToyResponseDto changedToy = new ToyResponseDto(Keychain.TOY_KEY, 1, "Incremental Changed Toy " + run, "Incremental Set", null, null, null,
+                List.of(new CustomFieldValue(1, renamedField.name(), CustomField.TYPE_TEXT, "Mint"), new CustomFieldValue(2, deletedField.name(), CustomField.TYPE_TEXT, "Top")));
+        final ToyResponseDto unchangedToy = new ToyResponseDto(Keychain.TOY_KEY, 2, "Incremental Unchanged Toy " + run, "Incremental Set", null, null, null,
+                List.of(new CustomFieldValue(1, renamedField.name(), CustomField.TYPE_TEXT, "Worn")));
+        gateway.importBackupData(new BackupDataDto(List.of(renamedField, deletedField), List.of(changedToy, unchangedToy), null, null, null, null));
+        final BackupDataDto fullBackup = runOnly(gateway.getBackupData(), run);
+        final Timestamp since = Timestamp.from(Instant.now());
+
+        final CustomField liveRenamedField = findCustomFieldByName(fullBackup, renamedField.name());
+        customFieldGateway.update(liveRenamedField.id(), new CustomFieldUpdateRequestDto("Incremental Condition " + run, liveRenamedField.order(), null));
+        customFieldGateway.deleteById(findCustomFieldByName(fullBackup, deletedField.name()).id());
+        jdbcTemplate.update("UPDATE toys SET updated_at = now() WHERE id = ?", findToyByName(fullBackup, changedToy.name()).id());
+        final List<String> live = describe(runOnly(gateway.getBackupData(), run));
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final StringWriter incremental = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(incremental)) {
+            gateway.writeBackupData(generator, since.toInstant().toString());
+        }
+        //the collection is lost, the full backup is restored and the incremental backup merged on top of it
+        jdbcTemplate.update("UPDATE toys SET deleted_at = now() WHERE deleted_at IS NULL AND name LIKE ?", "%" + run);
+        jdbcTemplate.update("UPDATE custom_fields SET deleted = true WHERE deleted = false AND name LIKE ?", "%" + run);
+        gateway.importBackupData(fullBackup);
+        final ImportResultsDto results;
+        try (JsonParser parser = objectMapper.createParser("{\"data\": " + incremental + "}")) {
+            results = gateway.importBackupData(parser);
+        }
+
+        assertEquals(List.of(), results.exceptionBackupImport().getMessages());
+        assertEquals(1, results.deleted());
+        final BackupDataDto restoredBackup = runOnly(gateway.getBackupData(), run);
+        assertTrue(live.contains("toy " + unchangedToy.name() + " | " + unchangedToy.set() + " | [Incremental Condition " + run + "=Worn]"));
+        assertEquals(live, describe(restoredBackup));
+        assertEquals(List.of("Incremental Condition " + run), restoredBackup.customFields().stream().map(CustomField::name).filter(name -> name.endsWith(run)).toList());
+    }
+
+    @Test
+    void importBackupDataStreamed_SystemsAfterVideoGameBoxes_Rejected() {
+        final String body = "{\"data\": {\"customFields\": [], \"videoGameBoxes\": [], \"systems\": []}}";
+        assertThrows(ExceptionInputValidation.class, () -> gateway.importBackupData(new ObjectMapper().createParser(body)));
+    }
+
     @Test
     void customFieldImport_InvalidCustomFields_NoDataImported() {
         final BackupDataDto initialBackupData = gateway.getBackupData();
@@ -1465,10 +1804,48 @@ public class BackupImportGatewayTests {
                 .orElse("unresolved base set box with id: " + baseSetId);
     }
 
+    private ToyResponseDto findToyByName(BackupDataDto backupData, String name) {
+        return backupData.toys().stream()
+                .filter(toy -> toy.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Toy '" + name + "' was not found in the exported backup data."));
+    }
+
     private BoardGameBoxResponseDto findBoardGameBoxByTitle(BackupDataDto backupData, String title) {
         return backupData.boardGameBoxes().stream()
                 .filter(box -> box.title().equals(title))
                 .findFirst()
                 .orElseThrow(() -> new AssertionError("Board game box '" + title + "' was not found in the exported backup data."));
     }
+
+    //the entities of one test run, every custom field (the values of the entities refer to them)
+    private BackupDataDto runOnly(BackupDataDto backupData, String run) {
+        return new BackupDataDto(backupData.customFields(),
+                backupData.toys().stream().filter(toy -> toy.name().endsWith(run)).toList(),
+                backupData.systems().stream().filter(system -> system.name().endsWith(run)).toList(),
+                backupData.videoGameBoxes().stream().filter(box -> box.title().endsWith(run)).toList(),
+                backupData.boardGameBoxes().stream().filter(box -> box.title().endsWith(run)).toList(),
+                new ArrayList<>());
+    }
+
+    //what a collection holds without its ids and timestamps, one line per entity, in order
+    private List<String> describe(BackupDataDto backupData) {
+        final List<String> lines = new ArrayList<>();
+        backupData.toys().forEach(toy -> lines.add("toy " + toy.name() + " | " + toy.set() + " | "
+                + toy.customFieldValues().stream().map(value -> value.getCustomFieldName() + "=" + value.getValue()).sorted().toList()));
+        backupData.systems().forEach(system -> lines.add("system " + system.name() + " | " + system.generation() + " | " + system.handheld()));
+        backupData.videoGameBoxes().forEach(box -> lines.add("videoGameBox " + box.title() + " | " + box.system().name() + " | " + box.isPhysical()
+                + " | " + box.isCollection() + " | " + box.videoGames().stream().map(SlimVideoGame::title).sorted().toList()));
+        backupData.boardGameBoxes().forEach(box -> lines.add("boardGameBox " + box.title() + " | " + box.boardGame().title() + " | " + box.isExpansion()
+                + " | " + box.isStandAlone() + " | " + resolveBaseSetBoxTitle(backupData, box.baseSetId())));
+        lines.sort(String::compareTo);
+        return lines;
+    }
+
+    private ImportResultsDto importStreamed(BackupDataDto backupData) throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        try (JsonParser parser = objectMapper.createParser(objectMapper.writeValueAsBytes(Map.of("data", backupData)))) {
+            return gateway.importBackupData(parser);
+        }
+    }
 }
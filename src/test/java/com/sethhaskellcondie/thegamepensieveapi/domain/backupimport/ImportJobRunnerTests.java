@@ -0,0 +1,158 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /v1/function/import end to end: the request queues the job (202), ImportJobRunner runs it once the request's
+ * transaction commits, and GET /v1/function/import/{id} follows it to its final state. Nothing here is rolled back,
+ * the worker only sees committed rows, so every run uses its own names.
+ */
+@SpringBootTest
+@ActiveProfiles("import-tests")
+@AutoConfigureMockMvc
+public class ImportJobRunnerTests {
+    private static final String IMPORT_URL = "/v1/function/import";
+    private static final long IMPORT_TIMEOUT_MS = 30_000;
+    private static final String EMPTY_IMPORT_BODY =
+            "{\"data\":{\"customFields\":[],\"toys\":[],\"systems\":[],\"videoGameBoxes\":[],\"boardGameBoxes\":[],\"metadata\":[]}}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ImportJobRunner importJobRunner;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void importJob_PostThenPoll_CompletedWithTheFinalCounts() throws Exception {
+        final String run = UUID.randomUUID().toString().substring(0, 8);
+        final List<ToyResponseDto> toys = List.of(
+                new ToyResponseDto(Keychain.TOY_KEY, 1, "Job Toy One " + run, "Job Set", null, null, null, List.of()),
+                new ToyResponseDto(Keychain.TOY_KEY, 2, "Job Toy Two " + run, "Job Set", null, null, null, List.of()));
+        final String document = objectMapper.writeValueAsString(Map.of("data", new BackupDataDto(List.of(), toys, List.of(), List.of(), List.of(), List.of())));
+        final List<Path> documentsBefore = importDocuments();
+
+        final JsonNode queued = readData(postImport(document));
+        assertEquals(ImportJobDto.STATUS_QUEUED, queued.get("status").asText());
+        final JsonNode job = awaitFinished(queued.get("id").asInt());
+
+        assertEquals(ImportJobDto.STATUS_COMPLETED, job.get("status").asText(), job.toString());
+        assertEquals(2, job.get("results").get("createdToys").asInt());
+        assertEquals(0, job.get("results").get("existingToys").asInt());
+        assertTrue(job.get("errors").isEmpty(), job.toString());
+        assertFalse(job.get("finishedAt").isNull(), "a finished job has its finish time");
+        assertEquals(documentsBefore, importDocuments(), "The job's copy of the document must be deleted by the time the job is done.");
+    }
+
+    @Test
+    void importJob_MalformedDocument_FailedWithTheParseError() throws Exception {
+        final List<Path> documentsBefore = importDocuments();
+
+        final JsonNode job = awaitFinished(readData(postImport("{\"data\":{\"toys\":[{\"name\":")).get("id").asInt());
+
+        assertEquals(ImportJobDto.STATUS_FAILED, job.get("status").asText(), job.toString());
+        assertTrue(job.get("results").isNull(), "a failed import was rolled back, it has no counts");
+        assertEquals(1, job.get("errors").size());
+        assertTrue(job.get("errors").get(0).asText().startsWith("The import is not a valid backup document: "), job.toString());
+        assertEquals(documentsBefore, importDocuments(), "A failed job's copy of the document must be deleted as well.");
+    }
+
+    /**
+     * A job left running by a node that is gone blocks the owner's imports until the upkeep marks it failed: its
+     * heartbeat is stale and nothing holds the owner's import lock.
+     */
+    @Test
+    void importJob_OwnerHasAStaleJob_RejectedUntilTheStaleJobIsFailed() throws Exception {
+        final int staleJobId = jdbcTemplate.queryForObject("INSERT INTO import_jobs (owner_id, status, started_at, heartbeat_at)"
+                + " VALUES (showcase_owner_id(), 'running', now() - interval '1 hour', now() - interval '1 hour') RETURNING id", Integer.class);
+        try {
+            mockMvc.perform(post(IMPORT_URL).contentType(MediaType.APPLICATION_JSON).content(EMPTY_IMPORT_BODY))
+                    .andExpect(status().isConflict());
+
+            importJobRunner.heartbeatAndFailStaleJobs();
+
+            final JsonNode staleJob = readData(mockMvc.perform(get(IMPORT_URL + "/" + staleJobId)).andExpect(status().isOk()));
+            assertEquals(ImportJobDto.STATUS_FAILED, staleJob.get("status").asText());
+            assertEquals(ImportJobRunner.STALE_JOB_MESSAGE, staleJob.get("errors").get(0).asText());
+            final JsonNode job = awaitFinished(readData(postImport(EMPTY_IMPORT_BODY)).get("id").asInt());
+            assertEquals(ImportJobDto.STATUS_COMPLETED, job.get("status").asText(), job.toString());
+        } finally {
+            jdbcTemplate.update("UPDATE import_jobs SET status = 'failed' WHERE id = ? AND status IN ('queued', 'running')", staleJobId);
+        }
+    }
+
+    @Test
+    void heartbeatAndFailStaleJobs_RecentHeartbeat_JobIsLeftAlone() {
+        final int jobId = jdbcTemplate.queryForObject("INSERT INTO import_jobs (owner_id, status, started_at)"
+                + " VALUES (showcase_owner_id(), 'running', now() - interval '1 hour') RETURNING id", Integer.class);
+        try {
+            importJobRunner.heartbeatAndFailStaleJobs();
+
+            assertEquals(ImportJobDto.STATUS_RUNNING, jdbcTemplate.queryForObject("SELECT status FROM import_jobs WHERE id = ?", String.class, jobId),
+                    "A job whose heartbeat is recent may still be running on another node.");
+        } finally {
+            jdbcTemplate.update("UPDATE import_jobs SET status = 'failed' WHERE id = ?", jobId);
+        }
+    }
+
+    // ------------------------------- Private helpers -------------------------------
+
+    private ResultActions postImport(String document) throws Exception {
+        return mockMvc.perform(post(IMPORT_URL).contentType(MediaType.APPLICATION_JSON).content(document))
+                .andExpect(status().isAccepted());
+    }
+
+    private JsonNode awaitFinished(int jobId) throws Exception {
+        final long deadline = System.currentTimeMillis() + IMPORT_TIMEOUT_MS;
+        while (true) {
+            final JsonNode job = readData(mockMvc.perform(get(IMPORT_URL + "/" + jobId)).andExpect(status().isOk()));
+            final String jobStatus = job.get("status").asText();
+            if (ImportJobDto.STATUS_COMPLETED.equals(jobStatus) || ImportJobDto.STATUS_FAILED.equals(jobStatus)) {
+                return job;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Import job " + jobId + " did not finish within " + IMPORT_TIMEOUT_MS + "ms: " + job);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private JsonNode readData(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("data");
+    }
+
+    //the temporary copies of import documents, see BackupImportGateway.startImportJob()
+    private List<Path> importDocuments() throws Exception {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("pensieve-import-")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.backupimport;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionResourceNotFound;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The import_jobs rows (V1_25) are written and read as app_rls exactly like the request and the worker of a job do,
+ * through {@link ImportJobRepository}: a job is only visible to its owner, and its progress and final state read back
+ * as written. The owner's import lock is held by a transaction until it ends, another connection can't take the same
+ * owner's lock but can take another owner's. Everything rolls back with the @JdbcTest transaction.
+ */
+@JdbcTest
+@ActiveProfiles("rls-tests")
+public class ImportJobsTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    private ImportJobRepository importJobRepository;
+
+    @BeforeEach
+    void setUp() {
+        importJobRepository = new ImportJobRepository(jdbcTemplate);
+    }
+
+    @Test
+    void getById_ProgressThenFinish_StateReadBackAsOwnerOnly() {
+        final int ownerA = insertUser();
+        final int ownerB = insertUser();
+        assumeOwner(ownerA);
+        final ImportJobDto queued = importJobRepository.insertQueued();
+        assertEquals(ImportJobDto.STATUS_QUEUED, queued.status());
+        assertNull(queued.results());
+
+        importJobRepository.markRunning(queued.id());
+        importJobRepository.updateProgress(queued.id(), "toys", Map.of("createdToys", 500));
+        final ImportJobDto running = importJobRepository.getById(queued.id());
+        assertEquals(ImportJobDto.STATUS_RUNNING, running.status());
+        assertEquals("toys", running.currentSection());
+        assertEquals(500, running.results().get("createdToys"));
+
+        importJobRepository.finish(queued.id(), ImportJobDto.STATUS_COMPLETED, Map.of("createdToys", 750), List.of("One toy was skipped."));
+        final ImportJobDto completed = importJobRepository.getById(queued.id());
+        assertEquals(ImportJobDto.STATUS_COMPLETED, completed.status());
+        assertNull(completed.currentSection(), "a finished job is in no section");
+        assertEquals(750, completed.results().get("createdToys"));
+        assertEquals(List.of("One toy was skipped."), completed.errors());
+
+        assumeOwner(ownerB);
+        assertThrows(ExceptionResourceNotFound.class, () -> importJobRepository.getById(queued.id()), "owner B can't see owner A's job");
+    }
+
+    @Test
+    void hasUnfinishedJob_QueuedOrRunning_UntilTheJobFinishes() {
+        final int owner = insertUser();
+        assumeOwner(owner);
+        assertFalse(importJobRepository.hasUnfinishedJob(owner));
+
+        final ImportJobDto job = importJobRepository.insertQueued();
+        assertTrue(importJobRepository.hasUnfinishedJob(owner), "a queued job doesn't hold the import lock yet, it still blocks another import");
+        importJobRepository.markRunning(job.id());
+        assertTrue(importJobRepository.hasUnfinishedJob(owner));
+
+        importJobRepository.finish(job.id(), ImportJobDto.STATUS_FAILED, null, List.of("Stopped."));
+        assertFalse(importJobRepository.hasUnfinishedJob(owner));
+    }
+
+    @Test
+    void tryLockImports_HeldByAnotherTransaction_OnlyThatOwnerBlocked() throws Exception {
+        final int ownerA = insertUser();
+        final int ownerB = insertUser();
+        assertTrue(importJobRepository.tryLockImports(ownerA));
+        assertTrue(importJobRepository.tryLockImports(ownerA), "the transaction holding the lock can take it again");
+
+        try (Connection otherConnection = jdbcTemplate.getDataSource().getConnection()) {
+            otherConnection.setAutoCommit(false);
+            assertFalse(tryLockImports(otherConnection, ownerA), "owner A's import lock is held until the test's transaction ends");
+            assertTrue(tryLockImports(otherConnection, ownerB), "owner B's imports don't wait on owner A's");
+            otherConnection.rollback();
+        }
+    }
+
+    // ------------------------------- Private helpers -------------------------------
+
+    //the same statement as ImportJobRepository.tryLockImports(), on a connection outside the test's transaction
+    private boolean tryLockImports(Connection connection, int ownerId) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(25, ?)")) {
+            statement.setInt(1, ownerId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private int insertUser() {
+        final String email = "import-jobs-" + java.util.UUID.randomUUID() + "@example.com";
+        return jdbcTemplate.queryForObject("INSERT INTO users(email) VALUES (?) RETURNING id", Integer.class, email);
+    }
+
+    private void assumeOwner(int ownerId) {
+        jdbcTemplate.execute("SET LOCAL ROLE app_rls");
+        jdbcTemplate.queryForObject("SELECT set_config('app.current_owner', ?, true)", String.class, String.valueOf(ownerId));
+    }
+}
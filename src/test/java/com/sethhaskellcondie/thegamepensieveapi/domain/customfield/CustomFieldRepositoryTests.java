@@ -0,0 +1,97 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.customfield;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The options of the enum custom fields are loaded in one batch, the number of option queries must not grow with the
+ * number of enum fields. The option repository is wrapped to count the option queries the custom field repository runs.
+ */
+@JdbcTest
+@Import(CustomFieldSchemaCache.class)
+@ActiveProfiles("test-container")
+public class CustomFieldRepositoryTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
+    protected CustomFieldRepository customFieldRepository;
+    protected CustomFieldOptionRepository optionRepository;
+    private int optionQueries;
+
+    @BeforeEach
+    public void setUp() {
+        optionQueries = 0;
+        optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache) {
+            @Override
+            public List<CustomFieldOption> getOptionsByCustomFieldId(int customFieldId) {
+                optionQueries++;
+                return super.getOptionsByCustomFieldId(customFieldId);
+            }
+
+            @Override
+            public Map<Integer, List<CustomFieldOption>> getOptionsByCustomFieldIds(Collection<Integer> customFieldIds) {
+                optionQueries++;
+                return super.getOptionsByCustomFieldIds(customFieldIds);
+            }
+        };
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, optionRepository);
+    }
+
+    @Test
+    void getAllByKey_ManyEnumFields_OptionsLoadedInOneQuery() {
+        final CustomField condition = insertEnumField("Batch Condition", CustomField.TYPE_DROPDOWN, List.of("Mint", "Worn"));
+        final CustomField region = insertEnumField("Batch Region", CustomField.TYPE_RADIO_BUTTON, List.of("NTSC", "PAL"));
+        final CustomField progress = insertEnumField("Batch Progress", CustomField.TYPE_PROGRESS_BAR, List.of("Started", "Finished"));
+        final CustomField empty = insertEnumField("Batch Empty", CustomField.TYPE_DROPDOWN, List.of());
+        customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Batch Notes", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+
+        optionQueries = 0;
+        final List<CustomField> customFields = customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        assertEquals(1, optionQueries, "The options of every enum field should be loaded in one query.");
+        assertEquals(List.of("Mint", "Worn"), optionNames(customFields, condition.id()));
+        assertEquals(List.of("NTSC", "PAL"), optionNames(customFields, region.id()));
+        assertEquals(List.of("Started", "Finished"), optionNames(customFields, progress.id()));
+        assertEquals(List.of(), optionNames(customFields, empty.id()));
+
+        optionQueries = 0;
+        customFieldRepository.getAllCustomFields();
+        assertEquals(1, optionQueries);
+
+        optionQueries = 0;
+        assertEquals(List.of("NTSC", "PAL"), customFieldRepository.getById(region.id()).options().stream().map(CustomFieldOption::name).toList());
+        customFieldRepository.getByKeyAndName(Keychain.TOY_KEY, "Batch Notes");
+        assertEquals(1, optionQueries, "A text field has no options to load.");
+    }
+
+    private CustomField insertEnumField(String name, String type, List<String> optionNames) {
+        final CustomField customField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions(name, type, Keychain.TOY_KEY));
+        for (int i = 0; i < optionNames.size(); i++) {
+            optionRepository.insertOption(customField.id(), optionNames.get(i), i == 0, i);
+        }
+        return customField;
+    }
+
+    private List<String> optionNames(List<CustomField> customFields, int customFieldId) {
+        return customFields.stream()
+                .filter(customField -> customField.id() == customFieldId)
+                .findFirst()
+                .orElseThrow()
+                .options().stream()
+                .map(CustomFieldOption::name)
+                .toList();
+    }
+}
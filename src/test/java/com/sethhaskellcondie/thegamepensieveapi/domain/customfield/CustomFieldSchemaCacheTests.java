@@ -0,0 +1,163 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.customfield;
+
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The custom field schema cache serves getAllByKey() from memory inside a tenant request, every write through the
+ * custom field repositories must drop it so the next read sees the change, and a write on another node must be caught
+ * by the owner's schema version. The owner id is set on the TenantContext
+ * directly here, the test connection is not scoped by Row-Level Security so only the cache keys change.
+ */
+@JdbcTest
+@ActiveProfiles("test-container")
+public class CustomFieldSchemaCacheTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    protected CustomFieldSchemaCache schemaCache;
+    protected CustomFieldRepository customFieldRepository;
+    protected CustomFieldOptionRepository optionRepository;
+
+    @BeforeEach
+    public void setUp() {
+        schemaCache = new CustomFieldSchemaCache();
+        optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, optionRepository);
+        TenantContext.set(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void getAllByKey_ReadTwice_SecondReadIsAHit() {
+        final List<CustomField> first = customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        final List<CustomField> second = customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        assertSame(first, second, "The second read should be served from the cache.");
+        assertEquals(new CustomFieldSchemaCache.Stats(1, 1, 1, CustomFieldSchemaCache.DEFAULT_MAX_ENTRIES), schemaCache.getStats());
+    }
+
+    @Test
+    void customFieldAndOptionWrites_InvalidateTheSchema() {
+        final CustomField condition = customFieldRepository.insertCustomField(
+                CustomFieldRequestDto.withoutOptions("Cache Condition", CustomField.TYPE_DROPDOWN, Keychain.TOY_KEY));
+        assertEquals(List.of(), findField(condition.id()).options());
+
+        final CustomFieldOption mint = optionRepository.insertOption(condition.id(), "Mint", true, 0);
+        assertEquals(List.of(mint), findField(condition.id()).options(), "Inserting an option must invalidate the cached schema.");
+
+        optionRepository.updateOption(mint.id(), "Near Mint", 0, true);
+        assertEquals("Near Mint", findField(condition.id()).options().getFirst().name(), "Updating an option must invalidate the cached schema.");
+
+        customFieldRepository.update(condition.id(), "Cache Grade", 0);
+        assertEquals("Cache Grade", findField(condition.id()).name(), "Renaming the custom field must invalidate the cached schema.");
+
+        customFieldRepository.deleteById(condition.id());
+        assertEquals(0, customFieldRepository.getAllByKey(Keychain.TOY_KEY).stream().filter(field -> field.id() == condition.id()).count(),
+                "Deleting the custom field must invalidate the cached schema.");
+    }
+
+    @Test
+    void getAllByKey_OwnersAndKeysAreCachedSeparately() {
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        customFieldRepository.getAllByKey(Keychain.SYSTEM_KEY);
+        TenantContext.set(2);
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        assertEquals(0, schemaCache.getStats().hits());
+        assertEquals(3, schemaCache.getStats().size());
+    }
+
+    @Test
+    void getAllByKey_NoOwner_CacheIsBypassed() {
+        TenantContext.clear();
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        assertEquals(new CustomFieldSchemaCache.Stats(0, 0, 0, CustomFieldSchemaCache.DEFAULT_MAX_ENTRIES), schemaCache.getStats());
+    }
+
+    @Test
+    void getAllByKey_MoreSchemasThanTheMax_LeastRecentlyUsedIsEvicted() {
+        schemaCache = new CustomFieldSchemaCache(2);
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, new CustomFieldOptionRepository(jdbcTemplate, schemaCache));
+
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        customFieldRepository.getAllByKey(Keychain.SYSTEM_KEY);
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        customFieldRepository.getAllByKey(Keychain.VIDEO_GAME_KEY);
+        assertEquals(2, schemaCache.getStats().size());
+
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        assertEquals(2, schemaCache.getStats().hits(), "The toy schema was used most recently, the system schema should have been evicted instead.");
+        customFieldRepository.getAllByKey(Keychain.SYSTEM_KEY);
+        assertEquals(4, schemaCache.getStats().misses());
+    }
+
+    @Test
+    void customFieldWrite_BumpsTheOwnersSchemaVersion() {
+        final int ownerId = jdbcTemplate.queryForObject("SELECT showcase_owner_id()", Integer.class);
+        final long before = customFieldRepository.getSchemaVersion(ownerId);
+
+        final CustomField edition = customFieldRepository.insertCustomField(
+                CustomFieldRequestDto.withoutOptions("Cache Version Edition", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        optionRepository.insertOption(edition.id(), "Ignored", false, 0);
+
+        assertEquals(before + 2, customFieldRepository.getSchemaVersion(ownerId), "Both the custom field and the option insert must bump the version.");
+    }
+
+    @Test
+    void getAllByKey_AfterASchemaWriteInTheTransaction_SharedCacheIsNotRepopulated() {
+        customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Cache Uncommitted", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+
+        final List<CustomField> first = customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+        final List<CustomField> second = customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        assertSame(first, second, "The writing transaction should still reuse its own copy of the schema.");
+        assertEquals(0, schemaCache.getStats().size(), "A schema read after an uncommitted write must not reach the shared cache.");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void getOrLoad_SchemaVersionChangedOnAnotherNode_EntryIsReloaded() {
+        final AtomicLong version = new AtomicLong(7);
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<List<CustomField>> loader = () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+
+        schemaCache.getOrLoad(Keychain.TOY_KEY, ownerId -> version.get(), loader);
+        schemaCache.getOrLoad(Keychain.TOY_KEY, ownerId -> version.get(), loader);
+        assertEquals(1, loads.get());
+
+        version.incrementAndGet();
+        schemaCache.getOrLoad(Keychain.TOY_KEY, ownerId -> version.get(), loader);
+        assertEquals(2, loads.get(), "An entry loaded at an older schema version must not be served.");
+    }
+
+    private CustomField findField(int id) {
+        return customFieldRepository.getAllByKey(Keychain.TOY_KEY).stream().filter(field -> field.id() == id).findFirst().orElseThrow();
+    }
+}
@@ -10,10 +10,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -29,20 +32,23 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * This test is testing the public functions on the CustomFieldValueRepository upsertValues() and getCustomFieldValuesByEntityIdAndEntityKey()
  */
 @JdbcTest
+@Import(CustomFieldSchemaCache.class)
 @ActiveProfiles("test-container")
 public class CustomFieldValueRepositoryTests {
 
     @Autowired
     protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
     //since the CustomFieldValueRepository is only accessed through an EntityRepository we will run the tests through the ToyRepository
     protected ToyRepository toyRepository;
     protected CustomFieldRepository customFieldRepository;
 
     @BeforeEach
     public void setUp() {
-        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         customFieldRepository = new CustomFieldRepository(jdbcTemplate, customFieldOptionRepository);
-        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository, customFieldOptionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
         toyRepository = new ToyRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
@@ -348,7 +354,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_DropdownTypeValidOption_ValueStoredAndRetrieved() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField dropdownField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Status", CustomField.TYPE_DROPDOWN, Keychain.TOY_KEY));
         final String optionName = "In Progress";
         final CustomFieldOption option = optionRepository.insertOption(dropdownField.id(), optionName, true, 0);
@@ -371,7 +377,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_DropdownTypeInvalidOption_ThrowsMalformedEntity() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField dropdownField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Category", CustomField.TYPE_DROPDOWN, Keychain.TOY_KEY));
         final CustomFieldOption validOption = optionRepository.insertOption(dropdownField.id(), "Valid Option", true, 0);
 
@@ -387,7 +393,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_RadioButtonTypeValidOption_ValueStoredAndRetrieved() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField radioField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Size", CustomField.TYPE_RADIO_BUTTON, Keychain.TOY_KEY));
         final String optionName = "Large";
         final CustomFieldOption option = optionRepository.insertOption(radioField.id(), optionName, true, 0);
@@ -409,7 +415,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_RadioButtonTypeInvalidOption_ThrowsMalformedEntity() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField radioField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Color", CustomField.TYPE_RADIO_BUTTON, Keychain.TOY_KEY));
         final CustomFieldOption validOption = optionRepository.insertOption(radioField.id(), "Red", true, 0);
 
@@ -424,7 +430,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_ProgressBarTypeValidOption_ValueStoredAndRetrieved() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField progressField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Completion", CustomField.TYPE_PROGRESS_BAR, Keychain.TOY_KEY));
         final String optionName = "50%";
         final CustomFieldOption option = optionRepository.insertOption(progressField.id(), optionName, true, 0);
@@ -446,7 +452,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void upsertValues_ProgressBarTypeInvalidOption_ThrowsMalformedEntity() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField progressField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Stage", CustomField.TYPE_PROGRESS_BAR, Keychain.TOY_KEY));
         final CustomFieldOption validOption = optionRepository.insertOption(progressField.id(), "Not Started", true, 0);
 
@@ -463,7 +469,7 @@ public class CustomFieldValueRepositoryTests {
     public void renameOption_ExistingValueReferencesOption_ValueReflectsNewNameAndEntityStillSaves() {
         //This reproduces the original bug: before values referenced the option by id, renaming an option
         //orphaned every stored value (it still held the old name) and re-saving the entity failed validation.
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField dropdownField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("RenameStatus", CustomField.TYPE_DROPDOWN, Keychain.TOY_KEY));
         final CustomFieldOption option = optionRepository.insertOption(dropdownField.id(), "Old Name", true, 0);
 
@@ -489,7 +495,7 @@ public class CustomFieldValueRepositoryTests {
 
     @Test
     public void deleteOption_ValueReferencesDeletedOption_ReassignedToDefaultOption() {
-        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomField dropdownField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("CascadeStatus", CustomField.TYPE_DROPDOWN, Keychain.TOY_KEY));
         final CustomFieldOption defaultOption = optionRepository.insertOption(dropdownField.id(), "Default", true, 0);
         final CustomFieldOption otherOption = optionRepository.insertOption(dropdownField.id(), "Other", false, 1);
@@ -510,6 +516,43 @@ public class CustomFieldValueRepositoryTests {
         );
     }
 
+    @Test
+    public void upsertValuesOnUpdate_EntitySavedTwice_ValuesUpdatedInPlace() {
+        final CustomField numberField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Batch Year", CustomField.TYPE_NUMBER, Keychain.TOY_KEY));
+        final CustomField textField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Batch Store", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        final Toy inserted = toyRepository.insert(createNewToyWithCustomFields(List.of(
+                new CustomFieldValue(numberField.id(), numberField.name(), CustomField.TYPE_NUMBER, "1991"),
+                new CustomFieldValue(textField.id(), textField.name(), CustomField.TYPE_TEXT, "Toys R Us")
+        )));
+
+        final Toy updated = toyRepository.update(new Toy(inserted.getId(), "ToyName", "ToySet", null, null, null, List.of(
+                new CustomFieldValue(numberField.id(), numberField.name(), CustomField.TYPE_NUMBER, "1996"),
+                new CustomFieldValue(textField.id(), textField.name(), CustomField.TYPE_TEXT, "Target")
+        )));
+
+        final Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM custom_field_values WHERE entity_id = ? AND entity_key = ?",
+                Integer.class, inserted.getId(), Keychain.TOY_KEY);
+        assertAll(
+                "Saving an entity again must update its custom field values in place, one row per custom field.",
+                () -> assertEquals(2, rows),
+                () -> assertEquals(Set.of("1996", "Target"), updated.getCustomFieldValues().stream().map(CustomFieldValue::getValue).collect(Collectors.toSet()))
+        );
+    }
+
+    @Test
+    public void upsertValuesOnInsert_OneInvalidValue_NoValuesWritten() {
+        final CustomField textField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Batch Notes", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        final CustomField numberField = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Batch Count", CustomField.TYPE_NUMBER, Keychain.TOY_KEY));
+        final Toy toyWithInvalidValue = createNewToyWithCustomFields(List.of(
+                new CustomFieldValue(textField.id(), textField.name(), CustomField.TYPE_TEXT, "valid"),
+                new CustomFieldValue(numberField.id(), numberField.name(), CustomField.TYPE_NUMBER, "not a number")
+        ));
+
+        assertThrows(ExceptionMalformedEntity.class, () -> toyRepository.insert(toyWithInvalidValue));
+        final Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM custom_field_values WHERE custom_field_id = ?", Integer.class, textField.id());
+        assertEquals(0, rows, "Every value is validated before the batch is written, the valid value must not be written on its own.");
+    }
+
     private Toy createNewToyWithCustomFields(List<CustomFieldValue> customFieldValues) {
         return new Toy(null, "ToyName", "ToySet", null, null, null, customFieldValues);
     }
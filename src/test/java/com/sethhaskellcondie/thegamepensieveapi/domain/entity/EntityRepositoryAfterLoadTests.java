@@ -2,6 +2,7 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
 
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
@@ -18,6 +19,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -36,11 +38,14 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
  * and getByIdsIncludeDeleted.
  */
 @JdbcTest
+@Import(CustomFieldSchemaCache.class)
 @ActiveProfiles("repository-tests")
 public class EntityRepositoryAfterLoadTests {
 
     @Autowired
     protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
     protected SystemRepository systemRepository;
     protected TestVideoGameRepository videoGameRepository;
     protected TestVideoGameBoxRepository videoGameBoxRepository;
@@ -62,9 +67,9 @@ public class EntityRepositoryAfterLoadTests {
 
     @BeforeEach
     public void setUp() {
-        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomFieldRepository customFieldRepository = new CustomFieldRepository(jdbcTemplate, customFieldOptionRepository);
-        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository, customFieldOptionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
         systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
         videoGameRepository = new TestVideoGameRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
         videoGameBoxRepository = new TestVideoGameBoxRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
@@ -0,0 +1,95 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.Toy;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGame;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The batch loaders bind their ids as a single int[] (= ANY(?)) instead of one placeholder per id. Postgres caps a
+ * statement at 32767 bind parameters, so hydrating 50,000 entities by id used to fail before the query ran.
+ */
+@JdbcTest
+@Import(CustomFieldSchemaCache.class)
+@ActiveProfiles("repository-tests")
+public class EntityRepositoryLargeBatchTests {
+
+    private static final int ROW_COUNT = 50_000;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
+    protected SystemRepository systemRepository;
+    protected ToyRepository toyRepository;
+    protected TestVideoGameRepository videoGameRepository;
+    protected CustomFieldRepository customFieldRepository;
+
+    static class TestVideoGameRepository extends VideoGameRepository {
+        TestVideoGameRepository(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository, CustomFieldValueRepository customFieldValueRepository) {
+            super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, new CustomFieldOptionRepository(jdbcTemplate, schemaCache));
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
+        systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+        toyRepository = new ToyRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+        videoGameRepository = new TestVideoGameRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+    }
+
+    @Test
+    void getByIds_FiftyThousandToys_AllHydratedWithCustomFieldValues() {
+        final CustomField edition = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Large Batch Edition", CustomField.TYPE_NUMBER, Keychain.TOY_KEY));
+        final List<Integer> toyIds = jdbcTemplate.queryForList(
+                "INSERT INTO toys (name, set) SELECT 'Large Batch Toy ' || n, 'Large Batch Set' FROM generate_series(1, ?) AS n RETURNING id", Integer.class, ROW_COUNT);
+        jdbcTemplate.update("INSERT INTO custom_field_values (custom_field_id, entity_id, entity_key, value_number) SELECT ?, id, ?, id % 10 FROM toys WHERE id = ANY(?)",
+                edition.id(), Keychain.TOY_KEY, toyIds.toArray(new Integer[0]));
+
+        final List<Toy> toys = toyRepository.getByIds(toyIds);
+
+        assertAll(
+                "Every toy and its custom field value should be hydrated in one batch.",
+                () -> assertEquals(ROW_COUNT, toys.size()),
+                () -> assertTrue(toys.stream().allMatch(toy -> toy.getCustomFieldValues().size() == 1))
+        );
+    }
+
+    @Test
+    void getByIds_FiftyThousandVideoGames_RelatedBoxIdsHydrated() {
+        final System system = systemRepository.insert(new System(null, "Large Batch System", 1, false, null, null, null, List.of()));
+        final List<Integer> gameIds = jdbcTemplate.queryForList(
+                "INSERT INTO video_games (title, system_id) SELECT 'Large Batch Game ' || n, ? FROM generate_series(1, ?) AS n RETURNING id", Integer.class, system.getId(), ROW_COUNT);
+        final Integer boxId = jdbcTemplate.queryForObject("INSERT INTO video_game_boxes (title, system_id) VALUES ('Large Batch Box', ?) RETURNING id", Integer.class, system.getId());
+        jdbcTemplate.update("INSERT INTO video_game_to_video_game_box (video_game_id, video_game_box_id) VALUES (?, ?)", gameIds.getLast(), boxId);
+
+        final List<VideoGame> games = videoGameRepository.getByIds(gameIds);
+
+        assertEquals(ROW_COUNT, games.size());
+        assertEquals(List.of(boxId), games.stream().filter(game -> game.getId().equals(gameIds.getLast())).findFirst().orElseThrow().getVideoGameBoxIds());
+    }
+}
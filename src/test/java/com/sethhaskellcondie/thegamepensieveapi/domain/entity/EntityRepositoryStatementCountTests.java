@@ -0,0 +1,162 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.entity;
+
+import com.sethhaskellcondie.thegamepensieveapi.api.tenant.TenantContext;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.SlimBoardGameBox;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.Toy;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGame;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * insert() and update() take a fixed number of statements: the INSERT/UPDATE ... RETURNING hands back the row, the
+ * custom field values are written (and returned) by one batch upsert, and update() reads the full set of values once.
+ * The batch loaders take the same number of statements for any number of ids.
+ * The repositories run on a JdbcTemplate that counts every statement it creates (sharing the test transaction), the
+ * custom field schema is warmed in the cache first so only the statements of the write itself are counted.
+ */
+@JdbcTest
+@ActiveProfiles("repository-tests")
+public class EntityRepositoryStatementCountTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    protected ToyRepository toyRepository;
+    protected SystemRepository systemRepository;
+    protected TestVideoGameRepository videoGameRepository;
+    protected TestBoardGameBoxRepository boardGameBoxRepository;
+    protected CustomFieldRepository customFieldRepository;
+    private int statements;
+
+    static class TestVideoGameRepository extends VideoGameRepository {
+        TestVideoGameRepository(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository, CustomFieldValueRepository customFieldValueRepository) {
+            super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+        }
+    }
+
+    static class TestBoardGameBoxRepository extends BoardGameBoxRepository {
+        TestBoardGameBoxRepository(JdbcTemplate jdbcTemplate, CustomFieldRepository customFieldRepository, CustomFieldValueRepository customFieldValueRepository) {
+            super(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        final JdbcTemplate countingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            protected void applyStatementSettings(Statement statement) throws SQLException {
+                statements++;
+                super.applyStatementSettings(statement);
+            }
+        };
+        customFieldRepository = new CustomFieldRepository(countingJdbcTemplate, new CustomFieldOptionRepository(countingJdbcTemplate, new CustomFieldSchemaCache()));
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(countingJdbcTemplate, customFieldRepository);
+        toyRepository = new ToyRepository(countingJdbcTemplate, customFieldRepository, customFieldValueRepository);
+        systemRepository = new SystemRepository(countingJdbcTemplate, customFieldRepository, customFieldValueRepository);
+        videoGameRepository = new TestVideoGameRepository(countingJdbcTemplate, customFieldRepository, customFieldValueRepository);
+        boardGameBoxRepository = new TestBoardGameBoxRepository(countingJdbcTemplate, customFieldRepository, customFieldValueRepository);
+        TenantContext.set(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void insert_ToyWithCustomFieldValue_TwoStatements() {
+        final CustomField edition = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Statement Count Edition", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        statements = 0;
+        final Toy toy = toyRepository.insert(new Toy(null, "Statement Count Toy", "Statement Count Set", null, null, null,
+                List.of(new CustomFieldValue(edition.id(), edition.name(), edition.type(), "First", null))));
+
+        assertEquals(2, statements, "One INSERT ... RETURNING and one custom field value upsert batch.");
+        assertNotNull(toy.getId());
+        assertNotNull(toy.getCreatedAt());
+        assertEquals("First", toy.getCustomFieldValues().getFirst().getValue());
+    }
+
+    @Test
+    void update_ToyWithCustomFieldValue_ThreeStatements() {
+        final CustomField edition = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Statement Count Edition", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        final CustomField notes = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Statement Count Notes", CustomField.TYPE_TEXT, Keychain.TOY_KEY));
+        final Toy toy = toyRepository.insert(new Toy(null, "Statement Count Toy", "Statement Count Set", null, null, null, List.of(
+                new CustomFieldValue(edition.id(), edition.name(), edition.type(), "First", null),
+                new CustomFieldValue(notes.id(), notes.name(), notes.type(), "Kept", null))));
+        customFieldRepository.getAllByKey(Keychain.TOY_KEY);
+
+        statements = 0;
+        final Toy updated = toyRepository.update(new Toy(toy.getId(), "Statement Count Toy Renamed", "Statement Count Set", null, null, null,
+                List.of(new CustomFieldValue(edition.id(), edition.name(), edition.type(), "Second", null))));
+
+        assertEquals(3, statements, "One UPDATE ... RETURNING, one custom field value upsert batch, and one read of the full set of values.");
+        assertEquals("Statement Count Toy Renamed", updated.getName());
+        assertEquals(2, updated.getCustomFieldValues().size(), "Values that were not part of the update are kept.");
+    }
+
+    @Test
+    void insert_VideoGameWithoutCustomFieldValues_AfterLoadStillRuns() {
+        final System system = systemRepository.insert(new System(null, "Statement Count System", 1, false, null, null, null, List.of()));
+
+        final VideoGame newGame = new VideoGame(null, "Statement Count Game", system.getId(), null, null, null, List.of());
+        newGame.setSystem(system);
+
+        statements = 0;
+        final VideoGame game = videoGameRepository.insert(newGame);
+
+        assertEquals(2, statements, "One INSERT ... RETURNING and the afterLoad() query for the related box ids.");
+        assertEquals(List.of(), game.getVideoGameBoxIds());
+    }
+
+    @Test
+    void getSlimBoardGameBoxesByBoardGameIds_ManyBoardGames_SameStatementsAsOne() {
+        final CustomField edition = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Statement Count Printing", CustomField.TYPE_TEXT, Keychain.BOARD_GAME_BOX_KEY));
+        final List<Integer> boardGameIds = jdbcTemplate.queryForList(
+                "INSERT INTO board_games (title) SELECT 'Statement Count Board Game ' || n FROM generate_series(1, 5) AS n RETURNING id", Integer.class);
+        final List<Integer> boxIds = jdbcTemplate.queryForList(
+                "INSERT INTO board_game_boxes (title, is_expansion, is_stand_alone, board_game_id) SELECT 'Statement Count Box ' || n, false, true, id FROM board_games "
+                        + "CROSS JOIN generate_series(1, 2) AS n WHERE id = ANY(?) RETURNING id", Integer.class, (Object) boardGameIds.toArray(new Integer[0]));
+        jdbcTemplate.update("INSERT INTO custom_field_values (custom_field_id, entity_id, entity_key, value_text) SELECT ?, id, ?, 'First' FROM board_game_boxes WHERE id = ANY(?)",
+                edition.id(), Keychain.BOARD_GAME_BOX_KEY, boxIds.toArray(new Integer[0]));
+        customFieldRepository.getAllByKey(Keychain.BOARD_GAME_BOX_KEY);
+
+        statements = 0;
+        boardGameBoxRepository.getSlimBoardGameBoxesByBoardGameIds(List.of(boardGameIds.getFirst()));
+        final int statementsForOne = statements;
+        statements = 0;
+        final Map<Integer, List<SlimBoardGameBox>> slimBoxesByBoardGameId = boardGameBoxRepository.getSlimBoardGameBoxesByBoardGameIds(boardGameIds);
+
+        assertEquals(statementsForOne, statements, "Loading the boxes of five board games should take the same statements as loading the boxes of one.");
+        assertEquals(5, slimBoxesByBoardGameId.size());
+        assertTrue(slimBoxesByBoardGameId.values().stream().allMatch(slimBoxes -> slimBoxes.size() == 2));
+        assertTrue(slimBoxesByBoardGameId.values().stream().flatMap(List::stream).allMatch(slimBox -> slimBox.customFieldValues().size() == 1));
+    }
+}
@@ -0,0 +1,100 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInvalidFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * These tests exercise the compiled filter plans in isolation, they need neither a database nor Docker.
+ * The GetWithFilters test suites already run many searches that share a shape with different operands, so they cover
+ * the cache hit path end to end against the database.
+ */
+public class FilterPlanCacheTests {
+
+    private static final CustomField RATING = new CustomField(1, "Rating", CustomField.TYPE_NUMBER, Keychain.SYSTEM_KEY, 0, List.of());
+
+    @Test
+    void sameShapeDifferentOperands_SharesAPlan() {
+        final FilterPlanKey mario = FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(RATING), List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_CONTAINS, "Mario", false)
+        ));
+        final FilterPlanKey zelda = FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(RATING), List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_CONTAINS, "Zelda", false)
+        ));
+        assertEquals(mario, zelda, "Operands must not be part of the plan key.");
+
+        final FilterPlanCache cache = new FilterPlanCache();
+        final FilterPlan first = cache.getOrCompile(mario, () -> new FilterPlan("first", List.of(0)));
+        final FilterPlan second = cache.getOrCompile(zelda, () -> new FilterPlan("second", List.of(0)));
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void differentOperatorOrSchema_DoesNotShareAPlan() {
+        final List<Filter> contains = List.of(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_CONTAINS, "Mario", false));
+        final List<Filter> equals = List.of(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_EQUALS, "Mario", false));
+        assertNotEquals(FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(), contains), FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(), equals));
+
+        final CustomField renamed = new CustomField(1, "Score", CustomField.TYPE_NUMBER, Keychain.SYSTEM_KEY, 0, List.of());
+        assertNotEquals(FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(RATING), contains), FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(renamed), contains),
+                "Renaming a custom field must change the schema version part of the key.");
+    }
+
+    @Test
+    void leastRecentlyUsedPlan_IsEvicted() {
+        final FilterPlanCache cache = new FilterPlanCache(2);
+        final FilterPlanKey a = keyForField("name");
+        final FilterPlanKey b = keyForField("generation");
+        final FilterPlanKey c = keyForField("handheld");
+        cache.getOrCompile(a, () -> new FilterPlan("a", List.of(0)));
+        cache.getOrCompile(b, () -> new FilterPlan("b", List.of(0)));
+        cache.getOrCompile(a, () -> new FilterPlan("a again", List.of(0)));
+        cache.getOrCompile(c, () -> new FilterPlan("c", List.of(0)));
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.getOrCompile(a, () -> new FilterPlan("a recompiled", List.of(0))).sql());
+        assertEquals("b recompiled", cache.getOrCompile(b, () -> new FilterPlan("b recompiled", List.of(0))).sql());
+    }
+
+    @Test
+    void compiledPlan_BindsANewRequestInValidatedOrder() {
+        final List<Filter> compiledFrom = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "5", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_ORDER_BY, "", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_STARTS_WITH, "Super", false)
+        );
+        final List<Filter> ordered = FilterService.validateAndOrderFilters(compiledFrom, List.of());
+        final FilterPlan plan = FilterPlan.compile(String.join("", FilterService.formatWhereStatements(ordered, List.of())), compiledFrom, ordered);
+
+        final List<Filter> nextRequest = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "10", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_ORDER_BY, "", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_STARTS_WITH, "Game", false)
+        );
+        assertEquals(List.of("Game%", 10), FilterService.formatOperands(plan.orderFilters(nextRequest)));
+    }
+
+    @Test
+    void cachedPlan_StillValidatesOperands() {
+        final List<Filter> badLimit = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "ten", false)
+        );
+        assertThrows(ExceptionInvalidFilter.class, () -> FilterService.validateOperands(badLimit));
+    }
+
+    private FilterPlanKey keyForField(String field) {
+        return FilterPlanKey.of(Keychain.SYSTEM_KEY, List.of(), List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, field, Filter.OPERATOR_EQUALS, "x", false)
+        ));
+    }
+}
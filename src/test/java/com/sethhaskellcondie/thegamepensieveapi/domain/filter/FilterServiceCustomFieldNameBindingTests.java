@@ -19,12 +19,14 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * name straight into a quoted SQL literal — {@code AND fields1.name = '<name>'}. The name is fully user
  * controlled (the user types it when creating the custom field) and the filter denylist only ever inspected the
  * operand, so a field created with a name like {@code zzz' OR pg_sleep(10)--} became a stored, second-order SQL
- * injection that fired the moment anyone filtered on it.
+ * injection that fired the moment anyone filtered on it. For a while the name was bound as a parameter instead.
  * <p>
- * The name is now bound as a parameter. Because {@code formatWhereStatements} and {@code formatOperands} are
- * separate methods walking the same list, the placeholders and the operands have to stay in lockstep — that
- * ordering contract is what most of these tests pin down, since getting it wrong silently shifts every operand
- * by one and produces wrong results rather than an error.
+ * The field is now resolved to its id when the filter is compiled, a where filter becomes a correlated EXISTS on
+ * {@code custom_field_values.custom_field_id = <id>} and only a sort is joined in. The name never reaches the
+ * statement at all, neither as text nor as an operand. Because {@code formatWhereStatements} and
+ * {@code formatOperands} are separate methods walking the same list, the placeholders and the operands still have
+ * to stay in lockstep — that ordering contract is what most of these tests pin down, since getting it wrong
+ * silently shifts every operand by one and produces wrong results rather than an error.
  */
 public class FilterServiceCustomFieldNameBindingTests {
 
@@ -32,12 +34,11 @@ public class FilterServiceCustomFieldNameBindingTests {
     private static final CustomField NUMBER_FIELD = CustomField.withoutOptions(2, "Weight", CustomField.TYPE_NUMBER, Keychain.TOY_KEY);
 
     /**
-     * The regression guard for the injection itself: whatever the name contains, it must leave the generated SQL
-     * as a '?' and arrive at the driver as an operand. A name carrying a quote and a comment marker is the exact
-     * payload the old code executed.
+     * The regression guard for the injection itself: whatever the name contains, it must not appear in the
+     * generated SQL. A name carrying a quote and a comment marker is the exact payload the old code executed.
      */
     @Test
-    void maliciousCustomFieldName_IsBoundAsAnOperandNotInterpolatedIntoSql() {
+    void maliciousCustomFieldName_IsResolvedToItsIdNotInterpolatedIntoSql() {
         final String maliciousName = "zzz' OR pg_sleep(10)--";
         final CustomField maliciousField = CustomField.withoutOptions(3, maliciousName, CustomField.TYPE_TEXT, Keychain.TOY_KEY);
         final List<Filter> filters = List.of(
@@ -45,77 +46,82 @@ public class FilterServiceCustomFieldNameBindingTests {
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(maliciousField)));
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated, List.of(maliciousField)));
 
         assertFalse(generatedSql.contains(maliciousName),
                 "The custom field name must never appear in the generated SQL. Generated: " + generatedSql);
         assertFalse(generatedSql.contains("pg_sleep"),
                 "The generated SQL must not carry any part of the injected payload. Generated: " + generatedSql);
-        assertTrue(generatedSql.contains("AND fields1.name = ?"),
-                "The name clause must be a bound parameter. Generated: " + generatedSql);
-        assertEquals(List.of(maliciousName, "anything"), FilterService.formatOperands(validated),
-                "The name must reach the driver as an operand, ahead of the filter's own value.");
+        assertTrue(generatedSql.contains("values1.custom_field_id = 3"),
+                "The field must be selected by its id. Generated: " + generatedSql);
+        assertEquals(List.of("anything"), FilterService.formatOperands(validated),
+                "Only the filter's own value is bound, the name is not needed once the field is resolved.");
     }
 
     /**
-     * The name clause is NOT redundant with the JOIN. buildQueryWithCustomFieldJoins() joins custom_fields on
-     * values<i>.custom_field_id = fields<i>.id with no constraint on which field that is, so this clause is the
-     * only thing narrowing the query to the field being filtered on. Deleting it (rather than binding it) would
-     * make every custom field filter match values belonging to every custom field.
+     * A where filter is a correlated EXISTS and the custom_field_id predicate inside it is the only thing narrowing
+     * the subquery to the field being filtered on. Without it every custom field filter would match values belonging
+     * to every custom field.
      */
     @Test
-    void nameClauseIsStillEmitted_ItIsWhatSelectsTheField() {
+    void customFieldWhereFilter_IsAnExistsOnTheFieldId() {
         final List<Filter> filters = List.of(
                 new Filter(Keychain.TOY_KEY, CustomField.TYPE_TEXT, "Publisher", Filter.OPERATOR_EQUALS, "Nintendo", true)
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(TEXT_FIELD)));
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated, List.of(TEXT_FIELD)));
 
-        assertTrue(generatedSql.contains("AND fields1.name = ?"),
-                "Expected the field-selecting clause to still be generated. Generated: " + generatedSql);
+        assertTrue(generatedSql.contains("AND EXISTS (SELECT 1 FROM custom_field_values AS values1 WHERE values1.entity_id = toys.id"),
+                "Expected a correlated EXISTS. Generated: " + generatedSql);
+        assertTrue(generatedSql.contains("AND values1.custom_field_id = 1"),
+                "Expected the field-selecting clause to be generated. Generated: " + generatedSql);
         assertTrue(generatedSql.contains("AND values1.value_text = ?"),
                 "Expected the value comparison to still be generated. Generated: " + generatedSql);
+        assertEquals("", FilterService.formatCustomFieldSortJoins(validated, List.of(TEXT_FIELD)),
+                "A custom field where filter must not add a join.");
     }
 
     /**
-     * Two custom field filters get their own JOIN aliases, so each contributes its own name placeholder followed
-     * by its own value — four operands in strict name, value, name, value order.
+     * Two custom field filters get their own aliases and their own EXISTS, so each contributes exactly its own
+     * value — two operands in filter order.
      */
     @Test
-    void multipleCustomFieldFilters_EachContributeANameThenAValue() {
+    void multipleCustomFieldFilters_EachContributeOnlyAValue() {
         final List<Filter> filters = List.of(
                 new Filter(Keychain.TOY_KEY, CustomField.TYPE_TEXT, "Publisher", Filter.OPERATOR_EQUALS, "Nintendo", true),
                 new Filter(Keychain.TOY_KEY, CustomField.TYPE_NUMBER, "Weight", Filter.OPERATOR_GREATER_THAN, "5", true)
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(TEXT_FIELD, NUMBER_FIELD)));
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated, List.of(TEXT_FIELD, NUMBER_FIELD)));
 
-        assertTrue(generatedSql.contains("AND fields1.name = ?"), "Generated: " + generatedSql);
-        assertTrue(generatedSql.contains("AND fields2.name = ?"), "Generated: " + generatedSql);
-        assertEquals(List.of("Publisher", "Nintendo", "Weight", 5), FilterService.formatOperands(validated),
-                "Each custom field filter contributes its name then its value, in filter order.");
+        assertTrue(generatedSql.contains("values1.custom_field_id = 1 AND values1.value_text = ?)"), "Generated: " + generatedSql);
+        assertTrue(generatedSql.contains("values2.custom_field_id = 2 AND values2.value_number > ?)"), "Generated: " + generatedSql);
+        assertEquals(List.of("Nintendo", 5), FilterService.formatOperands(validated),
+                "Each custom field filter contributes its value, in filter order.");
     }
 
     /**
-     * A custom field SORT contributes only a name placeholder: its ORDER BY is deferred to the end of the
-     * statement list and carries no placeholder of its own. This is the case most likely to drift, because the
-     * name clause and the ORDER BY it belongs to end up in different parts of the statement.
+     * A custom field SORT is the one case that is still joined, by id, and it contributes no operand: the join
+     * carries no placeholder and its ORDER BY is deferred to the end of the statement list.
      */
     @Test
-    void customFieldSort_ContributesANameOperandButNoValue() {
+    void customFieldSort_IsJoinedByIdAndContributesNoOperand() {
         final List<Filter> filters = List.of(
                 new Filter(Keychain.TOY_KEY, CustomField.TYPE_TEXT, "Publisher", Filter.OPERATOR_ORDER_BY, "unused", true)
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(TEXT_FIELD)));
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated, List.of(TEXT_FIELD)));
+        final String joins = FilterService.formatCustomFieldSortJoins(validated, List.of(TEXT_FIELD));
 
-        assertTrue(generatedSql.contains("AND fields1.name = ?"), "Generated: " + generatedSql);
+        assertTrue(joins.contains("JOIN custom_field_values AS values1 ON toys.id = values1.entity_id"), "Joins: " + joins);
+        assertTrue(joins.contains("AND values1.custom_field_id = 1"), "Joins: " + joins);
+        assertFalse(joins.contains("custom_field_options"), "Only the enum types join their options. Joins: " + joins);
         assertTrue(generatedSql.contains("ORDER BY values1.value_text ASC"), "Generated: " + generatedSql);
-        assertEquals(List.of("Publisher"), FilterService.formatOperands(validated),
-                "A sort ignores its operand, so it contributes the name and nothing else.");
+        assertEquals(List.of(), FilterService.formatOperands(validated),
+                "A sort ignores its operand and the field is resolved by id, so it contributes nothing.");
     }
 
     /**
@@ -134,31 +140,31 @@ public class FilterServiceCustomFieldNameBindingTests {
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(TEXT_FIELD, NUMBER_FIELD)));
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = FilterService.formatCustomFieldSortJoins(validated, List.of(TEXT_FIELD, NUMBER_FIELD))
+                + String.join("", FilterService.formatWhereStatements(validated, List.of(TEXT_FIELD, NUMBER_FIELD)));
         final List<Object> operands = FilterService.formatOperands(validated);
 
-        //The custom where filter's name+value, then the plain where filter's value, then the custom sort's name,
-        //then limit and offset — the same order the placeholders appear in above.
-        assertEquals(List.of("Weight", 7, "Darkwing Duck", "Publisher", 10, 20), operands,
+        //The custom where filter's value, then the plain where filter's value, then limit and offset — the same order
+        //the placeholders appear in above. The custom sort's join and ORDER BY carry no placeholder.
+        assertEquals(List.of(7, "Darkwing Duck", 10, 20), operands,
                 "Operands drifted out of step with the placeholders. Generated: " + generatedSql);
         assertEquals(countPlaceholders(generatedSql), operands.size(),
                 "Every '?' in the statement needs exactly one operand. Generated: " + generatedSql);
     }
 
     /**
-     * A LIKE-family operator wraps its operand in wildcards, and that wrapping must not disturb the name that
-     * precedes it.
+     * A LIKE-family operator wraps its operand in wildcards.
      */
     @Test
-    void customFieldContains_WrapsOnlyTheValueNotTheName() {
+    void customFieldContains_WrapsTheValue() {
         final List<Filter> filters = List.of(
                 new Filter(Keychain.TOY_KEY, CustomField.TYPE_TEXT, "Publisher", Filter.OPERATOR_CONTAINS, "tendo", true)
         );
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of(TEXT_FIELD)));
 
-        assertEquals(List.of("Publisher", "%tendo%"), FilterService.formatOperands(validated),
-                "Only the value takes the LIKE wildcards; the bound name is passed through untouched.");
+        assertEquals(List.of("%tendo%"), FilterService.formatOperands(validated),
+                "Only the value is bound and it takes the LIKE wildcards.");
     }
 
     private static int countPlaceholders(String sql) {
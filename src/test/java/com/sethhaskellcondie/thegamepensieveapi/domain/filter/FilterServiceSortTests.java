@@ -51,7 +51,7 @@ public class FilterServiceSortTests {
 
         final List<Filter> validated = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(filters, List.of()));
 
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(validated, List.of()));
 
         assertTrue(generatedSql.contains("ORDER BY systems.generation ASC, systems.name ASC"),
                 "Expected a valid ORDER BY referencing real columns. Generated: " + generatedSql);
@@ -72,7 +72,7 @@ public class FilterServiceSortTests {
                 new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_DROPDOWN, fieldName, Filter.OPERATOR_ORDER_BY, "unused", true)
         );
         final List<Filter> validatedAscending = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(ascending, List.of(statusField)));
-        final String ascendingSql = String.join("", FilterService.formatWhereStatements(validatedAscending));
+        final String ascendingSql = String.join("", FilterService.formatWhereStatements(validatedAscending, List.of(statusField)));
         assertTrue(ascendingSql.contains("ORDER BY options1.display_order ASC"),
                 "Enum custom field ascending sort should order by the option display_order. Generated: " + ascendingSql);
 
@@ -80,7 +80,7 @@ public class FilterServiceSortTests {
                 new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_DROPDOWN, fieldName, Filter.OPERATOR_ORDER_BY_DESC, "unused", true)
         );
         final List<Filter> validatedDescending = assertDoesNotThrow(() -> FilterService.validateAndOrderFilters(descending, List.of(statusField)));
-        final String descendingSql = String.join("", FilterService.formatWhereStatements(validatedDescending));
+        final String descendingSql = String.join("", FilterService.formatWhereStatements(validatedDescending, List.of(statusField)));
         assertTrue(descendingSql.contains("ORDER BY options1.display_order DESC"),
                 "Enum custom field descending sort should order by the option display_order. Generated: " + descendingSql);
     }
@@ -3,6 +3,7 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -31,18 +33,21 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
  * every entity.
  */
 @JdbcTest
+@Import(CustomFieldSchemaCache.class)
 @ActiveProfiles("filter-tests2")
 public class GetWithFiltersBooleanAndTimeTests {
 
     @Autowired
     protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
     protected SystemRepository systemRepository;
 
     @BeforeEach
     public void setUp() {
-        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomFieldRepository customFieldRepository = new CustomFieldRepository(jdbcTemplate, customFieldOptionRepository);
-        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository, customFieldOptionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
         systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
@@ -0,0 +1,183 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.exceptions.ExceptionInvalidFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cursor (keyset) pagination: walking every page with the 'cursor' filter must return exactly the same rows, in the
+ * same order, as one unpaged search with the same sorts. The sorts deliberately include ties so the id tiebreaker is
+ * exercised.
+ */
+@JdbcTest
+@Import(CustomFieldSchemaCache.class)
+@ActiveProfiles("filter-tests9")
+public class GetWithFiltersCursorPaginationTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
+    protected SystemRepository systemRepository;
+    protected CustomFieldRepository customFieldRepository;
+    private final String customFieldName = "Units Sold";
+
+    @BeforeEach
+    public void setUp() {
+        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, customFieldOptionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
+        systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+    }
+
+    @Test
+    void testCursorPagination() {
+        final CustomField unitsSold = customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions(customFieldName, CustomField.TYPE_NUMBER, Keychain.SYSTEM_KEY));
+        insertSystemData("Game Boy", 4, true, unitsSold, "118");
+        insertSystemData("Nintendo Entertainment System", 3, false, unitsSold, "61");
+        insertSystemData("Super Nintendo Entertainment System", 4, false, unitsSold, "49");
+        insertSystemData("Nintendo 64", 5, false, unitsSold, "32");
+        insertSystemData("Game Boy Color", 5, true, unitsSold, "118");
+        insertSystemData("GameCube", 6, false, unitsSold, "21");
+        insertSystemData("Game Boy Advance", 6, true, unitsSold, "81");
+
+        final List<System> allSystems = systemRepository.getWithFilters(List.of());
+        testEveryPageMatchesTheUnpagedSearch(List.of(), 2);
+        testSortTiesAreBrokenById(allSystems);
+        testEveryPageMatchesTheUnpagedSearch(List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, "generation", Filter.OPERATOR_ORDER_BY_DESC, "", false)
+        ), 3);
+        testEveryPageMatchesTheUnpagedSearch(List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_BOOLEAN, "handheld", Filter.OPERATOR_ORDER_BY, "", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, "generation", Filter.OPERATOR_ORDER_BY_DESC, "", false)
+        ), 2);
+        testEveryPageMatchesTheUnpagedSearch(List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, "generation", Filter.OPERATOR_GREATER_THAN, "3", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, customFieldName, Filter.OPERATOR_ORDER_BY_DESC, "", true)
+        ), 2);
+
+        testCursorFromADifferentSortIsRejected();
+        testCursorRequiresALimit();
+        testTotalCountIgnoresThePage();
+    }
+
+    void testEveryPageMatchesTheUnpagedSearch(List<Filter> sorts, int pageSize) {
+        //one oversized page runs the same ORDER BY (including the id tiebreaker) in a single query
+        final List<Integer> expectedIds = systemRepository.getPageWithFilters(withCursor(sorts, "", 1000)).results()
+                .stream().map(System::getId).toList();
+
+        final List<Integer> pagedIds = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            final FilterPage<System> page = systemRepository.getPageWithFilters(withCursor(sorts, cursor, pageSize));
+            page.results().forEach(system -> pagedIds.add(system.getId()));
+            cursor = page.nextCursor();
+            pages++;
+            if (null != cursor) {
+                assertEquals(pageSize, page.results().size(), "Only a full page should return a next cursor.");
+            }
+        } while (null != cursor && pages <= expectedIds.size());
+
+        assertEquals(expectedIds, pagedIds, "Walking the cursor pages returned different rows than the unpaged search.");
+    }
+
+    void testSortTiesAreBrokenById(List<System> allSystems) {
+        final List<Filter> byGenerationDesc = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, "generation", Filter.OPERATOR_ORDER_BY_DESC, "", false)
+        );
+        final List<String> expectedNames = List.of("GameCube", "Game Boy Advance", "Nintendo 64", "Game Boy Color",
+                "Game Boy", "Super Nintendo Entertainment System", "Nintendo Entertainment System");
+        final List<String> pagedNames = new ArrayList<>();
+        String cursor = "";
+        while (null != cursor) {
+            final FilterPage<System> page = systemRepository.getPageWithFilters(withCursor(byGenerationDesc, cursor, 3));
+            page.results().forEach(system -> pagedNames.add(system.getName()));
+            cursor = page.nextCursor();
+        }
+        assertEquals(allSystems.size(), pagedNames.size());
+        assertEquals(expectedNames, pagedNames, "Systems that tie on generation should come back in id (insert) order.");
+    }
+
+    void testCursorFromADifferentSortIsRejected() {
+        final List<Filter> byGeneration = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, "generation", Filter.OPERATOR_ORDER_BY, "", false)
+        );
+        final String cursor = systemRepository.getPageWithFilters(withCursor(byGeneration, "", 2)).nextCursor();
+        assertNotNull(cursor);
+
+        final List<Filter> byName = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_ORDER_BY, "", false)
+        );
+        assertThrows(ExceptionInvalidFilter.class, () -> systemRepository.getPageWithFilters(withCursor(byName, cursor, 2)));
+        assertThrows(ExceptionInvalidFilter.class, () -> systemRepository.getPageWithFilters(withCursor(byName, "not-a-cursor", 2)));
+    }
+
+    void testCursorRequiresALimit() {
+        final List<Filter> filters = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_CURSOR, "", false)
+        );
+        assertThrows(ExceptionInvalidFilter.class, () -> systemRepository.getPageWithFilters(filters));
+        assertNull(systemRepository.getPageWithFilters(List.of()).nextCursor(), "A search without a cursor never returns one.");
+    }
+
+    void testTotalCountIgnoresThePage() {
+        final List<Filter> handheldsByUnitsSold = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_BOOLEAN, "handheld", Filter.OPERATOR_EQUALS, "true", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_NUMBER, customFieldName, Filter.OPERATOR_ORDER_BY_DESC, "", true)
+        );
+        final int handheldCount = systemRepository.getWithFilters(handheldsByUnitsSold).size();
+        assertEquals(3, handheldCount);
+
+        assertNull(systemRepository.getPageWithFilters(withCursor(handheldsByUnitsSold, "", 2)).totalCount(), "The total count is only computed when asked for.");
+
+        final FilterPage<System> firstPage = systemRepository.getPageWithFilters(withCursor(handheldsByUnitsSold, "", 2), true);
+        assertEquals(2, firstPage.results().size());
+        assertEquals(handheldCount, firstPage.totalCount());
+        final FilterPage<System> secondPage = systemRepository.getPageWithFilters(withCursor(handheldsByUnitsSold, firstPage.nextCursor(), 2), true);
+        assertEquals(1, secondPage.results().size());
+        assertEquals(handheldCount, secondPage.totalCount());
+
+        final List<Filter> offsetPage = new ArrayList<>(handheldsByUnitsSold);
+        offsetPage.add(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "1", false));
+        offsetPage.add(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_OFFSET, "5", false));
+        final FilterPage<System> pastTheEnd = systemRepository.getPageWithFilters(offsetPage, true);
+        assertEquals(0, pastTheEnd.results().size());
+        assertEquals(handheldCount, pastTheEnd.totalCount(), "An offset past the last row still reports how many rows match.");
+    }
+
+    private List<Filter> withCursor(List<Filter> filters, String cursor, int limit) {
+        final List<Filter> paged = new ArrayList<>(filters);
+        paged.add(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_CURSOR, cursor, false));
+        paged.add(new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, Integer.toString(limit), false));
+        return paged;
+    }
+
+    private void insertSystemData(String name, int generation, boolean handheld, CustomField customField, String value) {
+        final CustomFieldValue customFieldValue = new CustomFieldValue(customField.id(), customField.name(), customField.type(), value);
+        systemRepository.insert(new System(null, name, generation, handheld, null, null, null, List.of(customFieldValue)));
+    }
+}
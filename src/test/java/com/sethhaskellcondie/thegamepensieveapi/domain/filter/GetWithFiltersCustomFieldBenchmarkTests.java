@@ -0,0 +1,129 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A benchmark, not a regression test: it seeds a single tenant with 100,000 toys, each with a value for 8 number custom
+ * fields, then times 1 to 8 custom field filters two ways. "before" is the old join chain (custom_field_values,
+ * custom_fields, and custom_field_options joined once per filter, the field picked by name), "after" is the SQL the
+ * filter compiler emits now (one correlated EXISTS per filter, the field picked by id). Both are asserted to find the
+ * same rows and the median latency of each is logged, so the curve can be compared from a single run.
+ * <p>
+ * Seeding takes a while, so it only runs when asked for: mvn test -Dtest=GetWithFiltersCustomFieldBenchmarkTests -Dbenchmark=true
+ */
+@JdbcTest
+@Import(CustomFieldSchemaCache.class)
+@ActiveProfiles("filter-tests10")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class GetWithFiltersCustomFieldBenchmarkTests {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetWithFiltersCustomFieldBenchmarkTests.class);
+    private static final int ROW_COUNT = 100_000;
+    private static final int MAX_FILTERS = 8;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 7;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
+    protected CustomFieldRepository customFieldRepository;
+
+    @Test
+    void customFieldFilterLatencyCurve() {
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, new CustomFieldOptionRepository(jdbcTemplate, schemaCache));
+        final List<CustomField> customFields = seedTenant();
+
+        LOGGER.info("custom field filters | before (join chain) ms | after (exists) ms | rows");
+        for (int filterCount = 1; filterCount <= MAX_FILTERS; filterCount++) {
+            final List<Filter> filters = new ArrayList<>();
+            for (int i = 0; i < filterCount; i++) {
+                //each field keeps roughly 90% of the rows so the result set shrinks slowly as filters are added
+                filters.add(new Filter(Keychain.TOY_KEY, CustomField.TYPE_NUMBER, customFields.get(i).name(), Filter.OPERATOR_GREATER_THAN, "9", true));
+            }
+            final List<Filter> orderedFilters = FilterService.validateAndOrderFilters(filters, customFields);
+
+            final String joinChainSql = buildJoinChainQuery(orderedFilters);
+            final List<Object> joinChainOperands = new ArrayList<>();
+            for (Filter filter : orderedFilters) {
+                joinChainOperands.add(filter.getField());
+                joinChainOperands.add(Integer.parseInt(filter.getOperand()));
+            }
+            final String existsSql = "SELECT toys.id FROM toys WHERE toys.deleted_at IS NULL"
+                    + String.join("", FilterService.formatWhereStatements(orderedFilters, customFields));
+            final List<Object> existsOperands = FilterService.formatOperands(orderedFilters);
+
+            final int rows = jdbcTemplate.queryForList(existsSql, Integer.class, existsOperands.toArray()).size();
+            assertEquals(jdbcTemplate.queryForList(joinChainSql, Integer.class, joinChainOperands.toArray()).size(), rows,
+                    "The EXISTS predicates must find the same rows as the join chain they replace.");
+
+            LOGGER.info("{} | {} | {} | {}", filterCount,
+                    medianMillis(joinChainSql, joinChainOperands), medianMillis(existsSql, existsOperands), rows);
+        }
+    }
+
+    private List<CustomField> seedTenant() {
+        final List<CustomField> customFields = new ArrayList<>();
+        for (int i = 1; i <= MAX_FILTERS; i++) {
+            customFields.add(customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Benchmark " + i, CustomField.TYPE_NUMBER, Keychain.TOY_KEY)));
+        }
+        jdbcTemplate.update("INSERT INTO toys (name, set) SELECT 'Toy ' || n, 'Set ' || (n % 50) FROM generate_series(1, ?) AS n", ROW_COUNT);
+        for (CustomField customField : customFields) {
+            jdbcTemplate.update("INSERT INTO custom_field_values (custom_field_id, entity_id, entity_key, value_number) "
+                    + "SELECT ?, toys.id, ?, (toys.id * ?) % 100 FROM toys", customField.id(), Keychain.TOY_KEY, customField.id() + 7);
+        }
+        jdbcTemplate.execute("ANALYZE toys");
+        jdbcTemplate.execute("ANALYZE custom_field_values");
+        return customFields;
+    }
+
+    //the query getWithFilters() used to build, kept here only as the baseline to measure against
+    private String buildJoinChainQuery(List<Filter> orderedFilters) {
+        final StringBuilder joins = new StringBuilder("SELECT toys.id FROM toys");
+        final StringBuilder where = new StringBuilder(" WHERE toys.deleted_at IS NULL");
+        for (int i = 1; i <= orderedFilters.size(); i++) {
+            joins.append(" JOIN custom_field_values AS values").append(i)
+                    .append(" ON toys.id = values").append(i).append(".entity_id AND values").append(i).append(".entity_key = '").append(Keychain.TOY_KEY).append("'")
+                    .append(" JOIN custom_fields AS fields").append(i)
+                    .append(" ON values").append(i).append(".custom_field_id = fields").append(i).append(".id AND fields").append(i).append(".deleted = false")
+                    .append(" LEFT JOIN custom_field_options AS options").append(i)
+                    .append(" ON values").append(i).append(".value_option_id = options").append(i).append(".id");
+            where.append(" AND fields").append(i).append(".name = ? AND values").append(i).append(".value_number > ?");
+        }
+        return joins.append(where).toString();
+    }
+
+    private long medianMillis(String sql, List<Object> operands) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            jdbcTemplate.queryForList(sql, Integer.class, operands.toArray());
+        }
+        final long[] timings = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long start = System.nanoTime();
+            jdbcTemplate.queryForList(sql, Integer.class, operands.toArray());
+            timings[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(timings);
+        return timings[MEASURED_RUNS / 2];
+    }
+}
@@ -6,6 +6,7 @@ import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOp
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -36,11 +38,14 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * order instead of creation order.
  */
 @JdbcTest
+@Import(CustomFieldSchemaCache.class)
 @ActiveProfiles("filter-tests8")
 public class GetWithFiltersCustomFieldOptionTests {
 
     @Autowired
     protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
     protected SystemRepository systemRepository;
     protected CustomFieldRepository customFieldRepository;
     protected CustomFieldOptionRepository optionRepository;
@@ -48,9 +53,9 @@ public class GetWithFiltersCustomFieldOptionTests {
 
     @BeforeEach
     public void setUp() {
-        optionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         customFieldRepository = new CustomFieldRepository(jdbcTemplate, optionRepository);
-        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository, optionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
         systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
@@ -81,10 +86,11 @@ public class GetWithFiltersCustomFieldOptionTests {
 
     @Test
     void optionFilter_EqualsGeneratesOptionIdWhereClause() {
+        final CustomField statusField = new CustomField(1, customFieldName, CustomField.TYPE_DROPDOWN, Keychain.SYSTEM_KEY, 0, List.of());
         final List<Filter> filters = List.of(
                 new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_DROPDOWN, customFieldName, Filter.OPERATOR_EQUALS, "5", true)
         );
-        final String generatedSql = String.join("", FilterService.formatWhereStatements(filters));
+        final String generatedSql = String.join("", FilterService.formatWhereStatements(filters, List.of(statusField)));
         assertTrue(generatedSql.contains(".value_option_id = ?"),
                 "Enum equals filter should compare the option id column. Generated: " + generatedSql);
     }
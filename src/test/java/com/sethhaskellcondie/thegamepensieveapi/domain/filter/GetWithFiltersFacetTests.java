@@ -0,0 +1,100 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomField;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOption;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRequestDto;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValue;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Facets count the values of the boolean/system columns and of the enum custom fields over the rows a search matches,
+ * in one GROUPING SETS statement. The counts must follow the filters, and an entity with values for several enum
+ * fields must only be counted once per facet.
+ */
+@JdbcTest
+@Import(CustomFieldSchemaCache.class)
+@ActiveProfiles("filter-tests11")
+public class GetWithFiltersFacetTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
+    protected SystemRepository systemRepository;
+    protected CustomFieldRepository customFieldRepository;
+    protected CustomFieldOptionRepository optionRepository;
+
+    @BeforeEach
+    public void setUp() {
+        optionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
+        customFieldRepository = new CustomFieldRepository(jdbcTemplate, optionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
+        systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
+    }
+
+    @Test
+    void testFacetCountsFollowTheFilters() {
+        final CustomField condition = customFieldRepository.insertCustomField(
+                CustomFieldRequestDto.withoutOptions("Condition", CustomField.TYPE_DROPDOWN, Keychain.SYSTEM_KEY));
+        final CustomFieldOption mint = optionRepository.insertOption(condition.id(), "Mint", true, 0);
+        final CustomFieldOption worn = optionRepository.insertOption(condition.id(), "Worn", false, 1);
+        final CustomField region = customFieldRepository.insertCustomField(
+                CustomFieldRequestDto.withoutOptions("Region", CustomField.TYPE_RADIO_BUTTON, Keychain.SYSTEM_KEY));
+        final CustomFieldOption ntsc = optionRepository.insertOption(region.id(), "NTSC", true, 0);
+        customFieldRepository.insertCustomField(CustomFieldRequestDto.withoutOptions("Notes", CustomField.TYPE_TEXT, Keychain.SYSTEM_KEY));
+
+        insertSystemData("Game Boy", true, List.of(optionValue(condition, mint), optionValue(region, ntsc)));
+        insertSystemData("Game Boy Color", true, List.of(optionValue(condition, worn), optionValue(region, ntsc)));
+        insertSystemData("Nintendo 64", false, List.of(optionValue(condition, mint), optionValue(region, ntsc)));
+        insertSystemData("GameCube", false, List.of());
+
+        final List<FilterFacet> allFacets = systemRepository.getFacetsWithFilters(List.of());
+        assertEquals(3, allFacets.size(), "Expected the handheld column and the two enum custom fields, the text field is not a facet.");
+        assertEquals("handheld", allFacets.get(0).field());
+        assertNull(allFacets.get(0).customFieldId());
+        assertEquals(List.of(new FilterFacet.Value(false, null, 2), new FilterFacet.Value(true, null, 2)), allFacets.get(0).values());
+        assertEquals(condition.id(), allFacets.get(1).customFieldId());
+        assertEquals(List.of(new FilterFacet.Value(mint.id(), "Mint", 2), new FilterFacet.Value(worn.id(), "Worn", 1)), allFacets.get(1).values(),
+                "Every system has two enum values, each must only be counted once.");
+        assertEquals(List.of(new FilterFacet.Value(ntsc.id(), "NTSC", 3)), allFacets.get(2).values());
+
+        final List<FilterFacet> handheldFacets = systemRepository.getFacetsWithFilters(List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_BOOLEAN, "handheld", Filter.OPERATOR_EQUALS, "true", false),
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, "1", false)
+        ));
+        assertEquals(List.of(new FilterFacet.Value(true, null, 2)), handheldFacets.get(0).values(), "The limit must not shrink the counts.");
+        assertEquals(List.of(new FilterFacet.Value(mint.id(), "Mint", 1), new FilterFacet.Value(worn.id(), "Worn", 1)), handheldFacets.get(1).values());
+
+        final List<FilterFacet> noMatches = systemRepository.getFacetsWithFilters(List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_EQUALS, "Virtual Boy", false)
+        ));
+        assertEquals(3, noMatches.size(), "Every facet is returned even when no rows match.");
+        noMatches.forEach(facet -> assertEquals(List.of(), facet.values()));
+    }
+
+    private CustomFieldValue optionValue(CustomField customField, CustomFieldOption option) {
+        return new CustomFieldValue(customField.id(), customField.name(), customField.type(), null, option.id());
+    }
+
+    private void insertSystemData(String name, boolean handheld, List<CustomFieldValue> customFieldValues) {
+        systemRepository.insert(new System(null, name, 1, handheld, null, null, null, customFieldValues));
+    }
+}
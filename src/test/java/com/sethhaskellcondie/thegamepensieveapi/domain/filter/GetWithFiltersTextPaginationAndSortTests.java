@@ -3,6 +3,7 @@ package com.sethhaskellcondie.thegamepensieveapi.domain.filter;
 import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
 import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.System;
 import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -31,18 +33,21 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
  * every entity.
  */
 @JdbcTest
+@Import(CustomFieldSchemaCache.class)
 @ActiveProfiles("filter-tests6")
 public class GetWithFiltersTextPaginationAndSortTests {
 
     @Autowired
     protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CustomFieldSchemaCache schemaCache;
     protected SystemRepository systemRepository;
 
     @BeforeEach
     public void setUp() {
-        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate);
+        final CustomFieldOptionRepository customFieldOptionRepository = new CustomFieldOptionRepository(jdbcTemplate, schemaCache);
         final CustomFieldRepository customFieldRepository = new CustomFieldRepository(jdbcTemplate, customFieldOptionRepository);
-        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository, customFieldOptionRepository);
+        final CustomFieldValueRepository customFieldValueRepository = new CustomFieldValueRepository(jdbcTemplate, customFieldRepository);
         systemRepository = new SystemRepository(jdbcTemplate, customFieldRepository, customFieldValueRepository);
     }
 
@@ -63,6 +68,8 @@ public class GetWithFiltersTextPaginationAndSortTests {
         testTextFilterNameContains("Nintendo", 3);
         testTextFilterNameStartsWith("Super", 2);
         testTextFilterNameEndsWith("Boy", 2);
+        testTextFilterNameIContains("nintendo", 3);
+        testTextFilterNameIStartsWith("SUPER", 2);
 
         testPaginationFilterLimit(2, List.of(superGameBoy, nes));
         testPaginationFilterOffsetAndLimit(1, 4, List.of(nes, snes, n64, gameBoy));
@@ -135,6 +142,26 @@ public class GetWithFiltersTextPaginationAndSortTests {
         assertEquals(expectedResults, results.size(), "Wrong number of results returned when testing text filter name ends_with.");
     }
 
+    void testTextFilterNameIContains(String name, int expectedResults) {
+        final List<Filter> filters = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_ICONTAINS, name, false)
+        );
+
+        final List<System> results = systemRepository.getWithFilters(filters);
+
+        assertEquals(expectedResults, results.size(), "Wrong number of results returned when testing text filter name icontains.");
+    }
+
+    void testTextFilterNameIStartsWith(String name, int expectedResults) {
+        final List<Filter> filters = List.of(
+                new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_TEXT, "name", Filter.OPERATOR_ISTARTS_WITH, name, false)
+        );
+
+        final List<System> results = systemRepository.getWithFilters(filters);
+
+        assertEquals(expectedResults, results.size(), "Wrong number of results returned when testing text filter name istarts_with.");
+    }
+
     void testPaginationFilterLimit(int limitResults, List<System> expectedResults) {
         final List<Filter> filters = List.of(
                 new Filter(Keychain.SYSTEM_KEY, Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, Integer.toString(limitResults), false)
@@ -0,0 +1,128 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.tenant;
+
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.counts.CollectionCountDrift;
+import com.sethhaskellcondie.thegamepensieveapi.domain.counts.CollectionCountsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The collection_counts rows (V1_24) are written by triggers as the entity rows are written, as app_rls exactly like
+ * a request, and read back through {@link CollectionCountsRepository}. They must stay equal to a count(*) of the live
+ * rows through inserts, soft deletes, restores and hard deletes, be visible only to their owner, and a counter that
+ * was changed behind the triggers' back must be reported and corrected by the reconciliation. Everything rolls back
+ * with the @JdbcTest transaction.
+ */
+@JdbcTest
+@ActiveProfiles("rls-tests")
+public class CollectionCountsTests {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    private CollectionCountsRepository collectionCountsRepository;
+
+    @BeforeEach
+    void setUp() {
+        collectionCountsRepository = new CollectionCountsRepository(jdbcTemplate);
+    }
+
+    @Test
+    void getCounts_InsertSoftDeleteRestoreAndDelete_CountStaysExact() {
+        final int owner = insertUser();
+        assumeOwner(owner);
+        insertToy("Counted Toy One");
+        insertToy("Counted Toy Two");
+        final int toyId = insertToy("Counted Toy Three");
+        assertEquals(3L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY));
+
+        jdbcTemplate.update("UPDATE toys SET deleted_at = now() WHERE id = ?", toyId);
+        assertEquals(2L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY), "a soft delete takes the row out of the count");
+
+        jdbcTemplate.update("UPDATE toys SET deleted_at = now() WHERE id = ?", toyId);
+        assertEquals(2L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY), "deleting a row that is already deleted changes nothing");
+
+        jdbcTemplate.update("UPDATE toys SET name = 'Renamed Toy' WHERE id = ?", toyId);
+        jdbcTemplate.update("UPDATE toys SET deleted_at = NULL WHERE id = ?", toyId);
+        assertEquals(3L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY), "a restore puts the row back in the count");
+
+        jdbcTemplate.update("DELETE FROM toys WHERE id = ?", toyId);
+        assertEquals(2L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY), "a hard delete of a live row takes it out of the count");
+        assertEquals(liveCount("toys", owner), collectionCountsRepository.getCounts().get(Keychain.TOY_KEY));
+        assertFalse(collectionCountsRepository.getCounts().containsKey(Keychain.SYSTEM_KEY), "an entity the owner never had a row of has no counter");
+    }
+
+    @Test
+    void getCounts_AsOwner_OnlyOwnCounters() {
+        final int ownerA = insertUser();
+        final int ownerB = insertUser();
+        assumeOwner(ownerA);
+        insertToy("Owner A Toy");
+        assumeOwner(ownerB);
+        insertToy("Owner B Toy One");
+        insertToy("Owner B Toy Two");
+
+        final Map<String, Long> counts = collectionCountsRepository.getCounts();
+        assertEquals(1, counts.size(), "owner B only sees their own counters");
+        assertEquals(2L, counts.get(Keychain.TOY_KEY));
+        assumeOwner(ownerA);
+        assertEquals(1L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY));
+    }
+
+    @Test
+    void reconcile_CountersChangedBehindTheTriggers_DriftReportedAndCorrected() {
+        final int ownerA = insertUser();
+        final int ownerB = insertUser();
+        for (String name : List.of("Drift Toy One", "Drift Toy Two")) {
+            jdbcTemplate.update("INSERT INTO toys (name, set, owner_id) VALUES (?, 'Drift Set', ?)", name, ownerA);
+        }
+        jdbcTemplate.update("INSERT INTO systems (name, generation, handheld, owner_id) VALUES ('Drift System ' || ?, 1, false, ?)", ownerB, ownerB);
+        jdbcTemplate.update("UPDATE collection_counts SET item_count = 99 WHERE owner_id = ? AND entity_key = ?", ownerA, Keychain.TOY_KEY);
+        jdbcTemplate.update("DELETE FROM collection_counts WHERE owner_id = ? AND entity_key = ?", ownerB, Keychain.SYSTEM_KEY);
+
+        final List<CollectionCountDrift> drift = ownDrift(collectionCountsRepository.reconcile(), ownerA, ownerB);
+        assertEquals(List.of(
+                new CollectionCountDrift(ownerA, Keychain.TOY_KEY, 99, 2),
+                new CollectionCountDrift(ownerB, Keychain.SYSTEM_KEY, 0, 1)
+        ), drift);
+        assertTrue(ownDrift(collectionCountsRepository.reconcile(), ownerA, ownerB).isEmpty(), "the first reconciliation corrected the counters");
+
+        assumeOwner(ownerA);
+        assertEquals(2L, collectionCountsRepository.getCounts().get(Keychain.TOY_KEY));
+    }
+
+    // ------------------------------- Private helpers -------------------------------
+
+    //the test database is shared with other suites, only the drift of the owners seeded here is asserted on
+    private List<CollectionCountDrift> ownDrift(List<CollectionCountDrift> drift, int ownerA, int ownerB) {
+        return drift.stream().filter(counter -> counter.ownerId() == ownerA || counter.ownerId() == ownerB).toList();
+    }
+
+    private int insertToy(String name) {
+        return jdbcTemplate.queryForObject("INSERT INTO toys (name, set) VALUES (?, 'Counted Set') RETURNING id", Integer.class, name);
+    }
+
+    private long liveCount(String table, int ownerId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE owner_id = ? AND deleted_at IS NULL", Long.class, ownerId);
+    }
+
+    private int insertUser() {
+        final String email = "collection-counts-" + java.util.UUID.randomUUID() + "@example.com";
+        return jdbcTemplate.queryForObject("INSERT INTO users(email) VALUES (?) RETURNING id", Integer.class, email);
+    }
+
+    private void assumeOwner(int ownerId) {
+        jdbcTemplate.execute("SET LOCAL ROLE app_rls");
+        jdbcTemplate.queryForObject("SELECT set_config('app.current_owner', ?, true)", String.class, String.valueOf(ownerId));
+    }
+}
@@ -0,0 +1,188 @@
+package com.sethhaskellcondie.thegamepensieveapi.domain.tenant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sethhaskellcondie.thegamepensieveapi.domain.Keychain;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldOptionRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldSchemaCache;
+import com.sethhaskellcondie.thegamepensieveapi.domain.customfield.CustomFieldValueRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.EntityRepositoryAbstract;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgame.BoardGameRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.boardgamebox.BoardGameBoxRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.system.SystemRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.toy.ToyRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogame.VideoGameRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.entity.videogamebox.VideoGameBoxRepository;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.Filter;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterPlan;
+import com.sethhaskellcondie.thegamepensieveapi.domain.filter.FilterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * The hot reads of a tenant must be served by the V1_23 indexes, not a sequential scan. Two owners are seeded with
+ * ROW_COUNT rows in every table (as the superuser, which bypasses RLS) and analyzed, then each query is EXPLAINed as
+ * app_rls with the large owner assumed, so the plan includes the RLS predicate exactly like a request. A page of a
+ * search is the SQL its repository compiles (getFilterPlan()), keyset predicate and all, bound with the operands a
+ * request binds. A plan that sequentially scans the table the query reads fails the test. Everything rolls back with
+ * the @JdbcTest transaction.
+ */
+@JdbcTest
+@Import({CustomFieldSchemaCache.class, CustomFieldOptionRepository.class, CustomFieldRepository.class, CustomFieldValueRepository.class,
+        SystemRepository.class, ToyRepository.class, VideoGameRepository.class, VideoGameBoxRepository.class, BoardGameRepository.class,
+        BoardGameBoxRepository.class})
+@ActiveProfiles("rls-tests")
+public class TenantIndexPlanTests {
+
+    private static final int ROW_COUNT = 10_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected SystemRepository systemRepository;
+    @Autowired
+    protected ToyRepository toyRepository;
+    @Autowired
+    protected VideoGameRepository videoGameRepository;
+    @Autowired
+    protected VideoGameBoxRepository videoGameBoxRepository;
+    @Autowired
+    protected BoardGameRepository boardGameRepository;
+    @Autowired
+    protected BoardGameBoxRepository boardGameBoxRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private int largeOwner;
+
+    @BeforeEach
+    void setUp() {
+        largeOwner = insertUser();
+        final int otherOwner = insertUser();
+        for (int owner : List.of(largeOwner, otherOwner)) {
+            final Integer systemId = jdbcTemplate.queryForObject(
+                    "INSERT INTO systems (name, generation, handheld, owner_id) VALUES ('Index Plan System ' || ?, 1, false, ?) RETURNING id", Integer.class, owner, owner);
+            jdbcTemplate.update("INSERT INTO systems (name, generation, handheld, owner_id) SELECT 'Index Plan System ' || n, 1, false, ? FROM generate_series(1, ?) AS n",
+                    owner, ROW_COUNT);
+            jdbcTemplate.update("INSERT INTO toys (name, set, owner_id) SELECT 'Index Plan Toy ' || n, 'Index Plan Set', ? FROM generate_series(1, ?) AS n", owner, ROW_COUNT);
+            jdbcTemplate.update("INSERT INTO video_games (title, system_id, owner_id) SELECT 'Index Plan Game ' || n, ?, ? FROM generate_series(1, ?) AS n",
+                    systemId, owner, ROW_COUNT);
+            jdbcTemplate.update("INSERT INTO video_game_boxes (title, system_id, owner_id) SELECT 'Index Plan Box ' || n, ?, ? FROM generate_series(1, ?) AS n",
+                    systemId, owner, ROW_COUNT);
+            jdbcTemplate.update("INSERT INTO board_games (title, owner_id) SELECT 'Index Plan Board Game ' || n, ? FROM generate_series(1, ?) AS n", owner, ROW_COUNT);
+            final Integer customFieldId = jdbcTemplate.queryForObject(
+                    "INSERT INTO custom_fields (name, type, entity_key, owner_id) VALUES ('Index Plan Edition', 'text', 'videoGame', ?) RETURNING id", Integer.class, owner);
+            jdbcTemplate.update("INSERT INTO custom_field_values (custom_field_id, entity_id, entity_key, value_text, owner_id) "
+                    + "SELECT ?, id, 'videoGame', 'First', owner_id FROM video_games WHERE owner_id = ?", customFieldId, owner);
+        }
+        jdbcTemplate.update("INSERT INTO board_game_boxes (title, board_game_id, owner_id) SELECT title, id, owner_id FROM board_games WHERE owner_id IN (?, ?)",
+                largeOwner, otherOwner);
+        jdbcTemplate.update("INSERT INTO video_game_to_video_game_box (video_game_id, video_game_box_id, owner_id) "
+                + "SELECT video_games.id, video_game_boxes.id, video_games.owner_id FROM video_games "
+                + "JOIN video_game_boxes ON video_game_boxes.owner_id = video_games.owner_id AND video_game_boxes.title = replace(video_games.title, 'Game', 'Box') "
+                + "WHERE video_games.owner_id IN (?, ?)", largeOwner, otherOwner);
+        for (String table : List.of("systems", "toys", "video_games", "video_game_boxes", "board_games", "board_game_boxes", "custom_field_values",
+                "video_game_to_video_game_box")) {
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+    }
+
+    @Test
+    void secondPageSortedByTitle_LargeTenant_NoSequentialScan() {
+        final List<SearchedTable> searchedTables = List.of(
+                new SearchedTable("systems", Keychain.SYSTEM_KEY, "name", systemRepository),
+                new SearchedTable("toys", Keychain.TOY_KEY, "name", toyRepository),
+                new SearchedTable("video_games", Keychain.VIDEO_GAME_KEY, "title", videoGameRepository),
+                new SearchedTable("video_game_boxes", Keychain.VIDEO_GAME_BOX_KEY, "title", videoGameBoxRepository),
+                new SearchedTable("board_games", Keychain.BOARD_GAME_KEY, "title", boardGameRepository),
+                new SearchedTable("board_game_boxes", Keychain.BOARD_GAME_BOX_KEY, "title", boardGameBoxRepository)
+        );
+        assumeOwner(largeOwner);
+        for (SearchedTable searched : searchedTables) {
+            //the first page hands out the cursor a request for the second page sends back
+            final String cursor = searched.repository().getPageWithFilters(sortedPage(searched, "")).nextCursor();
+            assertNotNull(cursor, "A full first page of " + searched.table() + " has a next page.");
+            final List<Filter> secondPage = sortedPage(searched, cursor);
+            final FilterPlan plan = searched.repository().getFilterPlan(secondPage);
+            assertNoSequentialScan(searched.table(), plan.sql(), FilterService.formatOperands(plan.orderFilters(secondPage)).toArray());
+        }
+    }
+
+    @Test
+    void customFieldValuesOfABatch_LargeTenant_NoSequentialScan() {
+        final String ids = getFirstVideoGameIds();
+        assumeOwner(largeOwner);
+        assertNoSequentialScan("custom_field_values", "SELECT custom_field_values.custom_field_id, custom_field_values.entity_id, custom_field_values.value_text"
+                + " FROM custom_field_values WHERE custom_field_values.entity_id = ANY('" + ids + "'::int[]) AND custom_field_values.entity_key = 'videoGame'");
+    }
+
+    @Test
+    void relatedBoxIdsOfABatch_LargeTenant_NoSequentialScan() {
+        final String ids = getFirstVideoGameIds();
+        assumeOwner(largeOwner);
+        assertNoSequentialScan("video_game_to_video_game_box",
+                "SELECT video_game_id, video_game_box_id FROM video_game_to_video_game_box WHERE video_game_id = ANY('" + ids + "'::int[]) ORDER BY video_game_box_id");
+    }
+
+    // ------------------------------- Private helpers -------------------------------
+
+    private record SearchedTable(String table, String entityKey, String sortField, EntityRepositoryAbstract<?, ?, ?> repository) { }
+
+    private List<Filter> sortedPage(SearchedTable searched, String cursor) {
+        return List.of(
+                new Filter(searched.entityKey(), Filter.FIELD_TYPE_TEXT, searched.sortField(), Filter.OPERATOR_ORDER_BY, "", false),
+                new Filter(searched.entityKey(), Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_CURSOR, cursor, false),
+                new Filter(searched.entityKey(), Filter.FIELD_TYPE_PAGINATION, Filter.PAGINATION_FIELDS, Filter.OPERATOR_LIMIT, Integer.toString(BATCH_SIZE), false)
+        );
+    }
+
+    private void assertNoSequentialScan(String table, String sql, Object... operands) {
+        final String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, operands);
+        final Set<String> sequentiallyScanned = new HashSet<>();
+        try {
+            collectSequentialScans(objectMapper.readTree(plan).get(0).get("Plan"), sequentiallyScanned);
+        } catch (Exception exception) {
+            throw new IllegalStateException("Could not read the plan of: " + sql, exception);
+        }
+        assertFalse(sequentiallyScanned.contains(table), "The query fell back to a sequential scan of " + table + ":\n" + sql + "\n" + plan);
+    }
+
+    private void collectSequentialScans(JsonNode node, Set<String> sequentiallyScanned) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            sequentiallyScanned.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, sequentiallyScanned);
+        }
+    }
+
+    //a literal array keeps the EXPLAIN free of bind parameters, the ids are read before dropping to app_rls
+    private String getFirstVideoGameIds() {
+        final List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM video_games WHERE owner_id = ? ORDER BY id LIMIT ?", Integer.class, largeOwner, BATCH_SIZE);
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private int insertUser() {
+        final String email = "index-plan-" + UUID.randomUUID() + "@example.com";
+        return jdbcTemplate.queryForObject("INSERT INTO users(email) VALUES (?) RETURNING id", Integer.class, email);
+    }
+
+    private void assumeOwner(int ownerId) {
+        jdbcTemplate.execute("SET LOCAL ROLE app_rls");
+        jdbcTemplate.queryForObject("SELECT set_config('app.current_owner', ?, true)", String.class, String.valueOf(ownerId));
+    }
+}